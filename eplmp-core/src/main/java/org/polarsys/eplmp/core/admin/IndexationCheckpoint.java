@@ -0,0 +1,162 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.core.admin;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Progress of the full reindexation of a workspace.
+ *
+ * The reindexation walks document masters then part masters, page after page,
+ * in key order. The checkpoint is saved once a page has been sent to the
+ * indexer so that an interrupted reindexation can resume where it stopped.
+ *
+ * @version 2.5, 18/10/17
+ * @since V2.5
+ */
+@Table(name = "INDEXATIONCHECKPOINT")
+@Entity
+public class IndexationCheckpoint implements Serializable {
+
+    public enum Phase {
+        DOCUMENTS, PARTS, DONE
+    }
+
+    @Id
+    @Column(length = 100)
+    private String workspaceId = "";
+
+    @Enumerated(EnumType.STRING)
+    private Phase phase;
+
+    /**
+     * Key of the last master indexed in the current phase: a document master id
+     * or a part number.
+     */
+    @Column(length = 255)
+    private String lastKey;
+
+    private long indexedCount;
+
+    private long failureCount;
+
+    private long bytesExtracted;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date startDate;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date updateDate;
+
+    public IndexationCheckpoint() {
+    }
+
+    public IndexationCheckpoint(String workspaceId) {
+        this.workspaceId = workspaceId;
+        this.phase = Phase.DOCUMENTS;
+        this.lastKey = "";
+        this.startDate = new Date();
+        this.updateDate = startDate;
+    }
+
+    public String getWorkspaceId() {
+        return workspaceId;
+    }
+
+    public void setWorkspaceId(String workspaceId) {
+        this.workspaceId = workspaceId;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public void setPhase(Phase phase) {
+        this.phase = phase;
+    }
+
+    public String getLastKey() {
+        return lastKey;
+    }
+
+    public void setLastKey(String lastKey) {
+        this.lastKey = lastKey;
+    }
+
+    public long getIndexedCount() {
+        return indexedCount;
+    }
+
+    public void setIndexedCount(long indexedCount) {
+        this.indexedCount = indexedCount;
+    }
+
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    public void setFailureCount(long failureCount) {
+        this.failureCount = failureCount;
+    }
+
+    public long getBytesExtracted() {
+        return bytesExtracted;
+    }
+
+    public void setBytesExtracted(long bytesExtracted) {
+        this.bytesExtracted = bytesExtracted;
+    }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(Date startDate) {
+        this.startDate = startDate;
+    }
+
+    public Date getUpdateDate() {
+        return updateDate;
+    }
+
+    public void setUpdateDate(Date updateDate) {
+        this.updateDate = updateDate;
+    }
+
+    public boolean isDone() {
+        return phase == Phase.DONE;
+    }
+
+    /**
+     * Move to the next phase, restarting from the first key
+     */
+    public void nextPhase() {
+        phase = phase == Phase.DOCUMENTS ? Phase.PARTS : Phase.DONE;
+        lastKey = "";
+    }
+
+    /**
+     * @return the number of iterations indexed per second since the start of the reindexation
+     */
+    public double getIndexingRate() {
+        long elapsed = updateDate.getTime() - startDate.getTime();
+        return elapsed <= 0 ? 0 : indexedCount * 1000d / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %s after [%s], %d indexed (%.1f/s), %d bytes extracted, %d failures",
+                workspaceId, phase, lastKey, indexedCount, getIndexingRate(), bytesExtracted, failureCount);
+    }
+}
@@ -0,0 +1,160 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.core.admin;
+
+import org.polarsys.eplmp.core.document.DocumentIterationKey;
+import org.polarsys.eplmp.core.product.PartIterationKey;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Pending change of the search index: a document or part iteration to index
+ * or to remove from the index.
+ *
+ * Items are stored in the transaction of the change that caused them, and sent
+ * to the indexer later on. Several items for the same iteration are coalesced
+ * into the most recent one.
+ *
+ * @version 2.5, 18/10/17
+ * @since V2.5
+ */
+@Table(name = "INDEXATIONQUEUEITEM", indexes = {@Index(name = "INDEX_QUEUE_WKS", columnList = "WORKSPACEID")})
+@Entity
+@NamedQueries({
+        @NamedQuery(name = "IndexationQueueItem.findFirst", query = "SELECT i FROM IndexationQueueItem i ORDER BY i.id"),
+        @NamedQuery(name = "IndexationQueueItem.count", query = "SELECT COUNT(i) FROM IndexationQueueItem i"),
+        @NamedQuery(name = "IndexationQueueItem.findOldestDate", query = "SELECT MIN(i.enqueueDate) FROM IndexationQueueItem i"),
+        @NamedQuery(name = "IndexationQueueItem.removeByIds", query = "DELETE FROM IndexationQueueItem i WHERE i.id IN :ids"),
+        @NamedQuery(name = "IndexationQueueItem.removeByWorkspace", query = "DELETE FROM IndexationQueueItem i WHERE i.workspaceId = :workspaceId")
+})
+public class IndexationQueueItem implements Serializable {
+
+    public enum ItemType {
+        DOCUMENT, PART
+    }
+
+    public enum Action {
+        INDEX, REMOVE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @Enumerated(EnumType.STRING)
+    private ItemType itemType;
+
+    @Enumerated(EnumType.STRING)
+    private Action action;
+
+    @Column(length = 100)
+    private String workspaceId;
+
+    /**
+     * Document master id or part number
+     */
+    @Column(length = 255)
+    private String holderId;
+
+    @Column(length = 10)
+    private String version;
+
+    private int iteration;
+
+    private int attempts;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date enqueueDate;
+
+    public IndexationQueueItem() {
+    }
+
+    public IndexationQueueItem(DocumentIterationKey key, Action action) {
+        this(ItemType.DOCUMENT, action, key.getWorkspaceId(), key.getDocumentMasterId(), key.getDocumentRevisionVersion(), key.getIteration());
+    }
+
+    public IndexationQueueItem(PartIterationKey key, Action action) {
+        this(ItemType.PART, action, key.getWorkspaceId(), key.getPartMasterNumber(), key.getPartRevisionVersion(), key.getIteration());
+    }
+
+    private IndexationQueueItem(ItemType itemType, Action action, String workspaceId, String holderId, String version, int iteration) {
+        this.itemType = itemType;
+        this.action = action;
+        this.workspaceId = workspaceId;
+        this.holderId = holderId;
+        this.version = version;
+        this.iteration = iteration;
+        this.enqueueDate = new Date();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public ItemType getItemType() {
+        return itemType;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public String getWorkspaceId() {
+        return workspaceId;
+    }
+
+    public String getHolderId() {
+        return holderId;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public int getIteration() {
+        return iteration;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Date getEnqueueDate() {
+        return enqueueDate;
+    }
+
+    public DocumentIterationKey getDocumentIterationKey() {
+        return new DocumentIterationKey(workspaceId, holderId, version, iteration);
+    }
+
+    public PartIterationKey getPartIterationKey() {
+        return new PartIterationKey(workspaceId, holderId, version, iteration);
+    }
+
+    /**
+     * Identify the indexed iteration, items with the same target are coalesced
+     */
+    public String getTarget() {
+        return itemType + "/" + workspaceId + "/" + holderId + "/" + version + "/" + iteration;
+    }
+
+    @Override
+    public String toString() {
+        return action + " " + getTarget();
+    }
+}
@@ -17,6 +17,10 @@ import java.io.Serializable;
  * Encapsulates the result of a cascade operation made upon
  * the Product Structure.
  *
+ * Each part of the cascade is counted once, as a succeeded or a failed attempt.
+ * The cascade is run by chunks, which are also counted so that a cascade
+ * partially rolled back can be told apart and run again.
+ *
  * @author Charles Fallourd
  * @version 2.5, 12/04/16
  * @since   V2.5
@@ -25,6 +29,9 @@ public class CascadeResult implements Serializable{
 
     private int succeedAttempts;
     private int failedAttempts;
+    private int totalAttempts;
+    private int processedChunks;
+    private int rolledBackChunks;
 
     public CascadeResult() {
         this.succeedAttempts = 0;
@@ -39,6 +46,14 @@ public class CascadeResult implements Serializable{
         this.failedAttempts++;
     }
 
+    /**
+     * Add the attempts of a part of the cascade, such as a chunk of parts
+     */
+    public void add(CascadeResult other) {
+        this.succeedAttempts += other.succeedAttempts;
+        this.failedAttempts += other.failedAttempts;
+    }
+
     public int getSucceedAttempts() {
         return succeedAttempts;
     }
@@ -54,4 +69,28 @@ public class CascadeResult implements Serializable{
     public void setFailedAttempts(int failedAttempts) {
         this.failedAttempts = failedAttempts;
     }
+
+    public int getTotalAttempts() {
+        return totalAttempts;
+    }
+
+    public void setTotalAttempts(int totalAttempts) {
+        this.totalAttempts = totalAttempts;
+    }
+
+    public int getProcessedChunks() {
+        return processedChunks;
+    }
+
+    public void setProcessedChunks(int processedChunks) {
+        this.processedChunks = processedChunks;
+    }
+
+    public int getRolledBackChunks() {
+        return rolledBackChunks;
+    }
+
+    public void setRolledBackChunks(int rolledBackChunks) {
+        this.rolledBackChunks = rolledBackChunks;
+    }
 }
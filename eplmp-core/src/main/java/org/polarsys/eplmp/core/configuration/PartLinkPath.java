@@ -0,0 +1,231 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.core.configuration;
+
+import org.polarsys.eplmp.core.product.PartLink;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Identifies a path inside a product structure: the ordered list of
+ * {@link PartLink} full ids from the root of the structure.
+ *
+ * Paths are immutable and share their parent, so extending a path or
+ * replacing its last link is done in constant time. The hash code is
+ * computed incrementally and the string form, which is the one used by the
+ * REST API and stored in baselines (e.g. "-1-u12-u45-s7"), is only rendered
+ * on demand.
+ *
+ * When built from actual links, the path also gives access to them through
+ * {@link #asList()}.
+ *
+ * @see PartLink
+ * @since V2.5
+ */
+public final class PartLinkPath implements Serializable {
+
+    private static final String SEPARATOR = "-";
+
+    private final PartLinkPath parent;
+    private final String linkId;
+    private final int size;
+    private final int hash;
+
+    private final transient PartLink link;
+    private transient String string;
+    private transient List<PartLink> links;
+
+    private PartLinkPath(PartLinkPath parent, String linkId, PartLink link) {
+        this.parent = parent;
+        this.linkId = linkId;
+        this.link = link;
+        this.size = parent == null ? 1 : parent.size + 1;
+        this.hash = parent == null ? linkId.hashCode() : 31 * parent.hash + linkId.hashCode();
+    }
+
+    public static PartLinkPath of(PartLink link) {
+        return new PartLinkPath(null, link.getFullId(), link);
+    }
+
+    /**
+     * Get the path of the given list of links, in constant time if the list
+     * is the view of an existing path.
+     *
+     * @return the path, null for an empty list
+     */
+    public static PartLinkPath of(List<PartLink> path) {
+        if (path instanceof LinkView) {
+            return ((LinkView) path).path;
+        }
+        PartLinkPath linkPath = null;
+        for (PartLink link : path) {
+            linkPath = linkPath == null ? of(link) : linkPath.append(link);
+        }
+        return linkPath;
+    }
+
+    /**
+     * Parse a path from its string form. Such paths do not hold any link.
+     *
+     * @return the path, null for an empty string
+     */
+    public static PartLinkPath parse(String path) {
+        PartLinkPath linkPath = null;
+        boolean negative = false;
+        for (String token : path.split(SEPARATOR)) {
+            if (token.isEmpty()) {
+                // A leading or doubled separator is the sign of the virtual root link, "-1"
+                negative = true;
+                continue;
+            }
+            String linkId = negative ? SEPARATOR + token : token;
+            negative = false;
+            linkPath = linkPath == null ? new PartLinkPath(null, linkId, null) : new PartLinkPath(linkPath, linkId, null);
+        }
+        return linkPath;
+    }
+
+    /**
+     * Parse each of the given paths, typically to index string paths stored in entities.
+     */
+    public static Set<PartLinkPath> parseAll(Collection<String> paths) {
+        Set<PartLinkPath> linkPaths = new HashSet<>(paths.size() * 2);
+        for (String path : paths) {
+            PartLinkPath linkPath = parse(path);
+            if (linkPath != null) {
+                linkPaths.add(linkPath);
+            }
+        }
+        return linkPaths;
+    }
+
+    public PartLinkPath append(PartLink pLink) {
+        return new PartLinkPath(this, pLink.getFullId(), pLink);
+    }
+
+    /**
+     * Get the sibling path where the last link is replaced by the given one,
+     * for instance a substitute of the nominal link.
+     */
+    public PartLinkPath replaceLast(PartLink pLink) {
+        return parent == null ? of(pLink) : parent.append(pLink);
+    }
+
+    public PartLinkPath getParent() {
+        return parent;
+    }
+
+    /**
+     * @return the last link of the path, null if the path was parsed from a string
+     */
+    public PartLink getLink() {
+        return link;
+    }
+
+    public String getLinkId() {
+        return linkId;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the links of the path from the root
+     * @throws IllegalStateException if the path was parsed from a string
+     */
+    public List<PartLink> asList() {
+        if (links == null) {
+            links = new LinkView(this);
+        }
+        return links;
+    }
+
+    @Override
+    public boolean equals(Object pObj) {
+        if (this == pObj) {
+            return true;
+        }
+        if (!(pObj instanceof PartLinkPath)) {
+            return false;
+        }
+        PartLinkPath a = this;
+        PartLinkPath b = (PartLinkPath) pObj;
+        if (a.hash != b.hash || a.size != b.size) {
+            return false;
+        }
+        while (a != b) {
+            if (!a.linkId.equals(b.linkId)) {
+                return false;
+            }
+            a = a.parent;
+            b = b.parent;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        if (string == null) {
+            string = parent == null ? linkId : parent.toString() + SEPARATOR + linkId;
+        }
+        return string;
+    }
+
+    /**
+     * Static view on the links of a path, with root at index 0
+     */
+    private static final class LinkView extends AbstractList<PartLink> implements RandomAccess, Serializable {
+
+        private final transient PartLinkPath path;
+        private PartLink[] elements;
+
+        private LinkView(PartLinkPath path) {
+            this.path = path;
+        }
+
+        private PartLink[] elements() {
+            if (elements == null) {
+                PartLink[] array = new PartLink[path.size];
+                int i = array.length;
+                for (PartLinkPath node = path; node != null; node = node.parent) {
+                    if (node.link == null) {
+                        throw new IllegalStateException("No link available on path " + path);
+                    }
+                    array[--i] = node.link;
+                }
+                elements = array;
+            }
+            return elements;
+        }
+
+        @Override
+        public PartLink get(int index) {
+            return elements()[index];
+        }
+
+        @Override
+        public int size() {
+            return path.size;
+        }
+
+        private Object writeReplace() {
+            return new ArrayList<>(Arrays.asList(elements()));
+        }
+    }
+}
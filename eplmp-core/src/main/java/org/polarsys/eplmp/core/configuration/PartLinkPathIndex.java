@@ -0,0 +1,44 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.core.configuration;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Index of a collection of paths stored as strings, used to look them up
+ * with {@link PartLinkPath} without rendering each candidate path.
+ *
+ * The index is bound to the collection it was built from and to the version of the links
+ * of its owner, incremented on each change. It must be rebuilt when {@link #isIndexOf(Collection, int)}
+ * returns false: a collection edited in place may keep its identity and its size.
+ */
+final class PartLinkPathIndex {
+
+    private final Collection<String> source;
+    private final int version;
+    private final Set<PartLinkPath> paths;
+
+    PartLinkPathIndex(Collection<String> source, int version) {
+        this.source = source;
+        this.version = version;
+        this.paths = PartLinkPath.parseAll(source);
+    }
+
+    boolean isIndexOf(Collection<String> pSource, int pVersion) {
+        return source == pSource && version == pVersion;
+    }
+
+    boolean contains(PartLinkPath path) {
+        return paths.contains(path);
+    }
+}
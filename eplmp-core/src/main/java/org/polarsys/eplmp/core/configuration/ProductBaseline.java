@@ -110,6 +110,16 @@ public class ProductBaseline implements Serializable {
     )
     private Set<String> optionalUsageLinks = new HashSet<>();
 
+    @Transient
+    private transient PartLinkPathIndex substituteLinkIndex;
+
+    @Transient
+    private transient PartLinkPathIndex optionalUsageLinkIndex;
+
+    // Incremented on each change of the links, the indexes are rebuilt when it changes
+    @Transient
+    private transient int linksVersion;
+
     @OneToMany(orphanRemoval = true, cascade = CascadeType.ALL, fetch = FetchType.EAGER)
     @JoinTable(name = "PRODUCTBASELINE_P2PLINK",
             inverseJoinColumns = {
@@ -199,26 +209,30 @@ public class ProductBaseline implements Serializable {
     }
 
     public Set<String> getOptionalUsageLinks() {
-        return optionalUsageLinks;
+        return Collections.unmodifiableSet(optionalUsageLinks);
     }
 
     public Set<String> getSubstituteLinks() {
-        return substituteLinks;
+        return Collections.unmodifiableSet(substituteLinks);
     }
 
     public boolean removeOptionalUsageLink(String usageLinkPath) {
+        linksVersion++;
         return optionalUsageLinks.remove(usageLinkPath);
     }
 
     public boolean addOptionalUsageLink(String usageLinkPath) {
+        linksVersion++;
         return optionalUsageLinks.add(usageLinkPath);
     }
 
     public boolean removeSubstituteLink(String substituteLinkPath) {
+        linksVersion++;
         return substituteLinks.remove(substituteLinkPath);
     }
 
     public boolean addSubstituteLink(String substituteLinkPath) {
+        linksVersion++;
         return substituteLinks.add(substituteLinkPath);
     }
 
@@ -258,6 +272,24 @@ public class ProductBaseline implements Serializable {
         return optionalUsageLinks.contains(link);
     }
 
+    public boolean hasSubstituteLink(PartLinkPath link) {
+        if (substituteLinkIndex == null || !substituteLinkIndex.isIndexOf(substituteLinks, linksVersion)) {
+            substituteLinkIndex = new PartLinkPathIndex(substituteLinks, linksVersion);
+        }
+        return substituteLinkIndex.contains(link);
+    }
+
+    public boolean isOptionalLinkRetained(PartLinkPath link) {
+        return !isOptionalLinkExcluded(link);
+    }
+
+    public boolean isOptionalLinkExcluded(PartLinkPath link) {
+        if (optionalUsageLinkIndex == null || !optionalUsageLinkIndex.isIndexOf(optionalUsageLinks, linksVersion)) {
+            optionalUsageLinkIndex = new PartLinkPathIndex(optionalUsageLinks, linksVersion);
+        }
+        return optionalUsageLinkIndex.contains(link);
+    }
+
     public User getAuthor() {
         return author;
     }
@@ -16,6 +16,7 @@ import org.polarsys.eplmp.core.security.ACL;
 
 import javax.persistence.*;
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
@@ -90,6 +91,16 @@ public class ProductConfiguration implements Serializable {
     )
     private Set<String> optionalUsageLinks=new HashSet<>();
 
+    @Transient
+    private transient PartLinkPathIndex substituteLinkIndex;
+
+    @Transient
+    private transient PartLinkPathIndex optionalUsageLinkIndex;
+
+    // Incremented on each change of the links, the indexes are rebuilt when it changes
+    @Transient
+    private transient int linksVersion;
+
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumns({
             @JoinColumn(name = "AUTHOR_LOGIN", referencedColumnName = "LOGIN"),
@@ -158,19 +169,21 @@ public class ProductConfiguration implements Serializable {
     }
 
     public Set<String> getSubstituteLinks() {
-        return substituteLinks;
+        return Collections.unmodifiableSet(substituteLinks);
     }
 
     public void setSubstituteLinks(Set<String> substituteLinks) {
         this.substituteLinks = substituteLinks;
+        linksVersion++;
     }
 
     public Set<String> getOptionalUsageLinks() {
-        return optionalUsageLinks;
+        return Collections.unmodifiableSet(optionalUsageLinks);
     }
 
     public void setOptionalUsageLinks(Set<String> optionalUsageLinks) {
         this.optionalUsageLinks = optionalUsageLinks;
+        linksVersion++;
     }
 
     public boolean hasSubstituteLink(String link){
@@ -181,6 +194,20 @@ public class ProductConfiguration implements Serializable {
         return optionalUsageLinks.contains(link);
     }
 
+    public boolean hasSubstituteLink(PartLinkPath link) {
+        if (substituteLinkIndex == null || !substituteLinkIndex.isIndexOf(substituteLinks, linksVersion)) {
+            substituteLinkIndex = new PartLinkPathIndex(substituteLinks, linksVersion);
+        }
+        return substituteLinkIndex.contains(link);
+    }
+
+    public boolean isOptionalLinkRetained(PartLinkPath link) {
+        if (optionalUsageLinkIndex == null || !optionalUsageLinkIndex.isIndexOf(optionalUsageLinks, linksVersion)) {
+            optionalUsageLinkIndex = new PartLinkPathIndex(optionalUsageLinks, linksVersion);
+        }
+        return optionalUsageLinkIndex.contains(link);
+    }
+
     public User getAuthor() {
         return author;
     }
@@ -156,6 +156,16 @@ public class ProductInstanceIteration implements Serializable, FileHolder {
 
     private Set<String> optionalUsageLinks = new HashSet<>();
 
+    @Transient
+    private transient PartLinkPathIndex substituteLinkIndex;
+
+    @Transient
+    private transient PartLinkPathIndex optionalUsageLinkIndex;
+
+    // Incremented on each change of the links, the indexes are rebuilt when it changes
+    @Transient
+    private transient int linksVersion;
+
 
     @OneToMany(orphanRemoval = true, cascade = CascadeType.ALL, fetch = FetchType.EAGER)
     @JoinTable(name = "PRDINSTITERATION_P2PLINK",
@@ -330,19 +340,21 @@ public class ProductInstanceIteration implements Serializable, FileHolder {
     }
 
     public Set<String> getSubstituteLinks() {
-        return substituteLinks;
+        return Collections.unmodifiableSet(substituteLinks);
     }
 
     public void setSubstituteLinks(Set<String> substituteLinks) {
         this.substituteLinks = substituteLinks;
+        linksVersion++;
     }
 
     public Set<String> getOptionalUsageLinks() {
-        return optionalUsageLinks;
+        return Collections.unmodifiableSet(optionalUsageLinks);
     }
 
     public void setOptionalUsageLinks(Set<String> optionalUsageLinks) {
         this.optionalUsageLinks = optionalUsageLinks;
+        linksVersion++;
     }
 
     public String getConfigurationItemId() {
@@ -362,6 +374,24 @@ public class ProductInstanceIteration implements Serializable, FileHolder {
         return optionalUsageLinks.contains(link);
     }
 
+    public boolean hasSubstituteLink(PartLinkPath link) {
+        if (substituteLinkIndex == null || !substituteLinkIndex.isIndexOf(substituteLinks, linksVersion)) {
+            substituteLinkIndex = new PartLinkPathIndex(substituteLinks, linksVersion);
+        }
+        return substituteLinkIndex.contains(link);
+    }
+
+    public boolean isOptionalLinkRetained(PartLinkPath link) {
+        return !isOptionalLinkExcluded(link);
+    }
+
+    public boolean isOptionalLinkExcluded(PartLinkPath link) {
+        if (optionalUsageLinkIndex == null || !optionalUsageLinkIndex.isIndexOf(optionalUsageLinks, linksVersion)) {
+            optionalUsageLinkIndex = new PartLinkPathIndex(optionalUsageLinks, linksVersion);
+        }
+        return optionalUsageLinkIndex.contains(link);
+    }
+
     public boolean removeFile(BinaryResource pBinaryResource) {
         return attachedFiles.remove(pBinaryResource);
     }
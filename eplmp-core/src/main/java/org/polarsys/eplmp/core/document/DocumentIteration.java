@@ -49,7 +49,7 @@ public class DocumentIteration implements Serializable, FileHolder, Comparable<D
     @javax.persistence.Id
     private int iteration;
 
-    @OneToMany(cascade = {CascadeType.REMOVE, CascadeType.REFRESH}, fetch = FetchType.EAGER)
+    @OneToMany(cascade = {CascadeType.REMOVE, CascadeType.REFRESH}, fetch = FetchType.LAZY)
     @JoinTable(name = "DOCUMENTITERATION_BINRES",
         indexes = {@Index(name = "INDEX_DOC_FULLNAME", columnList = "ATTACHEDFILE_FULLNAME")},
         inverseJoinColumns = {
@@ -79,7 +79,7 @@ public class DocumentIteration implements Serializable, FileHolder, Comparable<D
     @javax.persistence.Temporal(javax.persistence.TemporalType.TIMESTAMP)
     private Date checkInDate;
     
-    @OneToMany(orphanRemoval = true, cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(orphanRemoval = true, cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinTable(name = "DOCUMENTITERATION_DOCUMENTLINK",
     inverseJoinColumns = {
         @JoinColumn(name = "DOCUMENTLINK_ID", referencedColumnName = "ID")
@@ -92,7 +92,7 @@ public class DocumentIteration implements Serializable, FileHolder, Comparable<D
     })
     private Set<DocumentLink> linkedDocuments = new HashSet<>();
     
-    @OneToMany(orphanRemoval = true, cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(orphanRemoval = true, cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @OrderColumn(name="ATTRIBUTE_ORDER")
     @JoinTable(name = "DOCUMENTITERATION_ATTRIBUTE",
     inverseJoinColumns = {
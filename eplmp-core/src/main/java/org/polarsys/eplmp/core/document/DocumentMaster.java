@@ -34,7 +34,22 @@ import java.util.List;
 @IdClass(org.polarsys.eplmp.core.document.DocumentMasterKey.class)
 @Entity
 @NamedQueries ({
-    @NamedQuery(name="DocumentMaster.findByWorkspace", query="SELECT dm FROM DocumentMaster dm WHERE dm.workspace.id = :workspaceId ORDER BY dm.creationDate DESC")
+    @NamedQuery(name="DocumentMaster.findByWorkspace", query="SELECT dm FROM DocumentMaster dm WHERE dm.workspace.id = :workspaceId ORDER BY dm.creationDate DESC"),
+    @NamedQuery(name="DocumentMaster.findByWorkspaceAfterId", query="SELECT dm FROM DocumentMaster dm WHERE dm.workspace.id = :workspaceId AND dm.id > :id ORDER BY dm.id")
+})
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = "DocumentMaster.index", attributeNodes = {
+                @NamedAttributeNode(value = "documentRevisions", subgraph = "revisions")
+        }, subgraphs = {
+                @NamedSubgraph(name = "revisions", attributeNodes = {
+                        @NamedAttributeNode(value = "documentIterations", subgraph = "iterations"),
+                        @NamedAttributeNode("tags")
+                }),
+                @NamedSubgraph(name = "iterations", attributeNodes = {
+                        @NamedAttributeNode("attachedFiles"),
+                        @NamedAttributeNode("instanceAttributes")
+                })
+        })
 })
 public class DocumentMaster implements Serializable, Comparable<DocumentMaster> {
 
@@ -59,7 +74,7 @@ public class DocumentMaster implements Serializable, Comparable<DocumentMaster>
     
     private String type;
     
-    @OneToMany(mappedBy = "documentMaster", cascade=CascadeType.ALL, fetch=FetchType.EAGER)
+    @OneToMany(mappedBy = "documentMaster", cascade=CascadeType.ALL, fetch=FetchType.LAZY)
     @OrderBy("version ASC")
     private List<DocumentRevision> documentRevisions = new ArrayList<>();
 
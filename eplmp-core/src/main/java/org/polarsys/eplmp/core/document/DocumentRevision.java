@@ -43,10 +43,21 @@ import java.util.*;
         @NamedQuery(name = "DocumentRevision.findByReferenceOrTitle", query = "SELECT d FROM DocumentRevision d WHERE (d.documentMasterId LIKE :id OR d.title LIKE :title) AND d.documentMasterWorkspaceId = :workspaceId"),
         @NamedQuery(name = "DocumentRevision.countByWorkspace", query = "SELECT COUNT(d) FROM DocumentRevision d WHERE d.documentMasterWorkspaceId = :workspaceId"),
         @NamedQuery(name = "DocumentRevision.findByWorkspace", query = "SELECT dr FROM DocumentRevision dr WHERE dr.documentMasterWorkspaceId = :workspaceId AND dr.location.completePath NOT LIKE :excludedFolders ORDER BY dr.documentMasterId ASC"),
-        @NamedQuery(name = "DocumentRevision.findByWorkspace.filterACLEntry", query = "SELECT distinct dr FROM DocumentRevision dr, ACL a WHERE dr.documentMasterWorkspaceId = :workspaceId and (dr.acl is null or exists(SELECT au from ACLUserEntry au WHERE au.principal = :user AND au.permission <> org.polarsys.eplmp.core.security.ACLPermission.FORBIDDEN AND a = dr.acl AND a = au.acl) or exists(SELECT aug from ACLUserGroupEntry aug WHERE :user member of aug.principal.users AND aug.permission <> org.polarsys.eplmp.core.security.ACLPermission.FORBIDDEN AND a = dr.acl AND a = aug.acl)) AND dr.location.completePath NOT LIKE :excludedFolders ORDER BY dr.documentMasterId ASC"),
-        @NamedQuery(name = "DocumentRevision.countByWorkspace.filterACLEntry", query = "SELECT count(distinct dr) FROM DocumentRevision dr, ACL a WHERE dr.documentMasterWorkspaceId = :workspaceId and (dr.acl is null or exists(SELECT au from ACLUserEntry au  WHERE au.principal = :user AND au.permission <> org.polarsys.eplmp.core.security.ACLPermission.FORBIDDEN AND a = dr.acl AND a = au.acl) or exists(SELECT aug from ACLUserGroupEntry aug  WHERE :user member of aug.principal.users AND aug.permission <> org.polarsys.eplmp.core.security.ACLPermission.FORBIDDEN AND a = dr.acl AND a = aug.acl)) AND dr.location.completePath NOT LIKE :excludedFolders"),
         @NamedQuery(name = "DocumentRevision.findByWorkflow", query = "SELECT d FROM DocumentRevision d WHERE d.workflow = :workflow")
 })
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = "DocumentRevision.detail", attributeNodes = {
+                @NamedAttributeNode(value = "documentIterations", subgraph = "iterations"),
+                @NamedAttributeNode("abortedWorkflows"),
+                @NamedAttributeNode("tags")
+        }, subgraphs = {
+                @NamedSubgraph(name = "iterations", attributeNodes = {
+                        @NamedAttributeNode("attachedFiles"),
+                        @NamedAttributeNode("linkedDocuments"),
+                        @NamedAttributeNode("instanceAttributes")
+                })
+        })
+})
 public class DocumentRevision implements Serializable, Comparable<DocumentRevision> {
 
 
@@ -77,7 +88,7 @@ public class DocumentRevision implements Serializable, Comparable<DocumentRevisi
     @Lob
     private String description;
 
-    @OneToMany(mappedBy = "documentRevision", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "documentRevision", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @OrderBy("iteration ASC")
     private List<DocumentIteration> documentIterations = new ArrayList<>();
 
@@ -95,7 +106,7 @@ public class DocumentRevision implements Serializable, Comparable<DocumentRevisi
     private Workflow workflow;
 
     @OrderBy("abortedDate")
-    @OneToMany(orphanRemoval = true, cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(orphanRemoval = true, cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinTable(name = "DOCUMENT_ABORTED_WORKFLOW",
             inverseJoinColumns = {
                     @JoinColumn(name = "WORKFLOW_ID", referencedColumnName = "ID")
@@ -110,7 +121,7 @@ public class DocumentRevision implements Serializable, Comparable<DocumentRevisi
     @ManyToOne(fetch = FetchType.EAGER)
     private Folder location;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "DOCUMENTREVISION_TAG",
             inverseJoinColumns = {
                     @JoinColumn(name = "TAG_LABEL", referencedColumnName = "LABEL"),
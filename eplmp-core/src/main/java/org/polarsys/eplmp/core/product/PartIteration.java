@@ -54,7 +54,7 @@ public class PartIteration implements Serializable, FileHolder, Comparable<PartI
     @Id
     private int iteration;
 
-    @OneToMany(orphanRemoval=true, cascade = {CascadeType.REMOVE, CascadeType.REFRESH}, fetch = FetchType.EAGER)
+    @OneToMany(orphanRemoval=true, cascade = {CascadeType.REMOVE, CascadeType.REFRESH}, fetch = FetchType.LAZY)
     @JoinTable(name="PARTITERATION_GEOMETRY", inverseJoinColumns = {
         @JoinColumn(name = "GEOMETRY_FULLNAME", referencedColumnName = "FULLNAME")
     },
@@ -69,7 +69,7 @@ public class PartIteration implements Serializable, FileHolder, Comparable<PartI
     @OneToOne(orphanRemoval=true, cascade=CascadeType.ALL, fetch=FetchType.EAGER)
     private BinaryResource nativeCADFile;
 
-    @OneToMany(orphanRemoval = true, cascade=CascadeType.ALL, fetch=FetchType.EAGER)
+    @OneToMany(orphanRemoval = true, cascade=CascadeType.ALL, fetch=FetchType.LAZY)
     @JoinTable(name="PARTITERATION_DOCUMENTLINK",
     inverseJoinColumns={
         @JoinColumn(name="DOCUMENTLINK_ID", referencedColumnName="ID")
@@ -83,7 +83,7 @@ public class PartIteration implements Serializable, FileHolder, Comparable<PartI
     private Set<DocumentLink> linkedDocuments=new HashSet<>();
 
 
-    @OneToMany(orphanRemoval=true, cascade = {CascadeType.REMOVE, CascadeType.REFRESH}, fetch = FetchType.EAGER)
+    @OneToMany(orphanRemoval=true, cascade = {CascadeType.REMOVE, CascadeType.REFRESH}, fetch = FetchType.LAZY)
     @JoinTable(name="PARTITERATION_BINRES",
         indexes = {@Index(name = "INDEX_PART_FULLNAME", columnList = "ATTACHEDFILE_FULLNAME")},
         inverseJoinColumns = {
@@ -115,7 +115,7 @@ public class PartIteration implements Serializable, FileHolder, Comparable<PartI
     @Temporal(TemporalType.TIMESTAMP)
     private Date checkInDate;
 
-    @OneToMany(orphanRemoval=true, cascade=CascadeType.ALL, fetch=FetchType.EAGER)
+    @OneToMany(orphanRemoval=true, cascade=CascadeType.ALL, fetch=FetchType.LAZY)
     @OrderColumn(name="ATTRIBUTE_ORDER")
     @JoinTable(name="PARTITERATION_ATTRIBUTE",
     inverseJoinColumns={
@@ -129,7 +129,7 @@ public class PartIteration implements Serializable, FileHolder, Comparable<PartI
     })
     private List<InstanceAttribute> instanceAttributes=new ArrayList<>();
 
-    @OneToMany(orphanRemoval=true, cascade=CascadeType.ALL, fetch=FetchType.EAGER)
+    @OneToMany(orphanRemoval=true, cascade=CascadeType.ALL, fetch=FetchType.LAZY)
     @OrderColumn(name="ATTRIBUTE_ORDER")
     @JoinTable(name="PARTITERATION_PATHDATA_ATTR",
             inverseJoinColumns={
@@ -146,6 +146,7 @@ public class PartIteration implements Serializable, FileHolder, Comparable<PartI
     @OrderColumn(name="COMPONENT_ORDER")
     @ManyToMany(fetch=FetchType.LAZY)
     @JoinTable(name="PARTITERATION_PARTUSAGELINK",
+    indexes = {@Index(name = "INDEX_PART_COMPONENT", columnList = "COMPONENT_ID")},
     inverseJoinColumns={
         @JoinColumn(name="COMPONENT_ID", referencedColumnName="ID")
     },
@@ -36,7 +36,34 @@ import java.util.List;
 @Entity
 @NamedQueries({
         @NamedQuery(name = "PartMaster.findByNameOrNumber", query = "SELECT pm FROM PartMaster pm WHERE (pm.name LIKE :partName OR pm.number LIKE :partNumber) AND pm.workspace.id = :workspaceId"),
-        @NamedQuery(name = "PartMaster.findByWorkspace", query = "SELECT pm FROM PartMaster pm WHERE pm.workspace.id = :workspaceId ORDER BY pm.creationDate DESC")
+        @NamedQuery(name = "PartMaster.findByWorkspace", query = "SELECT pm FROM PartMaster pm WHERE pm.workspace.id = :workspaceId ORDER BY pm.creationDate DESC"),
+        @NamedQuery(name = "PartMaster.findByNumbers", query = "SELECT pm FROM PartMaster pm WHERE pm.workspace.id = :workspaceId AND pm.number IN :numbers"),
+        @NamedQuery(name = "PartMaster.findByWorkspaceAfterNumber", query = "SELECT pm FROM PartMaster pm WHERE pm.workspace.id = :workspaceId AND pm.number > :number ORDER BY pm.number")
+})
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = "PartMaster.summary", attributeNodes = {
+                @NamedAttributeNode(value = "partRevisions", subgraph = "revisions")
+        }, subgraphs = {
+                @NamedSubgraph(name = "revisions", attributeNodes = @NamedAttributeNode("partIterations"))
+        }),
+        @NamedEntityGraph(name = "PartMaster.structure", attributeNodes = {
+                @NamedAttributeNode(value = "partRevisions", subgraph = "revisions")
+        }, subgraphs = {
+                @NamedSubgraph(name = "revisions", attributeNodes = @NamedAttributeNode(value = "partIterations", subgraph = "iterations")),
+                @NamedSubgraph(name = "iterations", attributeNodes = @NamedAttributeNode("components"))
+        }),
+        @NamedEntityGraph(name = "PartMaster.index", attributeNodes = {
+                @NamedAttributeNode(value = "partRevisions", subgraph = "revisions")
+        }, subgraphs = {
+                @NamedSubgraph(name = "revisions", attributeNodes = {
+                        @NamedAttributeNode(value = "partIterations", subgraph = "iterations"),
+                        @NamedAttributeNode("tags")
+                }),
+                @NamedSubgraph(name = "iterations", attributeNodes = {
+                        @NamedAttributeNode("attachedFiles"),
+                        @NamedAttributeNode("instanceAttributes")
+                })
+        })
 })
 public class PartMaster implements Serializable {
 
@@ -73,7 +100,7 @@ public class PartMaster implements Serializable {
     private String type;
 
 
-    @OneToMany(mappedBy = "partMaster", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "partMaster", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @OrderBy("version ASC")
     private List<PartRevision> partRevisions = new ArrayList<>();
 
@@ -36,13 +36,29 @@ import java.util.*;
 @Entity
 @NamedQueries({
         @NamedQuery(name="PartRevision.findByWorkspace", query="SELECT pr FROM PartRevision pr WHERE pr.partMaster.workspace.id = :workspaceId ORDER BY pr.partMaster.number ASC"),
-        @NamedQuery(name="PartRevision.countByWorkspace.filterACLEntry", query="SELECT count(distinct pr) FROM PartRevision pr, ACL a WHERE pr.partMaster.workspace.id = :workspaceId and (pr.acl is null or exists(SELECT au from ACLUserEntry au WHERE au.principal = :user AND au.permission <> org.polarsys.eplmp.core.security.ACLPermission.FORBIDDEN AND a = pr.acl AND a = au.acl ) or exists(SELECT aug from ACLUserGroupEntry aug WHERE :user member of aug.principal.users AND aug.permission <> org.polarsys.eplmp.core.security.ACLPermission.FORBIDDEN AND a = pr.acl AND a = aug.acl))"),
         @NamedQuery(name="PartRevision.countByWorkspace", query="SELECT count(pr) FROM PartRevision pr WHERE pr.partMasterWorkspaceId = :workspaceId"),
         @NamedQuery(name="PartRevision.findByReferenceOrName", query="SELECT pr FROM PartRevision pr WHERE (pr.partMaster.number LIKE :partNumber OR pr.partMaster.name LIKE :partName) AND pr.partMaster.workspace.id = :workspaceId"),
         @NamedQuery(name="PartRevision.findByWorkflow", query="SELECT p FROM PartRevision p WHERE p.workflow = :workflow"),
         @NamedQuery(name="PartRevision.findWithAssignedTasksForUser", query="SELECT p FROM PartRevision p, Task t LEFT JOIN t.assignedUsers au LEFT JOIN t.assignedGroups ag LEFT JOIN ag.users agu WHERE t.activity.workflow = p.workflow AND p.workflow IS NOT NULL AND p.partMasterWorkspaceId = :workspaceId AND ((au.login = :login AND au.workspaceId = :workspaceId) OR (agu.login = :login AND agu.workspaceId = :workspaceId))"),
         @NamedQuery(name="PartRevision.findWithOpenedTasksForUser", query="SELECT p FROM PartRevision p, Task t LEFT JOIN t.assignedUsers au LEFT JOIN t.assignedGroups ag LEFT JOIN ag.users agu WHERE t.activity.workflow = p.workflow AND p.workflow IS NOT NULL AND p.partMasterWorkspaceId = :workspaceId AND ((au.login = :login AND au.workspaceId = :workspaceId) OR (agu.login = :login AND agu.workspaceId = :workspaceId)) AND t.status = org.polarsys.eplmp.core.workflow.Task.Status.IN_PROGRESS")
 })
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = "PartRevision.detail", attributeNodes = {
+                @NamedAttributeNode(value = "partIterations", subgraph = "iterations"),
+                @NamedAttributeNode("effectivities"),
+                @NamedAttributeNode("abortedWorkflows"),
+                @NamedAttributeNode("tags")
+        }, subgraphs = {
+                @NamedSubgraph(name = "iterations", attributeNodes = {
+                        @NamedAttributeNode("attachedFiles"),
+                        @NamedAttributeNode("geometries"),
+                        @NamedAttributeNode("linkedDocuments"),
+                        @NamedAttributeNode("instanceAttributes"),
+                        @NamedAttributeNode("instanceAttributeTemplates"),
+                        @NamedAttributeNode("components")
+                })
+        })
+})
 public class PartRevision implements Serializable, Comparable<PartRevision> {
 
 
@@ -71,7 +87,7 @@ public class PartRevision implements Serializable, Comparable<PartRevision> {
     @Lob
     private String description;
     
-    @OneToMany(orphanRemoval=true, cascade= CascadeType.ALL, fetch= FetchType.EAGER)
+    @OneToMany(orphanRemoval=true, cascade= CascadeType.ALL, fetch= FetchType.LAZY)
     @JoinTable(name="PARTREVISION_EFFECTIVITY",
     inverseJoinColumns={
         @JoinColumn(name="EFFECTIVITY_ID", referencedColumnName="ID")
@@ -84,7 +100,7 @@ public class PartRevision implements Serializable, Comparable<PartRevision> {
     private Set<Effectivity> effectivities = new HashSet<>();
     
     
-    @OneToMany(mappedBy = "partRevision", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "partRevision", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @OrderBy("iteration ASC")
     private List<PartIteration> partIterations = new ArrayList<>();
    
@@ -103,7 +119,7 @@ public class PartRevision implements Serializable, Comparable<PartRevision> {
     private Workflow workflow;
 
     @OrderBy("abortedDate")
-    @OneToMany(orphanRemoval=true, cascade= CascadeType.ALL, fetch= FetchType.EAGER)
+    @OneToMany(orphanRemoval=true, cascade= CascadeType.ALL, fetch= FetchType.LAZY)
     @JoinTable(name="PART_ABORTED_WORKFLOW",
         inverseJoinColumns={
                 @JoinColumn(name="WORKFLOW_ID", referencedColumnName="ID")
@@ -124,7 +140,7 @@ public class PartRevision implements Serializable, Comparable<PartRevision> {
     @OneToOne(orphanRemoval = true, cascade=CascadeType.ALL, fetch=FetchType.EAGER)
     private ACL acl;
 
-    @ManyToMany(fetch=FetchType.EAGER)
+    @ManyToMany(fetch=FetchType.LAZY)
     @JoinTable(name="PARTREVISION_TAG",
             inverseJoinColumns={
                     @JoinColumn(name="TAG_LABEL", referencedColumnName="LABEL"),
@@ -23,7 +23,7 @@ import java.util.List;
  * @version 1.1, 15/10/11
  * @since   V1.1
  */
-@Table(name = "PARTUSAGELINK")
+@Table(name = "PARTUSAGELINK", indexes = {@Index(name = "INDEX_PARTUSAGELINK_COMPONENT", columnList = "COMPONENT_WORKSPACE_ID, COMPONENT_PARTNUMBER")})
 @Entity
 @NamedQueries({
     @NamedQuery(name="PartUsageLink.findByComponent",query="SELECT u FROM PartUsageLink u WHERE u.component.number LIKE :partNumber AND u.component.workspace.id = :workspaceId"),
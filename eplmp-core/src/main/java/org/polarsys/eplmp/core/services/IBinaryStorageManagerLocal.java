@@ -15,6 +15,7 @@ import org.polarsys.eplmp.core.common.BinaryResource;
 import org.polarsys.eplmp.core.exceptions.FileNotFoundException;
 import org.polarsys.eplmp.core.exceptions.StorageException;
 
+import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Date;
@@ -22,15 +23,65 @@ import java.util.List;
 
 public interface IBinaryStorageManagerLocal {
     InputStream getBinaryResourceInputStream(BinaryResource binaryResource) throws StorageException;
+
+    /**
+     * Get the file holding the content of a binary resource, or of the previous iteration it is shared with.
+     * Used to serve downloads with positional reads.
+     *
+     * @return the file, null if the storage does not keep the content on the local file system
+     */
+    File getBinaryResourceFile(BinaryResource binaryResource) throws StorageException;
+
+    /**
+     * Store the precompressed variants of a binary resource, one per available codec.
+     * Meant for the files downloaded over and over, like geometries.
+     */
+    void saveEncodedVariants(BinaryResource binaryResource) throws StorageException;
+
+    /**
+     * Get the precompressed variant of a binary resource in the given content coding.
+     *
+     * @return the variant file, null if there is none or if it is outdated
+     */
+    File getEncodedFile(BinaryResource binaryResource, String encoding) throws StorageException;
+
     OutputStream getBinaryResourceOutputStream(BinaryResource binaryResource) throws StorageException;
     boolean exists(BinaryResource binaryResource, String generatedFileName) throws StorageException;
     Date getLastModified(BinaryResource binaryResource, String generatedFileName) throws StorageException;
     InputStream getGeneratedFileInputStream(BinaryResource binaryResource, String generatedFileName) throws StorageException;
     OutputStream getGeneratedFileOutputStream(BinaryResource binaryResource, String generatedFileName) throws StorageException;
+
+    /**
+     * Get the file of a generated file, looked up in the previous iterations like the other generated files.
+     * Used to serve downloads with positional reads.
+     *
+     * @return the file, null if there is none
+     */
+    File getGeneratedFile(BinaryResource binaryResource, String generatedFileName) throws StorageException;
+
+    /**
+     * Rename a generated file of a binary resource, replacing any generated file of the new name.
+     * Generated files written under a temporary name are published this way, so that they are never read partially written.
+     */
+    void renameGeneratedFile(BinaryResource binaryResource, String generatedFileName, String newName) throws StorageException;
+
     void copyData(BinaryResource source, BinaryResource destination) throws StorageException;
+
+    /**
+     * Give the destination the content of the source, the same file in a previous iteration, without copying it.
+     * Used on check out, the storage may as well keep reading the content from the previous iteration.
+     */
+    void shareData(BinaryResource source, BinaryResource destination) throws StorageException;
+
     void deleteData(BinaryResource binaryResource) throws StorageException;
     void renameFile(BinaryResource binaryResource, String pNewName) throws StorageException, FileNotFoundException;
     String getExternalStorageURI(BinaryResource binaryResource);
     String getShortenExternalStorageURI(BinaryResource binaryResource);
     void deleteWorkspaceFolder(String workspaceId, List<BinaryResource> binaryResourcesInWorkspace) throws StorageException;
+
+    /**
+     * Convert the files of the vault, in place, to the content addressed layout once it is enabled:
+     * contents are stored once, and each iteration gets its own link to them. Runs asynchronously.
+     */
+    void convertToContentAddressedVault();
 }
@@ -152,6 +152,13 @@ public interface IDocumentManagerLocal {
 
     DocumentRevision[] getFilteredDocumentsInWorkspace(String workspaceId, int start, int pMaxResults) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException;
 
+    /**
+     * Get the page of the readable document revisions which follows the given one, in document id and version order.
+     *
+     * @param after the last revision of the previous page, null for the first page
+     */
+    DocumentRevision[] getFilteredDocumentsInWorkspaceAfter(String workspaceId, DocumentRevisionKey after, int pMaxResults) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException;
+
     int getDocumentsInWorkspaceCount(String workspaceId) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException, AccountNotFoundException;
 
     DocumentRevision removeTag(DocumentRevisionKey pDocMPK, String pTag) throws UserNotFoundException, WorkspaceNotFoundException, UserNotActiveException, AccessRightException, DocumentRevisionNotFoundException, NotAllowedException, WorkspaceNotEnabledException;
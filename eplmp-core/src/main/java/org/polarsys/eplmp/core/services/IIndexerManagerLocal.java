@@ -11,6 +11,7 @@
 
 package org.polarsys.eplmp.core.services;
 
+import org.polarsys.eplmp.core.common.User;
 import org.polarsys.eplmp.core.document.DocumentIteration;
 import org.polarsys.eplmp.core.document.DocumentRevision;
 import org.polarsys.eplmp.core.exceptions.AccountNotFoundException;
@@ -42,11 +43,27 @@ public interface IIndexerManagerLocal {
 
     List<DocumentRevision> searchDocumentRevisions(DocumentSearchQuery documentSearchQuery, int from, int size) throws AccountNotFoundException, NotAllowedException;
 
-    List<PartRevision> searchPartRevisions(PartSearchQuery partSearchQuery, int from, int size) throws AccountNotFoundException, NotAllowedException;
+    /**
+     * Search the part revisions matching the query.
+     * Only the revisions readable by the caller are returned, their access being checked by a single database query.
+     *
+     * @param caller The user searching
+     */
+    List<PartRevision> searchPartRevisions(User caller, PartSearchQuery partSearchQuery, int from, int size) throws AccountNotFoundException, NotAllowedException;
 
     void indexAllWorkspacesData() throws AccountNotFoundException;
 
     void indexWorkspaceData(String workspaceId) throws AccountNotFoundException;
 
     boolean ping();
+
+    /**
+     * @return the number of index changes waiting to be sent to the indexer
+     */
+    long getQueueDepth();
+
+    /**
+     * @return the age in milliseconds of the oldest index change waiting to be sent, 0 if none
+     */
+    long getQueueLag();
 }
@@ -14,6 +14,7 @@ package org.polarsys.eplmp.core.services;
 import org.polarsys.eplmp.core.common.BinaryResource;
 import org.polarsys.eplmp.core.exceptions.*;
 
+import java.io.File;
 import java.io.InputStream;
 
 public interface IOnDemandConverterManagerLocal {
@@ -23,4 +24,20 @@ public interface IOnDemandConverterManagerLocal {
     InputStream getPartConvertedResource(String outputFormat, BinaryResource binaryResource)
             throws WorkspaceNotFoundException, UserNotActiveException, UserNotFoundException, ConvertedResourceException, WorkspaceNotEnabledException;
 
+    /**
+     * Get the converted document resource as a file of the storage, to be served with positional reads
+     *
+     * @return the file, null if the conversion is only available as a stream
+     */
+    File getDocumentConvertedFile(String outputFormat, BinaryResource binaryResource)
+            throws WorkspaceNotFoundException, UserNotActiveException, UserNotFoundException, ConvertedResourceException, WorkspaceNotEnabledException;
+
+    /**
+     * Get the converted part resource as a file of the storage, to be served with positional reads
+     *
+     * @return the file, null if the conversion is only available as a stream
+     */
+    File getPartConvertedFile(String outputFormat, BinaryResource binaryResource)
+            throws WorkspaceNotFoundException, UserNotActiveException, UserNotFoundException, ConvertedResourceException, WorkspaceNotEnabledException;
+
 }
@@ -13,6 +13,13 @@ package org.polarsys.eplmp.core.services;
 
 import org.polarsys.eplmp.core.exceptions.PlatformHealthException;
 
+import java.util.Map;
+
 public interface IPlatformHealthManagerLocal {
     void runHealthCheck() throws PlatformHealthException;
+
+    /**
+     * Get the load of the platform background processing, by metric name
+     */
+    Map<String, Long> getMetrics();
 }
\ No newline at end of file
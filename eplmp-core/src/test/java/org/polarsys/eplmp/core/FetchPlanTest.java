@@ -0,0 +1,112 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.polarsys.eplmp.core.document.DocumentIteration;
+import org.polarsys.eplmp.core.document.DocumentMaster;
+import org.polarsys.eplmp.core.document.DocumentRevision;
+import org.polarsys.eplmp.core.product.PartIteration;
+import org.polarsys.eplmp.core.product.PartMaster;
+import org.polarsys.eplmp.core.product.PartRevision;
+
+import javax.persistence.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.util.*;
+
+/**
+ * Collections of the part and document entities are loaded on access, the list queries
+ * request what they display through the named entity graphs.
+ */
+public class FetchPlanTest {
+
+    private static final List<Class<?>> ENTITIES = Arrays.asList(
+            PartMaster.class, PartRevision.class, PartIteration.class,
+            DocumentMaster.class, DocumentRevision.class, DocumentIteration.class);
+
+    @Test
+    public void collectionsAreLazyTest() {
+        for (Class<?> entity : ENTITIES) {
+            for (Field field : entity.getDeclaredFields()) {
+                FetchType fetchType = getCollectionFetchType(field);
+                if (fetchType != null) {
+                    Assert.assertEquals(entity.getSimpleName() + "." + field.getName(), FetchType.LAZY, fetchType);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void entityGraphsNameCollectionsTest() {
+        Set<String> graphNames = new HashSet<>();
+        for (Class<?> entity : ENTITIES) {
+            NamedEntityGraphs graphs = entity.getAnnotation(NamedEntityGraphs.class);
+            if (graphs == null) {
+                continue;
+            }
+            for (NamedEntityGraph graph : graphs.value()) {
+                Assert.assertTrue(graph.name(), graphNames.add(graph.name()));
+                Map<String, NamedSubgraph> subgraphs = new HashMap<>();
+                for (NamedSubgraph subgraph : graph.subgraphs()) {
+                    subgraphs.put(subgraph.name(), subgraph);
+                }
+                checkAttributeNodes(graph.name(), entity, graph.attributeNodes(), subgraphs);
+            }
+        }
+
+        Assert.assertEquals(new HashSet<>(Arrays.asList("PartMaster.summary", "PartMaster.structure", "PartMaster.index",
+                "PartRevision.detail", "DocumentMaster.index", "DocumentRevision.detail")), graphNames);
+    }
+
+    private void checkAttributeNodes(String graphName, Class<?> type, NamedAttributeNode[] attributeNodes, Map<String, NamedSubgraph> subgraphs) {
+        for (NamedAttributeNode attributeNode : attributeNodes) {
+            String path = graphName + ":" + type.getSimpleName() + "." + attributeNode.value();
+            Field field = getField(type, attributeNode.value());
+            Assert.assertNotNull(path, field);
+            // Single valued relationships are eager, only collections need to be part of the graphs
+            Assert.assertNotNull(path, getCollectionFetchType(field));
+
+            if (!attributeNode.subgraph().isEmpty()) {
+                NamedSubgraph subgraph = subgraphs.get(attributeNode.subgraph());
+                Assert.assertNotNull(path, subgraph);
+                Class<?> elementType = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+                checkAttributeNodes(graphName, elementType, subgraph.attributeNodes(), subgraphs);
+            }
+        }
+    }
+
+    private static Field getField(Class<?> type, String name) {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (field.getName().equals(name)) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static FetchType getCollectionFetchType(Field field) {
+        if (field.isAnnotationPresent(OneToMany.class)) {
+            return field.getAnnotation(OneToMany.class).fetch();
+        }
+        if (field.isAnnotationPresent(ManyToMany.class)) {
+            return field.getAnnotation(ManyToMany.class).fetch();
+        }
+        if (field.isAnnotationPresent(ElementCollection.class)) {
+            return field.getAnnotation(ElementCollection.class).fetch();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.core.configuration;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.polarsys.eplmp.core.product.PartLink;
+import org.polarsys.eplmp.core.util.Tools;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class PartLinkPathTest {
+
+    private static PartLink link(String fullId) {
+        PartLink link = Mockito.mock(PartLink.class);
+        Mockito.when(link.getFullId()).thenReturn(fullId);
+        return link;
+    }
+
+    @Test
+    public void stringFormIsCompatibleWithTools() {
+        List<PartLink> links = Arrays.asList(link("-1"), link("u12"), link("u45"), link("s7"));
+        PartLinkPath path = PartLinkPath.of(links);
+
+        Assert.assertEquals(Tools.getPathAsString(links), path.toString());
+        Assert.assertEquals("-1-u12-u45-s7", path.toString());
+        Assert.assertEquals(4, path.size());
+    }
+
+    @Test
+    public void parsedPathEqualsBuiltPath() {
+        PartLinkPath built = PartLinkPath.of(link("-1")).append(link("u12")).append(link("u45"));
+        PartLinkPath parsed = PartLinkPath.parse("-1-u12-u45");
+
+        Assert.assertEquals(built, parsed);
+        Assert.assertEquals(built.hashCode(), parsed.hashCode());
+        Assert.assertEquals("-1-u12-u45", parsed.toString());
+        Assert.assertNotEquals(built, PartLinkPath.parse("-1-u12"));
+        Assert.assertNotEquals(built, PartLinkPath.parse("-1-u45-u12"));
+    }
+
+    @Test
+    public void replaceLastSharesParent() {
+        PartLinkPath nominal = PartLinkPath.of(link("-1")).append(link("u12"));
+        PartLinkPath substitute = nominal.replaceLast(link("s7"));
+
+        Assert.assertSame(nominal.getParent(), substitute.getParent());
+        Assert.assertEquals("-1-s7", substitute.toString());
+
+        Set<PartLinkPath> index = PartLinkPath.parseAll(Arrays.asList("-1-s7", "-1-u12-u45"));
+        Assert.assertTrue(index.contains(substitute));
+        Assert.assertFalse(index.contains(nominal));
+    }
+
+    @Test
+    public void listViewGivesBackItsPath() {
+        PartLinkPath path = PartLinkPath.of(link("-1")).append(link("u12"));
+        List<PartLink> links = path.asList();
+
+        Assert.assertEquals(2, links.size());
+        Assert.assertEquals("u12", links.get(1).getFullId());
+        Assert.assertSame(path, PartLinkPath.of(links));
+    }
+
+    @Test
+    public void indexFollowsLinksEditedInPlace() {
+        ProductBaseline baseline = new ProductBaseline();
+        baseline.addSubstituteLink("-1-s7");
+        Assert.assertTrue(baseline.hasSubstituteLink(PartLinkPath.parse("-1-s7")));
+
+        // Same collection, same size
+        baseline.removeSubstituteLink("-1-s7");
+        baseline.addSubstituteLink("-1-s8");
+        Assert.assertFalse(baseline.hasSubstituteLink(PartLinkPath.parse("-1-s7")));
+        Assert.assertTrue(baseline.hasSubstituteLink(PartLinkPath.parse("-1-s8")));
+
+        ProductConfiguration configuration = new ProductConfiguration();
+        configuration.setOptionalUsageLinks(new HashSet<>(Arrays.asList("-1-u12")));
+        Assert.assertTrue(configuration.isOptionalLinkRetained(PartLinkPath.parse("-1-u12")));
+        configuration.setOptionalUsageLinks(new HashSet<>(Arrays.asList("-1-u45")));
+        Assert.assertFalse(configuration.isOptionalLinkRetained(PartLinkPath.parse("-1-u12")));
+    }
+}
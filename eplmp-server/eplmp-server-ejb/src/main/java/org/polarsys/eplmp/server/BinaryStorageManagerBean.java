@@ -15,34 +15,61 @@ import org.polarsys.eplmp.core.exceptions.FileNotFoundException;
 import org.polarsys.eplmp.core.exceptions.StorageException;
 import org.polarsys.eplmp.core.security.UserGroupMapping;
 import org.polarsys.eplmp.core.services.IBinaryStorageManagerLocal;
+import org.polarsys.eplmp.server.dao.BinaryResourceDAO;
+import org.polarsys.eplmp.server.storage.ContentCodec;
 import org.polarsys.eplmp.server.storage.StorageProvider;
+import org.polarsys.eplmp.server.storage.filesystem.ContentAddressedStorageProvider;
 import org.polarsys.eplmp.server.storage.filesystem.FileStorageProvider;
+import org.apache.commons.io.IOUtils;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.security.DeclareRoles;
-import javax.ejb.Local;
-import javax.ejb.Stateless;
+import javax.annotation.security.RolesAllowed;
+import javax.ejb.*;
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.Date;
 import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
-@DeclareRoles(UserGroupMapping.REGULAR_USER_ROLE_ID)
+@DeclareRoles({UserGroupMapping.REGULAR_USER_ROLE_ID, UserGroupMapping.ADMIN_ROLE_ID})
 @Local(IBinaryStorageManagerLocal.class)
 @Stateless(name = "BinaryStorageManagerBean")
 public class BinaryStorageManagerBean implements IBinaryStorageManagerLocal {
 
+    private static final Logger LOGGER = Logger.getLogger(BinaryStorageManagerBean.class.getName());
+
+    private static final int CONVERSION_PAGE_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager em;
+
     @Inject
     private ConfigManager configManager;
 
+    @Inject
+    @Any
+    private Instance<ContentCodec> contentCodecs;
+
     private StorageProvider defaultStorageProvider;
 
     @PostConstruct
     private void init() {
-        StorageProvider fileStorageProvider = new FileStorageProvider(configManager.getVaultPath());
-        defaultStorageProvider = fileStorageProvider;
+        if (configManager.isContentAddressedVault()) {
+            defaultStorageProvider = new ContentAddressedStorageProvider(configManager.getVaultPath());
+        } else {
+            defaultStorageProvider = new FileStorageProvider(configManager.getVaultPath());
+        }
     }
 
     @Override
@@ -83,6 +110,25 @@ public class BinaryStorageManagerBean implements IBinaryStorageManagerLocal {
         return defaultStorageProvider.getGeneratedFileOutputStream(binaryResource, generatedFileName);
     }
 
+    @Override
+    public File getGeneratedFile(BinaryResource binaryResource, String generatedFileName) throws StorageException {
+        try {
+            return defaultStorageProvider.getGeneratedFile(binaryResource, generatedFileName);
+        } catch (FileNotFoundException e) {
+            BinaryResource previous = binaryResource.getPrevious();
+            return previous != null ? getGeneratedFile(previous, generatedFileName) : null;
+        }
+    }
+
+    @Override
+    public void renameGeneratedFile(BinaryResource binaryResource, String generatedFileName, String newName) throws StorageException {
+        try {
+            defaultStorageProvider.renameData(defaultStorageProvider.getGeneratedFile(binaryResource, generatedFileName), newName);
+        } catch (FileNotFoundException e) {
+            throw new StorageException("Can't find generated file " + generatedFileName + " of " + binaryResource.getFullName(), e);
+        }
+    }
+
     @Override
     public boolean exists(BinaryResource binaryResource, String generatedFileName) throws StorageException {
         if (defaultStorageProvider.exists(binaryResource, generatedFileName)) {
@@ -122,11 +168,92 @@ public class BinaryStorageManagerBean implements IBinaryStorageManagerLocal {
         }
     }
 
+    @Override
+    public void shareData(BinaryResource source, BinaryResource destination) throws StorageException {
+        try {
+            defaultStorageProvider.shareData(source, destination);
+        } catch (FileNotFoundException e) {
+            BinaryResource previous = source.getPrevious();
+            if (previous != null) {
+                shareData(previous, destination);
+            } else {
+                throw new StorageException("Can't find source file to share " + source.getFullName());
+            }
+        }
+    }
+
     @Override
     public void deleteData(BinaryResource binaryResource) throws StorageException {
         defaultStorageProvider.delData(binaryResource);
     }
 
+    @Override
+    public void saveEncodedVariants(BinaryResource binaryResource) throws StorageException {
+        for (ContentCodec contentCodec : contentCodecs) {
+            String encodedFileName = getEncodedFileName(binaryResource, contentCodec.getEncoding());
+            // Written aside then renamed, a partially written variant must never be served
+            String partialFileName = encodedFileName + "." + UUID.randomUUID() + ".part";
+
+            try (InputStream inputStream = getBinaryResourceInputStream(binaryResource);
+                 OutputStream outputStream = contentCodec.encode(defaultStorageProvider.getGeneratedFileOutputStream(binaryResource, partialFileName))) {
+                IOUtils.copyLarge(inputStream, outputStream);
+            } catch (IOException e) {
+                // Named after no other writer, it would never be replaced
+                deletePartialFile(binaryResource, partialFileName);
+                throw new StorageException("Can't encode " + binaryResource.getFullName() + " with " + contentCodec.getEncoding(), e);
+            }
+
+            try {
+                defaultStorageProvider.renameData(defaultStorageProvider.getGeneratedFile(binaryResource, partialFileName), encodedFileName);
+            } catch (FileNotFoundException e) {
+                throw new StorageException("Can't find encoded file " + partialFileName + " of " + binaryResource.getFullName(), e);
+            }
+        }
+    }
+
+    private void deletePartialFile(BinaryResource binaryResource, String partialFileName) {
+        try {
+            Files.deleteIfExists(defaultStorageProvider.getGeneratedFile(binaryResource, partialFileName).toPath());
+        } catch (FileNotFoundException | IOException e) {
+            LOGGER.log(Level.FINE, "Can't delete " + partialFileName + " of " + binaryResource.getFullName(), e);
+        }
+    }
+
+    @Override
+    public File getEncodedFile(BinaryResource binaryResource, String encoding) throws StorageException {
+        File file;
+        try {
+            file = defaultStorageProvider.getBinaryResourceFile(binaryResource);
+        } catch (FileNotFoundException e) {
+            BinaryResource previous = binaryResource.getPrevious();
+            if (previous != null) {
+                return getEncodedFile(previous, encoding);
+            } else {
+                throw new StorageException("Can't find resource " + binaryResource.getFullName());
+            }
+        }
+
+        try {
+            File encodedFile = defaultStorageProvider.getGeneratedFile(binaryResource, getEncodedFileName(binaryResource, encoding));
+            // Ignore variants older than the file, or not worth it
+            if (encodedFile.lastModified() >= file.lastModified() && encodedFile.length() < file.length()) {
+                return encodedFile;
+            }
+        } catch (FileNotFoundException e) {
+            LOGGER.log(Level.FINEST, "No " + encoding + " variant for " + binaryResource.getFullName(), e);
+        }
+        return null;
+    }
+
+    @Override
+    public File getBinaryResourceFile(BinaryResource binaryResource) throws StorageException {
+        return getEffectiveBinaryResourceFile(binaryResource);
+    }
+
+    private static String getEncodedFileName(BinaryResource binaryResource, String encoding) {
+        return binaryResource.getName() + "." + encoding;
+    }
+
     private File getEffectiveBinaryResourceFile(BinaryResource binaryResource) throws StorageException {
         try {
             return defaultStorageProvider.getBinaryResourceFile(binaryResource);
@@ -172,4 +299,55 @@ public class BinaryStorageManagerBean implements IBinaryStorageManagerLocal {
         defaultStorageProvider.deleteWorkspaceFolder(workspaceId, binaryResourcesInWorkspace);
     }
 
+    @Override
+    @Asynchronous
+    @RolesAllowed(UserGroupMapping.ADMIN_ROLE_ID)
+    // Binary resources are only read, a transaction would not last the whole vault
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void convertToContentAddressedVault() {
+        if (!(defaultStorageProvider instanceof ContentAddressedStorageProvider)) {
+            LOGGER.log(Level.WARNING, "The content addressed vault is not enabled, nothing converted");
+            return;
+        }
+        ContentAddressedStorageProvider storageProvider = (ContentAddressedStorageProvider) defaultStorageProvider;
+        BinaryResourceDAO binaryResourceDAO = new BinaryResourceDAO(em);
+
+        int converted = 0;
+        int failed = 0;
+        String lastFullName = "";
+        List<BinaryResource> binaryResources;
+        do {
+            binaryResources = binaryResourceDAO.getBinaryResourcesAfter(lastFullName, CONVERSION_PAGE_SIZE);
+            for (BinaryResource binaryResource : binaryResources) {
+                try {
+                    convertBinaryResource(storageProvider, binaryResource);
+                    converted++;
+                } catch (StorageException e) {
+                    failed++;
+                    LOGGER.log(Level.WARNING, "Can't convert " + binaryResource.getFullName(), e);
+                }
+                lastFullName = binaryResource.getFullName();
+            }
+        } while (binaryResources.size() == CONVERSION_PAGE_SIZE);
+
+        LOGGER.log(Level.INFO, "Vault converted: " + converted + " binary resources stored, " + failed + " failures");
+    }
+
+    private void convertBinaryResource(ContentAddressedStorageProvider storageProvider, BinaryResource binaryResource) throws StorageException {
+        try {
+            storageProvider.storeData(binaryResource);
+        } catch (FileNotFoundException e) {
+            // Not written since a previous iteration, the file of that iteration is linked
+            for (BinaryResource previous = binaryResource.getPrevious(); previous != null; previous = previous.getPrevious()) {
+                try {
+                    storageProvider.shareData(previous, binaryResource);
+                    return;
+                } catch (FileNotFoundException notInPrevious) {
+                    LOGGER.log(Level.FINEST, null, notInPrevious);
+                }
+            }
+            throw new StorageException("Can't find " + binaryResource.getFullName());
+        }
+    }
+
 }
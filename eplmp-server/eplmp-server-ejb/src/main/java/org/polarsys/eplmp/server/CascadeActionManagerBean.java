@@ -15,6 +15,7 @@ import org.polarsys.eplmp.core.configuration.CascadeResult;
 import org.polarsys.eplmp.core.exceptions.*;
 import org.polarsys.eplmp.core.product.ConfigurationItemKey;
 import org.polarsys.eplmp.core.product.PartRevision;
+import org.polarsys.eplmp.core.product.PartRevisionKey;
 import org.polarsys.eplmp.core.security.UserGroupMapping;
 import org.polarsys.eplmp.core.services.ICascadeActionManagerLocal;
 import org.polarsys.eplmp.core.services.IProductManagerLocal;
@@ -22,9 +23,13 @@ import org.polarsys.eplmp.core.services.IProductManagerLocal;
 import javax.annotation.security.DeclareRoles;
 import javax.annotation.security.RolesAllowed;
 import javax.ejb.*;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 /**
  * @author Charles Fallourd on 10/02/16.
@@ -39,67 +44,70 @@ public class CascadeActionManagerBean implements ICascadeActionManagerLocal {
     @EJB
     private IProductManagerLocal productManager;
 
-    //Every action should be transactional
+    @Inject
+    private ConfigManager configManager;
+
+    //Every chunk of parts is processed in its own transaction
     @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
     @Override
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
     public CascadeResult cascadeCheckOut(ConfigurationItemKey configurationItemKey, String path) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, NotAllowedException, EntityConstraintException, PartMasterNotFoundException, PartUsageLinkNotFoundException, ConfigurationItemNotFoundException, WorkspaceNotEnabledException {
-        CascadeResult cascadeResult = new CascadeResult();
-
-        Set<PartRevision> partRevisions = productManager.getWritablePartRevisionsFromPath(configurationItemKey,path);
-
-        for(PartRevision pr : partRevisions) {
-            try {
-                productManager.checkOutPart(pr.getKey());
-                cascadeResult.incSucceedAttempts();
-            } catch (PartRevisionNotFoundException | AccessRightException  | NotAllowedException | FileAlreadyExistsException | CreationException e) {
-                cascadeResult.incFailedAttempts();
-                LOGGER.log(Level.SEVERE,null,e);
-            }
-        }
-        return cascadeResult;
+        Set<PartRevision> partRevisions = productManager.getWritablePartRevisionsFromPath(configurationItemKey, path);
+        return runInChunks("check out", configurationItemKey, partRevisions,
+                chunk -> productManager.checkOutParts(configurationItemKey.getWorkspace(), chunk));
     }
 
     @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
     @Override
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
     public CascadeResult cascadeUndoCheckOut(ConfigurationItemKey configurationItemKey, String path) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, NotAllowedException, EntityConstraintException, PartMasterNotFoundException, PartUsageLinkNotFoundException, ConfigurationItemNotFoundException, WorkspaceNotEnabledException {
-        CascadeResult cascadeResult = new CascadeResult();
         Set<PartRevision> partRevisions = productManager.getWritablePartRevisionsFromPath(configurationItemKey, path);
-        for(PartRevision pr : partRevisions) {
-            try {
-                productManager.undoCheckOutPart(pr.getKey());
-                cascadeResult.incSucceedAttempts();
-            } catch (PartRevisionNotFoundException | AccessRightException  | NotAllowedException  e) {
-                cascadeResult.incFailedAttempts();
-                LOGGER.log(Level.SEVERE,null,e);
-            }
-        }
-        return cascadeResult;
+        return runInChunks("undo check out", configurationItemKey, partRevisions,
+                chunk -> productManager.undoCheckOutParts(configurationItemKey.getWorkspace(), chunk));
     }
 
     @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
     @Override
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
     public CascadeResult cascadeCheckIn(ConfigurationItemKey configurationItemKey, String path, String iterationNote) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, PartMasterNotFoundException, EntityConstraintException, NotAllowedException, PartUsageLinkNotFoundException, ConfigurationItemNotFoundException, WorkspaceNotEnabledException {
-
-        CascadeResult cascadeResult = new CascadeResult();
         Set<PartRevision> partRevisions = productManager.getWritablePartRevisionsFromPath(configurationItemKey, path);
-        for(PartRevision pr : partRevisions) {
-            try {
-                // Set the iteration note only if param is set and part has no iteration note
-                if( (iterationNote != null && iterationNote.isEmpty()) && (null == pr.getLastIteration().getIterationNote() && pr.getLastIteration().getIterationNote().isEmpty())){
-                    productManager.updatePartIteration(pr.getLastIteration().getKey(), iterationNote, null, null, null, null, null, null, null);
-                }
+        return runInChunks("check in", configurationItemKey, partRevisions,
+                chunk -> productManager.checkInParts(configurationItemKey.getWorkspace(), chunk, iterationNote));
+    }
 
-                productManager.checkInPart(pr.getKey());
-                cascadeResult.incSucceedAttempts();
+    /**
+     * Apply an action to part revisions, a chunk at a time.
+     *
+     * A failing chunk is rolled back alone: the chunks already processed are kept, and parts already
+     * in the expected state are skipped, so that running the cascade again resumes it.
+     * The returned result holds the progress of the cascade: the number of parts, of processed
+     * chunks and of chunks rolled back.
+     */
+    private CascadeResult runInChunks(String action, ConfigurationItemKey configurationItemKey, Set<PartRevision> partRevisions, ChunkAction chunkAction) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
+        CascadeResult cascadeResult = new CascadeResult();
+        List<PartRevisionKey> partRevisionKeys = partRevisions.stream().map(PartRevision::getKey).collect(Collectors.toList());
+        int chunkSize = Math.max(1, configManager.getCascadeChunkSize());
+        cascadeResult.setTotalAttempts(partRevisionKeys.size());
 
-            } catch (DocumentRevisionNotFoundException | PartRevisionNotFoundException | AccessRightException  | NotAllowedException | ListOfValuesNotFoundException e) {
-                cascadeResult.incFailedAttempts();
-                LOGGER.log(Level.SEVERE,null,e);
+        for (int from = 0; from < partRevisionKeys.size(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, partRevisionKeys.size());
+            List<PartRevisionKey> chunk = new ArrayList<>(partRevisionKeys.subList(from, to));
+            try {
+                cascadeResult.add(chunkAction.apply(chunk));
+            } catch (EJBException e) {
+                cascadeResult.setFailedAttempts(cascadeResult.getFailedAttempts() + chunk.size());
+                cascadeResult.setRolledBackChunks(cascadeResult.getRolledBackChunks() + 1);
+                LOGGER.log(Level.SEVERE, "Cascade " + action + " rolled back on " + chunk.size() + " parts", e);
             }
+            cascadeResult.setProcessedChunks(cascadeResult.getProcessedChunks() + 1);
+            LOGGER.log(Level.INFO, "Cascade {0} on {1}: {2}/{3} parts processed",
+                    new Object[]{action, configurationItemKey, to, partRevisionKeys.size()});
         }
         return cascadeResult;
     }
+
+    @FunctionalInterface
+    private interface ChunkAction {
+        CascadeResult apply(List<PartRevisionKey> chunk) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException;
+    }
 }
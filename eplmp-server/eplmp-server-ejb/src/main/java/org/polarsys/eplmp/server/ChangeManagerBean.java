@@ -65,36 +65,24 @@ public class ChangeManagerBean implements IChangeManagerLocal {
     @Override
     public List<ChangeIssue> getChangeIssues(String pWorkspaceId) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
         User user = userManager.checkWorkspaceReadAccess(pWorkspaceId);
-        List<ChangeIssue> allChangeIssues = new ChangeItemDAO(new Locale(user.getLanguage()),
-                em).findAllChangeIssues(pWorkspaceId);
-        List<ChangeIssue> visibleChangeIssues = new ArrayList<>();
-        for (ChangeIssue changeIssue : allChangeIssues) {
-            try {
-                checkChangeItemReadAccess(changeIssue, user);
-                visibleChangeIssues.add(changeIssue);
-            } catch (AccessRightException e) {
-                LOGGER.log(Level.FINEST, null, e);
-            }
-        }
-        return visibleChangeIssues;
+        // Read access is checked by the query
+        return new ChangeItemDAO(new Locale(user.getLanguage()), em).findAllChangeIssues(user, pWorkspaceId);
+    }
+
+    @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
+    @Override
+    public List<ChangeIssue> getChangeIssuesAfter(String pWorkspaceId, int afterId, int pMaxResults) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
+        User user = userManager.checkWorkspaceReadAccess(pWorkspaceId);
+        // Read access is checked by the query, so that pages are filled
+        return new ChangeItemDAO(new Locale(user.getLanguage()), em).findChangeIssuesAfter(user, pWorkspaceId, afterId, pMaxResults);
     }
 
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
     @Override
     public List<ChangeIssue> getIssuesWithReference(String pWorkspaceId, String q, int maxResults) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
         User user = userManager.checkWorkspaceReadAccess(pWorkspaceId);
-        List<ChangeIssue> allChangeIssues = new ChangeItemDAO(new Locale(user.getLanguage()),
-                em).findAllChangeIssuesWithReferenceLike(pWorkspaceId, q, maxResults);
-        List<ChangeIssue> visibleChangeIssues = new ArrayList<>();
-        for (ChangeIssue changeIssue : allChangeIssues) {
-            try {
-                checkChangeItemReadAccess(changeIssue, user);
-                visibleChangeIssues.add(changeIssue);
-            } catch (AccessRightException e) {
-                LOGGER.log(Level.FINEST, null, e);
-            }
-        }
-        return visibleChangeIssues;
+        // Read access is checked by the query, so that maxResults visible issues are returned
+        return new ChangeItemDAO(new Locale(user.getLanguage()), em).findAllChangeIssuesWithReferenceLike(user, pWorkspaceId, q, maxResults);
     }
 
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
@@ -235,17 +223,22 @@ public class ChangeManagerBean implements IChangeManagerLocal {
     @Override
     public List<ChangeRequest> getChangeRequests(String pWorkspaceId) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
         User user = userManager.checkWorkspaceReadAccess(pWorkspaceId);
-        List<ChangeRequest> allChangeRequests = new ChangeItemDAO(new Locale(user.getLanguage()),
-                em).findAllChangeRequests(pWorkspaceId);
         List<ChangeRequest> visibleChangeRequests = new ArrayList<>();
+        // Read access is checked by the query
+        for (ChangeRequest changeRequest : new ChangeItemDAO(new Locale(user.getLanguage()), em).findAllChangeRequests(user, pWorkspaceId)) {
+            visibleChangeRequests.add(filterLinkedChangeIssues(changeRequest, user));
+        }
+        return visibleChangeRequests;
+    }
 
-        for (ChangeRequest changeRequest : allChangeRequests) {
-            try {
-                checkChangeItemReadAccess(changeRequest, user);
-                visibleChangeRequests.add(filterLinkedChangeIssues(changeRequest, user));
-            } catch (AccessRightException e) {
-                LOGGER.log(Level.FINEST, null, e);
-            }
+    @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
+    @Override
+    public List<ChangeRequest> getChangeRequestsAfter(String pWorkspaceId, int afterId, int pMaxResults) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
+        User user = userManager.checkWorkspaceReadAccess(pWorkspaceId);
+        List<ChangeRequest> visibleChangeRequests = new ArrayList<>();
+        // Read access is checked by the query, so that pages are filled
+        for (ChangeRequest changeRequest : new ChangeItemDAO(new Locale(user.getLanguage()), em).findChangeRequestsAfter(user, pWorkspaceId, afterId, pMaxResults)) {
+            visibleChangeRequests.add(filterLinkedChangeIssues(changeRequest, user));
         }
         return visibleChangeRequests;
     }
@@ -254,16 +247,10 @@ public class ChangeManagerBean implements IChangeManagerLocal {
     @Override
     public List<ChangeRequest> getRequestsWithReference(String pWorkspaceId, String q, int maxResults) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
         User user = userManager.checkWorkspaceReadAccess(pWorkspaceId);
-        List<ChangeRequest> allChangeRequests = new ChangeItemDAO(new Locale(user.getLanguage()),
-                em).findAllChangeRequestsWithReferenceLike(pWorkspaceId, q, maxResults);
         List<ChangeRequest> visibleChangeRequests = new ArrayList<>();
-        for (ChangeRequest changeRequest : allChangeRequests) {
-            try {
-                checkChangeItemReadAccess(changeRequest, user);
-                visibleChangeRequests.add(filterLinkedChangeIssues(changeRequest, user));
-            } catch (AccessRightException e) {
-                LOGGER.log(Level.FINEST, null, e);
-            }
+        // Read access is checked by the query, so that maxResults visible requests are returned
+        for (ChangeRequest changeRequest : new ChangeItemDAO(new Locale(user.getLanguage()), em).findAllChangeRequestsWithReferenceLike(user, pWorkspaceId, q, maxResults)) {
+            visibleChangeRequests.add(filterLinkedChangeIssues(changeRequest, user));
         }
         return visibleChangeRequests;
     }
@@ -426,16 +413,22 @@ public class ChangeManagerBean implements IChangeManagerLocal {
     @Override
     public List<ChangeOrder> getChangeOrders(String pWorkspaceId) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
         User user = userManager.checkWorkspaceReadAccess(pWorkspaceId);
-        List<ChangeOrder> allChangeOrders = new ChangeItemDAO(new Locale(user.getLanguage()),
-                em).findAllChangeOrders(pWorkspaceId);
         List<ChangeOrder> visibleChangeOrders = new ArrayList<>();
-        for (ChangeOrder changeOrder : allChangeOrders) {
-            try {
-                checkChangeItemReadAccess(changeOrder, user);
-                visibleChangeOrders.add(filterLinkedChangeRequests(changeOrder, user));
-            } catch (AccessRightException e) {
-                LOGGER.log(Level.FINEST, null, e);
-            }
+        // Read access is checked by the query
+        for (ChangeOrder changeOrder : new ChangeItemDAO(new Locale(user.getLanguage()), em).findAllChangeOrders(user, pWorkspaceId)) {
+            visibleChangeOrders.add(filterLinkedChangeRequests(changeOrder, user));
+        }
+        return visibleChangeOrders;
+    }
+
+    @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
+    @Override
+    public List<ChangeOrder> getChangeOrdersAfter(String pWorkspaceId, int afterId, int pMaxResults) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
+        User user = userManager.checkWorkspaceReadAccess(pWorkspaceId);
+        List<ChangeOrder> visibleChangeOrders = new ArrayList<>();
+        // Read access is checked by the query, so that pages are filled
+        for (ChangeOrder changeOrder : new ChangeItemDAO(new Locale(user.getLanguage()), em).findChangeOrdersAfter(user, pWorkspaceId, afterId, pMaxResults)) {
+            visibleChangeOrders.add(filterLinkedChangeRequests(changeOrder, user));
         }
         return visibleChangeOrders;
     }
@@ -830,6 +823,42 @@ public class ChangeManagerBean implements IChangeManagerLocal {
         }
     }
 
+    @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
+    @Override
+    public Set<Integer> getWritableChangeItemIds(String pWorkspaceId, Collection<? extends ChangeItem> pChangeItems) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
+        User user = userManager.checkWorkspaceReadAccess(pWorkspaceId);
+        Set<Integer> writableIds = new HashSet<>();
+        // Items without ACL fall back on the workspace write access, checked once for the whole list
+        Boolean workspaceWritable = null;
+        for (ChangeItem changeItem : pChangeItems) {
+            boolean writable;
+            if (user.isAdministrator()) {
+                writable = true;
+            } else if (changeItem.getACL() != null) {
+                writable = changeItem.getACL().hasWriteAccess(user);
+            } else {
+                if (workspaceWritable == null) {
+                    workspaceWritable = isWorkspaceWritable(pWorkspaceId);
+                }
+                writable = workspaceWritable;
+            }
+            if (writable) {
+                writableIds.add(changeItem.getId());
+            }
+        }
+        return writableIds;
+    }
+
+    private boolean isWorkspaceWritable(String pWorkspaceId) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
+        try {
+            userManager.checkWorkspaceWriteAccess(pWorkspaceId);
+            return true;
+        } catch (AccessRightException e) {
+            LOGGER.log(Level.FINEST, null, e);
+            return false;
+        }
+    }
+
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
     @Override
     public boolean isMilestoneWritable(Milestone pMilestone) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
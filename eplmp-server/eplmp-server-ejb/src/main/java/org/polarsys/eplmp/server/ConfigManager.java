@@ -24,6 +24,8 @@ import java.util.Properties;
 @ApplicationScoped
 public class ConfigManager {
 
+    private static final int DEFAULT_CASCADE_CHUNK_SIZE = 100;
+
     @Resource(name="docdokuplm.config")
     private Properties properties;
 
@@ -35,8 +37,19 @@ public class ConfigManager {
         return properties.getProperty("vaultPath");
     }
 
+    public boolean isContentAddressedVault() {
+        return Boolean.parseBoolean(properties.getProperty("contentAddressedVault"));
+    }
+
     public String getDigestAlgorithm() {
         return Optional.ofNullable(properties.getProperty("digestAlgorithm")).orElse("MD5");
     }
 
+    /**
+     * Number of parts processed in each transaction of cascade actions
+     */
+    public int getCascadeChunkSize() {
+        return Optional.ofNullable(properties.getProperty("cascadeChunkSize")).map(Integer::parseInt).orElse(DEFAULT_CASCADE_CHUNK_SIZE);
+    }
+
 }
@@ -31,7 +31,6 @@ import javax.ejb.Asynchronous;
 import javax.ejb.Local;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
-import javax.script.ScriptException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -194,8 +193,12 @@ public class ConverterBean implements IConverterManagerLocal {
         double[] box;
 
         try {
-            box = new GeometryParser(convertedFile).calculateBox();
-        } catch (IOException | ScriptException | NoSuchMethodException e) {
+            GeometryParser geometryParser = new GeometryParser(convertedFile);
+            box = geometryParser.calculateBox();
+            LOGGER.log(Level.FINE, "Converted file with " + geometryParser.getVertexCount() + " vertices and "
+                    + geometryParser.getFaceCount() + " faces");
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Cannot compute the bounding box of " + convertedFile.getFileName(), e);
             box = new double[6];
         }
 
@@ -361,6 +364,13 @@ public class ConverterBean implements IConverterManagerLocal {
                 LOGGER.log(Level.INFO, "geometry saved");
             } catch (IOException e) {
                 LOGGER.log(Level.SEVERE, e.getMessage(), e);
+                return;
+            }
+            // Geometries are downloaded on each viewer load, store them compressed once and for all
+            try {
+                storageManager.saveEncodedVariants(lod);
+            } catch (StorageException e) {
+                LOGGER.log(Level.WARNING, "Cannot store precompressed geometry, it will be served as is", e);
             }
         } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "Unable to get geometry file's size", e);
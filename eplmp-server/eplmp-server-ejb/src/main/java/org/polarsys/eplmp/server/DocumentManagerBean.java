@@ -395,6 +395,18 @@ public class DocumentManagerBean implements IDocumentManagerLocal {
     public DocumentRevision[] getFilteredDocumentsInWorkspace(String workspaceId, int start, int pMaxResults) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
         User user = userManager.checkWorkspaceReadAccess(workspaceId);
         List<DocumentRevision> docRs = new DocumentRevisionDAO(new Locale(user.getLanguage()), em).getDocumentRevisionsFiltered(user, workspaceId, start, pMaxResults);
+        return hideIterationsCheckedOutByOthers(user, docRs);
+    }
+
+    @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
+    @Override
+    public DocumentRevision[] getFilteredDocumentsInWorkspaceAfter(String workspaceId, DocumentRevisionKey after, int pMaxResults) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
+        User user = userManager.checkWorkspaceReadAccess(workspaceId);
+        List<DocumentRevision> docRs = new DocumentRevisionDAO(new Locale(user.getLanguage()), em).getDocumentRevisionsFilteredAfter(user, workspaceId, after, pMaxResults);
+        return hideIterationsCheckedOutByOthers(user, docRs);
+    }
+
+    private DocumentRevision[] hideIterationsCheckedOutByOthers(User user, List<DocumentRevision> docRs) {
         List<DocumentRevision> documentRevisions = new ArrayList<>();
         for (DocumentRevision docR : docRs) {
             if (isCheckoutByAnotherUser(user, docR)) {
@@ -910,6 +922,11 @@ public class DocumentManagerBean implements IDocumentManagerLocal {
                 BinaryResource targetFile = new BinaryResource(fullName, length, lastModified);
                 binDAO.createBinaryResource(targetFile);
                 newDoc.addFile(targetFile);
+                try {
+                    storageManager.shareData(sourceFile, targetFile);
+                } catch (StorageException e) {
+                    LOGGER.log(Level.INFO, null, e);
+                }
             }
 
             Set<DocumentLink> links = new HashSet<>();
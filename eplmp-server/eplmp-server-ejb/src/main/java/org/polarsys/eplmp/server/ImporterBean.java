@@ -20,6 +20,7 @@ import org.polarsys.eplmp.core.meta.InstanceAttribute;
 import org.polarsys.eplmp.core.product.*;
 import org.polarsys.eplmp.core.services.*;
 import org.polarsys.eplmp.i18n.PropertiesLoader;
+import org.polarsys.eplmp.server.dao.PartIterationDAO;
 import org.polarsys.eplmp.server.importers.*;
 
 import javax.annotation.PostConstruct;
@@ -27,6 +28,8 @@ import javax.ejb.AsyncResult;
 import javax.ejb.Asynchronous;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import java.io.File;
 import java.util.*;
 import java.util.concurrent.Future;
@@ -46,6 +49,9 @@ public class ImporterBean implements IImporterManagerLocal {
 
     private static final Logger LOGGER = Logger.getLogger(ImporterBean.class.getName());
 
+    // Number of parts resolved and updated between two flushes of the persistence context
+    private static final int CHUNK_SIZE = 100;
+
     private List<PartImporter> partImporters = new ArrayList<>();
     private List<PathDataImporter> pathDataImporters = new ArrayList<>();
     private List<BomImporter> bomImporters = new ArrayList<>();
@@ -62,6 +68,9 @@ public class ImporterBean implements IImporterManagerLocal {
     @Inject
     private BeanLocator beanLocator;
 
+    @PersistenceContext
+    private EntityManager em;
+
     @PostConstruct
     void init() {
         partImporters.addAll(beanLocator.search(PartImporter.class));
@@ -129,20 +138,36 @@ public class ImporterBean implements IImporterManagerLocal {
         List<PartRevision> toCheckout = new ArrayList<>();
 
         if (partsToImport != null) {
-            for (PartToImport part : partsToImport.values()) {
-                try {
-                    PartRevision currentPartRevision = productManager.getPartMaster(new PartMasterKey(workspaceId, part.getNumber())).getLastRevision();
-                    PartIteration currentPartIteration = currentPartRevision.getLastIteration();
+            try {
+                User user = userManager.checkWorkspaceReadAccess(workspaceId);
+                boolean workspaceWriteAccess = userManager.hasWorkspaceWriteAccess(user, workspaceId);
+                List<PartToImport> parts = new ArrayList<>(partsToImport.values());
+
+                for (int from = 0; from < parts.size(); from += CHUNK_SIZE) {
+                    List<PartToImport> chunk = parts.subList(from, Math.min(from + CHUNK_SIZE, parts.size()));
+                    Map<String, PartIteration> lastIterations = getLastIterations(user, workspaceId, chunk);
+
+                    for (PartToImport part : chunk) {
+                        PartIteration currentPartIteration = lastIterations.get(part.getNumber());
+                        if (currentPartIteration == null) {
+                            LOGGER.log(Level.SEVERE, "Could not get PartMaster[" + part.getNumber() + "]");
+                            continue;
+                        }
+
+                        PartRevision currentPartRevision = currentPartIteration.getPartRevision();
 
-                    if (autoCheckout && !currentPartRevision.isCheckedOut() && productManager.canWrite(currentPartRevision.getKey()) && !part.getAttributes().isEmpty()
-                            && AttributesImporterUtils.checkIfUpdateOrCreateInstanceAttributes(part.getAttributes(), currentPartIteration.getInstanceAttributes())) {
-                        toCheckout.add(currentPartRevision);
+                        if (autoCheckout && !currentPartRevision.isCheckedOut() && ProductManagerBean.canWrite(user, workspaceWriteAccess, currentPartRevision) && !part.getAttributes().isEmpty()
+                                && AttributesImporterUtils.checkIfUpdateOrCreateInstanceAttributes(part.getAttributes(), currentPartIteration.getInstanceAttributes())) {
+                            toCheckout.add(currentPartRevision);
+                        }
                     }
-                } catch (UserNotFoundException | UserNotActiveException | WorkspaceNotFoundException
-                        | PartMasterNotFoundException | PartRevisionNotFoundException | AccessRightException
-                        | WorkspaceNotEnabledException e) {
-                    LOGGER.log(Level.SEVERE, null, e);
+                    // The persistence context is the one of the transaction, shared with the product manager:
+                    // clearing it detaches whatever was loaded before, the preview only keeps detached revisions
+                    em.clear();
                 }
+            } catch (UserNotFoundException | UserNotActiveException | WorkspaceNotFoundException
+                    | WorkspaceNotEnabledException e) {
+                LOGGER.log(Level.SEVERE, null, e);
             }
         }
 
@@ -245,23 +270,23 @@ public class ImporterBean implements IImporterManagerLocal {
                 bomAsMap.put(partNumber, partMaster);
             }
 
-            for (Map.Entry<String, PartMaster> entry : bomAsMap.entrySet()) {
-                PartMaster value = entry.getValue();
-                PartMasterKey partMasterKey = value.getKey();
-                try {
-                    if (!productManager.partMasterExists(partMasterKey)) {
-                        toCreate.add(value);
+            try {
+                Map<String, PartMaster> existingPartMasters = productManager.getPartMasters(workspaceId, bomAsMap.keySet());
+
+                for (Map.Entry<String, PartMaster> entry : bomAsMap.entrySet()) {
+                    PartMaster partMaster = existingPartMasters.get(entry.getKey());
+                    if (partMaster == null) {
+                        toCreate.add(entry.getValue());
                     } else {
-                        PartMaster partMaster = productManager.getPartMaster(partMasterKey);
                         PartRevision lastRevision = partMaster.getLastRevision();
 
                         if (!lastRevision.isCheckedOut() && autoCheckout) {
                             toCheckout.add(lastRevision);
                         }
                     }
-                } catch (ApplicationException e) {
-                    LOGGER.log(Level.SEVERE, "Cannot get part master info: " + value, e);
                 }
+            } catch (ApplicationException e) {
+                LOGGER.log(Level.SEVERE, "Cannot get part masters info", e);
             }
         }
 
@@ -329,76 +354,64 @@ public class ImporterBean implements IImporterManagerLocal {
     }
 
 
-    private boolean canChangePart(String workspaceId, PartRevision lastRevision, boolean autoCheckout)
-            throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
-        User user = userManager.checkWorkspaceReadAccess(workspaceId);
+    private boolean canChangePart(User user, PartRevision lastRevision, boolean autoCheckout) {
         return (autoCheckout && !lastRevision.isCheckedOut()) || (lastRevision.isCheckedOut() && lastRevision.getCheckOutUser().equals(user));
     }
 
+    /**
+     * Get the last iterations of the parts of a chunk, with their attributes only.
+     * The caller must have checked the read access to the workspace.
+     * The last iteration of a revision checked out by another user is its working copy: it must not be read.
+     */
+    private Map<String, PartIteration> getLastIterations(User user, String workspaceId, Collection<PartToImport> parts) {
+        Set<String> partNumbers = parts.stream().map(PartToImport::getNumber).collect(Collectors.toSet());
+        return new PartIterationDAO(new Locale(user.getLanguage()), em).loadLastIterations(workspaceId, partNumbers);
+    }
+
+    /**
+     * Write the changes of a chunk and detach its entities, so that the persistence context
+     * doesn't grow with the size of the imported file.
+     * The persistence context is the one of the transaction, shared with the product manager:
+     * the entities it loaded are detached too, and must be loaded again after.
+     */
+    private void flushAndClear() {
+        em.flush();
+        em.clear();
+    }
+
     private ImportResult doPartImport(Properties properties, String workspaceId, String revisionNote, boolean autoCheckout, boolean autoCheckin,
                                       boolean permissiveUpdate, PartImporterResult partImporterResult) {
 
         List<String> errors = partImporterResult.getErrors();
         List<String> warnings = partImporterResult.getWarnings();
         Map<String, PartToImport> partsToImport = partImporterResult.getPartsToImport();
+        List<PartToImport> parts = new ArrayList<>(partsToImport.values());
         List<PartToImport> listParts = new ArrayList<>();
 
-        for (PartToImport part : partsToImport.values()) {
-
-            try {
-                PartMaster currentPartMaster = productManager.getPartMaster(new PartMasterKey(workspaceId, part.getNumber()));
-
-                PartIteration partIteration = currentPartMaster.getLastRevision().getLastIteration();
+        User user;
+        boolean workspaceWriteAccess;
 
-                boolean hasAccess = productManager.canWrite(currentPartMaster.getLastRevision().getKey());
-
-                if (part.hasAttributes() && (hasAccess && canChangePart(workspaceId, partIteration.getPartRevision(), autoCheckout))) {
-
-                    //info : we create 2 instanceAttribute Lists to ensure separation between current list and updated list
-                    List<InstanceAttribute> updatedInstanceAttributes = AttributesImporterUtils.getInstanceAttributes(properties, partIteration.getInstanceAttributes(), errors);//we will update data here
-                    List<InstanceAttribute> currentInstanceAttributes = new ArrayList<>(updatedInstanceAttributes);//we will delete updated attributes from here
-
-                    List<Attribute> attributes = part.getAttributes();
-                    part.getNumber();
-                    AttributesImporterUtils.updateAndCreateInstanceAttributes(lovManager, properties, attributes, currentInstanceAttributes, part.getNumber(), errors, workspaceId, updatedInstanceAttributes);
-                    part.setInstanceAttributes(updatedInstanceAttributes);
-                    if (revisionNote != null && !revisionNote.isEmpty()) {
-                        part.setRevisionNote(revisionNote);
-                    }
-                    part.setPartIteration(partIteration);
-                    listParts.add(part);
-
-                } else if (permissiveUpdate && !hasAccess) {
-                    warnings.add(AttributesImporterUtils.createError(properties, "NotAccess", part.getNumber()));
-                    LOGGER.log(Level.WARNING, "No right on [" + part.getNumber() + "]");
-
-                } else if (!canChangePart(workspaceId, partIteration.getPartRevision(), autoCheckout)) {
-                    User user = userManager.checkWorkspaceReadAccess(workspaceId);
-
-                    if (partIteration.getPartRevision().isCheckedOut() && !partIteration.getPartRevision().getCheckOutUser().equals(user)) {
-                        String errorMessage = AttributesImporterUtils.createError(properties, "AlreadyCheckedOut", part.getNumber(), partIteration.getPartRevision().getCheckOutUser().getName());
-                        if (permissiveUpdate) {
-                            warnings.add(errorMessage);
-                        } else {
-                            errors.add(errorMessage);
-                        }
+        try {
+            user = userManager.checkWorkspaceReadAccess(workspaceId);
+            workspaceWriteAccess = userManager.hasWorkspaceWriteAccess(user, workspaceId);
+        } catch (UserNotFoundException | UserNotActiveException | WorkspaceNotFoundException | WorkspaceNotEnabledException e) {
+            LOGGER.log(Level.WARNING, null, e);
+            errors.add(e.getLocalizedMessage());
+            return new ImportResult(partImporterResult.getImportedFile(), warnings, errors);
+        }
 
-                    } else if (!partIteration.getPartRevision().isCheckedOut()) {
-                        String errorMessage = AttributesImporterUtils.createError(properties, "NotCheckedOut", part.getNumber());
-                        if (permissiveUpdate) {
-                            warnings.add(errorMessage);
-                        } else {
-                            errors.add(errorMessage);
-                        }
-                    }
-                }
+        for (int from = 0; from < parts.size(); from += CHUNK_SIZE) {
+            List<PartToImport> chunk = parts.subList(from, Math.min(from + CHUNK_SIZE, parts.size()));
+            Map<String, PartIteration> lastIterations = getLastIterations(user, workspaceId, chunk);
 
-            } catch
-                    (AccessRightException | UserNotFoundException | UserNotActiveException | WorkspaceNotFoundException
-                            | PartMasterNotFoundException | PartRevisionNotFoundException | WorkspaceNotEnabledException e) {
-                LOGGER.log(Level.WARNING, "Could not get PartMaster[" + part.getNumber() + "]", e);
-                errors.add(e.getLocalizedMessage());
+            for (PartToImport part : chunk) {
+                checkPartToImport(properties, workspaceId, user, workspaceWriteAccess, lastIterations.get(part.getNumber()), part,
+                        revisionNote, autoCheckout, permissiveUpdate, listParts, errors, warnings);
             }
+
+            // Updated attributes are copies, the loaded parts are no longer needed. The persistence context
+            // is shared with the product manager in this transaction: its entities are detached as well
+            em.clear();
         }
 
         if (!errors.isEmpty()) {
@@ -406,7 +419,7 @@ public class ImporterBean implements IImporterManagerLocal {
         }
 
         try {
-            bulkPartUpdate(listParts, workspaceId, autoCheckout, autoCheckin, permissiveUpdate, errors, warnings);
+            bulkPartUpdate(properties, listParts, workspaceId, autoCheckout, autoCheckin, permissiveUpdate, errors, warnings);
         } catch (Exception e) {
             LOGGER.log(Level.WARNING, null, e);
             errors.add("Unhandled exception");
@@ -414,67 +427,173 @@ public class ImporterBean implements IImporterManagerLocal {
         return new ImportResult(partImporterResult.getImportedFile(), warnings, errors);
     }
 
-    public void bulkPartUpdate(List<PartToImport> parts, String workspaceId, boolean autoCheckout, boolean autoCheckin, boolean permissive, List<String> errors, List<String> warnings) throws Exception {
+    private void checkPartToImport(Properties properties, String workspaceId, User user, boolean workspaceWriteAccess, PartIteration lastIteration,
+                                   PartToImport part, String revisionNote, boolean autoCheckout, boolean permissiveUpdate,
+                                   List<PartToImport> listParts, List<String> errors, List<String> warnings) {
+
+        try {
+            if (lastIteration == null) {
+                throw new PartMasterNotFoundException(new Locale(user.getLanguage()), part.getNumber());
+            }
+
+            PartRevision lastRevision = lastIteration.getPartRevision();
+            PartIteration partIteration = lastIteration;
+
+            boolean hasAccess = ProductManagerBean.canWrite(user, workspaceWriteAccess, lastRevision);
+            boolean canChange = canChangePart(user, lastRevision, autoCheckout);
+
+            if (part.hasAttributes() && hasAccess && canChange) {
+
+                //info : we create 2 instanceAttribute Lists to ensure separation between current list and updated list
+                List<InstanceAttribute> updatedInstanceAttributes = AttributesImporterUtils.getInstanceAttributes(properties, partIteration.getInstanceAttributes(), errors);//we will update data here
+                List<InstanceAttribute> currentInstanceAttributes = new ArrayList<>(updatedInstanceAttributes);//we will delete updated attributes from here
+
+                List<Attribute> attributes = part.getAttributes();
+                AttributesImporterUtils.updateAndCreateInstanceAttributes(lovManager, properties, attributes, currentInstanceAttributes, part.getNumber(), errors, workspaceId, updatedInstanceAttributes);
+                part.setInstanceAttributes(updatedInstanceAttributes);
+                if (revisionNote != null && !revisionNote.isEmpty()) {
+                    part.setRevisionNote(revisionNote);
+                }
+                part.setPartIteration(partIteration);
+                listParts.add(part);
+
+            } else if (permissiveUpdate && !hasAccess) {
+                warnings.add(AttributesImporterUtils.createError(properties, "NotAccess", part.getNumber()));
+                LOGGER.log(Level.WARNING, "No right on [" + part.getNumber() + "]");
+
+            } else if (!canChange) {
+
+                if (lastRevision.isCheckedOut() && !lastRevision.getCheckOutUser().equals(user)) {
+                    String errorMessage = AttributesImporterUtils.createError(properties, "AlreadyCheckedOut", part.getNumber(), lastRevision.getCheckOutUser().getName());
+                    if (permissiveUpdate) {
+                        warnings.add(errorMessage);
+                    } else {
+                        errors.add(errorMessage);
+                    }
+
+                } else if (!lastRevision.isCheckedOut()) {
+                    String errorMessage = AttributesImporterUtils.createError(properties, "NotCheckedOut", part.getNumber());
+                    if (permissiveUpdate) {
+                        warnings.add(errorMessage);
+                    } else {
+                        errors.add(errorMessage);
+                    }
+                }
+            }
+
+        } catch (UserNotFoundException | UserNotActiveException | WorkspaceNotFoundException | PartMasterNotFoundException e) {
+            LOGGER.log(Level.WARNING, "Could not get PartMaster[" + part.getNumber() + "]", e);
+            errors.add(e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Update the parts chunk by chunk: the parts of a chunk are loaded, checked out and checked in at once,
+     * and the persistence context is flushed and cleared after each chunk.
+     * Chunks only bound the memory used: the whole update still runs in the single transaction of the import,
+     * committed or rolled back as a whole.
+     */
+    public void bulkPartUpdate(Properties properties, List<PartToImport> parts, String workspaceId, boolean autoCheckout, boolean autoCheckin, boolean permissive, List<String> errors, List<String> warnings) throws Exception {
 
         LOGGER.log(Level.INFO, "Bulk parts update");
+        long start = System.currentTimeMillis();
+
         User user = userManager.checkWorkspaceReadAccess(workspaceId);
+        boolean workspaceWriteAccess = userManager.hasWorkspaceWriteAccess(user, workspaceId);
+        Locale locale = new Locale(user.getLanguage());
 
         boolean errorOccured = false;
         Exception exception = null;
 
-        for (PartToImport part : parts) {
-            PartIteration partIteration = part.getPartIteration();
+        for (int from = 0; from < parts.size(); from += CHUNK_SIZE) {
+            List<PartToImport> chunk = parts.subList(from, Math.min(from + CHUNK_SIZE, parts.size()));
+            Map<String, PartIteration> lastIterations = getLastIterations(user, workspaceId, chunk);
 
-            try {
-                PartMaster currentPartMaster = productManager.getPartMaster(new PartMasterKey(workspaceId, part.getNumber()));
+            // Revisions checked out for the update
+            Map<PartRevisionKey, PartRevision> autoCheckedOutRevisions = new LinkedHashMap<>();
 
-                boolean isAutoCheckedOutByImport = false; //to check if checkout for the update
-
-                if (autoCheckout && !currentPartMaster.getLastRevision().isCheckedOut() && productManager.canWrite(currentPartMaster.getLastRevision().getKey())) {
-                    PartRevision currentPartRevision = productManager.checkOutPart(new PartRevisionKey(workspaceId, part.getNumber(), currentPartMaster.getLastRevision().getVersion()));
-                    isAutoCheckedOutByImport = true;
-                    partIteration = currentPartRevision.getLastIteration();
+            if (autoCheckout) {
+                Set<PartRevisionKey> toCheckout = new LinkedHashSet<>();
+                for (PartIteration lastIteration : lastIterations.values()) {
+                    PartRevision lastRevision = lastIteration.getPartRevision();
+                    if (!lastRevision.isCheckedOut() && ProductManagerBean.canWrite(user, workspaceWriteAccess, lastRevision)) {
+                        toCheckout.add(lastRevision.getKey());
+                    }
                 }
-
-                //Check if not permissive or permissive and checked out
-                if (partIteration.getPartRevision().isCheckedOut() && partIteration.getPartRevision().getCheckOutUser().equals(user)) {
-                    //Do not lose previous saved revision note if no note specified during import
-                    if (part.getRevisionNote() == null) {
-                        part.setRevisionNote(partIteration.getIterationNote());
+                if (!toCheckout.isEmpty()) {
+                    // Revisions are checked out in place, those left checked in are reported below
+                    productManager.checkOutParts(workspaceId, new ArrayList<>(toCheckout));
+                }
+                for (PartIteration lastIteration : lastIterations.values()) {
+                    PartRevision lastRevision = lastIteration.getPartRevision();
+                    if (toCheckout.contains(lastRevision.getKey()) && lastRevision.isCheckedOut()) {
+                        autoCheckedOutRevisions.put(lastRevision.getKey(), lastRevision);
                     }
-                    productManager.updatePartIteration(partIteration.getKey(), part.getRevisionNote(), partIteration.getSource(), null, part.getInstanceAttributes(), null, null, null, null);
-                } else {
-                    throw new NotAllowedException(new Locale(user.getLanguage()), "NotAllowedException25", partIteration.getPartRevision().toString());
                 }
+            }
 
-                //CheckIn if checkout before
-                if (autoCheckin && isAutoCheckedOutByImport && partIteration.getPartRevision().getCheckOutUser().equals(user)) {
-                    try {
-                        productManager.checkInPart(new PartRevisionKey(currentPartMaster.getKey(), currentPartMaster.getLastRevision().getVersion()));
-                    } catch (NotAllowedException e) {
-                        LOGGER.log(Level.WARNING, null, e);
-                        warnings.add(e.getLocalizedMessage());
+            List<PartRevision> toCheckin = new ArrayList<>();
+
+            for (PartToImport part : chunk) {
+                try {
+                    PartIteration lastIteration = lastIterations.get(part.getNumber());
+                    if (lastIteration == null) {
+                        throw new PartMasterNotFoundException(locale, part.getNumber());
                     }
-                }
-            } catch (CreationException | PartMasterNotFoundException | EntityConstraintException | UserNotFoundException | WorkspaceNotFoundException | UserNotActiveException | PartUsageLinkNotFoundException | PartRevisionNotFoundException | AccessRightException | FileAlreadyExistsException e) {
-                LOGGER.log(Level.WARNING, null, e);
-                errors.add(e.getLocalizedMessage() + ": " + partIteration.getNumber());
-                errorOccured = true;
-                exception = e;
 
-            } catch (NotAllowedException e) {
-                LOGGER.log(Level.WARNING, null, e);
-                if (permissive) {
-                    warnings.add(e.getLocalizedMessage());
-                } else {
-                    errors.add(e.getLocalizedMessage());
+                    PartRevision currentPartRevision = lastIteration.getPartRevision();
+                    // Revisions checked out above have a new working copy
+                    PartIteration partIteration = autoCheckedOutRevisions.containsKey(currentPartRevision.getKey()) ?
+                            currentPartRevision.getLastIteration() : lastIteration;
+
+                    //Check if not permissive or permissive and checked out
+                    if (currentPartRevision.isCheckedOut() && currentPartRevision.getCheckOutUser().equals(user)) {
+                        //Do not lose previous saved revision note if no note specified during import
+                        if (part.getRevisionNote() == null) {
+                            part.setRevisionNote(partIteration.getIterationNote());
+                        }
+                        productManager.updatePartIteration(partIteration.getKey(), part.getRevisionNote(), partIteration.getSource(), null, part.getInstanceAttributes(), null, null, null, null);
+                    } else {
+                        throw new NotAllowedException(locale, "NotAllowedException25", currentPartRevision.toString());
+                    }
+
+                    //CheckIn if checkout before
+                    if (autoCheckin && autoCheckedOutRevisions.containsKey(currentPartRevision.getKey())) {
+                        toCheckin.add(currentPartRevision);
+                    }
+                } catch (PartMasterNotFoundException | EntityConstraintException | UserNotFoundException | WorkspaceNotFoundException | UserNotActiveException | PartUsageLinkNotFoundException | PartRevisionNotFoundException | AccessRightException e) {
+                    LOGGER.log(Level.WARNING, null, e);
+                    errors.add(e.getLocalizedMessage() + ": " + part.getNumber());
                     errorOccured = true;
                     exception = e;
+
+                } catch (NotAllowedException e) {
+                    LOGGER.log(Level.WARNING, null, e);
+                    if (permissive) {
+                        warnings.add(e.getLocalizedMessage());
+                    } else {
+                        errors.add(e.getLocalizedMessage());
+                        errorOccured = true;
+                        exception = e;
+                    }
+                }
+            }
+
+            if (!toCheckin.isEmpty()) {
+                productManager.checkInParts(workspaceId, toCheckin.stream().map(PartRevision::getKey).collect(Collectors.toList()), null);
+                for (PartRevision partRevision : toCheckin) {
+                    if (partRevision.isCheckedOut()) {
+                        warnings.add(AttributesImporterUtils.createError(properties, "NotCheckedIn", partRevision.getPartNumber()));
+                    }
                 }
             }
+
+            flushAndClear();
+            LOGGER.log(Level.FINE, "Bulk parts update: " + (from + chunk.size()) + "/" + parts.size() + " parts updated");
         }
 
-        LOGGER.log(Level.INFO, "Bulk parts update finished");
+        long duration = System.currentTimeMillis() - start;
+        LOGGER.log(Level.INFO, "Bulk parts update finished: " + parts.size() + " parts in " + duration + " ms");
 
         if (errorOccured) {
             throw exception;
@@ -666,9 +785,25 @@ public class ImporterBean implements IImporterManagerLocal {
 
         List<String> errors = new ArrayList<>();
         List<String> warnings = new ArrayList<>();
-        Set<PartRevisionKey> toCheckin = new HashSet<>();
+        Map<PartRevisionKey, PartRevision> toCheckin = new LinkedHashMap<>();
         File file = bomImporterResult.getImportedFile();
 
+        // Resolve all the part masters referenced by the file at once, created ones are added on the fly
+        Set<String> partNumbers = new HashSet<>();
+        for (Map.Entry<PartToImport, List<PartToImport>> entry : bomImporterResult.getPartsMap().entrySet()) {
+            partNumbers.add(entry.getKey().getNumber());
+            entry.getValue().forEach(row -> partNumbers.add(row.getNumber()));
+        }
+
+        Map<String, PartMaster> partMasters;
+        try {
+            partMasters = productManager.getPartMasters(workspaceId, partNumbers);
+        } catch (ApplicationException e) {
+            LOGGER.log(Level.SEVERE, "Cannot get part masters info", e);
+            errors.add(e.getMessage());
+            return new ImportResult(file, warnings, errors);
+        }
+
         for (Map.Entry<PartToImport, List<PartToImport>> entry : bomImporterResult.getPartsMap().entrySet()) {
 
             // Process children parts
@@ -679,7 +814,7 @@ public class ImporterBean implements IImporterManagerLocal {
                 String childNumber = childRow.getNumber();
 
                 try {
-                    PartMaster childPartMaster = getOrCreatePartMaster(properties, errors, workspaceId, toCheckin, childNumber, childRow, revisionNote, autoCheckin);
+                    PartMaster childPartMaster = getOrCreatePartMaster(properties, errors, workspaceId, partMasters, toCheckin, childNumber, childRow, revisionNote, autoCheckin);
                     usageLinks.add(createUsageLink(childPartMaster, childRow));
                 } catch (ApplicationException e) {
                     LOGGER.log(Level.SEVERE, "Cannot initialize part master " + workspaceId + "-" + childNumber, e);
@@ -694,7 +829,7 @@ public class ImporterBean implements IImporterManagerLocal {
             PartMaster parentPart;
 
             try {
-                parentPart = getOrCreatePartMaster(properties, errors, workspaceId, toCheckin, parentPartNumber, parentRow, revisionNote, autoCheckin);
+                parentPart = getOrCreatePartMaster(properties, errors, workspaceId, partMasters, toCheckin, parentPartNumber, parentRow, revisionNote, autoCheckin);
                 PartRevision parentPartLastRevision = parentPart.getLastRevision();
                 PartIteration parentPartLastIteration = parentPartLastRevision.getLastIteration();
 
@@ -725,7 +860,7 @@ public class ImporterBean implements IImporterManagerLocal {
                         usageLinks, null, null, null, null, null);
 
                 if (autoCheckin) {
-                    toCheckin.add(parentPartLastRevision.getKey());
+                    toCheckin.put(parentPartLastRevision.getKey(), parentPartLastRevision);
                 }
 
             } catch (ApplicationException e) {
@@ -735,27 +870,34 @@ public class ImporterBean implements IImporterManagerLocal {
 
         }
 
-        for (PartRevisionKey revisionKey : toCheckin) {
+        List<PartRevisionKey> revisionKeys = new ArrayList<>(toCheckin.keySet());
+        for (int from = 0; from < revisionKeys.size(); from += CHUNK_SIZE) {
+            List<PartRevisionKey> chunk = revisionKeys.subList(from, Math.min(from + CHUNK_SIZE, revisionKeys.size()));
             try {
-                productManager.checkInPart(revisionKey);
+                productManager.checkInParts(workspaceId, chunk, null);
             } catch (ApplicationException e) {
-                LOGGER.log(Level.SEVERE, "Cannot checkin part revision " + revisionKey, e);
+                LOGGER.log(Level.SEVERE, "Cannot checkin part revisions " + chunk, e);
                 errors.add(e.getMessage());
             }
         }
 
+        // Revisions are checked in place, those still checked out could not be checked in
+        for (PartRevision partRevision : toCheckin.values()) {
+            if (partRevision.isCheckedOut()) {
+                LOGGER.log(Level.SEVERE, "Cannot checkin part revision " + partRevision.getKey());
+                errors.add(AttributesImporterUtils.createError(properties, "NotCheckedIn", partRevision.getPartNumber()));
+            }
+        }
+
 
         return null;
     }
 
-    private PartMaster getOrCreatePartMaster(Properties properties, List<String> errors, String workspaceId, Set<PartRevisionKey> toCheckin, String partNumber, PartToImport bomRow, String revisionNote, boolean autoCheckin) throws UserNotFoundException, WorkspaceNotFoundException, UserNotActiveException, WorkspaceNotEnabledException, PartMasterNotFoundException, PartMasterAlreadyExistsException, PartMasterTemplateNotFoundException, FileAlreadyExistsException, NotAllowedException, UserGroupNotFoundException, RoleNotFoundException, WorkflowModelNotFoundException, AccessRightException, CreationException, PartRevisionNotFoundException, ListOfValuesNotFoundException, DocumentRevisionNotFoundException, PartUsageLinkNotFoundException, EntityConstraintException {
+    private PartMaster getOrCreatePartMaster(Properties properties, List<String> errors, String workspaceId, Map<String, PartMaster> partMasters, Map<PartRevisionKey, PartRevision> toCheckin, String partNumber, PartToImport bomRow, String revisionNote, boolean autoCheckin) throws UserNotFoundException, WorkspaceNotFoundException, UserNotActiveException, WorkspaceNotEnabledException, PartMasterNotFoundException, PartMasterAlreadyExistsException, PartMasterTemplateNotFoundException, FileAlreadyExistsException, NotAllowedException, UserGroupNotFoundException, RoleNotFoundException, WorkflowModelNotFoundException, AccessRightException, CreationException, PartRevisionNotFoundException, ListOfValuesNotFoundException, DocumentRevisionNotFoundException, PartUsageLinkNotFoundException, EntityConstraintException {
 
-        PartMaster partMaster;
-        PartMasterKey partMasterKey = new PartMasterKey(workspaceId, partNumber);
+        PartMaster partMaster = partMasters.get(partNumber);
 
-        if (productManager.partMasterExists(partMasterKey)) {
-            partMaster = productManager.getPartMaster(partMasterKey);
-        } else {
+        if (partMaster == null) {
             partMaster = productManager.createPartMaster(workspaceId, partNumber, "", false, null,
                     bomRow.getDescription(), null, null, null, null, null);
 
@@ -770,8 +912,9 @@ public class ImporterBean implements IImporterManagerLocal {
                     null, instanceAttributes, null, null, null, null);
 
             if (autoCheckin) {
-                toCheckin.add(lastRevision.getKey());
+                toCheckin.put(lastRevision.getKey(), lastRevision);
             }
+            partMasters.put(partNumber, partMaster);
         }
         return partMaster;
     }
@@ -26,6 +26,7 @@ import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.io.File;
 import java.io.InputStream;
 import java.util.Locale;
 
@@ -87,6 +88,38 @@ public class OnDemandConverterBean implements IOnDemandConverterManagerLocal {
         return null;
     }
 
+    @Override
+    public File getDocumentConvertedFile(String outputFormat, BinaryResource binaryResource)
+            throws WorkspaceNotFoundException, UserNotActiveException, UserNotFoundException, ConvertedResourceException, WorkspaceNotEnabledException {
+
+        Locale locale = getCallerLocale(binaryResource);
+        BinaryResourceDAO binaryResourceDAO = new BinaryResourceDAO(locale, em);
+        DocumentIteration docI = binaryResourceDAO.getDocumentHolder(binaryResource);
+        OnDemandConverter selectedOnDemandConverter = selectOnDemandConverter(outputFormat, binaryResource);
+
+        if (selectedOnDemandConverter != null) {
+            return selectedOnDemandConverter.getConvertedFile(outputFormat, binaryResource, docI, locale);
+        }
+
+        return null;
+    }
+
+    @Override
+    public File getPartConvertedFile(String outputFormat, BinaryResource binaryResource)
+            throws WorkspaceNotFoundException, UserNotActiveException, UserNotFoundException, ConvertedResourceException, WorkspaceNotEnabledException {
+
+        Locale locale = getCallerLocale(binaryResource);
+        BinaryResourceDAO binaryResourceDAO = new BinaryResourceDAO(locale, em);
+        PartIteration partIteration = binaryResourceDAO.getPartHolder(binaryResource);
+        OnDemandConverter selectedOnDemandConverter = selectOnDemandConverter(outputFormat, binaryResource);
+
+        if (selectedOnDemandConverter != null) {
+            return selectedOnDemandConverter.getConvertedFile(outputFormat, binaryResource, partIteration, locale);
+        }
+
+        return null;
+    }
+
     private OnDemandConverter selectOnDemandConverter(String outputFormat, BinaryResource binaryResource) {
         OnDemandConverter selectedOnDemandConverter = null;
         for (OnDemandConverter onDemandConverter : documentResourceGetters) {
@@ -15,7 +15,9 @@ import org.polarsys.eplmp.core.exceptions.PlatformHealthException;
 import org.polarsys.eplmp.core.services.IBinaryStorageManagerLocal;
 import org.polarsys.eplmp.core.services.IIndexerManagerLocal;
 import org.polarsys.eplmp.core.services.IPlatformHealthManagerLocal;
+import org.polarsys.eplmp.server.configuration.ProductStructureCache;
 import org.polarsys.eplmp.server.resourcegetters.OfficeConfig;
+import org.polarsys.eplmp.server.resourcegetters.OfficeConversionMetrics;
 
 import javax.ejb.Local;
 import javax.ejb.Stateless;
@@ -24,7 +26,9 @@ import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -46,9 +50,15 @@ public class PlatformHealthManagerBean implements IPlatformHealthManagerLocal {
     @Inject
     private OfficeConfig officeConfig;
 
+    @Inject
+    private OfficeConversionMetrics officeConversionMetrics;
+
     @Inject
     private ConfigManager configManager;
 
+    @Inject
+    private ProductStructureCache productStructureCache;
+
     @Override
     public void runHealthCheck() throws PlatformHealthException {
 
@@ -73,6 +83,12 @@ public class PlatformHealthManagerBean implements IPlatformHealthManagerLocal {
             check = false;
         }
 
+        // Index changes are queued, report a growing backlog without failing the check
+        long queueDepth = indexerManager.getQueueDepth();
+        if (queueDepth > 0) {
+            LOGGER.log(Level.INFO, "Indexation queue: " + queueDepth + " pending changes, oldest queued " + indexerManager.getQueueLag() + " ms ago");
+        }
+
         // LibreOffice check
         String officeHome = null;
         try {
@@ -139,4 +155,23 @@ public class PlatformHealthManagerBean implements IPlatformHealthManagerLocal {
         }
 
     }
+
+    @Override
+    public Map<String, Long> getMetrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("indexation.queue.depth", indexerManager.getQueueDepth());
+        metrics.put("indexation.queue.lag", indexerManager.getQueueLag());
+
+        // Read apart from the office pool, which is only started on the first conversion
+        metrics.put("office.workers", (long) officeConversionMetrics.getWorkers());
+        metrics.put("office.workers.busy", (long) officeConversionMetrics.getBusyWorkers());
+        metrics.put("office.queue.depth", (long) officeConversionMetrics.getQueueDepth());
+        officeConversionMetrics.getLatencies().getCounts()
+                .forEach((range, count) -> metrics.put("office.conversions." + range, count));
+
+        metrics.put("product.structure.cache.entries", (long) productStructureCache.size());
+        metrics.put("product.structure.cache.hits", productStructureCache.getHitCount());
+        metrics.put("product.structure.cache.misses", productStructureCache.getMissCount());
+        return metrics;
+    }
 }
\ No newline at end of file
@@ -29,6 +29,8 @@ import org.polarsys.eplmp.core.util.NamingConvention;
 import org.polarsys.eplmp.core.util.Tools;
 import org.polarsys.eplmp.core.workflow.*;
 import org.polarsys.eplmp.server.configuration.PSFilterVisitor;
+import org.polarsys.eplmp.server.configuration.ProductStructureCache;
+import org.polarsys.eplmp.server.configuration.ProductStructureSearchIndex;
 import org.polarsys.eplmp.server.configuration.filter.LatestPSFilter;
 import org.polarsys.eplmp.server.configuration.filter.UpdatePartIterationPSFilter;
 import org.polarsys.eplmp.server.configuration.filter.WIPPSFilter;
@@ -81,6 +83,12 @@ public class ProductManagerBean implements IProductManagerLocal {
     @Inject
     private IPSFilterManagerLocal psFilterManager;
 
+    @Inject
+    private ProductStructureCache productStructureCache;
+
+    @Inject
+    private ProductStructureSearchIndex productStructureSearchIndex;
+
     @Inject
     private Event<TagEvent> tagEvent;
 
@@ -95,60 +103,114 @@ public class ProductManagerBean implements IProductManagerLocal {
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
     @Override
     public List<PartLink[]> findPartUsages(ConfigurationItemKey pKey, ProductStructureFilter filter, String search) throws WorkspaceNotFoundException, UserNotFoundException, UserNotActiveException, NotAllowedException, EntityConstraintException, PartMasterNotFoundException, ConfigurationItemNotFoundException, WorkspaceNotEnabledException {
+        return findPartUsages(pKey, filter, search, false);
+    }
 
-        User user = userManager.checkWorkspaceReadAccess(pKey.getWorkspace());
-
-        List<PartLink[]> usagePaths = new ArrayList<>();
-
-        ConfigurationItemDAO configurationItemDAO = new ConfigurationItemDAO(new Locale(user.getLanguage()), em);
-        ConfigurationItem ci = configurationItemDAO.loadConfigurationItem(pKey);
+    @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
+    @Override
+    public List<PartLink[]> findPartUsages(ConfigurationItemKey pKey, ProductStructureFilter filter, String search, boolean wildcards) throws WorkspaceNotFoundException, UserNotFoundException, UserNotActiveException, NotAllowedException, EntityConstraintException, PartMasterNotFoundException, ConfigurationItemNotFoundException, WorkspaceNotEnabledException {
 
-        PSFilterVisitor psFilterVisitor = new PSFilterVisitor(em, user, filter) {
-            @Override
-            public void onIndeterminateVersion(PartMaster partMaster, List<PartIteration> partIterations) throws NotAllowedException {
-                // Unused here
-            }
+        User user = userManager.checkWorkspaceReadAccess(pKey.getWorkspace());
+        ProductStructureSearchIndex.Search partSearch = wildcards ? ProductStructureSearchIndex.Search.wildcards(search) : ProductStructureSearchIndex.Search.regex(search);
 
-            @Override
-            public void onUnresolvedVersion(PartMaster partMaster) throws NotAllowedException {
-                // Unused here
+        String filterId = getSearchIndexFilterId(user, filter);
+        if (filterId != null) {
+            ProductStructureSearchIndex.Index index = productStructureSearchIndex.get(pKey, filterId);
+            if (index == null) {
+                long version = productStructureSearchIndex.getVersion();
+                index = productStructureSearchIndex.put(pKey, filterId, productStructureCache.resolve(em, user, pKey, filter, null, -1), version);
             }
 
-            @Override
-            public void onIndeterminatePath(List<PartLink> pCurrentPath, List<PartIteration> pCurrentPathPartIterations) throws NotAllowedException {
-                // Unused here
+            List<PartLink[]> usagePaths = loadPartLinkPaths(new Locale(user.getLanguage()), pKey, index.search(partSearch));
+            if (usagePaths != null) {
+                return usagePaths;
             }
+            productStructureSearchIndex.invalidate(pKey.getWorkspace());
+        }
 
-            @Override
-            public void onUnresolvedPath(List<PartLink> pCurrentPath, List<PartIteration> partIterations) throws NotAllowedException {
-                // Unused here
-            }
+        List<PartLink[]> usagePaths = new ArrayList<>();
+        findPartUsages(productStructureCache.resolve(em, user, pKey, filter, null, -1), partSearch, usagePaths);
+        return usagePaths;
+    }
 
-            @Override
-            public void onBranchDiscovered(List<PartLink> pCurrentPath, List<PartIteration> copyPartIteration) {
-                // Unused here
-            }
+    /**
+     * Identify the structures searched through an index: the ones resolved with user independent
+     * filters, and the work in progress of a user without checked out part, the same for all such users.
+     *
+     * @return the filter identity of the index, null if the structure has to be walked
+     */
+    private String getSearchIndexFilterId(User user, ProductStructureFilter filter) {
+        if (filter instanceof WIPPSFilter
+                && !new PartRevisionDAO(new Locale(user.getLanguage()), em).hasCheckedOutPartRevisions(user.getWorkspaceId(), user.getLogin())) {
+            return "wip" + (((WIPPSFilter) filter).isDiverge() ? "-diverge" : "");
+        }
+        return ProductStructureCache.getFilterId(filter);
+    }
 
-            @Override
-            public void onOptionalPath(List<PartLink> path, List<PartIteration> partIterations) {
-                // Unused here
-            }
+    private void findPartUsages(Component component, ProductStructureSearchIndex.Search partSearch, List<PartLink[]> usagePaths) {
+        if (partSearch.matches(component)) {
+            List<PartLink> path = component.getPath();
+            usagePaths.add(path.toArray(new PartLink[path.size()]));
+        }
 
-            @Override
-            public boolean onPathWalk(List<PartLink> path, List<PartMaster> parts) {
-                PartMaster pm = parts.get(parts.size() - 1);
+        for (Component subComponent : component.getComponents()) {
+            findPartUsages(subComponent, partSearch, usagePaths);
+        }
+    }
 
-                if (pm.getNumber().matches(search) || (pm.getName() != null && pm.getName().matches(search)) || Tools.getPathAsString(path).equals(search)) {
-                    PartLink[] partLinks = path.toArray(new PartLink[path.size()]);
-                    usagePaths.add(partLinks);
+    /**
+     * Load the links of paths found in a search index
+     *
+     * @return the paths, null if one of the links no longer exists
+     */
+    private List<PartLink[]> loadPartLinkPaths(Locale locale, ConfigurationItemKey ciKey, List<String> paths) throws ConfigurationItemNotFoundException {
+        List<PartLinkPath> linkPaths = new ArrayList<>(paths.size());
+        Set<Integer> usageLinkIds = new HashSet<>();
+        Set<Integer> substituteLinkIds = new HashSet<>();
+
+        for (String path : paths) {
+            PartLinkPath linkPath = PartLinkPath.parse(path);
+            linkPaths.add(linkPath);
+            for (PartLinkPath current = linkPath; current != null; current = current.getParent()) {
+                String linkId = current.getLinkId();
+                if (linkId.charAt(0) == 'u') {
+                    usageLinkIds.add(Integer.parseInt(linkId.substring(1)));
+                } else if (linkId.charAt(0) == 's') {
+                    substituteLinkIds.add(Integer.parseInt(linkId.substring(1)));
                 }
-                return true;
             }
+        }
 
-        };
-
-        psFilterVisitor.visit(ci.getDesignItem(), -1);
+        if (linkPaths.isEmpty()) {
+            return new ArrayList<>();
+        }
 
+        PartUsageLinkDAO partUsageLinkDAO = new PartUsageLinkDAO(locale, em);
+        Map<Integer, PartUsageLink> usageLinks = partUsageLinkDAO.getPartUsageLinks(usageLinkIds);
+        Map<Integer, PartSubstituteLink> substituteLinks = partUsageLinkDAO.getPartSubstituteLinks(substituteLinkIds);
+        PartLink rootLink = PSFilterVisitor.createVirtualRootLink(new ConfigurationItemDAO(locale, em).loadConfigurationItem(ciKey).getDesignItem());
+
+        List<PartLink[]> usagePaths = new ArrayList<>(linkPaths.size());
+        for (PartLinkPath linkPath : linkPaths) {
+            PartLink[] links = new PartLink[linkPath.size()];
+            int i = links.length;
+            for (PartLinkPath current = linkPath; current != null; current = current.getParent()) {
+                String linkId = current.getLinkId();
+                PartLink link;
+                if (linkId.charAt(0) == 'u') {
+                    link = usageLinks.get(Integer.parseInt(linkId.substring(1)));
+                } else if (linkId.charAt(0) == 's') {
+                    link = substituteLinks.get(Integer.parseInt(linkId.substring(1)));
+                } else {
+                    link = rootLink;
+                }
+                if (link == null) {
+                    return null;
+                }
+                links[--i] = link;
+            }
+            usagePaths.add(links);
+        }
         return usagePaths;
     }
 
@@ -319,50 +381,65 @@ public class ProductManagerBean implements IProductManagerLocal {
             throw new AccessRightException(locale, user);
         }
 
-        if (isCheckoutByUser(user, partR)) {
-            if (partR.getLastIteration().getIteration() <= 1) {
-                throw new NotAllowedException(locale, "NotAllowedException41");
-            }
-            PartIteration partIte = partR.removeLastIteration();
-            partIterationEvent.select(new AnnotationLiteral<Removed>() {
-            }).fire(new PartIterationEvent(partIte));
+        PartIteration partIte = undoCheckOutPartRevision(user, locale, partR);
 
-            PartIterationDAO partIDAO = new PartIterationDAO(locale, em);
-            partIDAO.removeIteration(partIte);
-            partR.setCheckOutDate(null);
-            partR.setCheckOutUser(null);
+        // Remove path to path links impacted by this change
+        removeObsoletePathToPathLinks(user, pPartRPK.getWorkspaceId());
 
-            // Remove path to path links impacted by this change
-            removeObsoletePathToPathLinks(user, pPartRPK.getWorkspaceId());
+        deletePartIterationData(partIte);
 
-            for (Geometry file : partIte.getGeometries()) {
-                try {
-                    storageManager.deleteData(file);
-                } catch (StorageException e) {
-                    LOGGER.log(Level.INFO, null, e);
-                }
-            }
+        return partR;
+    }
 
-            for (BinaryResource file : partIte.getAttachedFiles()) {
-                try {
-                    storageManager.deleteData(file);
-                } catch (StorageException e) {
-                    LOGGER.log(Level.INFO, null, e);
-                }
+    /**
+     * Remove the iteration created by the check out of a part revision, leaving the path to path links cleanup
+     * and the removal of its files to the caller
+     *
+     * @return the removed iteration
+     */
+    private PartIteration undoCheckOutPartRevision(User user, Locale locale, PartRevision partR) throws NotAllowedException {
+        if (!isCheckoutByUser(user, partR)) {
+            throw new NotAllowedException(locale, "NotAllowedException19");
+        }
+
+        if (partR.getLastIteration().getIteration() <= 1) {
+            throw new NotAllowedException(locale, "NotAllowedException41");
+        }
+        PartIteration partIte = partR.removeLastIteration();
+        partIterationEvent.select(new AnnotationLiteral<Removed>() {
+        }).fire(new PartIterationEvent(partIte));
+
+        PartIterationDAO partIDAO = new PartIterationDAO(locale, em);
+        partIDAO.removeIteration(partIte);
+        partR.setCheckOutDate(null);
+        partR.setCheckOutUser(null);
+        return partIte;
+    }
+
+    private void deletePartIterationData(PartIteration partIte) {
+        for (Geometry file : partIte.getGeometries()) {
+            try {
+                storageManager.deleteData(file);
+            } catch (StorageException e) {
+                LOGGER.log(Level.INFO, null, e);
             }
+        }
 
-            BinaryResource nativeCAD = partIte.getNativeCADFile();
-            if (nativeCAD != null) {
-                try {
-                    storageManager.deleteData(nativeCAD);
-                } catch (StorageException e) {
-                    LOGGER.log(Level.INFO, null, e);
-                }
+        for (BinaryResource file : partIte.getAttachedFiles()) {
+            try {
+                storageManager.deleteData(file);
+            } catch (StorageException e) {
+                LOGGER.log(Level.INFO, null, e);
             }
+        }
 
-            return partR;
-        } else {
-            throw new NotAllowedException(locale, "NotAllowedException19");
+        BinaryResource nativeCAD = partIte.getNativeCADFile();
+        if (nativeCAD != null) {
+            try {
+                storageManager.deleteData(nativeCAD);
+            } catch (StorageException e) {
+                LOGGER.log(Level.INFO, null, e);
+            }
         }
     }
 
@@ -404,6 +481,11 @@ public class ProductManagerBean implements IProductManagerLocal {
             throw new AccessRightException(locale, user);
         }
 
+        checkOutPartRevision(user, locale, partR);
+        return partR;
+    }
+
+    private void checkOutPartRevision(User user, Locale locale, PartRevision partR) throws NotAllowedException, FileAlreadyExistsException, CreationException {
         if (partR.isCheckedOut()) {
             throw new NotAllowedException(locale, "NotAllowedException37");
         }
@@ -434,6 +516,11 @@ public class ProductManagerBean implements IProductManagerLocal {
                 BinaryResource targetFile = new BinaryResource(fullName, length, lastModified);
                 binDAO.createBinaryResource(targetFile);
                 newPartIteration.addAttachedFile(targetFile);
+                try {
+                    storageManager.shareData(sourceFile, targetFile);
+                } catch (StorageException e) {
+                    LOGGER.log(Level.INFO, null, e);
+                }
             }
 
             newPartIteration.setComponents(new ArrayList<>(beforeLastPartIteration.getComponents()));
@@ -447,6 +534,11 @@ public class ProductManagerBean implements IProductManagerLocal {
                 Geometry targetFile = new Geometry(quality, fullName, length, lastModified);
                 binDAO.createBinaryResource(targetFile);
                 newPartIteration.addGeometry(targetFile);
+                try {
+                    storageManager.shareData(sourceFile, targetFile);
+                } catch (StorageException e) {
+                    LOGGER.log(Level.INFO, null, e);
+                }
             }
 
             BinaryResource nativeCADFile = beforeLastPartIteration.getNativeCADFile();
@@ -458,6 +550,11 @@ public class ProductManagerBean implements IProductManagerLocal {
                 BinaryResource targetFile = new BinaryResource(fullName, length, lastModified);
                 binDAO.createBinaryResource(targetFile);
                 newPartIteration.setNativeCADFile(targetFile);
+                try {
+                    storageManager.shareData(nativeCADFile, targetFile);
+                } catch (StorageException e) {
+                    LOGGER.log(Level.INFO, null, e);
+                }
             }
 
             Set<DocumentLink> links = new HashSet<>();
@@ -485,8 +582,6 @@ public class ProductManagerBean implements IProductManagerLocal {
             newPartIteration.setInstanceAttributeTemplates(attrsTemplate);
 
         }
-
-        return partR;
     }
 
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
@@ -506,25 +601,156 @@ public class ProductManagerBean implements IProductManagerLocal {
             throw new AccessRightException(locale, user);
         }
 
-        if (isCheckoutByUser(user, partR)) {
+        PartIteration lastIteration = checkInPartRevision(user, locale, partR);
 
-            checkCyclicAssemblyForPartIteration(partR.getLastIteration());
+        indexerManager.indexPartIteration(lastIteration);
 
-            partR.setCheckOutDate(null);
-            partR.setCheckOutUser(null);
+        partIterationEvent.select(new AnnotationLiteral<CheckedIn>() {
+        }).fire(new PartIterationEvent(lastIteration));
+        return partR;
+    }
 
-            PartIteration lastIteration = partR.getLastIteration();
-            lastIteration.setCheckInDate(new Date());
+    /**
+     * Check in a part revision, leaving its indexing and the check in event to the caller
+     *
+     * @return the checked in iteration
+     */
+    private PartIteration checkInPartRevision(User user, Locale locale, PartRevision partR) throws NotAllowedException, EntityConstraintException, UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, PartMasterNotFoundException, WorkspaceNotEnabledException {
+        if (!isCheckoutByUser(user, partR)) {
+            throw new NotAllowedException(locale, "NotAllowedException20");
+        }
+
+        checkCyclicAssemblyForPartIteration(partR.getLastIteration());
 
-            indexerManager.indexPartIteration(lastIteration);
+        partR.setCheckOutDate(null);
+        partR.setCheckOutUser(null);
+
+        PartIteration lastIteration = partR.getLastIteration();
+        lastIteration.setCheckInDate(new Date());
+        return lastIteration;
+    }
+
+    @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
+    @Override
+    public CascadeResult checkOutParts(String pWorkspaceId, List<PartRevisionKey> pPartRPKs) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
+        User user = userManager.checkWorkspaceReadAccess(pWorkspaceId);
+        Locale locale = new Locale(user.getLanguage());
+        CascadeResult cascadeResult = new CascadeResult();
 
+        for (PartRevision partR : loadPartRevisionsToModify(user, pWorkspaceId, pPartRPKs, cascadeResult)) {
+            // Already done, by a previous run of an interrupted cascade
+            if (isCheckoutByUser(user, partR)) {
+                cascadeResult.incSucceedAttempts();
+                continue;
+            }
+            try {
+                checkOutPartRevision(user, locale, partR);
+                cascadeResult.incSucceedAttempts();
+            } catch (NotAllowedException | FileAlreadyExistsException | CreationException e) {
+                cascadeResult.incFailedAttempts();
+                LOGGER.log(Level.SEVERE, null, e);
+            }
+        }
+        return cascadeResult;
+    }
+
+    @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
+    @Override
+    public CascadeResult undoCheckOutParts(String pWorkspaceId, List<PartRevisionKey> pPartRPKs) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
+        User user = userManager.checkWorkspaceReadAccess(pWorkspaceId);
+        Locale locale = new Locale(user.getLanguage());
+        CascadeResult cascadeResult = new CascadeResult();
+        List<PartIteration> removedIterations = new ArrayList<>();
+
+        for (PartRevision partR : loadPartRevisionsToModify(user, pWorkspaceId, pPartRPKs, cascadeResult)) {
+            // Already done, by a previous run of an interrupted cascade
+            if (!partR.isCheckedOut()) {
+                cascadeResult.incSucceedAttempts();
+                continue;
+            }
+            try {
+                removedIterations.add(undoCheckOutPartRevision(user, locale, partR));
+                cascadeResult.incSucceedAttempts();
+            } catch (NotAllowedException e) {
+                cascadeResult.incFailedAttempts();
+                LOGGER.log(Level.SEVERE, null, e);
+            }
+        }
+
+        if (!removedIterations.isEmpty()) {
+            try {
+                // Remove path to path links impacted by the whole chunk at once
+                removeObsoletePathToPathLinks(user, pWorkspaceId);
+            } catch (PartRevisionNotFoundException | AccessRightException e) {
+                LOGGER.log(Level.SEVERE, null, e);
+            }
+            removedIterations.forEach(this::deletePartIterationData);
+        }
+        return cascadeResult;
+    }
+
+    @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
+    @Override
+    public CascadeResult checkInParts(String pWorkspaceId, List<PartRevisionKey> pPartRPKs, String pIterationNote) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
+        User user = userManager.checkWorkspaceReadAccess(pWorkspaceId);
+        Locale locale = new Locale(user.getLanguage());
+        CascadeResult cascadeResult = new CascadeResult();
+        List<PartIteration> checkedInIterations = new ArrayList<>();
+
+        for (PartRevision partR : loadPartRevisionsToModify(user, pWorkspaceId, pPartRPKs, cascadeResult)) {
+            // Already done, by a previous run of an interrupted cascade
+            if (!partR.isCheckedOut()) {
+                cascadeResult.incSucceedAttempts();
+                continue;
+            }
+            try {
+                // Set the iteration note only if given and the part has no iteration note
+                PartIteration lastIteration = partR.getLastIteration();
+                if (pIterationNote != null && !pIterationNote.isEmpty() && isCheckoutByUser(user, partR)
+                        && (lastIteration.getIterationNote() == null || lastIteration.getIterationNote().isEmpty())) {
+                    lastIteration.setIterationNote(pIterationNote);
+                }
+                checkedInIterations.add(checkInPartRevision(user, locale, partR));
+                cascadeResult.incSucceedAttempts();
+            } catch (NotAllowedException | EntityConstraintException | PartMasterNotFoundException e) {
+                cascadeResult.incFailedAttempts();
+                LOGGER.log(Level.SEVERE, null, e);
+            }
+        }
+
+        // Indexing and notifications once the chunk is checked in
+        if (!checkedInIterations.isEmpty()) {
+            indexerManager.indexPartIterations(checkedInIterations);
+        }
+        for (PartIteration checkedInIteration : checkedInIterations) {
             partIterationEvent.select(new AnnotationLiteral<CheckedIn>() {
-            }).fire(new PartIterationEvent(lastIteration));
-            return partR;
-        } else {
-            throw new NotAllowedException(locale, "NotAllowedException20");
+            }).fire(new PartIterationEvent(checkedInIteration));
+        }
+        return cascadeResult;
+    }
+
+    /**
+     * Load the part revisions of a cascade chunk with one query, the workspace access being checked once for all.
+     * Revisions which cannot be found or written are counted as failed attempts.
+     */
+    private List<PartRevision> loadPartRevisionsToModify(User user, String workspaceId, List<PartRevisionKey> pPartRPKs, CascadeResult cascadeResult) throws WorkspaceNotFoundException, WorkspaceNotEnabledException {
+        boolean workspaceWriteAccess = userManager.hasWorkspaceWriteAccess(user, workspaceId);
+        List<PartRevision> readablePartRevisions = new PartRevisionDAO(new Locale(user.getLanguage()), em).getPartRevisions(user, pPartRPKs);
+
+        // Missing or not readable revisions
+        for (int i = readablePartRevisions.size(); i < pPartRPKs.size(); i++) {
+            cascadeResult.incFailedAttempts();
         }
 
+        List<PartRevision> partRevisions = new ArrayList<>();
+        for (PartRevision partR : readablePartRevisions) {
+            if (!canWrite(user, workspaceWriteAccess, partR)) {
+                cascadeResult.incFailedAttempts();
+            } else {
+                partRevisions.add(partR);
+            }
+        }
+        return partRevisions;
     }
 
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID})
@@ -920,6 +1146,14 @@ public class ProductManagerBean implements IProductManagerLocal {
         return new ModificationNotificationDAO(em).getModificationNotifications(pPartIPK);
     }
 
+    @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID})
+    @Override
+    public Map<PartIterationKey, List<ModificationNotification>> getModificationNotifications(String pWorkspaceId, Collection<PartIterationKey> pPartIPKs) throws UserNotFoundException, WorkspaceNotFoundException, UserNotActiveException, WorkspaceNotEnabledException {
+        User user = userManager.checkWorkspaceReadAccess(pWorkspaceId);
+        // Read access to the impacted revisions is checked by the notification query
+        return new ModificationNotificationDAO(em).getModificationNotifications(user, pWorkspaceId, pPartIPKs);
+    }
+
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID})
     @Override
     public void removeModificationNotificationsOnIteration(PartIterationKey pPartIPK) {
@@ -937,14 +1171,24 @@ public class ProductManagerBean implements IProductManagerLocal {
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID})
     @Override
     public void createModificationNotifications(PartIteration modifiedPartIteration) throws UserNotFoundException, WorkspaceNotFoundException, UserNotActiveException, PartRevisionNotFoundException, AccessRightException, WorkspaceNotEnabledException {
-        //TODO insure access rights
-        Set<PartIteration> impactedParts = new HashSet<>();
-        impactedParts.addAll(getUsedByAsComponent(modifiedPartIteration.getPartRevisionKey()));
-        impactedParts.addAll(getUsedByAsSubstitute(modifiedPartIteration.getPartRevisionKey()));
+        PartRevisionKey modifiedPartRPK = modifiedPartIteration.getPartRevisionKey();
+        User user = checkPartRevisionReadAccess(modifiedPartRPK);
+        Locale locale = new Locale(user.getLanguage());
 
+        List<PartIteration> impactedParts = new PartIterationDAO(locale, em).findLastIterationsUsing(modifiedPartIteration.getPartRevision().getPartMaster());
+        if (impactedParts.isEmpty()) {
+            return;
+        }
+
+        // One notification per modified iteration, a check-in notified twice does not add another one
         ModificationNotificationDAO dao = new ModificationNotificationDAO(em);
+        Set<PartIterationKey> notifiedParts = new HashSet<>();
+        for (ModificationNotification notification : dao.getModificationNotificationsOnModifiedPart(modifiedPartIteration.getKey())) {
+            notifiedParts.add(notification.getImpactedPart().getKey());
+        }
+
         for (PartIteration impactedPart : impactedParts) {
-            if (impactedPart.isLastIteration()) {
+            if (notifiedParts.add(impactedPart.getKey())) {
                 ModificationNotification notification = new ModificationNotification();
                 notification.setImpactedPart(impactedPart);
                 notification.setModifiedPart(modifiedPartIteration);
@@ -1067,24 +1311,17 @@ public class ProductManagerBean implements IProductManagerLocal {
     @Override
     public List<PartRevision> searchPartRevisions(PartSearchQuery pQuery, int from, int size) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException, AccountNotFoundException, NotAllowedException {
         User user = userManager.checkWorkspaceReadAccess(pQuery.getWorkspaceId());
-        List<PartRevision> fetchedPartRs = indexerManager.searchPartRevisions(pQuery, from, size);
-        // Get Search Results
-
-        ListIterator<PartRevision> ite = fetchedPartRs.listIterator();
-        while (ite.hasNext()) {
-            PartRevision partR = ite.next();
+        // Get Search Results, restricted to the readable revisions
+        List<PartRevision> fetchedPartRs = indexerManager.searchPartRevisions(user, pQuery, from, size);
 
+        for (PartRevision partR : fetchedPartRs) {
             if (isCheckoutByAnotherUser(user, partR)) {
                 // Remove CheckedOut PartRevision From Results
                 em.detach(partR);
                 partR.removeLastIteration();
             }
-
-            if (!hasPartRevisionReadAccess(user, partR)) {
-                ite.remove();
-            }
         }
-        return new ArrayList<>(fetchedPartRs);
+        return fetchedPartRs;
     }
 
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
@@ -1408,6 +1645,10 @@ public class ProductManagerBean implements IProductManagerLocal {
         }
 
         partRevision.release(user);
+
+        partRevisionEvent.select(new AnnotationLiteral<Released>() {
+        }).fire(new PartRevisionEvent(partRevision));
+
         return partRevision;
     }
 
@@ -1425,6 +1666,10 @@ public class ProductManagerBean implements IProductManagerLocal {
         }
 
         partRevision.markAsObsolete(user);
+
+        partRevisionEvent.select(new AnnotationLiteral<Obsoleted>() {
+        }).fire(new PartRevisionEvent(partRevision));
+
         return partRevision;
     }
 
@@ -1656,6 +1901,27 @@ public class ProductManagerBean implements IProductManagerLocal {
         return partM;
     }
 
+    /**
+     * Load part masters with batched queries, the workspace access being checked once for all.
+     * Unknown part numbers are missing from the returned map.
+     */
+    @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
+    @Override
+    public Map<String, PartMaster> getPartMasters(String pWorkspaceId, Collection<String> pPartNumbers) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
+        User user = userManager.checkWorkspaceReadAccess(pWorkspaceId);
+        Map<String, PartMaster> partMasters = new PartMasterDAO(new Locale(user.getLanguage()), em).loadPartMasters(pWorkspaceId, pPartNumbers);
+
+        for (PartMaster partM : partMasters.values()) {
+            for (PartRevision partR : partM.getPartRevisions()) {
+                if (isCheckoutByAnotherUser(user, partR)) {
+                    em.detach(partR);
+                    partR.removeLastIteration();
+                }
+            }
+        }
+        return partMasters;
+    }
+
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
     @Override
     public List<Layer> getLayers(ConfigurationItemKey pKey) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
@@ -1988,32 +2254,28 @@ public class ProductManagerBean implements IProductManagerLocal {
     @Override
     public List<PartRevision> getPartRevisions(String pWorkspaceId, int start, int pMaxResults) throws UserNotFoundException, AccessRightException, WorkspaceNotFoundException, UserNotActiveException, WorkspaceNotEnabledException {
         User user = userManager.checkWorkspaceReadAccess(pWorkspaceId);
-        List<PartRevision> partRevisions;
-
-        if (pMaxResults == 0) {
-            partRevisions = new PartRevisionDAO(new Locale(user.getLanguage()), em).getAllPartRevisions(pWorkspaceId);
-        } else {
-            partRevisions = new PartRevisionDAO(new Locale(user.getLanguage()), em).getPartRevisions(pWorkspaceId, start, pMaxResults);
-        }
+        // Read access is checked by the query, pages are full
+        List<PartRevision> partRevisions = new PartRevisionDAO(new Locale(user.getLanguage()), em).getPartRevisions(user, pWorkspaceId, start, pMaxResults);
+        return hideIterationsCheckedOutByOthers(user, partRevisions);
+    }
 
-        List<PartRevision> filteredPartRevisions = new ArrayList<>();
+    @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
+    @Override
+    public List<PartRevision> getPartRevisionsAfter(String pWorkspaceId, PartRevisionKey after, int pMaxResults) throws UserNotFoundException, AccessRightException, WorkspaceNotFoundException, UserNotActiveException, WorkspaceNotEnabledException {
+        User user = userManager.checkWorkspaceReadAccess(pWorkspaceId);
+        // Read access is checked by the query, pages are full
+        List<PartRevision> partRevisions = new PartRevisionDAO(new Locale(user.getLanguage()), em).getPartRevisionsAfter(user, pWorkspaceId, after, pMaxResults);
+        return hideIterationsCheckedOutByOthers(user, partRevisions);
+    }
 
+    private List<PartRevision> hideIterationsCheckedOutByOthers(User user, List<PartRevision> partRevisions) {
         for (PartRevision partRevision : partRevisions) {
-            try {
-                checkPartRevisionReadAccess(partRevision.getKey());
-
-                if (isCheckoutByAnotherUser(user, partRevision)) {
-                    em.detach(partRevision);
-                    partRevision.removeLastIteration();
-                }
-
-                filteredPartRevisions.add(partRevision);
-
-            } catch (AccessRightException | PartRevisionNotFoundException e) {
-                LOGGER.log(Level.FINER, null, e);
+            if (isCheckoutByAnotherUser(user, partRevision)) {
+                em.detach(partRevision);
+                partRevision.removeLastIteration();
             }
         }
-        return filteredPartRevisions;
+        return partRevisions;
     }
 
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID, UserGroupMapping.ADMIN_ROLE_ID})
@@ -2296,6 +2558,9 @@ public class ProductManagerBean implements IProductManagerLocal {
 
         partRevisionDAO.createPartR(partR);
 
+        partRevisionEvent.select(new AnnotationLiteral<Created>() {
+        }).fire(new PartRevisionEvent(partR));
+
         if (runningTasks != null) {
             mailer.sendApproval(partR.getWorkspaceId(), runningTasks, partR);
         }
@@ -2439,20 +2704,7 @@ public class ProductManagerBean implements IProductManagerLocal {
             return false;
         }
 
-        if (partRevision.getACL() != null) {
-            if (partRevision.getACL().hasWriteAccess(user)) {
-                return true;
-            }
-            return false;
-        }
-
-        try {
-            userManager.checkWorkspaceWriteAccess(workspace);
-            return true;
-        } catch (AccessRightException e) {
-            return false;
-        }
-
+        return canWrite(user, partRevision.getACL() == null && userManager.hasWorkspaceWriteAccess(user, workspace), partRevision);
     }
 
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
@@ -2460,59 +2712,9 @@ public class ProductManagerBean implements IProductManagerLocal {
     public Component filterProductStructure(ConfigurationItemKey ciKey, ProductStructureFilter filter, List<PartLink> path, Integer pDepth) throws ConfigurationItemNotFoundException, WorkspaceNotFoundException, NotAllowedException, UserNotFoundException, UserNotActiveException, PartUsageLinkNotFoundException, AccessRightException, PartMasterNotFoundException, EntityConstraintException, WorkspaceNotEnabledException {
 
         User user = userManager.checkWorkspaceReadAccess(ciKey.getWorkspace());
-        Locale locale = new Locale(user.getLanguage());
-
-
-        PSFilterVisitor psFilterVisitor = new PSFilterVisitor(em, user, filter) {
-            @Override
-            public void onIndeterminateVersion(PartMaster partMaster, List<PartIteration> partIterations) throws NotAllowedException {
-                // Unused here
-            }
-
-            @Override
-            public void onIndeterminatePath(List<PartLink> pCurrentPath, List<PartIteration> pCurrentPathPartIterations) {
-                // Unused here
-            }
-
-            @Override
-            public void onUnresolvedPath(List<PartLink> pCurrentPath, List<PartIteration> partIterations) throws NotAllowedException {
-                // Unused here
-            }
-
-            @Override
-            public void onBranchDiscovered(List<PartLink> pCurrentPath, List<PartIteration> copyPartIteration) {
-                // Unused here
-            }
-
-            @Override
-            public void onOptionalPath(List<PartLink> path, List<PartIteration> partIterations) {
-                // Unused here
-            }
-
-            @Override
-            public boolean onPathWalk(List<PartLink> path, List<PartMaster> parts) {
-                // Unused here
-                return true;
-            }
-
-            @Override
-            public void onUnresolvedVersion(PartMaster partMaster) {
-                // Unused here
-            }
-        };
-
-        if (path == null) {
-            ConfigurationItem ci = new ConfigurationItemDAO(locale, em).loadConfigurationItem(ciKey);
-            psFilterVisitor.visit(ci.getDesignItem(), pDepth);
-        } else {
-            psFilterVisitor.visit(path, pDepth);
-        }
-
-        return psFilterVisitor.getComponent();
-
+        return productStructureCache.resolve(em, user, ciKey, filter, path, pDepth);
     }
 
-
     @Override
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID, UserGroupMapping.ADMIN_ROLE_ID})
     public Set<PartRevision> getWritablePartRevisionsFromPath(ConfigurationItemKey configurationItemKey, String path) throws EntityConstraintException, PartMasterNotFoundException, NotAllowedException, UserNotFoundException, WorkspaceNotFoundException, UserNotActiveException, ConfigurationItemNotFoundException, PartUsageLinkNotFoundException, WorkspaceNotEnabledException {
@@ -2804,6 +3006,12 @@ public class ProductManagerBean implements IProductManagerLocal {
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
     @Override
     public List<PartRevision> searchPartRevisions(String workspaceId, Query query) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
+        return searchPartRevisions(workspaceId, query, 0);
+    }
+
+    @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
+    @Override
+    public List<PartRevision> searchPartRevisions(String workspaceId, Query query, int maxResults) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
         User user = userManager.checkWorkspaceReadAccess(workspaceId);
         Locale locale = new Locale(user.getLanguage());
 
@@ -2811,21 +3019,13 @@ public class ProductManagerBean implements IProductManagerLocal {
         Workspace workspace = workspaceDAO.loadWorkspace(workspaceId);
 
         PartRevisionQueryDAO queryDAO = new PartRevisionQueryDAO(locale, user.getTimeZone(), em);
-        List<PartRevision> parts = queryDAO.runQuery(workspace, query);
-
-        ListIterator<PartRevision> ite = parts.listIterator();
-
-        while (ite.hasNext()) {
-            PartRevision partR = ite.next();
+        List<PartRevision> parts = queryDAO.runQuery(user, workspace, query, maxResults);
 
+        for (PartRevision partR : parts) {
             if (isCheckoutByAnotherUser(user, partR)) {
                 em.detach(partR);
                 partR.removeLastIteration();
             }
-
-            if (partR.getLastIteration() != null && !hasPartRevisionReadAccess(user, partR)) {
-                ite.remove();
-            }
         }
 
         return parts;
@@ -3148,112 +3348,73 @@ public class ProductManagerBean implements IProductManagerLocal {
         User user = userManager.checkWorkspaceReadAccess(workspaceId);
         Map<String, Set<BinaryResource>> result = new HashMap<>();
 
-        Locale locale = new Locale(user.getLanguage());
+        Component root = productStructureCache.resolve(em, user, ciKey, psFilter, null, -1);
+        addBinariesInTree(root, psFilter, baselineId, exportNativeCADFiles, exportDocumentLinks, result);
 
-        ConfigurationItem ci = new ConfigurationItemDAO(locale, em).loadConfigurationItem(ciKey);
-        PartMaster root = ci.getDesignItem();
+        return result;
+    }
 
+    private void addBinariesInTree(Component component, ProductStructureFilter psFilter, Integer baselineId, boolean exportNativeCADFiles, boolean exportDocumentLinks, Map<String, Set<BinaryResource>> result) {
 
-        PSFilterVisitor psFilterVisitor = new PSFilterVisitor(em, user, psFilter) {
-            @Override
-            public void onIndeterminateVersion(PartMaster partMaster, List<PartIteration> partIterations) throws NotAllowedException {
-                // Unused here
-            }
+        // The retained iteration is only set when the filter gives a single one
+        PartIteration partIteration = component.getRetainedIteration();
+        if (partIteration == null) {
+            List<PartIteration> partIterations = psFilter.filter(component.getPartMaster());
+            partIteration = partIterations.isEmpty() ? null : partIterations.get(0);
+        }
 
-            @Override
-            public void onIndeterminatePath(List<PartLink> pCurrentPath, List<PartIteration> pCurrentPathPartIterations) {
-                // Unused here
-            }
+        if (partIteration != null) {
 
-            @Override
-            public void onUnresolvedPath(List<PartLink> pCurrentPath, List<PartIteration> partIterations) throws NotAllowedException {
-                // Unused here
-            }
+            String partFolderName = partIteration.toString();
+            Set<BinaryResource> binaryResources = result.get(partFolderName);
 
-            @Override
-            public void onBranchDiscovered(List<PartLink> pCurrentPath, List<PartIteration> copyPartIteration) {
-                // Unused here
-            }
-
-            @Override
-            public void onOptionalPath(List<PartLink> path, List<PartIteration> partIterations) {
-                // Unused here
+            if (binaryResources == null) {
+                binaryResources = new HashSet<>();
+                result.put(partFolderName, binaryResources);
             }
 
-            @Override
-            public boolean onPathWalk(List<PartLink> path, List<PartMaster> parts) {
-                PartMaster part = parts.get(parts.size() - 1);
-                List<PartIteration> partIterations = psFilter.filter(part);
-
-                if (!partIterations.isEmpty()) {
-
-                    PartIteration partIteration = partIterations.get(0);
-                    String partFolderName = partIteration.toString();
-                    Set<BinaryResource> binaryResources = result.get(partFolderName);
-
-                    if (binaryResources == null) {
-                        binaryResources = new HashSet<>();
-                        result.put(partFolderName, binaryResources);
-                    }
-
-                    if (exportNativeCADFiles) {
-                        BinaryResource nativeCADFile = partIteration.getNativeCADFile();
-                        if (nativeCADFile != null) {
-                            binaryResources.add(nativeCADFile);
-                        }
+            if (exportNativeCADFiles) {
+                BinaryResource nativeCADFile = partIteration.getNativeCADFile();
+                if (nativeCADFile != null) {
+                    binaryResources.add(nativeCADFile);
+                }
 
-                        if (exportDocumentLinks) {
-                            for (BinaryResource attachedFile : partIteration.getAttachedFiles()) {
-                                if (attachedFile != null) {
-                                    binaryResources.add(attachedFile);
-                                }
-                            }
+                if (exportDocumentLinks) {
+                    for (BinaryResource attachedFile : partIteration.getAttachedFiles()) {
+                        if (attachedFile != null) {
+                            binaryResources.add(attachedFile);
                         }
                     }
+                }
+            }
 
-                    if (exportDocumentLinks && baselineId == null) {
-                        Set<DocumentLink> linkedDocuments = partIteration.getLinkedDocuments();
-
-                        for (DocumentLink documentLink : linkedDocuments) {
-
-                            DocumentIteration lastCheckedInIteration = documentLink.getTargetDocument().getLastCheckedInIteration();
-
-                            if (null != lastCheckedInIteration) {
+            if (exportDocumentLinks && baselineId == null) {
+                Set<DocumentLink> linkedDocuments = partIteration.getLinkedDocuments();
 
-                                String linkedDocumentFolderName = "links/" + lastCheckedInIteration.toString();
+                for (DocumentLink documentLink : linkedDocuments) {
 
-                                Set<BinaryResource> linkedBinaryResources = result.get(linkedDocumentFolderName);
+                    DocumentIteration lastCheckedInIteration = documentLink.getTargetDocument().getLastCheckedInIteration();
 
-                                if (linkedBinaryResources == null) {
-                                    linkedBinaryResources = new HashSet<>();
-                                    result.put(linkedDocumentFolderName, linkedBinaryResources);
-                                }
+                    if (null != lastCheckedInIteration) {
 
-                                Set<BinaryResource> attachedFiles = lastCheckedInIteration.getAttachedFiles();
+                        String linkedDocumentFolderName = "links/" + lastCheckedInIteration.toString();
 
-                                for (BinaryResource binary : attachedFiles) {
-                                    if (!linkedBinaryResources.contains(binary)) {
-                                        linkedBinaryResources.add(binary);
-                                    }
-                                }
+                        Set<BinaryResource> linkedBinaryResources = result.get(linkedDocumentFolderName);
 
-                            }
+                        if (linkedBinaryResources == null) {
+                            linkedBinaryResources = new HashSet<>();
+                            result.put(linkedDocumentFolderName, linkedBinaryResources);
                         }
-                    }
 
+                        linkedBinaryResources.addAll(lastCheckedInIteration.getAttachedFiles());
+                    }
                 }
-                return true;
-            }
-
-            @Override
-            public void onUnresolvedVersion(PartMaster partMaster) {
-                // Unused here
             }
-        };
-
-        psFilterVisitor.visit(root, -1);
+        }
 
-        return result;
+        for (Component child : component.getComponents()) {
+            addBinariesInTree(child, psFilter, baselineId, exportNativeCADFiles, exportDocumentLinks, result);
+        }
     }
 
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
@@ -3777,6 +3938,19 @@ public class ProductManagerBean implements IProductManagerLocal {
         return template.getAcl() == null || template.getAcl().hasReadAccess(user);
     }
 
+    /**
+     * Say if a user can write on a part revision, with the workspace write access checked once by the caller
+     * for several revisions. Same rule as {@link #canWrite(PartRevisionKey)}, shared with the importer.
+     *
+     * @param workspaceWriteAccess true if the user can write in the workspace of the revision
+     */
+    static boolean canWrite(User user, boolean workspaceWriteAccess, PartRevision partRevision) {
+        if (user.isAdministrator()) {
+            return true;
+        }
+        return partRevision.getACL() == null ? workspaceWriteAccess : partRevision.getACL().hasWriteAccess(user);
+    }
+
     private boolean isACLGrantWriteAccess(User user, PartRevision partRevision) {
         return partRevision.getACL() == null || partRevision.getACL().hasWriteAccess(user);
     }
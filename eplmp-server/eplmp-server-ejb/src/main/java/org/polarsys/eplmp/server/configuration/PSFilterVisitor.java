@@ -12,6 +12,7 @@
 package org.polarsys.eplmp.server.configuration;
 
 import org.polarsys.eplmp.core.common.User;
+import org.polarsys.eplmp.core.configuration.PartLinkPath;
 import org.polarsys.eplmp.core.configuration.ProductStructureFilter;
 import org.polarsys.eplmp.core.exceptions.EntityConstraintException;
 import org.polarsys.eplmp.core.exceptions.NotAllowedException;
@@ -20,9 +21,7 @@ import org.polarsys.eplmp.core.product.*;
 import org.polarsys.eplmp.server.dao.PartMasterDAO;
 
 import javax.persistence.EntityManager;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Locale;
+import java.util.*;
 import java.util.logging.Logger;
 
 
@@ -39,6 +38,7 @@ public abstract class PSFilterVisitor {
     private Component component;
     private int stopAtDepth = -1;
     private boolean stopped = false;
+    private boolean breadthFirst = false;
 
     public PSFilterVisitor(EntityManager pEm, User pUser, ProductStructureFilter pFilter)
             throws PartMasterNotFoundException, NotAllowedException, EntityConstraintException {
@@ -57,6 +57,12 @@ public abstract class PSFilterVisitor {
     public void visit(PartMaster pNodeFrom, Integer pStopAtDepth) throws PartMasterNotFoundException, EntityConstraintException, NotAllowedException {
 
         setDepth(pStopAtDepth);
+
+        if (breadthFirst) {
+            visitBreadthFirst(PartLinkPath.of(createVirtualRootLink(pNodeFrom)), pNodeFrom);
+            return;
+        }
+
         List<PartLink> currentPath = new ArrayList<>();
         List<PartMaster> currentPathParts = new ArrayList<>();
         List<PartIteration> currentPathPartIterations = new ArrayList<>();
@@ -77,6 +83,12 @@ public abstract class PSFilterVisitor {
     public void visit(List<PartLink> pStartingPath, Integer pStopAtDepth) throws PartMasterNotFoundException, EntityConstraintException, NotAllowedException {
 
         setDepth(pStopAtDepth);
+
+        if (breadthFirst) {
+            visitBreadthFirst(PartLinkPath.of(pStartingPath), pStartingPath.get(pStartingPath.size() - 1).getComponent());
+            return;
+        }
+
         List<PartLink> currentPath = pStartingPath;
         List<PartMaster> currentPathParts = new ArrayList<>();
         List<PartIteration> currentPathPartIterations = new ArrayList<>();
@@ -89,14 +101,162 @@ public abstract class PSFilterVisitor {
         component.setComponents(result);
     }
 
+    /**
+     * Stop the walk: no part is walked, and no {@link #onPathWalk(List, List)} call is made, after this call.
+     *
+     * The parts already discovered are still added to the structure, without their children: in depth
+     * first mode the remaining links of the parts being walked, in breadth first mode the children
+     * of the parts of the current level walked before the call.
+     * */
     public void stop(){
         stopped = true;
     }
 
+    /**
+     * Walk the structure level by level: part masters of a whole level are loaded
+     * with batched queries and link paths are shared between siblings instead of copied.
+     *
+     * Callbacks are invoked with the same values as in depth first mode, in a different
+     * order, but the lists they receive are read only: they may be kept, not modified.
+     * */
+    public void setBreadthFirst(boolean pBreadthFirst) {
+        breadthFirst = pBreadthFirst;
+    }
+
     private void setDepth(Integer pDepth){
         stopAtDepth = pDepth == null ? -1 : pDepth;
     }
 
+    private void visitBreadthFirst(PartLinkPath pRootPath, PartMaster pRootNode) throws PartMasterNotFoundException, NotAllowedException, EntityConstraintException {
+
+        component = new Component(pRootNode.getAuthor(), pRootNode, pRootPath.asList(), new ArrayList<>());
+
+        List<Node> level = new ArrayList<>();
+        level.add(new Node(component, pRootPath, Collections.singletonList(pRootNode), Collections.emptyList()));
+
+        while (!level.isEmpty() && !stopped) {
+
+            List<Node> pendingChildren = new ArrayList<>();
+
+            for (Node node : level) {
+                if (stopped) {
+                    break;
+                }
+                discoverChildren(node, pendingChildren);
+            }
+
+            // Resolve every part master of the next level at once
+            Set<String> numbers = new HashSet<>();
+            for (Node child : pendingChildren) {
+                numbers.add(child.path.getLink().getComponent().getNumber());
+            }
+            Map<String, PartMaster> partMasters = partMasterDAO.loadPartMasters(workspaceId, numbers);
+
+            List<Node> nextLevel = new ArrayList<>(pendingChildren.size());
+
+            for (Node child : pendingChildren) {
+                String number = child.path.getLink().getComponent().getNumber();
+                PartMaster pm = partMasters.get(number);
+
+                if (pm == null) {
+                    throw new PartMasterNotFoundException(locale, number);
+                }
+
+                // Run cyclic integrity check here
+                if (child.parts.contains(pm)) {
+                    throw new EntityConstraintException(locale, "EntityConstraintException12");
+                }
+
+                Component subComponent = new Component(pm.getAuthor(), pm, child.path.asList(), new ArrayList<>());
+                child.component.addComponent(subComponent);
+                nextLevel.add(new Node(subComponent, child.path, append(child.parts, pm), child.iterations));
+            }
+
+            level = nextLevel;
+        }
+    }
+
+    /**
+     * Filter the given node and queue its eligible children, their part master being resolved later.
+     * The returned children hold their parent component instead of their own.
+     * */
+    private void discoverChildren(Node node, List<Node> pendingChildren) throws NotAllowedException {
+
+        List<PartLink> path = node.path.asList();
+
+        if (!onPathWalk(path, node.parts)) {
+            return;
+        }
+
+        // Current depth
+        int currentDepth = node.parts.size();
+
+        PartMaster currentUsagePartMaster = node.parts.get(currentDepth - 1);
+
+        // Find filtered iterations to visit
+        List<PartIteration> partIterations = filter.filter(currentUsagePartMaster);
+
+        if (partIterations.isEmpty()) {
+            onUnresolvedVersion(currentUsagePartMaster);
+        }
+
+        if (partIterations.size() > 1) {
+            onIndeterminateVersion(currentUsagePartMaster, new ArrayList<>(partIterations));
+        }
+
+        if (partIterations.size() == 1) {
+            node.component.setRetainedIteration(partIterations.get(0));
+        }
+
+        // Visit them all, potentially diverging branches
+        for (PartIteration partIteration : partIterations) {
+
+            List<PartIteration> iterations = append(node.iterations, partIteration);
+
+            // Is branch over ?
+            if (partIteration.getComponents().isEmpty()) {
+                onBranchDiscovered(path, iterations);
+            }
+
+            // Navigate links
+            for (PartUsageLink usageLink : partIteration.getComponents()) {
+
+                List<PartLink> currentPath = node.path.append(usageLink).asList();
+
+                // Filter the current path, potentially diverging branches
+                List<PartLink> eligiblePath = filter.filter(currentPath);
+
+                if (eligiblePath.isEmpty() && !usageLink.isOptional()) {
+                    onUnresolvedPath(currentPath, iterations);
+                }
+
+                if (eligiblePath.size() > 1) {
+                    onIndeterminatePath(currentPath, iterations);
+                }
+
+                if (eligiblePath.size() == 1 && eligiblePath.get(0).isOptional()) {
+                    onOptionalPath(currentPath, iterations);
+                }
+
+                if (stopAtDepth == -1 || stopAtDepth >= currentDepth) {
+                    for (PartLink link : eligiblePath) {
+                        pendingChildren.add(new Node(node.component, node.path.append(link), node.parts, iterations));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Read only copy of the given list with one more element, shared by the nodes below
+     * */
+    private static <T> List<T> append(List<T> list, T element) {
+        List<T> copy = new ArrayList<>(list.size() + 1);
+        copy.addAll(list);
+        copy.add(element);
+        return Collections.unmodifiableList(copy);
+    }
+
     private List<Component> getComponentsRecursively(Component currentComponent, List<PartIteration> pCurrentPathPartIterations, List<PartMaster> pCurrentPathParts, List<PartLink> pCurrentPath) throws PartMasterNotFoundException, NotAllowedException, EntityConstraintException {
         List<Component> components = new ArrayList<>();
 
@@ -202,7 +362,10 @@ public abstract class PSFilterVisitor {
         return partMasterDAO.loadPartM(new PartMasterKey(workspaceId, partNumber));
     }
 
-    private PartLink createVirtualRootLink(PartMaster pNodeFrom) {
+    /**
+     * Create the link used as first element of paths starting at the given part
+     * */
+    public static PartLink createVirtualRootLink(PartMaster pNodeFrom) {
 
         return new PartLink() {
             @Override
@@ -262,6 +425,20 @@ public abstract class PSFilterVisitor {
         };
     }
 
+    private static final class Node {
+        private final Component component;
+        private final PartLinkPath path;
+        private final List<PartMaster> parts;
+        private final List<PartIteration> iterations;
+
+        private Node(Component component, PartLinkPath path, List<PartMaster> parts, List<PartIteration> iterations) {
+            this.component = component;
+            this.path = path;
+            this.parts = parts;
+            this.iterations = iterations;
+        }
+    }
+
     /**
      * Getters
      */
@@ -0,0 +1,397 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.configuration;
+
+import org.polarsys.eplmp.core.common.User;
+import org.polarsys.eplmp.core.configuration.PartLinkPath;
+import org.polarsys.eplmp.core.configuration.ProductBaseline;
+import org.polarsys.eplmp.core.configuration.ProductInstanceIteration;
+import org.polarsys.eplmp.core.configuration.ProductStructureFilter;
+import org.polarsys.eplmp.core.exceptions.*;
+import org.polarsys.eplmp.core.product.*;
+import org.polarsys.eplmp.core.util.Tools;
+import org.polarsys.eplmp.server.configuration.filter.LatestPSFilter;
+import org.polarsys.eplmp.server.configuration.filter.LatestReleasedPSFilter;
+import org.polarsys.eplmp.server.configuration.filter.ReleasedPSFilter;
+import org.polarsys.eplmp.server.configuration.spec.ProductBaselineConfigSpec;
+import org.polarsys.eplmp.server.configuration.spec.ProductInstanceConfigSpec;
+import org.polarsys.eplmp.server.dao.ConfigurationItemDAO;
+import org.polarsys.eplmp.server.dao.PartMasterDAO;
+import org.polarsys.eplmp.server.dao.PartUsageLinkDAO;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.persistence.EntityManager;
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In memory cache of resolved product structures.
+ *
+ * Only structures resolved with user independent filters (latest checked in, released,
+ * latest released, baselines and product instances) are cached. Trees are stored with part keys and link
+ * ids rather than managed entities, and are rebuilt against the caller's entity manager.
+ *
+ * Baselines and product instances are identified by their creation and modification dates
+ * on top of their keys, so that a deleted and re-created one, or an edited product instance
+ * iteration, never matches an older entry.
+ *
+ * Entries of a workspace are dropped whenever one of its parts is checked in, released,
+ * marked as obsolete, removed or gets a new version, and whenever one of its baselines or product instances
+ * is updated or removed, see {@link ProductStructureChangeObserver}. Each drop increments
+ * the generation of the workspace: a structure resolved while a change was committed is
+ * not cached.
+ */
+@ApplicationScoped
+public class ProductStructureCache {
+
+    private static final Logger LOGGER = Logger.getLogger(ProductStructureCache.class.getName());
+
+    private static final int MAX_ENTRIES = 64;
+
+    private final Map<Key, CachedNode> entries = new LinkedHashMap<Key, CachedNode>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, CachedNode> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    // Guarded by entries
+    private final Map<String, Long> generations = new HashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Resolve the filtered structure, from the cache when the filter does not depend on the user
+     *
+     * @param path  the path to start from, null for the design item of the configuration item
+     * @param depth the depth to stop at, -1 or null for the whole structure
+     */
+    public Component resolve(EntityManager em, User user, ConfigurationItemKey ciKey, ProductStructureFilter filter, List<PartLink> path, Integer depth) throws ConfigurationItemNotFoundException, NotAllowedException, PartMasterNotFoundException, EntityConstraintException {
+        Locale locale = new Locale(user.getLanguage());
+
+        String filterId = getFilterId(filter);
+        if (filterId == null) {
+            return resolveStructure(em, user, locale, ciKey, filter, path, depth);
+        }
+
+        // Read before resolving, so that a change committed in between is noticed on put
+        long generation = getGeneration(ciKey.getWorkspace());
+        Component cached = get(em, locale, ciKey, filterId, path, depth);
+        if (cached != null) {
+            return cached;
+        }
+
+        Component component = resolveStructure(em, user, locale, ciKey, filter, path, depth);
+        put(ciKey, filterId, path, depth, component, generation);
+        return component;
+    }
+
+    private static Component resolveStructure(EntityManager em, User user, Locale locale, ConfigurationItemKey ciKey, ProductStructureFilter filter, List<PartLink> path, Integer depth) throws ConfigurationItemNotFoundException, NotAllowedException, PartMasterNotFoundException, EntityConstraintException {
+        PSFilterVisitor psFilterVisitor = new PSFilterVisitor(em, user, filter) {
+            @Override
+            public void onIndeterminateVersion(PartMaster partMaster, List<PartIteration> partIterations) throws NotAllowedException {
+                // Unused here
+            }
+
+            @Override
+            public void onIndeterminatePath(List<PartLink> pCurrentPath, List<PartIteration> pCurrentPathPartIterations) {
+                // Unused here
+            }
+
+            @Override
+            public void onUnresolvedPath(List<PartLink> pCurrentPath, List<PartIteration> partIterations) throws NotAllowedException {
+                // Unused here
+            }
+
+            @Override
+            public void onBranchDiscovered(List<PartLink> pCurrentPath, List<PartIteration> copyPartIteration) {
+                // Unused here
+            }
+
+            @Override
+            public void onOptionalPath(List<PartLink> path, List<PartIteration> partIterations) {
+                // Unused here
+            }
+
+            @Override
+            public boolean onPathWalk(List<PartLink> path, List<PartMaster> parts) {
+                // Unused here
+                return true;
+            }
+
+            @Override
+            public void onUnresolvedVersion(PartMaster partMaster) {
+                // Unused here
+            }
+        };
+
+        psFilterVisitor.setBreadthFirst(true);
+
+        if (path == null) {
+            ConfigurationItem ci = new ConfigurationItemDAO(locale, em).loadConfigurationItem(ciKey);
+            psFilterVisitor.visit(ci.getDesignItem(), depth);
+        } else {
+            psFilterVisitor.visit(path, depth);
+        }
+
+        return psFilterVisitor.getComponent();
+    }
+
+    /**
+     * Identify a filter among the cacheable ones
+     *
+     * @return the filter identity, null if structures resolved with this filter cannot be cached
+     */
+    public static String getFilterId(ProductStructureFilter filter) {
+        if (filter instanceof LatestPSFilter) {
+            return "latest" + (((LatestPSFilter) filter).isDiverge() ? "-diverge" : "");
+        }
+        if (filter instanceof ReleasedPSFilter) {
+            return "released" + (((ReleasedPSFilter) filter).isDiverge() ? "-diverge" : "");
+        }
+        if (filter instanceof LatestReleasedPSFilter) {
+            return "latest-released" + (((LatestReleasedPSFilter) filter).isDiverge() ? "-diverge" : "");
+        }
+        if (filter instanceof ProductBaselineConfigSpec) {
+            ProductBaseline productBaseline = ((ProductBaselineConfigSpec) filter).getProductBaseline();
+            return "baseline-" + productBaseline.getId() + "-" + getTime(productBaseline.getCreationDate());
+        }
+        if (filter instanceof ProductInstanceConfigSpec) {
+            ProductInstanceIteration productInstanceIteration = ((ProductInstanceConfigSpec) filter).getProductInstanceIteration();
+            if (productInstanceIteration != null) {
+                return "pi-" + productInstanceIteration.getSerialNumber() + "-" + productInstanceIteration.getIteration()
+                        + "-" + getTime(productInstanceIteration.getCreationDate())
+                        + "-" + getTime(productInstanceIteration.getModificationDate());
+            }
+        }
+        return null;
+    }
+
+    private static long getTime(Date date) {
+        return date == null ? 0 : date.getTime();
+    }
+
+    /**
+     * Get a cached structure, rebuilt against the given entity manager
+     *
+     * @return the resolved structure, null if not cached or no longer consistent with the database
+     */
+    public Component get(EntityManager em, Locale locale, ConfigurationItemKey ciKey, String filterId, List<PartLink> path, Integer depth) {
+        CachedNode root;
+        synchronized (entries) {
+            root = entries.get(new Key(ciKey, filterId, path, depth));
+        }
+
+        if (root == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        try {
+            Component component = rebuild(em, locale, ciKey.getWorkspace(), root, path);
+            hits.incrementAndGet();
+            return component;
+        } catch (PartMasterNotFoundException | PartUsageLinkNotFoundException e) {
+            LOGGER.log(Level.FINE, "Dropping stale product structure", e);
+            invalidate(ciKey.getWorkspace());
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Get the current generation of the workspace, to be read before resolving the structure to cache
+     */
+    public long getGeneration(String workspaceId) {
+        synchronized (entries) {
+            return generations.getOrDefault(workspaceId, 0L);
+        }
+    }
+
+    /**
+     * Cache a resolved structure, unless the workspace entries were dropped since the given generation
+     */
+    public void put(ConfigurationItemKey ciKey, String filterId, List<PartLink> path, Integer depth, Component component, long generation) {
+        CachedNode root = toCachedNode(component);
+        synchronized (entries) {
+            if (getGeneration(ciKey.getWorkspace()) == generation) {
+                entries.put(new Key(ciKey, filterId, path, depth), root);
+            }
+        }
+    }
+
+    public void invalidate(String workspaceId) {
+        synchronized (entries) {
+            generations.merge(workspaceId, 1L, Long::sum);
+            entries.keySet().removeIf(key -> key.workspaceId.equals(workspaceId));
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static CachedNode toCachedNode(Component component) {
+        PartLink link = component.getPartLink();
+        PartIteration retainedIteration = component.getRetainedIteration();
+
+        List<Component> components = component.getComponents();
+        CachedNode[] children = new CachedNode[components == null ? 0 : components.size()];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = toCachedNode(components.get(i));
+        }
+
+        return new CachedNode(component.getPartMaster().getNumber(),
+                retainedIteration == null ? null : retainedIteration.getVersion(),
+                retainedIteration == null ? 0 : retainedIteration.getIteration(),
+                link.getCode(), link.getId(), children);
+    }
+
+    private Component rebuild(EntityManager em, Locale locale, String workspaceId, CachedNode root, List<PartLink> path) throws PartMasterNotFoundException, PartUsageLinkNotFoundException {
+
+        Set<String> numbers = new HashSet<>();
+        Set<Integer> usageLinkIds = new HashSet<>();
+        Set<Integer> substituteLinkIds = new HashSet<>();
+        collectKeys(root, numbers, usageLinkIds, substituteLinkIds);
+
+        Map<String, PartMaster> partMasters = new PartMasterDAO(locale, em).loadPartMasters(workspaceId, numbers);
+        PartUsageLinkDAO partUsageLinkDAO = new PartUsageLinkDAO(locale, em);
+        Map<Integer, PartUsageLink> usageLinks = partUsageLinkDAO.getPartUsageLinks(usageLinkIds);
+        Map<Integer, PartSubstituteLink> substituteLinks = partUsageLinkDAO.getPartSubstituteLinks(substituteLinkIds);
+
+        PartMaster rootPartMaster = getPartMaster(locale, partMasters, root.partNumber);
+        PartLinkPath rootPath = path == null ? PartLinkPath.of(PSFilterVisitor.createVirtualRootLink(rootPartMaster)) : PartLinkPath.of(path);
+
+        return rebuild(locale, root, rootPartMaster, rootPath, partMasters, usageLinks, substituteLinks);
+    }
+
+    private Component rebuild(Locale locale, CachedNode node, PartMaster partMaster, PartLinkPath path, Map<String, PartMaster> partMasters, Map<Integer, PartUsageLink> usageLinks, Map<Integer, PartSubstituteLink> substituteLinks) throws PartMasterNotFoundException, PartUsageLinkNotFoundException {
+
+        Component component = new Component(partMaster.getAuthor(), partMaster, path.asList(), new ArrayList<>(node.children.length));
+
+        if (node.version != null) {
+            component.setRetainedIteration(getPartIteration(locale, partMaster, node.version, node.iteration));
+        }
+
+        for (CachedNode child : node.children) {
+            PartLink link = child.linkCode == 's' ? substituteLinks.get(child.linkId) : usageLinks.get(child.linkId);
+            if (link == null) {
+                throw new PartUsageLinkNotFoundException(locale, child.linkId);
+            }
+            PartMaster childPartMaster = getPartMaster(locale, partMasters, child.partNumber);
+            component.addComponent(rebuild(locale, child, childPartMaster, path.append(link), partMasters, usageLinks, substituteLinks));
+        }
+
+        return component;
+    }
+
+    private static PartMaster getPartMaster(Locale locale, Map<String, PartMaster> partMasters, String number) throws PartMasterNotFoundException {
+        PartMaster partMaster = partMasters.get(number);
+        if (partMaster == null) {
+            throw new PartMasterNotFoundException(locale, number);
+        }
+        return partMaster;
+    }
+
+    private static PartIteration getPartIteration(Locale locale, PartMaster partMaster, String version, int iteration) throws PartMasterNotFoundException {
+        for (PartRevision partRevision : partMaster.getPartRevisions()) {
+            if (partRevision.getVersion().equals(version) && partRevision.getNumberOfIterations() >= iteration) {
+                return partRevision.getIteration(iteration);
+            }
+        }
+        throw new PartMasterNotFoundException(locale, partMaster.getNumber());
+    }
+
+    private static void collectKeys(CachedNode node, Set<String> numbers, Set<Integer> usageLinkIds, Set<Integer> substituteLinkIds) {
+        numbers.add(node.partNumber);
+        for (CachedNode child : node.children) {
+            if (child.linkCode == 's') {
+                substituteLinkIds.add(child.linkId);
+            } else {
+                usageLinkIds.add(child.linkId);
+            }
+            collectKeys(child, numbers, usageLinkIds, substituteLinkIds);
+        }
+    }
+
+    /**
+     * Resolved node, the link is the one leading to the node from its parent
+     */
+    private static final class CachedNode implements Serializable {
+        private final String partNumber;
+        private final String version;
+        private final int iteration;
+        private final char linkCode;
+        private final int linkId;
+        private final CachedNode[] children;
+
+        private CachedNode(String partNumber, String version, int iteration, char linkCode, int linkId, CachedNode[] children) {
+            this.partNumber = partNumber;
+            this.version = version;
+            this.iteration = iteration;
+            this.linkCode = linkCode;
+            this.linkId = linkId;
+            this.children = children;
+        }
+    }
+
+    private static final class Key {
+        private final String workspaceId;
+        private final String configurationItemId;
+        private final String filterId;
+        private final String path;
+        private final int depth;
+
+        private Key(ConfigurationItemKey ciKey, String filterId, List<PartLink> path, Integer depth) {
+            this.workspaceId = ciKey.getWorkspace();
+            this.configurationItemId = ciKey.getId();
+            this.filterId = filterId;
+            this.path = path == null ? "" : Tools.getPathAsString(path);
+            this.depth = depth == null ? -1 : depth;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return depth == key.depth
+                    && workspaceId.equals(key.workspaceId)
+                    && configurationItemId.equals(key.configurationItemId)
+                    && filterId.equals(key.filterId)
+                    && path.equals(key.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(workspaceId, configurationItemId, filterId, path, depth);
+        }
+    }
+}
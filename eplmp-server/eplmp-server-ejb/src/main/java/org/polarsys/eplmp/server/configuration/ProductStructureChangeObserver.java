@@ -0,0 +1,58 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.configuration;
+
+import org.polarsys.eplmp.server.events.PartIterationEvent;
+import org.polarsys.eplmp.server.events.PartRevisionEvent;
+import org.polarsys.eplmp.server.events.ProductBaselineEvent;
+import org.polarsys.eplmp.server.events.ProductInstanceEvent;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+
+/**
+ * Drop the cached structures and search indexes of a workspace once a change that may alter
+ * a resolved structure is committed: a part checked in, released, marked as obsolete, removed
+ * or given a new version, a baseline removed, or a product instance updated, rebased or removed.
+ */
+@ApplicationScoped
+public class ProductStructureChangeObserver {
+
+    @Inject
+    private ProductStructureCache productStructureCache;
+
+    @Inject
+    private ProductStructureSearchIndex productStructureSearchIndex;
+
+    private void onPartIterationChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) PartIterationEvent event) {
+        invalidate(event.getObservedPart().getWorkspaceId());
+    }
+
+    private void onPartRevisionChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) PartRevisionEvent event) {
+        invalidate(event.getObservedPart().getPartMasterWorkspaceId());
+    }
+
+    private void onProductBaselineChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProductBaselineEvent event) {
+        invalidate(event.getObservedBaseline().getConfigurationItem().getWorkspaceId());
+    }
+
+    private void onProductInstanceChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProductInstanceEvent event) {
+        invalidate(event.getObservedProductInstance().getInstanceOf().getWorkspaceId());
+    }
+
+    private void invalidate(String workspaceId) {
+        productStructureCache.invalidate(workspaceId);
+        productStructureSearchIndex.invalidate(workspaceId);
+    }
+}
@@ -0,0 +1,355 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.configuration;
+
+import org.polarsys.eplmp.core.product.Component;
+import org.polarsys.eplmp.core.product.ConfigurationItemKey;
+import org.polarsys.eplmp.core.product.PartMaster;
+import org.polarsys.eplmp.core.util.Tools;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * In memory index of the part numbers and names of resolved product structures, to search
+ * a structure without walking it.
+ *
+ * Like the {@link ProductStructureCache}, structures resolved with user independent filters
+ * are indexed under the same filter identity. The work in progress is indexed too, for the users
+ * without checked out part: parts checked out by others resolve to their last checked in iteration
+ * for all of them. An index is built on the first search on a configuration item and filter, and
+ * the indexes of a workspace are dropped on the same changes as the cached structures, see
+ * {@link ProductStructureChangeObserver}.
+ *
+ * Other searches walk the resolved structure.
+ */
+@ApplicationScoped
+public class ProductStructureSearchIndex {
+
+    private static final int MAX_ENTRIES = 16;
+
+    private final Map<Key, Index> entries = new LinkedHashMap<Key, Index>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Index> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    // Incremented on each invalidation, so that an index built from a stale structure is not kept
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * @return the index of the structure, null if not built yet
+     */
+    public Index get(ConfigurationItemKey ciKey, String filterId) {
+        synchronized (entries) {
+            return entries.get(new Key(ciKey, filterId));
+        }
+    }
+
+    /**
+     * Get the current version, to be read before resolving the structure to index
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Index a resolved structure, kept unless the indexes were invalidated since the given version
+     */
+    public Index put(ConfigurationItemKey ciKey, String filterId, Component root, long structureVersion) {
+        Index index = new Index(root);
+        synchronized (entries) {
+            if (version.get() == structureVersion) {
+                entries.put(new Key(ciKey, filterId), index);
+            }
+        }
+        return index;
+    }
+
+    public void invalidate(String workspaceId) {
+        synchronized (entries) {
+            version.incrementAndGet();
+            entries.keySet().removeIf(key -> key.workspaceId.equals(workspaceId));
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Search on the part number, the part name or the path of structure nodes.
+     *
+     * The search matches a whole number or name, either as a regular expression or with "*"
+     * standing for any sequence of characters and "?" for any single character: "AB-*" finds
+     * the numbers starting with "AB-" and "*bolt*" the names containing "bolt".
+     * A node is also found by its exact path.
+     *
+     * Only the numbers and names starting with the literal characters which precede the first
+     * wildcard, or the first special character of a regular expression, are scanned. A search
+     * starting with a wildcard, such as "*bolt*", scans every number and name of the index.
+     */
+    public static final class Search {
+
+        private enum Kind {EXACT, PREFIX, SUBSTRING, WILDCARD, REGEX}
+
+        private final String value;
+        private final Kind kind;
+        // Characters preceding the first wildcard
+        private final String prefix;
+        private final String substring;
+        private final Pattern pattern;
+
+        private Search(String value) {
+            this.value = value;
+
+            int firstWildcard = indexOfWildcard(value, 0);
+            if (firstWildcard == -1) {
+                kind = Kind.EXACT;
+                prefix = value;
+                substring = null;
+                pattern = null;
+                return;
+            }
+
+            prefix = value.substring(0, firstWildcard);
+            String inner = value.substring(1, Math.max(1, value.length() - 1));
+            if (firstWildcard == value.length() - 1 && value.charAt(firstWildcard) == '*') {
+                kind = Kind.PREFIX;
+                substring = null;
+                pattern = null;
+            } else if (value.length() > 1 && value.startsWith("*") && value.endsWith("*") && indexOfWildcard(inner, 0) == -1) {
+                kind = Kind.SUBSTRING;
+                substring = inner;
+                pattern = null;
+            } else {
+                kind = Kind.WILDCARD;
+                substring = null;
+                pattern = compile(value);
+            }
+        }
+
+        private Search(String value, Pattern pattern) {
+            this.value = value;
+            this.kind = Kind.REGEX;
+            this.prefix = literalPrefix(value);
+            this.substring = null;
+            this.pattern = pattern;
+        }
+
+        /**
+         * @throws java.util.regex.PatternSyntaxException if the search is not a valid regular expression
+         */
+        public static Search regex(String search) {
+            String value = search == null ? "" : search;
+            return new Search(value, Pattern.compile(value));
+        }
+
+        public static Search wildcards(String search) {
+            return new Search(search == null ? "" : search);
+        }
+
+        public boolean matches(String text) {
+            if (text == null) {
+                return false;
+            }
+            switch (kind) {
+                case EXACT:
+                    return value.equals(text);
+                case PREFIX:
+                    return text.startsWith(prefix);
+                case SUBSTRING:
+                    return text.contains(substring);
+                case REGEX:
+                    return pattern.matcher(text).matches();
+                default:
+                    return text.startsWith(prefix) && pattern.matcher(text).matches();
+            }
+        }
+
+        /**
+         * Match a structure node, as done by the index
+         */
+        public boolean matches(Component component) {
+            PartMaster partMaster = component.getPartMaster();
+            return matches(partMaster.getNumber()) || matches(partMaster.getName())
+                    || value.equals(Tools.getPathAsString(component.getPath()));
+        }
+
+        private static int indexOfWildcard(String value, int from) {
+            for (int i = from; i < value.length(); i++) {
+                if (value.charAt(i) == '*' || value.charAt(i) == '?') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return the characters any match of the regular expression starts with, empty if unknown
+         */
+        private static String literalPrefix(String regex) {
+            if (regex.indexOf('|') != -1) {
+                return "";
+            }
+            StringBuilder prefix = new StringBuilder();
+            for (int i = 0; i < regex.length(); i++) {
+                char c = regex.charAt(i);
+                if (!Character.isLetterOrDigit(c) && c != '-' && c != '_' && c != ' ') {
+                    // A quantifier may make the previous character optional
+                    if ((c == '?' || c == '*' || c == '{') && prefix.length() > 0) {
+                        prefix.setLength(prefix.length() - 1);
+                    }
+                    break;
+                }
+                prefix.append(c);
+            }
+            return prefix.toString();
+        }
+
+        private static Pattern compile(String value) {
+            StringBuilder regex = new StringBuilder();
+            int start = 0;
+            int wildcard;
+            while ((wildcard = indexOfWildcard(value, start)) != -1) {
+                if (wildcard > start) {
+                    regex.append(Pattern.quote(value.substring(start, wildcard)));
+                }
+                regex.append(value.charAt(wildcard) == '*' ? ".*" : ".");
+                start = wildcard + 1;
+            }
+            if (start < value.length()) {
+                regex.append(Pattern.quote(value.substring(start)));
+            }
+            return Pattern.compile(regex.toString(), Pattern.DOTALL);
+        }
+    }
+
+    /**
+     * Paths of the nodes of a structure, looked up by part number, part name or path.
+     * Nodes are numbered in the depth first order of the structure, which is the order of the results.
+     */
+    public static final class Index {
+
+        private final List<String> paths = new ArrayList<>();
+        private final Map<String, Integer> nodesByPath = new HashMap<>();
+        private final NavigableMap<String, List<Integer>> nodesByNumber = new TreeMap<>();
+        private final NavigableMap<String, List<Integer>> nodesByName = new TreeMap<>();
+
+        public Index(Component root) {
+            add(root);
+        }
+
+        /**
+         * @return the paths of the matching nodes, in the order of the structure
+         */
+        public List<String> search(Search search) {
+            BitSet nodes = new BitSet(paths.size());
+            collect(nodesByNumber, search, nodes);
+            collect(nodesByName, search, nodes);
+
+            Integer node = nodesByPath.get(search.value);
+            if (node != null) {
+                nodes.set(node);
+            }
+
+            List<String> result = new ArrayList<>(nodes.cardinality());
+            for (int i = nodes.nextSetBit(0); i != -1; i = nodes.nextSetBit(i + 1)) {
+                result.add(paths.get(i));
+            }
+            return result;
+        }
+
+        public int size() {
+            return paths.size();
+        }
+
+        private void add(Component component) {
+            int node = paths.size();
+            String path = Tools.getPathAsString(component.getPath());
+            paths.add(path);
+            nodesByPath.put(path, node);
+
+            PartMaster partMaster = component.getPartMaster();
+            nodesByNumber.computeIfAbsent(partMaster.getNumber(), number -> new ArrayList<>()).add(node);
+            if (partMaster.getName() != null) {
+                nodesByName.computeIfAbsent(partMaster.getName(), name -> new ArrayList<>()).add(node);
+            }
+
+            if (component.getComponents() != null) {
+                for (Component subComponent : component.getComponents()) {
+                    add(subComponent);
+                }
+            }
+        }
+
+        private static void collect(NavigableMap<String, List<Integer>> index, Search search, BitSet nodes) {
+            if (search.kind == Search.Kind.EXACT) {
+                addAll(index.get(search.value), nodes);
+                return;
+            }
+
+            // Only the keys starting with the literal characters of the search can match
+            Map<String, List<Integer>> candidates = search.prefix.isEmpty() ? index
+                    : index.subMap(search.prefix, true, search.prefix + Character.MAX_VALUE, true);
+            for (Map.Entry<String, List<Integer>> entry : candidates.entrySet()) {
+                if (search.matches(entry.getKey())) {
+                    addAll(entry.getValue(), nodes);
+                }
+            }
+        }
+
+        private static void addAll(List<Integer> nodeList, BitSet nodes) {
+            if (nodeList != null) {
+                for (int node : nodeList) {
+                    nodes.set(node);
+                }
+            }
+        }
+    }
+
+    private static final class Key {
+        private final String workspaceId;
+        private final String configurationItemId;
+        private final String filterId;
+
+        private Key(ConfigurationItemKey ciKey, String filterId) {
+            this.workspaceId = ciKey.getWorkspace();
+            this.configurationItemId = ciKey.getId();
+            this.filterId = filterId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return workspaceId.equals(key.workspaceId)
+                    && configurationItemId.equals(key.configurationItemId)
+                    && filterId.equals(key.filterId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(workspaceId, configurationItemId, filterId);
+        }
+    }
+}
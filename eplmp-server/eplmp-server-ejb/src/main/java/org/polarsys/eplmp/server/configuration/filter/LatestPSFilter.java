@@ -58,6 +58,10 @@ public class LatestPSFilter implements ProductStructureFilter, Serializable {
         this.user = user;
     }
 
+    public boolean isDiverge() {
+        return diverge;
+    }
+
     @Override
     public List<PartIteration> filter(PartMaster partMaster) {
         List<PartIteration> partIterations = new ArrayList<>();
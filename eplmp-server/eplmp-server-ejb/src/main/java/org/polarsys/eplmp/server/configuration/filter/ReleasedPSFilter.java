@@ -52,6 +52,10 @@ public class ReleasedPSFilter implements ProductStructureFilter, Serializable {
         this.user = user;
     }
 
+    public boolean isDiverge() {
+        return diverge;
+    }
+
     @Override
     public List<PartIteration> filter(PartMaster part) {
         List<PartIteration> partIterations = new ArrayList<>();
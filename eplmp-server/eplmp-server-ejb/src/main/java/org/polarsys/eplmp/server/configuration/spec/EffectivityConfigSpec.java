@@ -10,12 +10,11 @@
   *******************************************************************************/
 package org.polarsys.eplmp.server.configuration.spec;
 
+import org.polarsys.eplmp.core.configuration.PartLinkPath;
 import org.polarsys.eplmp.core.configuration.ProductConfigSpec;
 import org.polarsys.eplmp.core.configuration.ProductConfiguration;
 import org.polarsys.eplmp.core.product.*;
-import org.polarsys.eplmp.core.util.Tools;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -65,15 +64,13 @@ public abstract class EffectivityConfigSpec extends ProductConfigSpec {
     public PartLink filterPartLink(List<PartLink> path) {
         if(configuration !=null){
             PartLink nominalLink = path.get(path.size()-1);
-            if(nominalLink.isOptional() && !configuration.isOptionalLinkRetained(Tools.getPathAsString(path))){
+            PartLinkPath linkPath = PartLinkPath.of(path);
+            if(nominalLink.isOptional() && !configuration.isOptionalLinkRetained(linkPath)){
                 return null;
             }
             for(PartSubstituteLink substituteLink:nominalLink.getSubstitutes()){
 
-                List<PartLink> substitutePath = new ArrayList<>(path);
-                substitutePath.set(substitutePath.size()-1,substituteLink);
-
-                if(configuration.hasSubstituteLink(Tools.getPathAsString(substitutePath))){
+                if(configuration.hasSubstituteLink(linkPath.replaceLast(substituteLink))){
                     return substituteLink;
                 }
             }
@@ -15,9 +15,7 @@ import org.polarsys.eplmp.core.product.PartIteration;
 import org.polarsys.eplmp.core.product.PartLink;
 import org.polarsys.eplmp.core.product.PartMaster;
 import org.polarsys.eplmp.core.product.PartSubstituteLink;
-import org.polarsys.eplmp.core.util.Tools;
 
-import java.util.ArrayList;
 import java.util.List;
 
 
@@ -76,16 +74,15 @@ public class ProductBaselineConfigSpec extends ProductConfigSpec {
 
         PartLink nominalLink = path.get(path.size()-1);
 
-        if(nominalLink.isOptional() && !productBaseline.isOptionalLinkRetained(Tools.getPathAsString(path))){
+        PartLinkPath linkPath = PartLinkPath.of(path);
+
+        if(nominalLink.isOptional() && !productBaseline.isOptionalLinkRetained(linkPath)){
             return null;
         }
 
         for(PartSubstituteLink substituteLink:nominalLink.getSubstitutes()){
 
-            List<PartLink> substitutePath = new ArrayList<>(path);
-            substitutePath.set(substitutePath.size()-1,substituteLink);
-
-            if(productBaseline.hasSubstituteLink(Tools.getPathAsString(substitutePath))){
+            if(productBaseline.hasSubstituteLink(linkPath.replaceLast(substituteLink))){
                 return substituteLink;
             }
         }
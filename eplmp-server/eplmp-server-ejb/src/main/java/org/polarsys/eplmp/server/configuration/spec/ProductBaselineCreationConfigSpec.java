@@ -11,12 +11,11 @@
 package org.polarsys.eplmp.server.configuration.spec;
 
 import org.polarsys.eplmp.core.common.User;
+import org.polarsys.eplmp.core.configuration.PartLinkPath;
 import org.polarsys.eplmp.core.configuration.ProductBaselineType;
 import org.polarsys.eplmp.core.configuration.ProductConfigSpec;
 import org.polarsys.eplmp.core.product.*;
-import org.polarsys.eplmp.core.util.Tools;
 
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -34,6 +33,9 @@ public class ProductBaselineCreationConfigSpec extends ProductConfigSpec {
     private Set<String> retainedSubstituteLinks = new HashSet<>();
     private Set<String> retainedOptionalUsageLinks = new HashSet<>();
 
+    private Set<PartLinkPath> substituteLinkPaths;
+    private Set<PartLinkPath> optionalUsageLinkPaths;
+
     private ProductBaselineType type;
 
     private User user;
@@ -96,18 +98,19 @@ public class ProductBaselineCreationConfigSpec extends ProductConfigSpec {
 
         PartLink nominalLink = path.get(path.size()-1);
 
-        if(nominalLink.isOptional() && optionalUsageLinks.contains(Tools.getPathAsString(path))){
-            retainedOptionalUsageLinks.add(Tools.getPathAsString(path));
+        PartLinkPath linkPath = PartLinkPath.of(path);
+
+        if(nominalLink.isOptional() && getOptionalUsageLinkPaths().contains(linkPath)){
+            retainedOptionalUsageLinks.add(linkPath.toString());
             return null;
         }
 
         for(PartSubstituteLink substituteLink:nominalLink.getSubstitutes()){
 
-            List<PartLink> substitutePath = new ArrayList<>(path);
-            substitutePath.set(substitutePath.size()-1,substituteLink);
+            PartLinkPath substitutePath = linkPath.replaceLast(substituteLink);
 
-            if(substituteLinks.contains(Tools.getPathAsString(substitutePath))){
-                retainedSubstituteLinks.add(Tools.getPathAsString(substitutePath));
+            if(getSubstituteLinkPaths().contains(substitutePath)){
+                retainedSubstituteLinks.add(substitutePath.toString());
                 return substituteLink;
             }
 
@@ -117,6 +120,20 @@ public class ProductBaselineCreationConfigSpec extends ProductConfigSpec {
     }
 
 
+    private Set<PartLinkPath> getSubstituteLinkPaths() {
+        if(substituteLinkPaths == null){
+            substituteLinkPaths = PartLinkPath.parseAll(substituteLinks);
+        }
+        return substituteLinkPaths;
+    }
+
+    private Set<PartLinkPath> getOptionalUsageLinkPaths() {
+        if(optionalUsageLinkPaths == null){
+            optionalUsageLinkPaths = PartLinkPath.parseAll(optionalUsageLinks);
+        }
+        return optionalUsageLinkPaths;
+    }
+
     public Set<PartIteration> getRetainedPartIterations() {
         return retainedPartIterations;
     }
@@ -16,9 +16,7 @@ import org.polarsys.eplmp.core.product.PartIteration;
 import org.polarsys.eplmp.core.product.PartLink;
 import org.polarsys.eplmp.core.product.PartMaster;
 import org.polarsys.eplmp.core.product.PartSubstituteLink;
-import org.polarsys.eplmp.core.util.Tools;
 
-import java.util.ArrayList;
 import java.util.List;
 
 
@@ -79,16 +77,15 @@ public class ProductInstanceConfigSpec extends ProductConfigSpec {
         // Check if optional or substitute, nominal link else
         PartLink nominalLink = path.get(path.size()-1);
 
-        if(nominalLink.isOptional() && !productInstanceIteration.isOptionalLinkRetained(Tools.getPathAsString(path))){
+        PartLinkPath linkPath = PartLinkPath.of(path);
+
+        if(nominalLink.isOptional() && !productInstanceIteration.isOptionalLinkRetained(linkPath)){
             return null;
         }
 
         for(PartSubstituteLink substituteLink:nominalLink.getSubstitutes()){
 
-            List<PartLink> substitutePath = new ArrayList<>(path);
-            substitutePath.set(substitutePath.size()-1,substituteLink);
-
-            if(productInstanceIteration.hasSubstituteLink(Tools.getPathAsString(substitutePath))){
+            if(productInstanceIteration.hasSubstituteLink(linkPath.replaceLast(substituteLink))){
                 return substituteLink;
             }
 
@@ -0,0 +1,123 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.dao;
+
+import org.polarsys.eplmp.core.common.User;
+import org.polarsys.eplmp.core.common.UserGroup;
+import org.polarsys.eplmp.core.security.ACL;
+import org.polarsys.eplmp.core.security.ACLPermission;
+import org.polarsys.eplmp.core.security.ACLUserEntry;
+import org.polarsys.eplmp.core.security.ACLUserGroupEntry;
+
+import javax.persistence.Query;
+import javax.persistence.criteria.*;
+import java.util.Set;
+
+/**
+ * Build the read access restriction of list queries, so that the database only returns
+ * the rows the caller can see and pages are filled.
+ *
+ * The predicate follows {@link ACL#hasReadAccess(User)}: an item without ACL is readable,
+ * otherwise the user entry decides when there is one, and any non forbidden entry of a group
+ * the user belongs to when there is none. Workspace administrators are not restricted.
+ *
+ * @see ACL#hasReadAccess(User)
+ */
+public final class ACLPredicateBuilder {
+
+    public static final String USER_PARAMETER = "aclUser";
+
+    private static final String FORBIDDEN = ACLPermission.class.getName() + "." + ACLPermission.FORBIDDEN.name();
+
+    private ACLPredicateBuilder() {
+    }
+
+    /**
+     * Get the JPQL condition granting read access on the ACL reached by the given path.
+     * The caller must be bound with {@link #setUser(Query, User)}.
+     *
+     * @param aclPath The path of the ACL in the query, "pr.acl" for instance
+     * @param user    The caller
+     */
+    public static String readAccess(String aclPath, User user) {
+        if (user.isAdministrator()) {
+            return "1 = 1";
+        }
+
+        // Sub query aliases are derived from the path, the condition may be used for several items of a query
+        String alias = aclPath.replace('.', '_');
+        String userEntry = alias + "_ue";
+        String userEntryOverride = alias + "_uo";
+        String groupEntry = alias + "_ge";
+
+        return "(" + aclPath + " IS NULL"
+                + " OR EXISTS (SELECT " + userEntry + " FROM ACLUserEntry " + userEntry
+                + " WHERE " + userEntry + ".acl = " + aclPath
+                + " AND " + userEntry + ".principal = :" + USER_PARAMETER
+                + " AND " + userEntry + ".permission <> " + FORBIDDEN + ")"
+                + " OR (NOT EXISTS (SELECT " + userEntryOverride + " FROM ACLUserEntry " + userEntryOverride
+                + " WHERE " + userEntryOverride + ".acl = " + aclPath
+                + " AND " + userEntryOverride + ".principal = :" + USER_PARAMETER + ")"
+                + " AND EXISTS (SELECT " + groupEntry + " FROM ACLUserGroupEntry " + groupEntry
+                + " WHERE " + groupEntry + ".acl = " + aclPath
+                + " AND :" + USER_PARAMETER + " MEMBER OF " + groupEntry + ".principal.users"
+                + " AND " + groupEntry + ".permission <> " + FORBIDDEN + ")))";
+    }
+
+    /**
+     * Bind the caller of a query restricted with {@link #readAccess(String, User)}.
+     */
+    public static void setUser(Query query, User user) {
+        if (!user.isAdministrator()) {
+            query.setParameter(USER_PARAMETER, user);
+        }
+    }
+
+    /**
+     * Criteria API counterpart of {@link #readAccess(String, User)}.
+     *
+     * @param query The query the sub queries are attached to
+     * @param acl   The path of the ACL in the query
+     * @param user  The caller
+     */
+    public static Predicate readAccess(CriteriaBuilder cb, AbstractQuery<?> query, Path<ACL> acl, User user) {
+        if (user.isAdministrator()) {
+            return cb.and();
+        }
+
+        Subquery<ACLUserEntry> granted = query.subquery(ACLUserEntry.class);
+        Root<ACLUserEntry> userEntry = granted.from(ACLUserEntry.class);
+        granted.select(userEntry).where(
+                cb.equal(userEntry.get("acl"), acl),
+                cb.equal(userEntry.get("principal"), user),
+                cb.notEqual(userEntry.get("permission"), ACLPermission.FORBIDDEN));
+
+        Subquery<ACLUserEntry> override = query.subquery(ACLUserEntry.class);
+        Root<ACLUserEntry> userEntryOverride = override.from(ACLUserEntry.class);
+        override.select(userEntryOverride).where(
+                cb.equal(userEntryOverride.get("acl"), acl),
+                cb.equal(userEntryOverride.get("principal"), user));
+
+        Subquery<ACLUserGroupEntry> grantedToGroup = query.subquery(ACLUserGroupEntry.class);
+        Root<ACLUserGroupEntry> groupEntry = grantedToGroup.from(ACLUserGroupEntry.class);
+        Path<UserGroup> group = groupEntry.get("principal");
+        grantedToGroup.select(groupEntry).where(
+                cb.equal(groupEntry.get("acl"), acl),
+                cb.isMember(user, group.<Set<User>>get("users")),
+                cb.notEqual(groupEntry.get("permission"), ACLPermission.FORBIDDEN));
+
+        return cb.or(
+                cb.isNull(acl),
+                cb.exists(granted),
+                cb.and(cb.not(cb.exists(override)), cb.exists(grantedToGroup)));
+    }
+}
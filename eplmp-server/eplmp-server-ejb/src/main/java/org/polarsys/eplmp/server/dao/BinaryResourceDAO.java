@@ -23,6 +23,7 @@ import org.polarsys.eplmp.core.product.PartIteration;
 import org.polarsys.eplmp.core.product.PartMasterTemplate;
 
 import javax.persistence.*;
+import java.util.List;
 import java.util.Locale;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -79,6 +80,16 @@ public class BinaryResourceDAO {
 
     }
 
+    /**
+     * Get the binary resources of all the workspaces following the given full name, in full name order.
+     */
+    public List<BinaryResource> getBinaryResourcesAfter(String pFullName, int pMaxResults) {
+        return em.createQuery("SELECT br FROM BinaryResource br WHERE br.fullName > :fullName ORDER BY br.fullName", BinaryResource.class)
+                .setParameter("fullName", pFullName)
+                .setMaxResults(pMaxResults)
+                .getResultList();
+    }
+
     public PartIteration getPartHolder(BinaryResource pBinaryResource) {
         TypedQuery<PartIteration> query;
         String fileType = pBinaryResource.getFileType();
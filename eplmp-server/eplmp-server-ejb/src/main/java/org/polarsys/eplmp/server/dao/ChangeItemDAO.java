@@ -14,6 +14,7 @@ import org.polarsys.eplmp.core.change.ChangeIssue;
 import org.polarsys.eplmp.core.change.ChangeItem;
 import org.polarsys.eplmp.core.change.ChangeOrder;
 import org.polarsys.eplmp.core.change.ChangeRequest;
+import org.polarsys.eplmp.core.common.User;
 import org.polarsys.eplmp.core.document.DocumentRevisionKey;
 import org.polarsys.eplmp.core.meta.Folder;
 import org.polarsys.eplmp.core.exceptions.ChangeIssueNotFoundException;
@@ -23,6 +24,7 @@ import org.polarsys.eplmp.core.meta.Tag;
 import org.polarsys.eplmp.core.product.PartRevisionKey;
 
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -44,20 +46,24 @@ public class ChangeItemDAO {
     }
 
 
-    public List<ChangeIssue> findAllChangeIssues(String pWorkspaceId) {
-        return em.createNamedQuery("ChangeIssue.findChangeIssuesByWorkspace", ChangeIssue.class)
-                 .setParameter(WORKSPACEID, pWorkspaceId)
-                 .getResultList();
+    public List<ChangeIssue> findAllChangeIssues(User caller, String pWorkspaceId) {
+        return findReadableChangeItems(ChangeIssue.class, caller, pWorkspaceId, null, 0, 0);
     }
-    public List<ChangeRequest> findAllChangeRequests(String pWorkspaceId) {
-        return em.createNamedQuery("ChangeRequest.findChangeRequestsByWorkspace", ChangeRequest.class)
-                 .setParameter(WORKSPACEID, pWorkspaceId)
-                 .getResultList();
+    public List<ChangeRequest> findAllChangeRequests(User caller, String pWorkspaceId) {
+        return findReadableChangeItems(ChangeRequest.class, caller, pWorkspaceId, null, 0, 0);
     }
-    public List<ChangeOrder> findAllChangeOrders(String pWorkspaceId) {
-        return em.createNamedQuery("ChangeOrder.findChangeOrdersByWorkspace", ChangeOrder.class)
-                 .setParameter(WORKSPACEID, pWorkspaceId)
-                 .getResultList();
+    public List<ChangeOrder> findAllChangeOrders(User caller, String pWorkspaceId) {
+        return findReadableChangeItems(ChangeOrder.class, caller, pWorkspaceId, null, 0, 0);
+    }
+
+    public List<ChangeIssue> findChangeIssuesAfter(User caller, String pWorkspaceId, int afterId, int maxResults) {
+        return findReadableChangeItems(ChangeIssue.class, caller, pWorkspaceId, null, afterId, maxResults);
+    }
+    public List<ChangeRequest> findChangeRequestsAfter(User caller, String pWorkspaceId, int afterId, int maxResults) {
+        return findReadableChangeItems(ChangeRequest.class, caller, pWorkspaceId, null, afterId, maxResults);
+    }
+    public List<ChangeOrder> findChangeOrdersAfter(User caller, String pWorkspaceId, int afterId, int maxResults) {
+        return findReadableChangeItems(ChangeOrder.class, caller, pWorkspaceId, null, afterId, maxResults);
     }
     
     public ChangeIssue loadChangeIssue(int pId) throws ChangeIssueNotFoundException {
@@ -104,14 +110,43 @@ public class ChangeItemDAO {
         return pChange;
     }
 
-    public List<ChangeIssue> findAllChangeIssuesWithReferenceLike(String pWorkspaceId, String reference, int maxResults) {
-        return em.createNamedQuery("ChangeIssue.findByReference",ChangeIssue.class)
-                .setParameter(WORKSPACEID, pWorkspaceId).setParameter("name", "%" + reference + "%").setMaxResults(maxResults).getResultList();
+    public List<ChangeIssue> findAllChangeIssuesWithReferenceLike(User caller, String pWorkspaceId, String reference, int maxResults) {
+        return findReadableChangeItems(ChangeIssue.class, caller, pWorkspaceId, reference, 0, maxResults);
     }
 
-    public List<ChangeRequest> findAllChangeRequestsWithReferenceLike(String pWorkspaceId, String reference, int maxResults) {
-        return em.createNamedQuery("ChangeRequest.findByReference",ChangeRequest.class)
-                .setParameter(WORKSPACEID, pWorkspaceId).setParameter("name", "%" + reference + "%").setMaxResults(maxResults).getResultList();
+    public List<ChangeRequest> findAllChangeRequestsWithReferenceLike(User caller, String pWorkspaceId, String reference, int maxResults) {
+        return findReadableChangeItems(ChangeRequest.class, caller, pWorkspaceId, reference, 0, maxResults);
+    }
+
+    /**
+     * Find the change items of a workspace readable by the caller. Read access is checked by the query,
+     * so that maxResults visible items are returned.
+     *
+     * Items are sorted by id, so that a page can be continued from the last id of the previous one.
+     *
+     * @param reference  part of the item name, null to get all the items
+     * @param afterId    the id the items follow, 0 to start from the first item
+     * @param maxResults the maximum number of items, 0 for no limit
+     */
+    private <T extends ChangeItem> List<T> findReadableChangeItems(Class<T> type, User caller, String pWorkspaceId, String reference, int afterId, int maxResults) {
+        TypedQuery<T> query = em.createQuery("SELECT c FROM " + type.getSimpleName() + " c"
+                + " WHERE c.workspace.id = :workspaceId"
+                + (reference != null ? " AND c.name LIKE :name" : "")
+                + (afterId > 0 ? " AND c.id > :afterId" : "")
+                + " AND " + ACLPredicateBuilder.readAccess("c.acl", caller)
+                + " ORDER BY c.id", type)
+                .setParameter(WORKSPACEID, pWorkspaceId);
+        if (reference != null) {
+            query.setParameter("name", "%" + reference + "%");
+        }
+        if (afterId > 0) {
+            query.setParameter("afterId", afterId);
+        }
+        if (maxResults > 0) {
+            query.setMaxResults(maxResults);
+        }
+        ACLPredicateBuilder.setUser(query, caller);
+        return query.getResultList();
     }
 
     public List<ChangeItem> findChangeItemByTag(String pWorkspaceId, Tag tag){
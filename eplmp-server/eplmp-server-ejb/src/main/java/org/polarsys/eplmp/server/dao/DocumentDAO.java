@@ -12,6 +12,7 @@
 package org.polarsys.eplmp.server.dao;
 
 import org.polarsys.eplmp.core.document.DocumentIteration;
+import org.polarsys.eplmp.core.document.DocumentIterationKey;
 
 import javax.persistence.EntityManager;
 
@@ -31,4 +32,11 @@ public class DocumentDAO {
     public void removeDoc(DocumentIteration pDoc){
         em.remove(pDoc);
     }
+
+    /**
+     * @return the document iteration, null if it does not exist
+     */
+    public DocumentIteration findDocI(DocumentIterationKey pKey){
+        return em.find(DocumentIteration.class, pKey);
+    }
 }
@@ -18,6 +18,7 @@ import org.polarsys.eplmp.core.exceptions.DocumentMasterAlreadyExistsException;
 import javax.persistence.EntityExistsException;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceException;
+import javax.persistence.TypedQuery;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -72,4 +73,18 @@ public class DocumentMasterDAO {
                                                  .setParameter("workspaceId",workspaceId)
                                                  .getResultList();
     }
+
+    /**
+     * Get a page of the document masters of a workspace, in id order.
+     * The collections of the "DocumentMaster.index" graph are batch fetched.
+     *
+     * @param pAfterId the last id of the previous page, empty string for the first page
+     */
+    public List<DocumentMaster> getPageByWorkspace(String pWorkspaceId, String pAfterId, int pMaxResults) {
+        TypedQuery<DocumentMaster> query = em.createNamedQuery("DocumentMaster.findByWorkspaceAfterId", DocumentMaster.class)
+                .setParameter("workspaceId", pWorkspaceId)
+                .setParameter("id", pAfterId)
+                .setMaxResults(pMaxResults);
+        return EntityGraphHints.apply(em, query, "DocumentMaster.index", "dm").getResultList();
+    }
 }
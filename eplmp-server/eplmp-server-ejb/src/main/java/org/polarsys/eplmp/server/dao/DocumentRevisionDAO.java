@@ -225,13 +225,13 @@ public class DocumentRevisionDAO {
         return query.getResultList();
     }
 
+    /**
+     * Get a page of the document revisions readable by the user, with what the document list displays.
+     * Read access is checked by the query, a full page holds maxResults visible revisions.
+     * The collections of the "DocumentRevision.detail" graph are batch fetched, one query per level for the whole page.
+     */
     public List<DocumentRevision> getDocumentRevisionsFiltered(User user, String workspaceId, int start, int maxResults) {
-        String excludedFolders = workspaceId + "/~%";
-
-        TypedQuery<DocumentRevision> query = em.createNamedQuery("DocumentRevision.findByWorkspace.filterACLEntry", DocumentRevision.class)
-                        .setParameter("workspaceId", workspaceId)
-                        .setParameter("user", user)
-                        .setParameter("excludedFolders", excludedFolders);
+        TypedQuery<DocumentRevision> query = createFilteredListQuery(user, workspaceId, "");
         if(start>-1 && maxResults >-1){
             query.setFirstResult(start)
                 .setMaxResults(Math.min(maxResults, MAX_RESULTS));
@@ -239,15 +239,52 @@ public class DocumentRevisionDAO {
         return query.getResultList();
     }
 
+    /**
+     * Get the page of the document revisions readable by the user which follows the given revision,
+     * in document id and version order. Unlike an offset, the position is found through the index
+     * on the document id, so deep pages cost the same as the first one.
+     *
+     * @param after the last revision of the previous page, null for the first page
+     */
+    public List<DocumentRevision> getDocumentRevisionsFilteredAfter(User user, String workspaceId, DocumentRevisionKey after, int maxResults) {
+        TypedQuery<DocumentRevision> query = createFilteredListQuery(user, workspaceId, after == null ? "" :
+                " AND (dr.documentMasterId > :documentMasterId OR (dr.documentMasterId = :documentMasterId AND dr.version > :version))");
+        query.setMaxResults(Math.min(maxResults, MAX_RESULTS));
+        if (after != null) {
+            query.setParameter("documentMasterId", after.getDocumentMasterId())
+                    .setParameter("version", after.getVersion());
+        }
+        return query.getResultList();
+    }
+
+    private TypedQuery<DocumentRevision> createFilteredListQuery(User user, String workspaceId, String condition) {
+        String excludedFolders = workspaceId + "/~%";
+
+        TypedQuery<DocumentRevision> query = em.createQuery("SELECT dr FROM DocumentRevision dr"
+                        + " WHERE dr.documentMasterWorkspaceId = :workspaceId" + condition
+                        + " AND " + ACLPredicateBuilder.readAccess("dr.acl", user)
+                        + " AND dr.location.completePath NOT LIKE :excludedFolders"
+                        + " ORDER BY dr.documentMasterId ASC, dr.version ASC", DocumentRevision.class)
+                        .setParameter("workspaceId", workspaceId)
+                        .setParameter("excludedFolders", excludedFolders);
+
+        EntityGraphHints.apply(em, query, "DocumentRevision.detail", "dr");
+        ACLPredicateBuilder.setUser(query, user);
+        return query;
+    }
+
     public int getDocumentRevisionsCountFiltered(User user, String workspaceId) {
 
         String excludedFolders = workspaceId + "/~%";
 
-        return ((Number) em.createNamedQuery("DocumentRevision.countByWorkspace.filterACLEntry")
+        Query query = em.createQuery("SELECT count(dr) FROM DocumentRevision dr"
+                + " WHERE dr.documentMasterWorkspaceId = :workspaceId"
+                + " AND " + ACLPredicateBuilder.readAccess("dr.acl", user)
+                + " AND dr.location.completePath NOT LIKE :excludedFolders")
                 .setParameter("workspaceId", workspaceId)
-                .setParameter("user", user)
-                .setParameter("excludedFolders", excludedFolders)
-                .getSingleResult()).intValue();
+                .setParameter("excludedFolders", excludedFolders);
+        ACLPredicateBuilder.setUser(query, user);
+        return ((Number) query.getSingleResult()).intValue();
     }
 
     public DocumentRevision getWorkflowHolder(Workflow workflow) {
@@ -0,0 +1,64 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.dao;
+
+import javax.persistence.AttributeNode;
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.Subgraph;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Apply the named entity graphs declared on the entities to list queries.
+ *
+ * The graph is requested as a load graph, and each collection of the graph is batch fetched
+ * with IN queries: one query per relationship for the whole result instead of one per entity.
+ * The batch paths are derived from the graph, which stays the only description of a use case.
+ */
+public final class EntityGraphHints {
+
+    public static final String LOAD_GRAPH = "javax.persistence.loadgraph";
+    public static final String BATCH = "eclipselink.batch";
+    public static final String BATCH_TYPE = "eclipselink.batch.type";
+
+    private EntityGraphHints() {
+    }
+
+    /**
+     * @param graphName the name of the graph, as declared by a {@link javax.persistence.NamedEntityGraph}
+     * @param alias     the identification variable of the queried entity
+     * @return the query
+     */
+    public static <T> TypedQuery<T> apply(EntityManager em, TypedQuery<T> query, String graphName, String alias) {
+        EntityGraph<?> graph = em.getEntityGraph(graphName);
+        query.setHint(LOAD_GRAPH, graph);
+        query.setHint(BATCH_TYPE, "IN");
+        for (String path : getBatchPaths(graph.getAttributeNodes(), alias)) {
+            query.setHint(BATCH, path);
+        }
+        return query;
+    }
+
+    static List<String> getBatchPaths(List<AttributeNode<?>> attributeNodes, String parentPath) {
+        List<String> paths = new ArrayList<>();
+        for (AttributeNode<?> attributeNode : attributeNodes) {
+            String path = parentPath + "." + attributeNode.getAttributeName();
+            paths.add(path);
+            for (Subgraph<?> subgraph : attributeNode.getSubgraphs().values()) {
+                paths.addAll(getBatchPaths(subgraph.getAttributeNodes(), path));
+            }
+        }
+        return paths;
+    }
+}
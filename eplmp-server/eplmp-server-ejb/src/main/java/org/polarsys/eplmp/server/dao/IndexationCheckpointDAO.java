@@ -0,0 +1,49 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+package org.polarsys.eplmp.server.dao;
+
+import org.polarsys.eplmp.core.admin.IndexationCheckpoint;
+
+import javax.persistence.EntityManager;
+import java.util.Locale;
+
+public class IndexationCheckpointDAO {
+
+    private EntityManager em;
+    private Locale mLocale;
+
+    public IndexationCheckpointDAO(Locale pLocale, EntityManager pEM) {
+        mLocale = pLocale;
+        em = pEM;
+    }
+
+    public IndexationCheckpointDAO(EntityManager pEM) {
+        mLocale = Locale.getDefault();
+        em = pEM;
+    }
+
+    public IndexationCheckpoint findCheckpoint(String pWorkspaceId) {
+        return em.find(IndexationCheckpoint.class, pWorkspaceId);
+    }
+
+    public void createCheckpoint(IndexationCheckpoint pCheckpoint) {
+        em.persist(pCheckpoint);
+        em.flush();
+    }
+
+    public void removeCheckpoint(String pWorkspaceId) {
+        IndexationCheckpoint checkpoint = em.find(IndexationCheckpoint.class, pWorkspaceId);
+        if (checkpoint != null) {
+            em.remove(checkpoint);
+            em.flush();
+        }
+    }
+}
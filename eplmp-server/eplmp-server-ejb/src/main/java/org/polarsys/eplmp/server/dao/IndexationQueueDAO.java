@@ -0,0 +1,71 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+package org.polarsys.eplmp.server.dao;
+
+import org.polarsys.eplmp.core.admin.IndexationQueueItem;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+public class IndexationQueueDAO {
+
+    private static final int IN_CLAUSE_CHUNK_SIZE = 500;
+
+    private EntityManager em;
+
+    public IndexationQueueDAO(EntityManager pEM) {
+        em = pEM;
+    }
+
+    public void enqueue(IndexationQueueItem pItem) {
+        em.persist(pItem);
+    }
+
+    /**
+     * @return the oldest items of the queue, in insertion order
+     */
+    public List<IndexationQueueItem> getFirstItems(int pMaxResults) {
+        return em.createNamedQuery("IndexationQueueItem.findFirst", IndexationQueueItem.class)
+                .setMaxResults(pMaxResults)
+                .getResultList();
+    }
+
+    public long getItemCount() {
+        return em.createNamedQuery("IndexationQueueItem.count", Long.class)
+                .getSingleResult();
+    }
+
+    /**
+     * @return the date the oldest item was queued, null if the queue is empty
+     */
+    public Date getOldestEnqueueDate() {
+        return em.createNamedQuery("IndexationQueueItem.findOldestDate", Date.class)
+                .getSingleResult();
+    }
+
+    public void removeItems(Collection<Long> pIds) {
+        List<Long> ids = new ArrayList<>(pIds);
+        for (int from = 0; from < ids.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            em.createNamedQuery("IndexationQueueItem.removeByIds")
+                    .setParameter("ids", ids.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, ids.size())))
+                    .executeUpdate();
+        }
+    }
+
+    public void removeWorkspaceItems(String pWorkspaceId) {
+        em.createNamedQuery("IndexationQueueItem.removeByWorkspace")
+                .setParameter("workspaceId", pWorkspaceId)
+                .executeUpdate();
+    }
+}
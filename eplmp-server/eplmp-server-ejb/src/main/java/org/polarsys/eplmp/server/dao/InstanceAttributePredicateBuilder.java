@@ -0,0 +1,112 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.dao;
+
+import org.polarsys.eplmp.core.meta.*;
+
+import javax.persistence.criteria.*;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Build the query rules on instance attributes, such as "attr-TEXT.color", as correlated
+ * EXISTS sub queries on the attributes of an iteration.
+ *
+ * Each rule only looks up the attributes of the iteration it is correlated to, so that a query
+ * doesn't range over the product of the iterations and of every attribute table.
+ */
+public final class InstanceAttributePredicateBuilder {
+
+    private InstanceAttributePredicateBuilder() {
+    }
+
+    /**
+     * Get the predicate of a rule on the attributes of an iteration.
+     *
+     * @param query     The query the sub query is attached to
+     * @param iteration The iteration owning the "instanceAttributes" collection, a part or path data iteration
+     * @param field     The rule field without its prefix, the attribute type and name such as "TEXT.color"
+     * @param operator  The rule operator
+     * @param values    The rule values
+     * @param timeZone  The time zone of the date values
+     */
+    public static Predicate getPredicate(CriteriaBuilder cb, AbstractQuery<?> query, Root<?> iteration,
+                                         String field, String operator, List<String> values, String timeZone) {
+
+        int separator = field.indexOf('.');
+        if (separator == -1) {
+            throw new IllegalArgumentException("Unhandled attribute: [" + field + ", " + operator + ", " + values + "]");
+        }
+        String type = field.substring(0, separator);
+        String name = field.substring(separator + 1);
+
+        switch (type) {
+            case "TEXT":
+                return exists(cb, query, iteration, InstanceTextAttribute.class, name,
+                        attribute -> QueryPredicateBuilder.getExpressionPredicate(cb, attribute.get("textValue"), operator, values, "string", timeZone));
+            case "LONG_TEXT":
+                return exists(cb, query, iteration, InstanceLongTextAttribute.class, name,
+                        attribute -> QueryPredicateBuilder.getExpressionPredicate(cb, attribute.get("longTextValue"), operator, values, "string", timeZone));
+            case "DATE":
+                return exists(cb, query, iteration, InstanceDateAttribute.class, name,
+                        attribute -> QueryPredicateBuilder.getExpressionPredicate(cb, attribute.get("dateValue"), operator, values, "date", timeZone));
+            case "URL":
+                return exists(cb, query, iteration, InstanceURLAttribute.class, name,
+                        attribute -> QueryPredicateBuilder.getExpressionPredicate(cb, attribute.get("urlValue"), operator, values, "string", timeZone));
+            case "NUMBER":
+                return exists(cb, query, iteration, InstanceNumberAttribute.class, name,
+                        attribute -> QueryPredicateBuilder.getExpressionPredicate(cb, attribute.get("numberValue"), operator, values, "double", timeZone));
+            case "PART_NUMBER":
+                return exists(cb, query, iteration, InstancePartNumberAttribute.class, name,
+                        attribute -> QueryPredicateBuilder.getExpressionPredicate(cb, attribute.get("partMasterValue").get("number"), operator, values, "string", timeZone));
+            case "BOOLEAN":
+                checkEqualityRule(name, operator, values);
+                boolean booleanValue = Boolean.parseBoolean(values.get(0));
+                return exists(cb, query, iteration, InstanceBooleanAttribute.class, name,
+                        attribute -> getEqualityPredicate(cb, attribute.get("booleanValue"), booleanValue, operator));
+            case "LOV":
+                checkEqualityRule(name, operator, values);
+                int indexValue = Integer.parseInt(values.get(0));
+                return exists(cb, query, iteration, InstanceListOfValuesAttribute.class, name,
+                        attribute -> getEqualityPredicate(cb, attribute.get("indexValue"), indexValue, operator));
+            default:
+                throw new IllegalArgumentException("Unhandled attribute: [" + field + ", " + operator + ", " + values + "]");
+        }
+    }
+
+    private static <T extends InstanceAttribute> Predicate exists(CriteriaBuilder cb, AbstractQuery<?> query, Root<?> iteration,
+                                                                  Class<T> attributeClass, String name,
+                                                                  Function<Root<T>, Predicate> valuePredicate) {
+
+        Subquery<T> subquery = query.subquery(attributeClass);
+        Root<T> attribute = subquery.from(attributeClass);
+        Join<?, InstanceAttribute> iterationAttribute = subquery.correlate(iteration).join("instanceAttributes");
+
+        subquery.select(attribute).where(
+                cb.equal(iterationAttribute, attribute),
+                cb.equal(attribute.get("name"), name),
+                valuePredicate.apply(attribute));
+
+        return cb.exists(subquery);
+    }
+
+    private static void checkEqualityRule(String name, String operator, List<String> values) {
+        if (values.size() != 1 || !"equal".equals(operator) && !"not_equal".equals(operator)) {
+            throw new IllegalArgumentException("Cannot handle such operator [" + operator + "] on field " + name + "]");
+        }
+    }
+
+    private static Predicate getEqualityPredicate(CriteriaBuilder cb, Expression<?> value, Object operand, String operator) {
+        Predicate predicate = cb.equal(value, operand);
+        return "not_equal".equals(operator) ? predicate.not() : predicate;
+    }
+}
@@ -11,14 +11,18 @@
 package org.polarsys.eplmp.server.dao;
 
 import org.polarsys.eplmp.core.change.ModificationNotification;
+import org.polarsys.eplmp.core.common.User;
 import org.polarsys.eplmp.core.product.PartIterationKey;
 import org.polarsys.eplmp.core.product.PartRevisionKey;
 
 import javax.persistence.EntityManager;
-import java.util.List;
+import javax.persistence.TypedQuery;
+import java.util.*;
 
 public class ModificationNotificationDAO {
 
+    private static final int IN_CLAUSE_CHUNK_SIZE = 500;
+
     private EntityManager em;
 
     public ModificationNotificationDAO(EntityManager pEM) {
@@ -56,6 +60,66 @@ public class ModificationNotificationDAO {
                 .setParameter("iteration", pPartIPK.getIteration()).getResultList();
     }
 
+    /**
+     * Get the notifications of the part iterations of a workspace the caller can read, with one query per chunk of keys.
+     * Read access is checked by the query.
+     *
+     * @return the notifications of each iteration, in the order of {@link #getModificationNotifications(PartIterationKey)}.
+     * Iterations without notification, or not readable, are not in the map.
+     */
+    public Map<PartIterationKey, List<ModificationNotification>> getModificationNotifications(User caller, String pWorkspaceId, Collection<PartIterationKey> pPartIPKs) {
+        Map<PartIterationKey, List<ModificationNotification>> notifications = new HashMap<>();
+        List<PartIterationKey> keys = new ArrayList<>(new HashSet<>(pPartIPKs));
+
+        for (int from = 0; from < keys.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<PartIterationKey> chunk = keys.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, keys.size()));
+
+            // Iterations are matched on their whole key
+            StringBuilder keyCondition = new StringBuilder();
+            for (int i = 0; i < chunk.size(); i++) {
+                keyCondition.append(i == 0 ? "" : " OR ")
+                        .append("(pr.partMasterNumber = :number").append(i)
+                        .append(" AND pr.version = :version").append(i)
+                        .append(" AND pi.iteration = :iteration").append(i).append(')');
+            }
+
+            TypedQuery<ModificationNotification> query = em.createQuery("SELECT n FROM ModificationNotification n"
+                    + " JOIN n.impactedPart pi JOIN pi.partRevision pr"
+                    + " WHERE pr.partMasterWorkspaceId = :workspaceId AND (" + keyCondition + ")"
+                    + " AND " + ACLPredicateBuilder.readAccess("pr.acl", caller)
+                    + " ORDER BY n.acknowledged, n.modifiedPart.partRevision.partMaster.number, n.modifiedPart.iteration DESC", ModificationNotification.class)
+                    .setParameter("workspaceId", pWorkspaceId);
+            for (int i = 0; i < chunk.size(); i++) {
+                PartIterationKey key = chunk.get(i);
+                query.setParameter("number" + i, key.getPartMasterNumber())
+                        .setParameter("version" + i, key.getPartRevisionVersion())
+                        .setParameter("iteration" + i, key.getIteration());
+            }
+            ACLPredicateBuilder.setUser(query, caller);
+
+            for (ModificationNotification notification : query.getResultList()) {
+                notifications.computeIfAbsent(notification.getImpactedPart().getKey(), key -> new ArrayList<>()).add(notification);
+            }
+        }
+        return notifications;
+    }
+
+    /**
+     * Get the notifications about a modified part iteration, whatever the impacted part.
+     */
+    public List<ModificationNotification> getModificationNotificationsOnModifiedPart(PartIterationKey pModifiedPartIPK) {
+        return em.createQuery("SELECT n FROM ModificationNotification n"
+                + " WHERE n.modifiedPart.partRevision.partMasterWorkspaceId = :workspaceId"
+                + " AND n.modifiedPart.partRevision.partMasterNumber = :partNumber"
+                + " AND n.modifiedPart.partRevision.version = :version"
+                + " AND n.modifiedPart.iteration = :iteration", ModificationNotification.class)
+                .setParameter("workspaceId", pModifiedPartIPK.getWorkspaceId())
+                .setParameter("partNumber", pModifiedPartIPK.getPartMasterNumber())
+                .setParameter("version", pModifiedPartIPK.getPartRevisionVersion())
+                .setParameter("iteration", pModifiedPartIPK.getIteration())
+                .getResultList();
+    }
+
     public boolean hasModificationNotifications(PartIterationKey pPartIPK){
         return !getModificationNotifications(pPartIPK).isEmpty();
     }
@@ -16,13 +16,14 @@ import org.polarsys.eplmp.core.meta.ListOfValuesKey;
 import org.polarsys.eplmp.core.product.*;
 
 import javax.persistence.EntityManager;
-import java.util.List;
-import java.util.Locale;
+import java.util.*;
 
 
 
 public class PartIterationDAO {
 
+    private static final int IN_CLAUSE_CHUNK_SIZE = 500;
+
     private EntityManager em;
     private Locale mLocale;
 
@@ -92,6 +93,47 @@ public class PartIterationDAO {
     }
 
 
+    /**
+     * Get the last iterations of the assemblies using a part, as a component or as a substitute.
+     */
+    public List<PartIteration> findLastIterationsUsing(PartMaster pPart) {
+        return em.createQuery("SELECT DISTINCT p FROM PartIteration p JOIN p.partRevision r JOIN p.components l LEFT JOIN l.substitutes s"
+                + " WHERE (l.component = :partMaster OR s.substitute = :partMaster)"
+                + " AND p.iteration = SIZE(r.partIterations)", PartIteration.class)
+                .setParameter("partMaster", pPart)
+                .getResultList();
+    }
+
+    /**
+     * Get the last iteration of the last revision of several parts of a workspace, with one query per chunk
+     * of part numbers. Only the instance attributes are batch fetched, neither the other revisions and
+     * iterations nor the product structure are loaded.
+     * The last iteration of a checked out revision is its working copy, whoever checked it out.
+     *
+     * @return the last iterations, indexed by part number
+     */
+    public Map<String, PartIteration> loadLastIterations(String pWorkspaceId, Collection<String> pNumbers) {
+        Map<String, PartIteration> lastIterations = new HashMap<>();
+        List<String> numbers = new ArrayList<>(new LinkedHashSet<>(pNumbers));
+
+        for (int from = 0; from < numbers.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<PartIteration> result = em.createQuery("SELECT pi FROM PartIteration pi JOIN pi.partRevision pr"
+                    + " WHERE pr.partMasterWorkspaceId = :workspaceId AND pr.partMasterNumber IN :numbers"
+                    + " AND pr.version = (SELECT MAX(lr.version) FROM PartRevision lr WHERE lr.partMaster = pr.partMaster)"
+                    + " AND pi.iteration = SIZE(pr.partIterations)", PartIteration.class)
+                    .setParameter("workspaceId", pWorkspaceId)
+                    .setParameter("numbers", numbers.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, numbers.size())))
+                    .setHint("eclipselink.join-fetch", "pi.partRevision")
+                    .setHint("eclipselink.batch.type", "IN")
+                    .setHint("eclipselink.batch", "pi.instanceAttributes")
+                    .getResultList();
+            for (PartIteration partIteration : result) {
+                lastIterations.put(partIteration.getPartRevision().getPartNumber(), partIteration);
+            }
+        }
+        return lastIterations;
+    }
+
     public List<PartIteration> findAllPartIterationFromLOV(ListOfValuesKey lovKey) {
         return em.createNamedQuery("PartIteration.findWhereLOV", PartIteration.class)
                 .setParameter("lovName", lovKey.getName())
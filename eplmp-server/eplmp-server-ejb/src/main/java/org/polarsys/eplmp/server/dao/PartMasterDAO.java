@@ -19,8 +19,7 @@ import org.polarsys.eplmp.core.product.PartMasterKey;
 import org.polarsys.eplmp.core.product.PartRevision;
 
 import javax.persistence.*;
-import java.util.List;
-import java.util.Locale;
+import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,6 +29,9 @@ public class PartMasterDAO {
     private Locale mLocale;
     private static final Logger LOGGER = Logger.getLogger(PartMasterDAO.class.getName());
 
+    // Keep IN lists below the most restrictive database limit (Oracle: 1000)
+    private static final int IN_CLAUSE_CHUNK_SIZE = 500;
+
     public PartMasterDAO(Locale pLocale, EntityManager pEM) {
         em = pEM;
         mLocale = pLocale;
@@ -50,6 +52,31 @@ public class PartMasterDAO {
         }
     }
 
+    /**
+     * Load several part masters of a workspace at once.
+     * The "PartMaster.structure" graph: revisions, iterations and usage links are batch fetched with one query
+     * per relationship instead of one per part master.
+     *
+     * @return the loaded part masters, indexed by part number
+     */
+    public Map<String, PartMaster> loadPartMasters(String pWorkspaceId, Collection<String> pNumbers) {
+        Map<String, PartMaster> partMasters = new HashMap<>();
+        List<String> numbers = new ArrayList<>(new LinkedHashSet<>(pNumbers));
+
+        for (int from = 0; from < numbers.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<String> chunk = numbers.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, numbers.size()));
+            TypedQuery<PartMaster> query = em.createNamedQuery("PartMaster.findByNumbers", PartMaster.class)
+                    .setParameter("workspaceId", pWorkspaceId)
+                    .setParameter("numbers", chunk);
+            List<PartMaster> result = EntityGraphHints.apply(em, query, "PartMaster.structure", "pm").getResultList();
+            for (PartMaster partMaster : result) {
+                partMasters.put(partMaster.getNumber(), partMaster);
+            }
+        }
+
+        return partMasters;
+    }
+
     public PartMaster getPartMRef(PartMasterKey pKey) throws PartMasterNotFoundException {
         try {
             return em.getReference(PartMaster.class, pKey);
@@ -138,9 +165,27 @@ public class PartMasterDAO {
         return result != null ? result.longValue() : 0L;
     }
 
+    /**
+     * Get the part masters of a workspace with their revisions and iterations, the "PartMaster.summary" graph.
+     * Components and files are left to be loaded on access.
+     */
     public List<PartMaster> getAllByWorkspace(String workspaceId) {
-        return em.createNamedQuery("PartMaster.findByWorkspace",PartMaster.class)
-                .setParameter("workspaceId",workspaceId)
-                .getResultList();
+        TypedQuery<PartMaster> query = em.createNamedQuery("PartMaster.findByWorkspace",PartMaster.class)
+                .setParameter("workspaceId",workspaceId);
+        return EntityGraphHints.apply(em, query, "PartMaster.summary", "pm").getResultList();
+    }
+
+    /**
+     * Get a page of the part masters of a workspace, in part number order.
+     * The collections of the "PartMaster.index" graph are batch fetched.
+     *
+     * @param pAfterNumber the last part number of the previous page, empty string for the first page
+     */
+    public List<PartMaster> getPageByWorkspace(String pWorkspaceId, String pAfterNumber, int pMaxResults) {
+        TypedQuery<PartMaster> query = em.createNamedQuery("PartMaster.findByWorkspaceAfterNumber", PartMaster.class)
+                .setParameter("workspaceId", pWorkspaceId)
+                .setParameter("number", pAfterNumber)
+                .setMaxResults(pMaxResults);
+        return EntityGraphHints.apply(em, query, "PartMaster.index", "pm").getResultList();
     }
 }
@@ -20,11 +20,12 @@ import org.polarsys.eplmp.core.product.*;
 import org.polarsys.eplmp.core.workflow.Workflow;
 
 import javax.persistence.*;
-import java.util.List;
-import java.util.Locale;
+import java.util.*;
 
 public class PartRevisionDAO {
 
+    private static final int IN_CLAUSE_CHUNK_SIZE = 500;
+
     private EntityManager em;
     private Locale mLocale;
 
@@ -77,12 +78,60 @@ public class PartRevisionDAO {
         return query.getResultList();
     }
 
-    public List<PartRevision> getPartRevisions(String pWorkspaceId, int pStart, int pMaxResults) {
-        return em.createNamedQuery("PartRevision.findByWorkspace", PartRevision.class)
+    public boolean hasCheckedOutPartRevisions(String pWorkspaceId, String pUserLogin) {
+        return !em.createQuery("SELECT p.version FROM PartRevision p WHERE p.partMaster.workspace.id = :workspaceId and p.checkOutUser.login = :userLogin", String.class)
                 .setParameter("workspaceId", pWorkspaceId)
-                .setFirstResult(pStart)
-                .setMaxResults(pMaxResults)
-                .getResultList();
+                .setParameter("userLogin", pUserLogin)
+                .setMaxResults(1)
+                .getResultList().isEmpty();
+    }
+
+    /**
+     * Get a page of the part revisions of a workspace readable by the caller, with what the part list displays.
+     * Read access is checked by the query, a full page holds pMaxResults visible revisions.
+     * The collections of the "PartRevision.detail" graph are batch fetched, one query per level for the whole page.
+     *
+     * @param pMaxResults the page size, 0 to get all the readable revisions
+     */
+    public List<PartRevision> getPartRevisions(User caller, String pWorkspaceId, int pStart, int pMaxResults) {
+        TypedQuery<PartRevision> query = createListQuery(caller, "");
+        query.setParameter("workspaceId", pWorkspaceId);
+
+        if (pMaxResults > 0) {
+            query.setFirstResult(pStart).setMaxResults(pMaxResults);
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * Get the page of the part revisions readable by the caller which follows the given revision,
+     * in part number and version order. Unlike an offset, the position is found through the index
+     * on the part number, so deep pages cost the same as the first one.
+     *
+     * @param pAfter the last revision of the previous page, null for the first page
+     */
+    public List<PartRevision> getPartRevisionsAfter(User caller, String pWorkspaceId, PartRevisionKey pAfter, int pMaxResults) {
+        TypedQuery<PartRevision> query = createListQuery(caller, pAfter == null ? "" :
+                " AND (pr.partMasterNumber > :number OR (pr.partMasterNumber = :number AND pr.version > :version))");
+        query.setParameter("workspaceId", pWorkspaceId)
+                .setMaxResults(pMaxResults);
+
+        if (pAfter != null) {
+            query.setParameter("number", pAfter.getPartMasterNumber())
+                    .setParameter("version", pAfter.getVersion());
+        }
+        return query.getResultList();
+    }
+
+    private TypedQuery<PartRevision> createListQuery(User caller, String condition) {
+        TypedQuery<PartRevision> query = em.createQuery("SELECT pr FROM PartRevision pr"
+                + " WHERE pr.partMasterWorkspaceId = :workspaceId" + condition
+                + " AND " + ACLPredicateBuilder.readAccess("pr.acl", caller)
+                + " ORDER BY pr.partMasterNumber ASC, pr.version ASC", PartRevision.class);
+
+        EntityGraphHints.apply(em, query, "PartRevision.detail", "pr");
+        ACLPredicateBuilder.setUser(query, caller);
+        return query;
     }
 
     public List<PartRevision> getAllPartRevisions(String pWorkspaceId) {
@@ -98,10 +147,49 @@ public class PartRevisionDAO {
     }
 
     public int getPartRevisionCountFiltered(User caller, String workspaceId) {
-        return ((Number) em.createNamedQuery("PartRevision.countByWorkspace.filterACLEntry")
-                .setParameter("workspaceId", workspaceId)
-                .setParameter("user", caller)
-                .getSingleResult()).intValue();
+        Query query = em.createQuery("SELECT count(pr) FROM PartRevision pr"
+                + " WHERE pr.partMasterWorkspaceId = :workspaceId"
+                + " AND " + ACLPredicateBuilder.readAccess("pr.acl", caller))
+                .setParameter("workspaceId", workspaceId);
+        ACLPredicateBuilder.setUser(query, caller);
+        return ((Number) query.getSingleResult()).intValue();
+    }
+
+    /**
+     * Load the part revisions of the given keys readable by the caller, with one query per chunk of part numbers.
+     */
+    public List<PartRevision> getPartRevisions(User caller, Collection<PartRevisionKey> pKeys) {
+        List<PartRevision> partRevisions = new ArrayList<>();
+        if (pKeys.isEmpty()) {
+            return partRevisions;
+        }
+
+        // Part numbers are filtered by the database, versions by the loop below
+        Set<String> distinctNumbers = new HashSet<>();
+        String workspaceId = null;
+        for (PartRevisionKey key : pKeys) {
+            distinctNumbers.add(key.getPartMaster().getNumber());
+            workspaceId = key.getPartMaster().getWorkspace();
+        }
+        List<String> numbers = new ArrayList<>(distinctNumbers);
+
+        for (int from = 0; from < numbers.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            TypedQuery<PartRevision> query = em.createQuery("SELECT pr FROM PartRevision pr"
+                    + " WHERE pr.partMasterWorkspaceId = :workspaceId AND pr.partMaster.number IN :numbers"
+                    + " AND " + ACLPredicateBuilder.readAccess("pr.acl", caller), PartRevision.class)
+                    .setParameter("workspaceId", workspaceId)
+                    .setParameter("numbers", numbers.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, numbers.size())))
+                    .setHint("eclipselink.batch.type", "IN")
+                    .setHint("eclipselink.batch", "pr.partIterations");
+            ACLPredicateBuilder.setUser(query, caller);
+
+            for (PartRevision partRevision : query.getResultList()) {
+                if (pKeys.contains(partRevision.getKey())) {
+                    partRevisions.add(partRevision);
+                }
+            }
+        }
+        return partRevisions;
     }
 
     public void createPartR(PartRevision partR) throws PartRevisionAlreadyExistsException, CreationException {
@@ -11,19 +11,30 @@
 
 package org.polarsys.eplmp.server.dao;
 
+import org.polarsys.eplmp.core.common.User;
 import org.polarsys.eplmp.core.common.Workspace;
-import org.polarsys.eplmp.core.meta.*;
-import org.polarsys.eplmp.core.product.*;
+import org.polarsys.eplmp.core.meta.Tag;
+import org.polarsys.eplmp.core.product.PartIteration;
+import org.polarsys.eplmp.core.product.PartRevision;
 import org.polarsys.eplmp.core.query.Query;
+import org.polarsys.eplmp.core.query.QueryField;
 import org.polarsys.eplmp.core.query.QueryRule;
 
-import javax.persistence.*;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 /**
+ * Run the custom queries on part revisions.
+ *
+ * The query ranges over the part revisions joined to their last checked in iteration, the rules on
+ * tags and attributes are correlated sub queries, so that each part revision is returned once.
+ *
  * @author Morgan Guimard on 09/04/15.
  */
 public class PartRevisionQueryDAO {
@@ -37,15 +48,6 @@ public class PartRevisionQueryDAO {
 
     private Root<PartRevision> pr;
     private Root<PartIteration> pi;
-    private Root<Tag> tag;
-    private Root<InstanceURLAttribute> iua;
-    private Root<InstanceBooleanAttribute> iba;
-    private Root<InstanceNumberAttribute> ina;
-    private Root<InstanceListOfValuesAttribute> ila;
-    private Root<InstanceDateAttribute> ida;
-    private Root<InstanceTextAttribute> ita;
-    private Root<InstanceLongTextAttribute> ilta;
-    private Root<InstancePartNumberAttribute> ipna;
 
     private static final Logger LOGGER = Logger.getLogger(PartRevisionQueryDAO.class.getName());
 
@@ -58,19 +60,22 @@ public class PartRevisionQueryDAO {
         cq = cb.createQuery(PartRevision.class);
         pr = cq.from(PartRevision.class);
         pi = cq.from(PartIteration.class);
-        tag = cq.from(Tag.class);
-
-        iua = cq.from(InstanceURLAttribute.class);
-        iba = cq.from(InstanceBooleanAttribute.class);
-        ina = cq.from(InstanceNumberAttribute.class);
-        ila = cq.from(InstanceListOfValuesAttribute.class);
-        ida = cq.from(InstanceDateAttribute.class);
-        ilta = cq.from(InstanceLongTextAttribute.class);
-        ipna = cq.from(InstancePartNumberAttribute.class);
-        ita = cq.from(InstanceTextAttribute.class);
     }
 
-    public List<PartRevision> runQuery(Workspace workspace, Query query) {
+    /**
+     * Run the query, returning the matching part revisions readable by the caller.
+     */
+    public List<PartRevision> runQuery(User caller, Workspace workspace, Query query) {
+        return runQuery(caller, workspace, query, 0);
+    }
+
+    /**
+     * Run the query, returning the matching part revisions readable by the caller, sorted by the
+     * query order by list. The part revisions never checked in are not returned.
+     *
+     * @param maxResults The maximum number of part revisions to return, no limit if 0 or less
+     */
+    public List<PartRevision> runQuery(User caller, Workspace workspace, Query query, int maxResults) {
 
         cq.select(pr);
 
@@ -81,18 +86,74 @@ public class PartRevisionQueryDAO {
 
         Predicate rulesPredicate = getPredicate(query.getQueryRule());
 
+        Predicate aclPredicate = ACLPredicateBuilder.readAccess(cb, cq, pr.get("acl"), caller);
+
         cq.where(cb.and(
                 prJoinPredicate,
-                rulesPredicate
+                getLastCheckedInIterationPredicate(),
+                rulesPredicate,
+                aclPredicate
         ));
 
+        cq.orderBy(getOrders(query.getOrderByList()));
+
         TypedQuery<PartRevision> tp = em.createQuery(cq);
+        if (maxResults > 0) {
+            tp.setMaxResults(maxResults);
+        }
 
-        Set<PartRevision> revisions = tp.getResultList().stream()
-                .filter(part -> part.getLastCheckedInIteration() != null)
-                .collect(Collectors.toSet());
+        return tp.getResultList();
+    }
 
-        return new ArrayList<>(revisions);
+    private Predicate getLastCheckedInIterationPredicate() {
+        // Iterations are numbered from 1, the last one is not checked in while the part revision is checked out
+        Expression<Integer> iterationCount = cb.size(pr.<List<PartIteration>>get("partIterations"));
+        Path<Object> checkOutUser = pr.get("checkOutUser");
+        return cb.or(
+                cb.and(cb.isNull(checkOutUser), cb.equal(pi.get("iteration"), iterationCount)),
+                cb.and(cb.isNotNull(checkOutUser), cb.equal(pi.get("iteration"), cb.diff(iterationCount, 1)))
+        );
+    }
+
+    private List<Order> getOrders(List<String> orderByList) {
+        List<Order> orders = new ArrayList<>();
+        if (orderByList != null) {
+            for (String field : orderByList) {
+                Expression<?> expression = getOrderExpression(field);
+                if (expression != null) {
+                    orders.add(cb.asc(expression));
+                } else {
+                    LOGGER.log(Level.FINE, "Cannot order part revisions by " + field);
+                }
+            }
+        }
+        // Stable order, the same query returns the same first results
+        orders.add(cb.asc(pr.get("partMaster").get("number")));
+        orders.add(cb.asc(pr.get("version")));
+        return orders;
+    }
+
+    private Expression<?> getOrderExpression(String field) {
+        switch (field) {
+            case QueryField.PART_MASTER_NUMBER:
+            case QueryField.PART_MASTER_NAME:
+            case QueryField.PART_MASTER_TYPE:
+            case QueryField.PART_MASTER_IS_STANDARD:
+                return pr.get("partMaster").get(field.substring(3));
+            case QueryField.PART_REVISION_VERSION:
+            case QueryField.PART_REVISION_CHECKOUT_DATE:
+            case QueryField.PART_REVISION_CREATION_DATE:
+            case QueryField.PART_REVISION_STATUS:
+                return pr.get(field.substring(3));
+            case QueryField.PART_REVISION_MODIFICATION_DATE:
+            case QueryField.PART_REVISION_CHECKIN_DATE:
+                return pi.get(field.substring(3));
+            case QueryField.AUTHOR_LOGIN:
+            case QueryField.AUTHOR_NAME:
+                return pr.get("author").get("account").get(field.substring(7));
+            default:
+                return null;
+        }
     }
 
     private Predicate getPredicate(QueryRule queryRule) {
@@ -151,36 +212,9 @@ public class PartRevisionQueryDAO {
             return getAuthorPredicate(field.substring(7), operator, values, type);
         }
 
-        if (field.startsWith("attr-TEXT.")) {
-            return getInstanceTextAttributePredicate(field.substring(10), operator, values);
-        }
-
-        if (field.startsWith("attr-LONG_TEXT.")) {
-            return getInstanceLongTextAttributePredicate(field.substring(15), operator, values);
-        }
-
-        if (field.startsWith("attr-DATE.")) {
-            return getInstanceDateAttributePredicate(field.substring(10), operator, values);
-        }
-
-        if (field.startsWith("attr-BOOLEAN.")) {
-            return getInstanceBooleanAttributePredicate(field.substring(13), operator, values);
-        }
-
-        if (field.startsWith("attr-URL.")) {
-            return getInstanceURLAttributePredicate(field.substring(9), operator, values);
-        }
-
-        if (field.startsWith("attr-NUMBER.")) {
-            return getInstanceNumberAttributePredicate(field.substring(12), operator, values);
-        }
-
-        if (field.startsWith("attr-LOV.")) {
-            return getInstanceLovAttributePredicate(field.substring(9), operator, values);
-        }
-
-        if (field.startsWith("attr-PART_NUMBER.")) {
-            return getInstancePartNumberAttributePredicate(field.substring(17), operator, values);
+        if (field.startsWith(QueryField.PART_REVISION_ATTRIBUTES_PREFIX)) {
+            return InstanceAttributePredicateBuilder.getPredicate(cb, cq, pi,
+                    field.substring(QueryField.PART_REVISION_ATTRIBUTES_PREFIX.length()), operator, values, mTimeZone);
         }
 
         throw new IllegalArgumentException("Unhandled attribute: [" + field + ", " + operator + ", " + values + "]");
@@ -191,19 +225,14 @@ public class PartRevisionQueryDAO {
     }
 
     private Predicate getPartRevisionPredicate(String field, String operator, List<String> values, String type) {
-        if ("checkInDate".equals(field)) {
-            Predicate lastIterationPredicate = cb.equal(cb.size(pr.get("partIterations")), pi.get("iteration"));
-            return cb.and(lastIterationPredicate, QueryPredicateBuilder.getExpressionPredicate(cb, pi.get("checkInDate"), operator, values, type, mTimeZone));
-        }
-        else if ("modificationDate".equals(field)) {
-            Predicate lastIterationPredicate = cb.equal(cb.size(pr.get("partIterations")), pi.get("iteration"));
-            return cb.and(lastIterationPredicate, QueryPredicateBuilder.getExpressionPredicate(cb, pi.get("modificationDate"), operator, values, type, mTimeZone));
+        if ("checkInDate".equals(field) || "modificationDate".equals(field)) {
+            return QueryPredicateBuilder.getExpressionPredicate(cb, pi.get(field), operator, values, type, mTimeZone);
         } else if ("status".equals(field)) {
             if (values.size() == 1) {
                 return QueryPredicateBuilder.getExpressionPredicate(cb, pr.get(field), operator, values, "status", mTimeZone);
             }
         } else if ("tags".equals(field)) {
-            return getTagsPredicate(values);
+            return getTagsPredicate(operator, values);
         } else if ("linkedDocuments".equals(field)) {
             // should be ignored, returning always true for the moment
             return cb.and();
@@ -211,87 +240,15 @@ public class PartRevisionQueryDAO {
         return QueryPredicateBuilder.getExpressionPredicate(cb, pr.get(field), operator, values, type, mTimeZone);
     }
 
-    private Predicate getTagsPredicate(List<String> values) {
-        Predicate prPredicate = tag.in(pr.get("tags"));
-        Predicate valuesPredicate = cb.equal(tag.get("label"), values);
-        return cb.and(prPredicate, valuesPredicate);
+    private Predicate getTagsPredicate(String operator, List<String> values) {
+        Subquery<Tag> subquery = cq.subquery(Tag.class);
+        Join<PartRevision, Tag> tag = subquery.correlate(pr).join("tags");
+        subquery.select(tag).where(tag.get("label").in(values));
+        Predicate tagged = cb.exists(subquery);
+        return "not_equal".equals(operator) ? tagged.not() : tagged;
     }
 
     private Predicate getPartMasterPredicate(String field, String operator, List<String> values, String type) {
         return QueryPredicateBuilder.getExpressionPredicate(cb, pr.get("partMaster").get(field), operator, values, type, mTimeZone);
     }
-
-    // Instances Attributes
-    private Predicate getInstanceURLAttributePredicate(String field, String operator, List<String> values) {
-
-        Predicate valuesPredicate = QueryPredicateBuilder.getExpressionPredicate(cb, iua.get("urlValue"), operator, values, "string", mTimeZone);
-        Predicate memberPredicate = iua.in(pi.get("instanceAttributes"));
-        return cb.and(cb.equal(iua.get("name"), field), valuesPredicate, memberPredicate);
-    }
-
-    private Predicate getInstanceBooleanAttributePredicate(String field, String operator, List<String> values) {
-        if (values.size() == 1) {
-            Predicate valuesPredicate = cb.equal(iba.get("booleanValue"), Boolean.parseBoolean(values.get(0)));
-            Predicate memberPredicate = iba.in(pi.get("instanceAttributes"));
-            switch (operator) {
-                case "equal":
-                    return cb.and(cb.equal(iba.get("name"), field), valuesPredicate, memberPredicate);
-                case "not_equal":
-                    return cb.and(cb.equal(iba.get("name"), field), valuesPredicate.not(), memberPredicate);
-                default:
-                    break;
-            }
-        }
-
-        throw new IllegalArgumentException("Cannot handle such operator [" + operator + "] on field " + field + "]");
-    }
-
-    private Predicate getInstanceNumberAttributePredicate(String field, String operator, List<String> values) {
-        Predicate valuesPredicate = QueryPredicateBuilder.getExpressionPredicate(cb, ina.get("numberValue"), operator, values, "double", mTimeZone);
-        Predicate memberPredicate = ina.in(pi.get("instanceAttributes"));
-        return cb.and(cb.equal(ina.get("name"), field), valuesPredicate, memberPredicate);
-    }
-
-    private Predicate getInstanceLovAttributePredicate(String field, String operator, List<String> values) {
-        if (values.size() == 1) {
-            Predicate valuesPredicate = cb.equal(ila.get("indexValue"), Integer.parseInt(values.get(0)));
-            Predicate memberPredicate = ila.in(pi.get("instanceAttributes"));
-            switch (operator) {
-                case "equal":
-                    return cb.and(cb.equal(ila.get("name"), field), valuesPredicate, memberPredicate);
-                case "not_equal":
-                    return cb.and(cb.equal(ila.get("name"), field), valuesPredicate.not(), memberPredicate);
-                default:
-                    break;
-            }
-        }
-
-        throw new IllegalArgumentException("Cannot handle such operator [" + operator + "] on field " + field + "]");
-    }
-
-    private Predicate getInstanceDateAttributePredicate(String field, String operator, List<String> values) {
-        Predicate valuesPredicate = QueryPredicateBuilder.getExpressionPredicate(cb, ida.get("dateValue"), operator, values, "date", mTimeZone);
-        Predicate memberPredicate = ida.in(pi.get("instanceAttributes"));
-        return cb.and(cb.equal(ida.get("name"), field), valuesPredicate, memberPredicate);
-    }
-
-    private Predicate getInstanceLongTextAttributePredicate(String field, String operator, List<String> values) {
-        Predicate valuesPredicate = QueryPredicateBuilder.getExpressionPredicate(cb, ilta.get("longTextValue"), operator, values, "string", mTimeZone);
-        Predicate memberPredicate = ilta.in(pi.get("instanceAttributes"));
-        return cb.and(cb.equal(ita.get("name"), field), valuesPredicate, memberPredicate);
-    }
-
-    private Predicate getInstancePartNumberAttributePredicate(String field, String operator, List<String> values) {
-        Predicate valuesPredicate = QueryPredicateBuilder.getExpressionPredicate(cb, ipna.get("partMasterValue").get("number"), operator, values, "string", mTimeZone);
-        Predicate memberPredicate = ipna.in(pi.get("instanceAttributes"));
-        return cb.and(cb.equal(ita.get("name"), field), valuesPredicate, memberPredicate);
-    }
-
-    private Predicate getInstanceTextAttributePredicate(String field, String operator, List<String> values) {
-        Predicate valuesPredicate = QueryPredicateBuilder.getExpressionPredicate(cb, ita.get("textValue"), operator, values, "string", mTimeZone);
-        Predicate memberPredicate = ita.in(pi.get("instanceAttributes"));
-        return cb.and(cb.equal(ita.get("name"), field), valuesPredicate, memberPredicate);
-    }
 }
-
-
@@ -11,18 +11,18 @@
 package org.polarsys.eplmp.server.dao;
 
 import org.polarsys.eplmp.core.exceptions.PartUsageLinkNotFoundException;
-import org.polarsys.eplmp.core.product.PartIteration;
 import org.polarsys.eplmp.core.product.PartMasterKey;
 import org.polarsys.eplmp.core.product.PartSubstituteLink;
 import org.polarsys.eplmp.core.product.PartUsageLink;
 
 import javax.persistence.EntityManager;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Locale;
+import java.util.*;
 
 public class PartUsageLinkDAO {
 
+    // Keep IN lists below the most restrictive database limit (Oracle: 1000)
+    private static final int IN_CLAUSE_CHUNK_SIZE = 500;
+
     private EntityManager em;
     private Locale mLocale;
 
@@ -36,37 +36,71 @@ public class PartUsageLinkDAO {
         mLocale = Locale.getDefault();
     }
 
-    
+
+    /**
+     * Get the usage paths of a part, each path going from a root assembly down to the part.
+     *
+     * The assemblies using the part are looked up in the components join table, one query per
+     * structure level for all the part numbers of that level, and the paths are then built in memory.
+     * The number of queries depends on the depth of the structures, not on the number of usages.
+     */
     public List<PartUsageLink[]> findPartUsagePaths(PartMasterKey pPartMKey){
-        List<PartUsageLink> usages= findPartUsages(pPartMKey.getWorkspace(),pPartMKey.getNumber()); 
+        Map<String, List<PartUsageOwner>> usagesByComponent = findUsagesByComponent(pPartMKey.getWorkspace(), pPartMKey.getNumber());
         List<PartUsageLink[]> usagePaths = new ArrayList<>();
-        for(PartUsageLink usage:usages){
-            List<PartUsageLink> path=new ArrayList<>();
-            path.add(usage);
-            createPath(usage,path,usagePaths);
-        }
-        
+        createPaths(pPartMKey.getNumber(), new ArrayDeque<>(), usagesByComponent, usagePaths);
         return usagePaths;
     }
 
-    private void createPath(PartUsageLink currentUsage, List<PartUsageLink> currentPath, List<PartUsageLink[]> usagePaths){
-        
-        PartIteration owner = em.createNamedQuery("PartUsageLink.getPartOwner",PartIteration.class)
-                .setParameter("usage", currentUsage)
-                .getSingleResult();
-        List<PartUsageLink> parentUsages = findPartUsages(owner.getWorkspaceId(), owner.getPartNumber());
-        
-        for(PartUsageLink parentUsage:parentUsages){
-            List<PartUsageLink> newPath=new ArrayList<>(currentPath);
-            newPath.add(0,parentUsage);
-            createPath(parentUsage, newPath, usagePaths);
+    private Map<String, List<PartUsageOwner>> findUsagesByComponent(String workspaceId, String partNumber) {
+        Map<String, List<PartUsageOwner>> usagesByComponent = new HashMap<>();
+        Set<String> levelNumbers = Collections.singleton(partNumber);
+
+        while (!levelNumbers.isEmpty()) {
+            List<String> numbers = new ArrayList<>(levelNumbers);
+            for (String number : numbers) {
+                usagesByComponent.put(number, new ArrayList<>());
+            }
+
+            Set<String> ownerNumbers = new HashSet<>();
+            for (int from = 0; from < numbers.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+                List<Object[]> rows = em.createQuery("SELECT l, l.component.number, p.partRevision.partMaster.number " +
+                        "FROM PartIteration p JOIN p.components l " +
+                        "WHERE l.component.workspace.id = :workspaceId AND l.component.number IN :numbers", Object[].class)
+                        .setParameter("workspaceId", workspaceId)
+                        .setParameter("numbers", numbers.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, numbers.size())))
+                        .getResultList();
+                for (Object[] row : rows) {
+                    String ownerNumber = (String) row[2];
+                    usagesByComponent.get((String) row[1]).add(new PartUsageOwner((PartUsageLink) row[0], ownerNumber));
+                    ownerNumbers.add(ownerNumber);
+                }
+            }
+
+            // Parts already visited are not looked up again
+            ownerNumbers.removeAll(usagesByComponent.keySet());
+            levelNumbers = ownerNumbers;
+        }
+        return usagesByComponent;
+    }
+
+    private void createPaths(String partNumber, Deque<PartUsageLink> currentPath,
+                             Map<String, List<PartUsageOwner>> usagesByComponent, List<PartUsageLink[]> usagePaths) {
+
+        boolean used = false;
+        for (PartUsageOwner usage : usagesByComponent.getOrDefault(partNumber, Collections.emptyList())) {
+            // Guard against a structure using itself
+            if (!currentPath.contains(usage.link)) {
+                used = true;
+                currentPath.addFirst(usage.link);
+                createPaths(usage.ownerNumber, currentPath, usagesByComponent, usagePaths);
+                currentPath.removeFirst();
+            }
         }
-        if(parentUsages.isEmpty()) {
+        if (!used && !currentPath.isEmpty()) {
             usagePaths.add(currentPath.toArray(new PartUsageLink[currentPath.size()]));
         }
-              
     }
-    
+
     public List<PartUsageLink> findPartUsages(String workspaceId, String partNumber){
         return em.createNamedQuery("PartUsageLink.findByComponent",PartUsageLink.class)
             .setParameter("partNumber", partNumber)
@@ -107,6 +141,38 @@ public class PartUsageLinkDAO {
         }
     }
 
+    /**
+     * Load several usage links at once, indexed by id
+     */
+    public Map<Integer, PartUsageLink> getPartUsageLinks(Collection<Integer> pIds) {
+        Map<Integer, PartUsageLink> links = new HashMap<>();
+        List<Integer> ids = new ArrayList<>(pIds);
+        for (int from = 0; from < ids.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            for (PartUsageLink link : em.createQuery("SELECT l FROM PartUsageLink l WHERE l.id IN :ids", PartUsageLink.class)
+                    .setParameter("ids", ids.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, ids.size())))
+                    .getResultList()) {
+                links.put(link.getId(), link);
+            }
+        }
+        return links;
+    }
+
+    /**
+     * Load several substitute links at once, indexed by id
+     */
+    public Map<Integer, PartSubstituteLink> getPartSubstituteLinks(Collection<Integer> pIds) {
+        Map<Integer, PartSubstituteLink> links = new HashMap<>();
+        List<Integer> ids = new ArrayList<>(pIds);
+        for (int from = 0; from < ids.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            for (PartSubstituteLink link : em.createQuery("SELECT l FROM PartSubstituteLink l WHERE l.id IN :ids", PartSubstituteLink.class)
+                    .setParameter("ids", ids.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, ids.size())))
+                    .getResultList()) {
+                links.put(link.getId(), link);
+            }
+        }
+        return links;
+    }
+
     public void removeOrphanPartLinks() {
         List<PartUsageLink> partUsageLinks = em.createNamedQuery("PartUsageLink.findOrphans", PartUsageLink.class).getResultList();
 
@@ -120,4 +186,14 @@ public class PartUsageLinkDAO {
             em.remove(partUsageLink);
         }
     }
+
+    private static class PartUsageOwner {
+        private final PartUsageLink link;
+        private final String ownerNumber;
+
+        private PartUsageOwner(PartUsageLink link, String ownerNumber) {
+            this.link = link;
+            this.ownerNumber = ownerNumber;
+        }
+    }
 }
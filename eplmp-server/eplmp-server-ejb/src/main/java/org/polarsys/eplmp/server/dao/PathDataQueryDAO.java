@@ -14,9 +14,8 @@ package org.polarsys.eplmp.server.dao;
 import org.polarsys.eplmp.core.configuration.PathDataIteration;
 import org.polarsys.eplmp.core.configuration.PathDataMaster;
 import org.polarsys.eplmp.core.configuration.ProductInstanceIteration;
-import org.polarsys.eplmp.core.meta.*;
-import org.polarsys.eplmp.core.product.*;
 import org.polarsys.eplmp.core.query.Query;
+import org.polarsys.eplmp.core.query.QueryField;
 import org.polarsys.eplmp.core.query.QueryRule;
 
 import javax.persistence.EntityManager;
@@ -27,6 +26,11 @@ import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 /**
+ * Run the path data rules of the custom queries.
+ *
+ * The query ranges over the path data masters joined to their last iteration, the rules on
+ * attributes are correlated sub queries.
+ *
  * @author Morgan Guimard on 09/04/15.
  */
 public class PathDataQueryDAO {
@@ -37,19 +41,10 @@ public class PathDataQueryDAO {
 
     private CriteriaBuilder cb;
 
-    private CriteriaQuery<PathDataMaster> cq;
+    private CriteriaQuery<String> cq;
     private Root<PathDataMaster> pdm;
     private Root<PathDataIteration> pdi;
 
-    private Root<InstanceURLAttribute> iua;
-    private Root<InstanceBooleanAttribute> iba;
-    private Root<InstanceNumberAttribute> ina;
-    private Root<InstanceListOfValuesAttribute> ila;
-    private Root<InstanceDateAttribute> ida;
-    private Root<InstanceTextAttribute> ita;
-    private Root<InstanceLongTextAttribute> ilta;
-    private Root<InstancePartNumberAttribute> ipna;
-
     private static final Logger LOGGER = Logger.getLogger(PathDataQueryDAO.class.getName());
 
     public PathDataQueryDAO(Locale pLocale, String pTimeZone, EntityManager pEM) {
@@ -58,25 +53,15 @@ public class PathDataQueryDAO {
         mLocale = pLocale;
         mTimeZone = pTimeZone;
         cb = em.getCriteriaBuilder();
-        cq = cb.createQuery(PathDataMaster.class);
+        cq = cb.createQuery(String.class);
 
         pdm = cq.from(PathDataMaster.class);
         pdi = cq.from(PathDataIteration.class);
-
-        iua = cq.from(InstanceURLAttribute.class);
-        iba = cq.from(InstanceBooleanAttribute.class);
-        ina = cq.from(InstanceNumberAttribute.class);
-        ila = cq.from(InstanceListOfValuesAttribute.class);
-        ida = cq.from(InstanceDateAttribute.class);
-        ilta = cq.from(InstanceLongTextAttribute.class);
-        ipna = cq.from(InstancePartNumberAttribute.class);
-        ita = cq.from(InstanceTextAttribute.class);
-
     }
 
     public List<String> runQuery(ProductInstanceIteration productInstanceIteration, Query query) {
 
-        cq.select(pdm);
+        cq.select(pdm.get("path"));
 
         List<PathDataMaster> pathDataMasterList = productInstanceIteration.getPathDataMasterList();
 
@@ -94,15 +79,19 @@ public class PathDataQueryDAO {
 
         Predicate rulesPredicate = getPredicate(query.getPathDataQueryRule());
 
-        cq.where(cb.and(pathFilter, rulesPredicate));
+        cq.where(cb.and(pathFilter, getLastIterationPredicate(), rulesPredicate));
 
-        TypedQuery<PathDataMaster> tp = em.createQuery(cq);
+        TypedQuery<String> tp = em.createQuery(cq);
 
-        Set<String> pathList = tp.getResultList().stream()
-                .map(PathDataMaster::getPath)
-                .collect(Collectors.toSet());
+        return tp.getResultList();
+    }
 
-        return new ArrayList<>(pathList);
+    private Predicate getLastIterationPredicate() {
+        Subquery<Integer> lastIteration = cq.subquery(Integer.class);
+        Root<PathDataIteration> otherPdi = lastIteration.from(PathDataIteration.class);
+        lastIteration.select(cb.max(otherPdi.<Integer>get("iteration")))
+                .where(cb.equal(otherPdi.get("pathDataMaster"), pdm));
+        return cb.equal(pdi.get("iteration"), lastIteration);
     }
 
     private Predicate getPredicate(QueryRule queryRule) {
@@ -143,112 +132,12 @@ public class PathDataQueryDAO {
 
         String operator = queryRule.getOperator();
         List<String> values = queryRule.getValues();
-        String type = queryRule.getType();
-
-        if (field.startsWith("pd-attr-TEXT.")) {
-            return getInstanceTextAttributePredicate(field.substring(13), operator, values);
-        }
 
-        if (field.startsWith("pd-attr-LONG_TEXT.")) {
-            return getInstanceLongTextAttributePredicate(field.substring(18), operator, values);
-        }
-
-        if (field.startsWith("pd-attr-DATE.")) {
-            return getInstanceDateAttributePredicate(field.substring(13), operator, values);
-        }
-
-        if (field.startsWith("pd-attr-BOOLEAN.")) {
-            return getInstanceBooleanAttributePredicate(field.substring(16), operator, values);
-        }
-
-        if (field.startsWith("pd-attr-URL.")) {
-            return getInstanceURLAttributePredicate(field.substring(12), operator, values);
-        }
-
-        if (field.startsWith("pd-attr-NUMBER.")) {
-            return getInstanceNumberAttributePredicate(field.substring(15), operator, values);
-        }
-
-        if (field.startsWith("pd-attr-LOV.")) {
-            return getInstanceLovAttributePredicate(field.substring(12), operator, values);
-        }
-
-        if (field.startsWith("pd-attr-PART_NUMBER.")) {
-            return getInstancePartNumberAttributePredicate(field.substring(20), operator, values);
+        if (field.startsWith(QueryField.PATH_DATA_ATTRIBUTES_PREFIX)) {
+            return InstanceAttributePredicateBuilder.getPredicate(cb, cq, pdi,
+                    field.substring(QueryField.PATH_DATA_ATTRIBUTES_PREFIX.length()), operator, values, mTimeZone);
         }
 
         throw new IllegalArgumentException("Unhandled attribute: [" + field + ", " + operator + ", " + values + "]");
     }
-
-
-    // Instances Attributes
-    private Predicate getInstanceURLAttributePredicate(String field, String operator, List<String> values) {
-        Predicate valuesPredicate = QueryPredicateBuilder.getExpressionPredicate(cb, iua.get("urlValue"), operator, values, "string", mTimeZone);
-        Predicate memberPredicate = iua.in(pdi.get("instanceAttributes"));
-        return cb.and(cb.equal(iua.get("name"), field), valuesPredicate, memberPredicate);
-    }
-
-    private Predicate getInstanceBooleanAttributePredicate(String field, String operator, List<String> values) {
-        if (values.size() == 1) {
-            Predicate valuesPredicate = cb.equal(iba.get("booleanValue"), Boolean.parseBoolean(values.get(0)));
-            Predicate memberPredicate = iba.in(pdi.get("instanceAttributes"));
-            switch (operator) {
-                case "equal":
-                    return cb.and(cb.equal(iba.get("name"), field), valuesPredicate, memberPredicate);
-                case "not_equal":
-                    return cb.and(cb.equal(iba.get("name"), field), valuesPredicate.not(), memberPredicate);
-                default:
-                    break;
-            }
-        }
-
-        throw new IllegalArgumentException("Cannot handle such operator [" + operator + "] on field " + field + "]");
-    }
-
-    private Predicate getInstanceNumberAttributePredicate(String field, String operator, List<String> values) {
-        Predicate valuesPredicate = QueryPredicateBuilder.getExpressionPredicate(cb, ina.get("numberValue"), operator, values, "double", mTimeZone);
-        Predicate memberPredicate = ina.in(pdi.get("instanceAttributes"));
-        return cb.and(cb.equal(ina.get("name"), field), valuesPredicate, memberPredicate);
-    }
-
-    private Predicate getInstanceLovAttributePredicate(String field, String operator, List<String> values) {
-        if (values.size() == 1) {
-            Predicate valuesPredicate = cb.equal(ila.get("indexValue"), Integer.parseInt(values.get(0)));
-            Predicate memberPredicate = ila.in(pdi.get("instanceAttributes"));
-            switch (operator) {
-                case "equal":
-                    return cb.and(cb.equal(ila.get("name"), field), valuesPredicate, memberPredicate);
-                case "not_equal":
-                    return cb.and(cb.equal(ila.get("name"), field), valuesPredicate.not(), memberPredicate);
-                default:
-                    break;
-            }
-        }
-
-        throw new IllegalArgumentException("Cannot handle such operator [" + operator + "] on field " + field + "]");
-    }
-
-    private Predicate getInstanceDateAttributePredicate(String field, String operator, List<String> values) {
-        Predicate valuesPredicate = QueryPredicateBuilder.getExpressionPredicate(cb, ida.get("dateValue"), operator, values, "date", mTimeZone);
-        Predicate memberPredicate = ida.in(pdi.get("instanceAttributes"));
-        return cb.and(cb.equal(ida.get("name"), field), valuesPredicate, memberPredicate);
-    }
-
-    private Predicate getInstanceLongTextAttributePredicate(String field, String operator, List<String> values) {
-        Predicate valuesPredicate = QueryPredicateBuilder.getExpressionPredicate(cb, ilta.get("longTextValue"), operator, values, "string", mTimeZone);
-        Predicate memberPredicate = ilta.in(pdi.get("instanceAttributes"));
-        return cb.and(cb.equal(ilta.get("name"), field), valuesPredicate, memberPredicate);
-    }
-
-    private Predicate getInstancePartNumberAttributePredicate(String field, String operator, List<String> values) {
-        Predicate valuesPredicate = QueryPredicateBuilder.getExpressionPredicate(cb, ipna.get("partMasterValue").get("number"), operator, values, "string", mTimeZone);
-        Predicate memberPredicate = ipna.in(pdi.get("instanceAttributes"));
-        return cb.and(cb.equal(ipna.get("name"), field), valuesPredicate, memberPredicate);
-    }
-
-    private Predicate getInstanceTextAttributePredicate(String field, String operator, List<String> values) {
-        Predicate valuesPredicate = QueryPredicateBuilder.getExpressionPredicate(cb, ita.get("textValue"), operator, values, "string", mTimeZone);
-        Predicate memberPredicate = ita.in(pdi.get("instanceAttributes"));
-        return cb.and(cb.equal(ita.get("name"), field), valuesPredicate, memberPredicate);
-    }
 }
@@ -11,6 +11,7 @@
 
 package org.polarsys.eplmp.server.dao;
 
+import org.polarsys.eplmp.core.common.User;
 import org.polarsys.eplmp.core.configuration.BaselinedPart;
 import org.polarsys.eplmp.core.configuration.ProductInstanceIteration;
 import org.polarsys.eplmp.core.configuration.ProductInstanceMaster;
@@ -23,6 +24,7 @@ import org.polarsys.eplmp.core.product.PartRevision;
 import javax.persistence.EntityExistsException;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceException;
+import javax.persistence.TypedQuery;
 import java.util.List;
 import java.util.Locale;
 
@@ -53,6 +55,31 @@ public class ProductInstanceMasterDAO {
                 .getResultList();
     }
 
+    /**
+     * Find the product instances of a workspace readable by the caller, read access being checked by the query.
+     */
+    public List<ProductInstanceMaster> findProductInstanceMasters(User caller, String workspaceId) {
+        TypedQuery<ProductInstanceMaster> query = em.createQuery("SELECT pim FROM ProductInstanceMaster pim"
+                + " WHERE pim.instanceOf.workspace.id = :workspaceId"
+                + " AND " + ACLPredicateBuilder.readAccess("pim.acl", caller), ProductInstanceMaster.class)
+                .setParameter("workspaceId", workspaceId);
+        ACLPredicateBuilder.setUser(query, caller);
+        return query.getResultList();
+    }
+
+    /**
+     * Find the instances of a product readable by the caller, read access being checked by the query.
+     */
+    public List<ProductInstanceMaster> findProductInstanceMasters(User caller, String ciId, String workspaceId) {
+        TypedQuery<ProductInstanceMaster> query = em.createQuery("SELECT pim FROM ProductInstanceMaster pim"
+                + " WHERE pim.instanceOf.id = :ciId AND pim.instanceOf.workspace.id = :workspaceId"
+                + " AND " + ACLPredicateBuilder.readAccess("pim.acl", caller), ProductInstanceMaster.class)
+                .setParameter("ciId", ciId)
+                .setParameter("workspaceId", workspaceId);
+        ACLPredicateBuilder.setUser(query, caller);
+        return query.getResultList();
+    }
+
     public List<ProductInstanceMaster> findProductInstanceMasters(PartRevision partRevision) {
         return em.createNamedQuery("ProductInstanceMaster.findByPart", ProductInstanceMaster.class)
                 .setParameter("partRevision", partRevision)
@@ -128,6 +128,11 @@ public class WorkspaceDAO {
         em.createQuery("DELETE FROM SharedEntity s where s.workspace = :workspace")
                 .setParameter("workspace", workspace).executeUpdate();
 
+        // Indexation checkpoint and pending indexation changes
+        em.createQuery("DELETE FROM IndexationCheckpoint c where c.workspaceId = :workspaceId")
+                .setParameter("workspaceId", workspaceId).executeUpdate();
+        new IndexationQueueDAO(em).removeWorkspaceItems(workspaceId);
+
         // Subscriptions
         em.createQuery("DELETE FROM IterationChangeSubscription s where s.observedDocumentRevisionWorkspaceId = :workspaceId")
                 .setParameter("workspaceId", workspaceId).executeUpdate();
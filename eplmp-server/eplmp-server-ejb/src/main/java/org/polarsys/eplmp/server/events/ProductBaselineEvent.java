@@ -0,0 +1,30 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+package org.polarsys.eplmp.server.events;
+
+import org.polarsys.eplmp.core.configuration.ProductBaseline;
+
+public class ProductBaselineEvent {
+
+    private ProductBaseline observedBaseline;
+
+    public ProductBaselineEvent(ProductBaseline observedBaseline) {
+        this.observedBaseline = observedBaseline;
+    }
+
+    public ProductBaseline getObservedBaseline() {
+        return observedBaseline;
+    }
+
+    public void setObservedBaseline(ProductBaseline observedBaseline) {
+        this.observedBaseline = observedBaseline;
+    }
+}
@@ -0,0 +1,30 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+package org.polarsys.eplmp.server.events;
+
+import org.polarsys.eplmp.core.configuration.ProductInstanceMaster;
+
+public class ProductInstanceEvent {
+
+    private ProductInstanceMaster observedProductInstance;
+
+    public ProductInstanceEvent(ProductInstanceMaster observedProductInstance) {
+        this.observedProductInstance = observedProductInstance;
+    }
+
+    public ProductInstanceMaster getObservedProductInstance() {
+        return observedProductInstance;
+    }
+
+    public void setObservedProductInstance(ProductInstanceMaster observedProductInstance) {
+        this.observedProductInstance = observedProductInstance;
+    }
+}
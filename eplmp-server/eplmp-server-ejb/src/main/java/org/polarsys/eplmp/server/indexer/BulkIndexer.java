@@ -0,0 +1,139 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+package org.polarsys.eplmp.server.indexer;
+
+import com.google.gson.Gson;
+import io.searchbox.action.BulkableAction;
+import io.searchbox.client.JestClient;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.BulkResult;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Accumulates index actions and sends them as bulk requests, whenever the
+ * number of actions or the length of their payloads reaches a limit.
+ *
+ * Requests are sent synchronously by the thread adding the action, so that
+ * producers cannot outrun the Elasticsearch cluster.
+ *
+ * Instances are not thread safe.
+ *
+ * @since V2.5
+ */
+public class BulkIndexer {
+
+    private static final Logger LOGGER = Logger.getLogger(BulkIndexer.class.getName());
+
+    private final Gson gson = new Gson();
+
+    private final JestClient esClient;
+    private final int maxActions;
+    private final long maxBytes;
+
+    private final List<BulkableAction> actions = new ArrayList<>();
+    private long pendingBytes;
+
+    private final Set<String> failedActions = new HashSet<>();
+
+    private long indexedCount;
+    private long failureCount;
+    private int requestCount;
+
+    public BulkIndexer(JestClient esClient, int maxActions, long maxBytes) {
+        this.esClient = esClient;
+        this.maxActions = maxActions;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Add an action, sending the pending ones if a limit is reached
+     *
+     * @throws IOException if the cluster cannot be reached
+     */
+    public void add(BulkableAction action) throws IOException {
+        String data = action.getData(gson);
+        actions.add(action);
+        pendingBytes += data == null ? 0 : data.length();
+        if (actions.size() >= maxActions || pendingBytes >= maxBytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Send the pending actions, if any
+     *
+     * @throws IOException if the cluster cannot be reached, pending actions are kept
+     */
+    public void flush() throws IOException {
+        if (actions.isEmpty()) {
+            return;
+        }
+
+        BulkResult result = esClient.execute(new Bulk.Builder().addAction(actions).build());
+        requestCount++;
+
+        List<BulkResult.BulkResultItem> failedItems = result.getFailedItems();
+        int failures = failedItems.size();
+        if (failures == 0 && !result.isSucceeded()) {
+            // The whole request has been rejected
+            failures = actions.size();
+            for (BulkableAction action : actions) {
+                failedActions.add(getActionKey(action.getType(), action.getId()));
+            }
+        }
+        for (BulkResult.BulkResultItem failedItem : failedItems) {
+            failedActions.add(getActionKey(failedItem.type, failedItem.id));
+        }
+        if (failures > 0) {
+            LOGGER.log(Level.WARNING, failures + " of " + actions.size() + " actions failed: " + result.getErrorMessage());
+        }
+
+        failureCount += failures;
+        indexedCount += actions.size() - failures;
+        actions.clear();
+        pendingBytes = 0;
+    }
+
+    /**
+     * Identify an action by the type and id of its target
+     */
+    public static String getActionKey(String type, String id) {
+        return type + "/" + id;
+    }
+
+    /**
+     * @return the keys of the actions which failed since the creation of this indexer
+     * @see #getActionKey(String, String)
+     */
+    public Set<String> getFailedActions() {
+        return failedActions;
+    }
+
+    public int getPendingCount() {
+        return actions.size();
+    }
+
+    public long getIndexedCount() {
+        return indexedCount;
+    }
+
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    public int getRequestCount() {
+        return requestCount;
+    }
+}
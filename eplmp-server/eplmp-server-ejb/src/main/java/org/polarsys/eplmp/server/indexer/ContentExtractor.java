@@ -0,0 +1,101 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+package org.polarsys.eplmp.server.indexer;
+
+import org.polarsys.eplmp.core.common.BinaryResource;
+import org.polarsys.eplmp.core.exceptions.StorageException;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Extracts the text content of attached files on a bounded number of workers.
+ *
+ * At most {@code parallelism} extractions run at the same time: submitting
+ * more blocks the caller until a worker is available.
+ *
+ * @since V2.5
+ */
+public class ContentExtractor {
+
+    private static final Logger LOGGER = Logger.getLogger(ContentExtractor.class.getName());
+
+    private final Executor executor;
+    private final Semaphore permits;
+    private final ExtractedTextCache textCache;
+
+    private final AtomicLong bytesExtracted = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+
+    public ContentExtractor(Executor executor, int parallelism, ExtractedTextCache textCache) {
+        this.executor = executor;
+        this.permits = new Semaphore(parallelism);
+        this.textCache = textCache;
+    }
+
+    /**
+     * Extract the text content of the given files asynchronously
+     *
+     * @return the contents by file name
+     * @throws InterruptedException if interrupted while waiting for a worker
+     */
+    public Future<Map<String, String>> extract(Set<BinaryResource> attachedFiles) throws InterruptedException {
+        if (attachedFiles.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+
+        List<BinaryResource> files = new ArrayList<>(attachedFiles);
+        permits.acquire();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return extractNow(files);
+                } finally {
+                    permits.release();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Extract the text content of the given files in the calling thread
+     *
+     * @return the contents by file name
+     */
+    public Map<String, String> extractNow(Collection<BinaryResource> attachedFiles) {
+        Map<String, String> contentInputs = new HashMap<>();
+        for (BinaryResource bin : attachedFiles) {
+            try {
+                contentInputs.put(bin.getName(), textCache.getText(bin));
+                bytesExtracted.addAndGet(bin.getContentLength());
+            } catch (StorageException | IOException e) {
+                failureCount.incrementAndGet();
+                LOGGER.log(Level.SEVERE, "Cannot read file " + bin.getFullName(), e);
+            }
+        }
+        return contentInputs;
+    }
+
+    public long getBytesExtracted() {
+        return bytesExtracted.get();
+    }
+
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+package org.polarsys.eplmp.server.indexer;
+
+import org.apache.commons.io.IOUtils;
+import org.polarsys.eplmp.core.common.BinaryResource;
+import org.polarsys.eplmp.core.exceptions.StorageException;
+import org.polarsys.eplmp.core.services.IBinaryStorageManagerLocal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Gives the text content of attached files, extracted once per file content.
+ *
+ * Extracted text is saved as a generated file of the binary resource, named after the
+ * last modification date and the length of the file, so that the file is not read to find
+ * its text. As generated files are looked up through the previous iterations of a binary
+ * resource, an unchanged file carried over to a new iteration, which keeps its date and
+ * length, reuses the text extracted for the previous one.
+ *
+ * Text longer than the maximum length is truncated, at the last white space
+ * before the limit when there is one nearby.
+ *
+ * @since V2.5
+ */
+public class ExtractedTextCache {
+
+    private static final Logger LOGGER = Logger.getLogger(ExtractedTextCache.class.getName());
+
+    private static final String GENERATED_FILE_PREFIX = "extracted-text-";
+    private static final String GENERATED_FILE_EXTENSION = ".txt";
+
+    /**
+     * How far back from the maximum length to look for a white space to truncate at
+     */
+    private static final int TRUNCATION_LOOKBEHIND = 256;
+
+    private final IBinaryStorageManagerLocal storageManager;
+    private final int maxTextLength;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ExtractedTextCache(IBinaryStorageManagerLocal storageManager, int maxTextLength) {
+        this.storageManager = storageManager;
+        this.maxTextLength = maxTextLength;
+    }
+
+    /**
+     * Get the text content of an attached file, extracting it if not done before for the same content
+     */
+    public String getText(BinaryResource binaryResource) throws StorageException, IOException {
+        if (!IndexerUtils.isTextExtractable(binaryResource.getFullName())) {
+            // Nothing to extract, no need to read the file
+            return IndexerUtils.NO_TEXT;
+        }
+
+        String generatedFileName = getGeneratedFileName(binaryResource);
+
+        if (storageManager.exists(binaryResource, generatedFileName)) {
+            try (InputStream in = storageManager.getGeneratedFileInputStream(binaryResource, generatedFileName)) {
+                String text = IOUtils.toString(in, StandardCharsets.UTF_8);
+                hits.incrementAndGet();
+                return text;
+            } catch (StorageException | IOException e) {
+                LOGGER.log(Level.WARNING, "Cannot read extracted text of " + binaryResource.getFullName() + ", extracting it again", e);
+            }
+        }
+
+        misses.incrementAndGet();
+        String text;
+        try (InputStream in = storageManager.getBinaryResourceInputStream(binaryResource)) {
+            text = truncate(IndexerUtils.streamToString(binaryResource.getFullName(), in), maxTextLength);
+        }
+
+        try (OutputStream out = storageManager.getGeneratedFileOutputStream(binaryResource, generatedFileName)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (StorageException | IOException e) {
+            // The text is still usable, it will be extracted again next time
+            LOGGER.log(Level.WARNING, "Cannot save extracted text of " + binaryResource.getFullName(), e);
+        }
+
+        return text;
+    }
+
+    private static String getGeneratedFileName(BinaryResource binaryResource) {
+        long lastModified = binaryResource.getLastModified() == null ? 0 : binaryResource.getLastModified().getTime();
+        return GENERATED_FILE_PREFIX + lastModified + "-" + binaryResource.getContentLength() + GENERATED_FILE_EXTENSION;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    protected static String truncate(String text, int maxLength) {
+        if (text == null || text.length() <= maxLength) {
+            return text;
+        }
+        int end = maxLength;
+        for (int i = maxLength; i > Math.max(0, maxLength - TRUNCATION_LOOKBEHIND); i--) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                end = i;
+                break;
+            }
+        }
+        if (end > 0 && Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        LOGGER.log(Level.FINE, "Extracted text truncated from " + text.length() + " to " + end + " characters");
+        return text.substring(0, end);
+    }
+}
@@ -0,0 +1,187 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+package org.polarsys.eplmp.server.indexer;
+
+import io.searchbox.action.BulkableAction;
+import io.searchbox.client.JestClient;
+import org.polarsys.eplmp.core.admin.IndexationQueueItem;
+import org.polarsys.eplmp.core.document.DocumentIteration;
+import org.polarsys.eplmp.core.exceptions.PartIterationNotFoundException;
+import org.polarsys.eplmp.core.product.PartIteration;
+import org.polarsys.eplmp.server.dao.DocumentDAO;
+import org.polarsys.eplmp.server.dao.IndexationQueueDAO;
+import org.polarsys.eplmp.server.dao.PartIterationDAO;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends one batch of the indexation queue to the indexer.
+ *
+ * Each batch runs in its own transaction: the items of a batch are removed from the queue
+ * when the batch commits, and a failing batch is rolled back alone, without undoing the batches
+ * already drained.
+ *
+ * @see IndexationQueueDrainer
+ * @since V2.5
+ */
+@Stateless(name = "IndexationQueueBatchBean")
+public class IndexationQueueBatchBean {
+
+    private static final Logger LOGGER = Logger.getLogger(IndexationQueueBatchBean.class.getName());
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Inject
+    private JestClient esClient;
+
+    @Inject
+    private IndexerConfigManager indexerConfigManager;
+
+    /**
+     * Send the first items of the queue to the indexer, and remove them from the queue.
+     *
+     * @return true if the queue may hold more items to send now: the batch was full, and no item was kept to be retried
+     * @throws IOException          if the indexer cannot be reached, the items are kept
+     * @throws InterruptedException if interrupted while waiting for content extraction
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public boolean drainNextBatch(int batchSize, ContentExtractor contentExtractor) throws IOException, InterruptedException {
+        IndexationQueueDAO queueDAO = new IndexationQueueDAO(em);
+        List<IndexationQueueItem> items = queueDAO.getFirstItems(batchSize);
+        if (items.isEmpty()) {
+            return false;
+        }
+        int retried = drainBatch(queueDAO, items, contentExtractor);
+        // Rejected items are at the head of the queue, wait for the next run to retry them
+        return items.size() == batchSize && retried == 0;
+    }
+
+    /**
+     * @return the number of items kept in the queue to be retried
+     */
+    private int drainBatch(IndexationQueueDAO queueDAO, List<IndexationQueueItem> items, ContentExtractor contentExtractor) throws IOException, InterruptedException {
+
+        // Coalesce the changes of each iteration, the last one wins
+        Map<String, IndexationQueueItem> lastItems = new LinkedHashMap<>();
+        for (IndexationQueueItem item : items) {
+            lastItems.put(item.getTarget(), item);
+        }
+
+        Map<String, IndexationQueueItem> itemsByActionKey = new HashMap<>();
+        List<Object> targets = new ArrayList<>();
+        List<Future<Map<String, String>>> contents = new ArrayList<>();
+
+        for (IndexationQueueItem item : lastItems.values()) {
+            Object target = getIndexedTarget(item);
+            targets.add(target);
+            if (target instanceof DocumentIteration) {
+                contents.add(contentExtractor.extract(((DocumentIteration) target).getAttachedFiles()));
+            } else if (target instanceof PartIteration) {
+                contents.add(contentExtractor.extract(((PartIteration) target).getAttachedFiles()));
+            } else {
+                contents.add(null);
+            }
+        }
+
+        BulkIndexer bulkIndexer = new BulkIndexer(esClient,
+                indexerConfigManager.getBulkMaxActions(), indexerConfigManager.getBulkMaxBytes());
+        int i = 0;
+        for (IndexationQueueItem item : lastItems.values()) {
+            BulkableAction action = getAction(item, targets.get(i), contents.get(i));
+            itemsByActionKey.put(BulkIndexer.getActionKey(action.getType(), action.getId()), item);
+            bulkIndexer.add(action);
+            i++;
+        }
+        bulkIndexer.flush();
+
+        // Keep the items the indexer rejected, up to the maximum number of attempts
+        Set<IndexationQueueItem> retriedItems = new HashSet<>();
+        for (String failedAction : bulkIndexer.getFailedActions()) {
+            IndexationQueueItem item = itemsByActionKey.get(failedAction);
+            if (item != null) {
+                if (item.getAttempts() + 1 < MAX_ATTEMPTS) {
+                    item.setAttempts(item.getAttempts() + 1);
+                    retriedItems.add(item);
+                } else {
+                    LOGGER.log(Level.SEVERE, "Giving up indexation change " + item + " after " + MAX_ATTEMPTS + " attempts");
+                }
+            }
+        }
+
+        List<Long> ids = new ArrayList<>();
+        for (IndexationQueueItem item : items) {
+            if (!retriedItems.contains(item)) {
+                ids.add(item.getId());
+            }
+        }
+        queueDAO.removeItems(ids);
+
+        LOGGER.log(Level.FINE, "Indexation queue: " + items.size() + " changes drained into " + lastItems.size()
+                + " actions, " + retriedItems.size() + " to retry");
+        return retriedItems.size();
+    }
+
+    /**
+     * @return the iteration to index, null if it should be removed from the index
+     */
+    private Object getIndexedTarget(IndexationQueueItem item) {
+        if (item.getAction() == IndexationQueueItem.Action.REMOVE) {
+            return null;
+        }
+        if (item.getItemType() == IndexationQueueItem.ItemType.DOCUMENT) {
+            DocumentIteration documentIteration = new DocumentDAO(em).findDocI(item.getDocumentIterationKey());
+            return documentIteration != null && documentIteration.getCheckInDate() != null ? documentIteration : null;
+        }
+        try {
+            PartIteration partIteration = new PartIterationDAO(em).loadPartI(item.getPartIterationKey());
+            return partIteration.getCheckInDate() != null ? partIteration : null;
+        } catch (PartIterationNotFoundException e) {
+            LOGGER.log(Level.FINEST, null, e);
+            return null;
+        }
+    }
+
+    private BulkableAction getAction(IndexationQueueItem item, Object target, Future<Map<String, String>> content) throws IOException, InterruptedException {
+        Map<String, String> contentInputs = Collections.emptyMap();
+        if (content != null) {
+            try {
+                contentInputs = content.get();
+            } catch (ExecutionException e) {
+                LOGGER.log(Level.WARNING, "Cannot extract content of " + item.getTarget(), e);
+            }
+        }
+        if (target instanceof DocumentIteration) {
+            return IndexerRequestBuilder.indexRequest((DocumentIteration) target, contentInputs);
+        }
+        if (target instanceof PartIteration) {
+            return IndexerRequestBuilder.indexRequest((PartIteration) target, contentInputs);
+        }
+        // Removed, or no longer existing
+        if (item.getItemType() == IndexationQueueItem.ItemType.DOCUMENT) {
+            return IndexerRequestBuilder.deleteRequest(item.getDocumentIterationKey());
+        }
+        return IndexerRequestBuilder.deleteRequest(item.getPartIterationKey());
+    }
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+package org.polarsys.eplmp.server.indexer;
+
+import org.polarsys.eplmp.core.admin.IndexationQueueItem;
+import org.polarsys.eplmp.core.services.IBinaryStorageManagerLocal;
+
+import javax.annotation.Resource;
+import javax.ejb.*;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends the pending changes of the indexation queue to the indexer.
+ *
+ * The queue is read in batches, in insertion order. Changes of the same iteration are
+ * coalesced into the last one, and the remaining changes are sent as bulk requests.
+ * Items are removed from the queue only once the indexer has acknowledged them, so that
+ * the queue catches up when the indexer comes back after an outage. Items the indexer
+ * keeps rejecting are dropped after a few attempts.
+ * Each batch is committed on its own by {@link IndexationQueueBatchBean}.
+ *
+ * @see IndexationQueueItem
+ * @since V2.5
+ */
+@Singleton(name = "IndexationQueueDrainer")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class IndexationQueueDrainer {
+
+    private static final Logger LOGGER = Logger.getLogger(IndexationQueueDrainer.class.getName());
+
+    private static final int MAX_BATCHES_PER_RUN = 20;
+
+    @EJB
+    private IndexationQueueBatchBean queueBatch;
+
+    @Inject
+    private IndexerConfigManager indexerConfigManager;
+
+    @Inject
+    private IBinaryStorageManagerLocal storageManager;
+
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    private ManagedExecutorService executorService;
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    // Every batch is drained in its own transaction
+    @Schedule(hour = "*", minute = "*", second = "*/5", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void drain() {
+        // Runs are not queued up behind a slow one
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            drainQueue();
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    private void drainQueue() {
+        int batchSize = indexerConfigManager.getQueueBatchSize();
+
+        ContentExtractor contentExtractor = new ContentExtractor(executorService, indexerConfigManager.getExtractionThreads(),
+                new ExtractedTextCache(storageManager, indexerConfigManager.getMaxExtractedTextLength()));
+
+        try {
+            int batches = 0;
+            while (batches < MAX_BATCHES_PER_RUN && queueBatch.drainNextBatch(batchSize, contentExtractor)) {
+                batches++;
+            }
+        } catch (IOException e) {
+            // Items are kept, they will be sent once the cluster is back
+            LOGGER.log(Level.WARNING, "Cannot drain the indexation queue: The Elasticsearch server does not seem to respond");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.log(Level.WARNING, "Indexation queue draining interrupted", e);
+        } catch (EJBException e) {
+            // The failing batch is rolled back, the batches drained before are kept
+            LOGGER.log(Level.SEVERE, "Cannot drain the indexation queue", e);
+        }
+    }
+}
@@ -22,6 +22,13 @@ import java.util.Properties;
 @ApplicationScoped
 public class IndexerConfigManager {
 
+    private static final int DEFAULT_REINDEX_PAGE_SIZE = 50;
+    private static final int DEFAULT_BULK_MAX_ACTIONS = 500;
+    private static final int DEFAULT_BULK_MAX_BYTES = 10 * 1024 * 1024;
+    private static final int DEFAULT_EXTRACTION_THREADS = 4;
+    private static final int DEFAULT_MAX_EXTRACTED_TEXT_LENGTH = 1024 * 1024;
+    private static final int DEFAULT_QUEUE_BATCH_SIZE = 200;
+
     @Resource(name = "elasticsearch.config")
     private Properties properties;
 
@@ -53,4 +60,45 @@ public class IndexerConfigManager {
 
     public String getAWSSecretKey() { return properties.getProperty("awsSecretKey"); }
 
+    /**
+     * Number of document or part masters loaded at once when reindexing a workspace
+     */
+    public int getReindexPageSize() {
+        return getIntProperty("reindex_page_size", DEFAULT_REINDEX_PAGE_SIZE);
+    }
+
+    public int getBulkMaxActions() {
+        return getIntProperty("bulk_max_actions", DEFAULT_BULK_MAX_ACTIONS);
+    }
+
+    public int getBulkMaxBytes() {
+        return getIntProperty("bulk_max_bytes", DEFAULT_BULK_MAX_BYTES);
+    }
+
+    /**
+     * Number of attached files read and converted to text concurrently when reindexing
+     */
+    public int getExtractionThreads() {
+        return getIntProperty("extraction_threads", DEFAULT_EXTRACTION_THREADS);
+    }
+
+    /**
+     * Number of characters of the text content of an attached file beyond which it is truncated
+     */
+    public int getMaxExtractedTextLength() {
+        return getIntProperty("max_extracted_text_length", DEFAULT_MAX_EXTRACTED_TEXT_LENGTH);
+    }
+
+    /**
+     * Number of pending changes read at once from the indexation queue
+     */
+    public int getQueueBatchSize() {
+        return getIntProperty("queue_batch_size", DEFAULT_QUEUE_BATCH_SIZE);
+    }
+
+    private int getIntProperty(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+    }
+
 }
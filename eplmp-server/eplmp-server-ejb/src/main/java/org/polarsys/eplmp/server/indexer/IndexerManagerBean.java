@@ -18,12 +18,12 @@ import io.searchbox.indices.CreateIndex;
 import io.searchbox.indices.mapping.PutMapping;
 import io.searchbox.params.SearchType;
 import org.elasticsearch.common.settings.Settings;
-import org.elasticsearch.common.xcontent.XContentBuilder;
-import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.polarsys.eplmp.core.admin.IndexationCheckpoint;
+import org.polarsys.eplmp.core.admin.IndexationQueueItem;
 import org.polarsys.eplmp.core.common.Account;
-import org.polarsys.eplmp.core.common.BinaryResource;
+import org.polarsys.eplmp.core.common.User;
 import org.polarsys.eplmp.core.common.Workspace;
 import org.polarsys.eplmp.core.document.*;
 import org.polarsys.eplmp.core.exceptions.*;
@@ -38,16 +38,20 @@ import org.polarsys.eplmp.core.services.INotifierLocal;
 import org.polarsys.eplmp.i18n.PropertiesLoader;
 import org.polarsys.eplmp.server.dao.*;
 
+import javax.annotation.Resource;
 import javax.annotation.security.DeclareRoles;
 import javax.annotation.security.RolesAllowed;
 import javax.ejb.Asynchronous;
+import javax.ejb.EJB;
 import javax.ejb.Local;
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -78,6 +82,12 @@ public class IndexerManagerBean implements IIndexerManagerLocal {
     @Inject
     private IBinaryStorageManagerLocal storageManager;
 
+    @EJB
+    private WorkspaceIndexerBean workspaceIndexer;
+
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    private ManagedExecutorService executorService;
+
     private static final String I18N_CONF = "/org/polarsys/eplmp/core/i18n/LocalStrings";
 
     private static final Logger LOGGER = Logger.getLogger(IndexerManagerBean.class.getName());
@@ -101,58 +111,55 @@ public class IndexerManagerBean implements IIndexerManagerLocal {
         doDeleteWorkspaceIndex(workspaceId);
     }
 
+    /**
+     * Queue the indexation of the given iteration, in the transaction of the caller.
+     * The change is sent to the indexer by the {@link IndexationQueueDrainer}.
+     */
     @Override
-    @Asynchronous
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID})
     public void indexDocumentIteration(DocumentIteration documentIteration) {
-        doIndexDocumentIteration(documentIteration);
+        enqueue(documentIteration.getKey(), IndexationQueueItem.Action.INDEX);
     }
 
     @Override
-    @Asynchronous
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID})
     public void indexDocumentIterations(List<DocumentIteration> documentIterations) {
-        documentIterations.forEach(this::doIndexDocumentIteration);
+        documentIterations.forEach(this::indexDocumentIteration);
     }
 
     @Override
-    @Asynchronous
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID})
     public void indexPartIteration(PartIteration partIteration) {
-        doIndexPartIteration(partIteration);
+        enqueue(partIteration.getKey(), IndexationQueueItem.Action.INDEX);
     }
 
     @Override
-    @Asynchronous
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID})
     public void indexPartIterations(List<PartIteration> partIterations) {
-        partIterations.forEach(this::doIndexPartIteration);
+        partIterations.forEach(this::indexPartIteration);
     }
 
     @Override
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID})
     public void removeDocumentIterationFromIndex(DocumentIteration documentIteration) {
-        try {
-            DocumentResult result = esClient.execute(deleteRequest(documentIteration));
-            if (!result.isSucceeded()) {
-                LOGGER.log(Level.WARNING, "Cannot delete document " + documentIteration + ": " + result.getErrorMessage());
-            }
-        } catch (IOException e) {
-            LOGGER.log(Level.WARNING, "Cannot delete document " + documentIteration + ": The Elasticsearch cluster does not seem to respond");
-        }
+        enqueue(documentIteration.getKey(), IndexationQueueItem.Action.REMOVE);
     }
 
     @Override
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID})
     public void removePartIterationFromIndex(PartIteration partIteration) {
-        try {
-            DocumentResult result = esClient.execute(deleteRequest(partIteration));
-            if (!result.isSucceeded()) {
-                LOGGER.log(Level.WARNING, "Cannot delete part iteration " + partIteration + ": " + result.getErrorMessage());
-            }
-        } catch (IOException e) {
-            LOGGER.log(Level.WARNING, "Cannot delete part iteration " + partIteration + ": The Elasticsearch cluster does not seem to respond");
-        }
+        enqueue(partIteration.getKey(), IndexationQueueItem.Action.REMOVE);
+    }
+
+    @Override
+    public long getQueueDepth() {
+        return new IndexationQueueDAO(em).getItemCount();
+    }
+
+    @Override
+    public long getQueueLag() {
+        Date oldestEnqueueDate = new IndexationQueueDAO(em).getOldestEnqueueDate();
+        return oldestEnqueueDate == null ? 0 : System.currentTimeMillis() - oldestEnqueueDate.getTime();
     }
 
     @Override
@@ -204,7 +211,7 @@ public class IndexerManagerBean implements IIndexerManagerLocal {
 
     @Override
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID})
-    public List<PartRevision> searchPartRevisions(PartSearchQuery partSearchQuery, int from, int size) throws AccountNotFoundException, NotAllowedException {
+    public List<PartRevision> searchPartRevisions(User caller, PartSearchQuery partSearchQuery, int from, int size) throws AccountNotFoundException, NotAllowedException {
 
         String workspaceId = partSearchQuery.getWorkspaceId();
         QueryBuilder query = IndexerQueryBuilder.getSearchQueryBuilder(partSearchQuery);
@@ -241,7 +248,7 @@ public class IndexerManagerBean implements IIndexerManagerLocal {
             }
 
             LOGGER.log(Level.INFO, "Results: " + partIterationKeys.size());
-            return partIterationKeysToPartRevisions(partSearchQuery.isFetchHeadOnly(), partIterationKeys);
+            return partIterationKeysToPartRevisions(caller, partSearchQuery.isFetchHeadOnly(), partIterationKeys);
         } else {
             throw new NotAllowedException(searchResult.getErrorMessage());
         }
@@ -249,6 +256,7 @@ public class IndexerManagerBean implements IIndexerManagerLocal {
 
     @Override
     @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
     @RolesAllowed({UserGroupMapping.ADMIN_ROLE_ID})
     public void indexAllWorkspacesData() throws AccountNotFoundException {
         WorkspaceDAO wDAO = new WorkspaceDAO(em);
@@ -258,30 +266,57 @@ public class IndexerManagerBean implements IIndexerManagerLocal {
         }
     }
 
+    /**
+     * Reindex all the documents and parts of a workspace.
+     *
+     * Masters are loaded page after page, attached files are read by a bounded pool of workers,
+     * reusing the text already extracted from unchanged files, and index requests are sent in bulks of limited size. Progress is saved after each page:
+     * a reindexation which did not complete is resumed from its checkpoint on the next call.
+     */
     @Override
     @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
     @RolesAllowed({UserGroupMapping.ADMIN_ROLE_ID, UserGroupMapping.REGULAR_USER_ROLE_ID})
     public void indexWorkspaceData(String workspaceId) throws AccountNotFoundException {
         Account account = accountManager.getMyAccount();
 
         try {
-            // Clear workspace if exists, or recreate
-            doDeleteWorkspaceIndex(workspaceId);
-            Bulk.Builder bb = new Bulk.Builder().defaultIndex(workspaceId);
-            bulkWorkspaceRequestBuilder(bb, workspaceId);
+            IndexationCheckpoint checkpoint = workspaceIndexer.getCheckpoint(workspaceId);
 
-            BulkResult result = esClient.execute(bb.build());
+            if (checkpoint == null) {
+                // Clear workspace if exists, or recreate
+                doDeleteWorkspaceIndex(workspaceId);
+                createIndex(IndexerUtils.formatIndexName(workspaceId));
+                checkpoint = workspaceIndexer.startCheckpoint(workspaceId);
+            } else {
+                LOGGER.log(Level.INFO, "Resuming reindexation of workspace " + checkpoint);
+            }
+
+            BulkIndexer bulkIndexer = new BulkIndexer(esClient,
+                    indexerConfigManager.getBulkMaxActions(), indexerConfigManager.getBulkMaxBytes());
+            ContentExtractor contentExtractor = new ContentExtractor(executorService,
+                    indexerConfigManager.getExtractionThreads(), getExtractedTextCache());
+            int pageSize = indexerConfigManager.getReindexPageSize();
+
+            while (!checkpoint.isDone()) {
+                checkpoint = workspaceIndexer.indexNextPage(workspaceId, pageSize, bulkIndexer, contentExtractor);
+            }
+
+            workspaceIndexer.removeCheckpoint(workspaceId);
 
-            if (result.isSucceeded()) {
+            if (checkpoint.getFailureCount() == 0) {
                 mailer.sendBulkIndexationSuccess(account);
             } else {
-                String failureMessage = result.getErrorMessage();
-                LOGGER.log(Level.SEVERE, "Failures while bulk indexing workspace [" + workspaceId + "]: \n" + failureMessage);
+                String failureMessage = checkpoint.getFailureCount() + " failures while bulk indexing workspace " + checkpoint;
+                LOGGER.log(Level.SEVERE, failureMessage);
                 mailer.sendBulkIndexationFailure(account, failureMessage);
             }
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Cannot index the whole workspace: The Elasticsearch server does not seem to respond");
             mailer.sendBulkIndexationFailure(account, getString("IndexerNotAvailableForRequest", new Locale(account.getLanguage())));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.log(Level.WARNING, "Indexation of workspace [" + workspaceId + "] interrupted", e);
         }
     }
 
@@ -295,36 +330,14 @@ public class IndexerManagerBean implements IIndexerManagerLocal {
         }
     }
 
-    private void doIndexDocumentIteration(DocumentIteration documentIteration) {
-        try {
-            DocumentResult execute = esClient.execute(indexRequest(documentIteration));
-            if (execute.isSucceeded()) {
-                LOGGER.log(Level.INFO, "Document iteration [" + documentIteration.getKey() + "] indexed");
-            } else {
-                LOGGER.log(Level.WARNING, "The document " + documentIteration.getKey() + " cannot be indexed : \n" + execute.getErrorMessage());
-            }
-        } catch (IOException e) {
-            LOGGER.log(Level.WARNING, "The document " + documentIteration.getKey() + " cannot be indexed.", e);
-        }
-
+    private void enqueue(DocumentIterationKey documentIterationKey, IndexationQueueItem.Action action) {
+        new IndexationQueueDAO(em).enqueue(new IndexationQueueItem(documentIterationKey, action));
     }
 
-
-    private void doIndexPartIteration(PartIteration partIteration) {
-        try {
-            DocumentResult result = esClient.execute(indexRequest(partIteration));
-            if (!result.isSucceeded()) {
-                LOGGER.log(Level.WARNING, "Cannot index part iteration " + partIteration + ": " + result.getErrorMessage());
-            } else {
-                LOGGER.log(Level.INFO, "Part iteration [" + partIteration.getKey() + "] indexed");
-            }
-        } catch (IOException e) {
-            LOGGER.log(Level.WARNING, "The part " + partIteration.getKey() + " cannot be indexed.", e);
-        }
-
+    private void enqueue(PartIterationKey partIterationKey, IndexationQueueItem.Action action) {
+        new IndexationQueueDAO(em).enqueue(new IndexationQueueItem(partIterationKey, action));
     }
 
-
     private void doDeleteWorkspaceIndex(String workspaceId) throws AccountNotFoundException {
         Account account = accountManager.getMyAccount();
         try {
@@ -391,113 +404,8 @@ public class IndexerManagerBean implements IIndexerManagerLocal {
 
     }
 
-    private Bulk.Builder bulkWorkspaceRequestBuilder(Bulk.Builder pBulkRequest, String workspaceId) {
-        String index = IndexerUtils.formatIndexName(workspaceId);
-
-        try {
-            createIndex(index);
-        } catch (IOException e) {
-            //Throw an application exception?
-            LOGGER.log(Level.SEVERE, "Cannot create index for workspace [" + workspaceId + "]", e);
-        }
-
-        bulkDocumentsIndexRequestBuilder(pBulkRequest, workspaceId);
-        bulkPartsIndexRequestBuilder(pBulkRequest, workspaceId);
-
-        return pBulkRequest;
-    }
-
-    private Bulk.Builder bulkDocumentsIndexRequestBuilder(Bulk.Builder pBulkRequest, String workspaceId) {
-        DocumentMasterDAO docMasterDAO = new DocumentMasterDAO(em);
-        for (DocumentMaster docM : docMasterDAO.getAllByWorkspace(workspaceId)) {
-            for (DocumentRevision docR : docM.getDocumentRevisions()) {
-                docR.getDocumentIterations().stream().filter(documentIteration -> documentIteration.getCheckInDate() != null)
-                        .forEach(documentIteration -> {
-                            try {
-                                pBulkRequest.addAction(indexRequest(documentIteration));
-                            } catch (IOException e) {
-                                LOGGER.log(Level.WARNING, "The document " + documentIteration + " cannot be indexed.", e);
-                            }
-                        });
-            }
-        }
-        return pBulkRequest;
-    }
-
-    private Bulk.Builder bulkPartsIndexRequestBuilder(Bulk.Builder pBulkRequest, String workspaceId) {
-        PartMasterDAO partMasterDAO = new PartMasterDAO(em);
-        for (PartMaster partMaster : partMasterDAO.getAllByWorkspace(workspaceId)) {
-            for (PartRevision partRev : partMaster.getPartRevisions()) {
-                partRev.getPartIterations().stream().filter(partIteration -> partIteration.getCheckInDate() != null)
-                        .forEach(partIteration -> {
-                            try {
-                                pBulkRequest.addAction(indexRequest(partIteration));
-                            } catch (IOException e) {
-                                LOGGER.log(Level.WARNING, "The part " + partIteration.getKey() + " cannot be indexed.", e);
-                            }
-                        });
-            }
-        }
-        return pBulkRequest;
-    }
-
-
-    private Update indexRequest(DocumentIteration documentIteration) throws IOException {
-        Map<String, String> contentInputs = getContentInputs(documentIteration.getAttachedFiles());
-        try (XContentBuilder xcb = XContentFactory.jsonBuilder()) {
-            xcb.startObject()
-                    .field("doc_as_upsert", true)
-                    .startObject("doc");
-            IndexerMapping.documentIterationToJSON(xcb, documentIteration, contentInputs);
-            xcb.endObject().endObject();
-            return new Update.Builder(xcb.string())
-                    .index(IndexerUtils.formatIndexName(documentIteration.getWorkspaceId()))
-                    .type(IndexerMapping.DOCUMENT_TYPE)
-                    .id(documentIteration.getKey().toString())
-                    .build();
-        }
-    }
-
-    private Update indexRequest(PartIteration partIteration) throws IOException {
-        Map<String, String> contentInputs = getContentInputs(partIteration.getAttachedFiles());
-        try (XContentBuilder xcb = XContentFactory.jsonBuilder()) {
-            xcb.startObject()
-                    .field("doc_as_upsert", true)
-                    .startObject("doc");
-            IndexerMapping.partIterationToJSON(xcb, partIteration, contentInputs);
-            xcb.endObject().endObject();
-            return new Update.Builder(xcb.string())
-                    .index(IndexerUtils.formatIndexName(partIteration.getWorkspaceId()))
-                    .type(IndexerMapping.PART_TYPE)
-                    .id(partIteration.getKey().toString())
-                    .build();
-        }
-    }
-
-    private Map<String, String> getContentInputs(Set<BinaryResource> attachedFiles) {
-        Map<String, String> contentInputs = new HashMap<>();
-        for (BinaryResource bin : attachedFiles) {
-            try (InputStream in = storageManager.getBinaryResourceInputStream(bin)) {
-                contentInputs.put(bin.getName(), IndexerUtils.streamToString(bin.getFullName(), in));
-            } catch (StorageException | IOException e) {
-                LOGGER.log(Level.SEVERE, "Cannot read file " + bin.getFullName(), e);
-            }
-        }
-        return contentInputs;
-    }
-
-    private Delete deleteRequest(DocumentIteration documentIteration) {
-        return new Delete.Builder(documentIteration.getKey().toString())
-                .index(IndexerUtils.formatIndexName(documentIteration.getWorkspaceId()))
-                .type(IndexerMapping.DOCUMENT_TYPE)
-                .build();
-    }
-
-    private Delete deleteRequest(PartIteration partIteration) {
-        return new Delete.Builder(partIteration.getKey().toString())
-                .index(IndexerUtils.formatIndexName(partIteration.getWorkspaceId()))
-                .type(IndexerMapping.PART_TYPE)
-                .build();
+    private ExtractedTextCache getExtractedTextCache() {
+        return new ExtractedTextCache(storageManager, indexerConfigManager.getMaxExtractedTextLength());
     }
 
     private String getString(String key, Locale locale) {
@@ -537,36 +445,22 @@ public class IndexerManagerBean implements IIndexerManagerLocal {
     }
 
 
-    private List<PartRevision> partIterationKeysToPartRevisions(boolean fetchHeadOnly, Set<PartIterationKey> partIterationKeys) {
-
-        Set<PartRevision> partRevisions = new HashSet<>();
+    private List<PartRevision> partIterationKeysToPartRevisions(User caller, boolean fetchHeadOnly, Set<PartIterationKey> partIterationKeys) {
 
+        Set<PartRevisionKey> partRevisionKeys = new HashSet<>();
         for (PartIterationKey partIterationKey : partIterationKeys) {
+            partRevisionKeys.add(partIterationKey.getPartRevision());
+        }
 
-            PartRevision partRevision = getPartRevision(partIterationKey.getPartRevision());
-
-            if (partRevision != null && !partRevisions.contains(partRevision)) {
-                if (fetchHeadOnly) {
-                    if (partRevision.getLastCheckedInIteration().getKey().equals(partIterationKey)) {
-                        partRevisions.add(partRevision);
-                    }
-                } else {
-                    partRevisions.add(partRevision);
-                }
+        // Revisions removed since their indexation, or not readable by the caller, are left out by the query
+        List<PartRevision> partRevisions = new ArrayList<>();
+        for (PartRevision partRevision : new PartRevisionDAO(em).getPartRevisions(caller, partRevisionKeys)) {
+            if (!fetchHeadOnly || partIterationKeys.contains(partRevision.getLastCheckedInIteration().getKey())) {
+                partRevisions.add(partRevision);
             }
         }
 
-        return new ArrayList<>(partRevisions);
-
-    }
-
-    private PartRevision getPartRevision(PartRevisionKey partRevision) {
-        try {
-            return new PartRevisionDAO(em).loadPartR(partRevision);
-        } catch (PartRevisionNotFoundException e) {
-            LOGGER.log(Level.INFO, "Cannot infer part revision from key [" + partRevision + "]", e);
-            return null;
-        }
+        return partRevisions;
     }
 
 }
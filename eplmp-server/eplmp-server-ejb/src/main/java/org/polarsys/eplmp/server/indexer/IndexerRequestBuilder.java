@@ -0,0 +1,77 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer;
+
+import io.searchbox.core.Delete;
+import io.searchbox.core.Update;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.polarsys.eplmp.core.document.DocumentIteration;
+import org.polarsys.eplmp.core.document.DocumentIterationKey;
+import org.polarsys.eplmp.core.product.PartIteration;
+import org.polarsys.eplmp.core.product.PartIterationKey;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Builds the index and delete requests of document and part iterations
+ */
+public class IndexerRequestBuilder {
+
+    private IndexerRequestBuilder() {
+    }
+
+    public static Update indexRequest(DocumentIteration documentIteration, Map<String, String> contentInputs) throws IOException {
+        try (XContentBuilder xcb = XContentFactory.jsonBuilder()) {
+            xcb.startObject()
+                    .field("doc_as_upsert", true)
+                    .startObject("doc");
+            IndexerMapping.documentIterationToJSON(xcb, documentIteration, contentInputs);
+            xcb.endObject().endObject();
+            return new Update.Builder(xcb.string())
+                    .index(IndexerUtils.formatIndexName(documentIteration.getWorkspaceId()))
+                    .type(IndexerMapping.DOCUMENT_TYPE)
+                    .id(documentIteration.getKey().toString())
+                    .build();
+        }
+    }
+
+    public static Update indexRequest(PartIteration partIteration, Map<String, String> contentInputs) throws IOException {
+        try (XContentBuilder xcb = XContentFactory.jsonBuilder()) {
+            xcb.startObject()
+                    .field("doc_as_upsert", true)
+                    .startObject("doc");
+            IndexerMapping.partIterationToJSON(xcb, partIteration, contentInputs);
+            xcb.endObject().endObject();
+            return new Update.Builder(xcb.string())
+                    .index(IndexerUtils.formatIndexName(partIteration.getWorkspaceId()))
+                    .type(IndexerMapping.PART_TYPE)
+                    .id(partIteration.getKey().toString())
+                    .build();
+        }
+    }
+
+    public static Delete deleteRequest(DocumentIterationKey documentIterationKey) {
+        return new Delete.Builder(documentIterationKey.toString())
+                .index(IndexerUtils.formatIndexName(documentIterationKey.getWorkspaceId()))
+                .type(IndexerMapping.DOCUMENT_TYPE)
+                .build();
+    }
+
+    public static Delete deleteRequest(PartIterationKey partIterationKey) {
+        return new Delete.Builder(partIterationKey.toString())
+                .index(IndexerUtils.formatIndexName(partIterationKey.getWorkspaceId()))
+                .type(IndexerMapping.PART_TYPE)
+                .build();
+    }
+}
@@ -40,8 +40,7 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
-import java.util.Iterator;
-import java.util.Scanner;
+import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
@@ -56,6 +55,15 @@ public class IndexerUtils {
 
     private static final Logger LOGGER = Logger.getLogger(IndexerUtils.class.getName());
 
+    /**
+     * Text indexed for files whose content cannot be extracted
+     */
+    protected static final String NO_TEXT = " ";
+
+    private static final Set<String> EXTRACTABLE_EXTENSIONS = new HashSet<>(Arrays.asList(
+            ".odt", ".ods", ".odp", ".odg", ".odc", ".odf", ".odb", ".odi", ".odm",
+            ".doc", ".docx", ".ppt", ".pps", ".pptx", ".txt", ".csv", ".xls", ".xlsx", ".pdf"));
+
     private IndexerUtils() {
     }
 
@@ -74,6 +82,16 @@ public class IndexerUtils {
         }
     }
 
+    /**
+     * Tell if the text content of a file can be extracted, given its name
+     *
+     * @param fullName The full name of the resource
+     * @return true if {@link #streamToString(String, InputStream)} supports the file type
+     */
+    protected static boolean isTextExtractable(String fullName) {
+        return EXTRACTABLE_EXTENSIONS.contains(getExtension(fullName));
+    }
+
     /**
      * Get Stream for a Bin Resource
      *
@@ -82,18 +100,10 @@ public class IndexerUtils {
      * @return String to index
      */
     protected static String streamToString(String fullName, InputStream inputStream) {
-        String strRet = " ";
-
-        int lastDotIndex = fullName.lastIndexOf('.');
-
-        String extension = "";
-
-        if (lastDotIndex != -1) {
-            extension = fullName.substring(lastDotIndex);
-        }
+        String strRet = NO_TEXT;
 
         try {
-            switch (extension) {
+            switch (getExtension(fullName)) {
                 case ".odt":
                 case ".ods":
                 case ".odp":
@@ -142,6 +152,11 @@ public class IndexerUtils {
         return strRet;
     }
 
+    private static String getExtension(String fullName) {
+        int lastDotIndex = fullName.lastIndexOf('.');
+        return lastDotIndex == -1 ? "" : fullName.substring(lastDotIndex);
+    }
+
     private static String rawTextDocumentToString(InputStream inputStream) {
         return new Scanner(inputStream, "UTF-8").useDelimiter("\\A").next();
     }
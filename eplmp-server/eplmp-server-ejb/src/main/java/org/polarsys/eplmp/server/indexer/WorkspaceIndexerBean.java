@@ -0,0 +1,183 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+package org.polarsys.eplmp.server.indexer;
+
+import org.polarsys.eplmp.core.admin.IndexationCheckpoint;
+import org.polarsys.eplmp.core.document.DocumentIteration;
+import org.polarsys.eplmp.core.document.DocumentMaster;
+import org.polarsys.eplmp.core.document.DocumentRevision;
+import org.polarsys.eplmp.core.product.PartIteration;
+import org.polarsys.eplmp.core.product.PartMaster;
+import org.polarsys.eplmp.core.product.PartRevision;
+import org.polarsys.eplmp.server.dao.DocumentMasterDAO;
+import org.polarsys.eplmp.server.dao.IndexationCheckpointDAO;
+import org.polarsys.eplmp.server.dao.PartMasterDAO;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reindexes a workspace one page of masters at a time.
+ *
+ * Each page runs in its own transaction, so that the persistence context does
+ * not grow with the workspace and the checkpoint is saved as soon as the page
+ * has been sent to the indexer.
+ *
+ * @see IndexationCheckpoint
+ * @since V2.5
+ */
+@Stateless(name = "WorkspaceIndexerBean")
+public class WorkspaceIndexerBean {
+
+    private static final Logger LOGGER = Logger.getLogger(WorkspaceIndexerBean.class.getName());
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public IndexationCheckpoint getCheckpoint(String workspaceId) {
+        return new IndexationCheckpointDAO(em).findCheckpoint(workspaceId);
+    }
+
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public IndexationCheckpoint startCheckpoint(String workspaceId) {
+        IndexationCheckpointDAO checkpointDAO = new IndexationCheckpointDAO(em);
+        checkpointDAO.removeCheckpoint(workspaceId);
+        IndexationCheckpoint checkpoint = new IndexationCheckpoint(workspaceId);
+        checkpointDAO.createCheckpoint(checkpoint);
+        return checkpoint;
+    }
+
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void removeCheckpoint(String workspaceId) {
+        new IndexationCheckpointDAO(em).removeCheckpoint(workspaceId);
+    }
+
+    /**
+     * Index the page of masters following the checkpoint of the workspace, then move the checkpoint forward.
+     *
+     * @return the updated checkpoint
+     * @throws IOException          if the indexer cannot be reached, the checkpoint is left unchanged
+     * @throws InterruptedException if interrupted while waiting for content extraction
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public IndexationCheckpoint indexNextPage(String workspaceId, int pageSize, BulkIndexer bulkIndexer, ContentExtractor contentExtractor) throws IOException, InterruptedException {
+        IndexationCheckpoint checkpoint = new IndexationCheckpointDAO(em).findCheckpoint(workspaceId);
+        if (checkpoint == null || checkpoint.isDone()) {
+            return checkpoint;
+        }
+
+        long indexedBefore = bulkIndexer.getIndexedCount();
+        long failuresBefore = bulkIndexer.getFailureCount() + contentExtractor.getFailureCount();
+        long bytesBefore = contentExtractor.getBytesExtracted();
+        int extractionFailures;
+        int pageCount;
+        String lastKey;
+
+        if (checkpoint.getPhase() == IndexationCheckpoint.Phase.DOCUMENTS) {
+            List<DocumentMaster> page = new DocumentMasterDAO(em).getPageByWorkspace(workspaceId, checkpoint.getLastKey(), pageSize);
+            extractionFailures = indexDocuments(page, bulkIndexer, contentExtractor);
+            pageCount = page.size();
+            lastKey = pageCount == 0 ? null : page.get(pageCount - 1).getId();
+        } else {
+            List<PartMaster> page = new PartMasterDAO(em).getPageByWorkspace(workspaceId, checkpoint.getLastKey(), pageSize);
+            extractionFailures = indexParts(page, bulkIndexer, contentExtractor);
+            pageCount = page.size();
+            lastKey = pageCount == 0 ? null : page.get(pageCount - 1).getNumber();
+        }
+
+        // The checkpoint must not move past actions that have not been sent
+        bulkIndexer.flush();
+
+        checkpoint.setIndexedCount(checkpoint.getIndexedCount() + bulkIndexer.getIndexedCount() - indexedBefore);
+        checkpoint.setFailureCount(checkpoint.getFailureCount() + extractionFailures
+                + bulkIndexer.getFailureCount() + contentExtractor.getFailureCount() - failuresBefore);
+        checkpoint.setBytesExtracted(checkpoint.getBytesExtracted() + contentExtractor.getBytesExtracted() - bytesBefore);
+        checkpoint.setUpdateDate(new Date());
+
+        if (pageCount < pageSize) {
+            checkpoint.nextPhase();
+        } else {
+            checkpoint.setLastKey(lastKey);
+        }
+
+        em.flush();
+        em.clear();
+
+        LOGGER.log(Level.INFO, "Workspace reindexation progress " + checkpoint);
+        return checkpoint;
+    }
+
+    private int indexDocuments(List<DocumentMaster> documentMasters, BulkIndexer bulkIndexer, ContentExtractor contentExtractor) throws IOException, InterruptedException {
+        List<DocumentIteration> documentIterations = new ArrayList<>();
+        List<Future<Map<String, String>>> contents = new ArrayList<>();
+
+        for (DocumentMaster documentMaster : documentMasters) {
+            for (DocumentRevision documentRevision : documentMaster.getDocumentRevisions()) {
+                for (DocumentIteration documentIteration : documentRevision.getDocumentIterations()) {
+                    if (documentIteration.getCheckInDate() != null) {
+                        documentIterations.add(documentIteration);
+                        contents.add(contentExtractor.extract(documentIteration.getAttachedFiles()));
+                    }
+                }
+            }
+        }
+
+        int failures = 0;
+        for (int i = 0; i < documentIterations.size(); i++) {
+            DocumentIteration documentIteration = documentIterations.get(i);
+            try {
+                bulkIndexer.add(IndexerRequestBuilder.indexRequest(documentIteration, contents.get(i).get()));
+            } catch (ExecutionException e) {
+                failures++;
+                LOGGER.log(Level.WARNING, "The document " + documentIteration + " cannot be indexed.", e);
+            }
+        }
+        return failures;
+    }
+
+    private int indexParts(List<PartMaster> partMasters, BulkIndexer bulkIndexer, ContentExtractor contentExtractor) throws IOException, InterruptedException {
+        List<PartIteration> partIterations = new ArrayList<>();
+        List<Future<Map<String, String>>> contents = new ArrayList<>();
+
+        for (PartMaster partMaster : partMasters) {
+            for (PartRevision partRevision : partMaster.getPartRevisions()) {
+                for (PartIteration partIteration : partRevision.getPartIterations()) {
+                    if (partIteration.getCheckInDate() != null) {
+                        partIterations.add(partIteration);
+                        contents.add(contentExtractor.extract(partIteration.getAttachedFiles()));
+                    }
+                }
+            }
+        }
+
+        int failures = 0;
+        for (int i = 0; i < partIterations.size(); i++) {
+            PartIteration partIteration = partIterations.get(i);
+            try {
+                bulkIndexer.add(IndexerRequestBuilder.indexRequest(partIteration, contents.get(i).get()));
+            } catch (ExecutionException e) {
+                failures++;
+                LOGGER.log(Level.WARNING, "The part " + partIteration.getKey() + " cannot be indexed.", e);
+            }
+        }
+        return failures;
+    }
+}
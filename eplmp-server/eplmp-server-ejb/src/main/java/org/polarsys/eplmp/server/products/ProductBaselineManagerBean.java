@@ -25,16 +25,21 @@ import org.polarsys.eplmp.core.services.IProductManagerLocal;
 import org.polarsys.eplmp.core.services.IUserManagerLocal;
 import org.polarsys.eplmp.core.util.Tools;
 import org.polarsys.eplmp.server.configuration.PSFilterVisitor;
+import org.polarsys.eplmp.server.configuration.ProductStructureCache;
 import org.polarsys.eplmp.server.configuration.filter.LatestPSFilter;
 import org.polarsys.eplmp.server.configuration.filter.ReleasedPSFilter;
 import org.polarsys.eplmp.server.configuration.spec.ProductBaselineCreationConfigSpec;
 import org.polarsys.eplmp.server.dao.*;
+import org.polarsys.eplmp.server.events.ProductBaselineEvent;
+import org.polarsys.eplmp.server.events.Removed;
 import org.polarsys.eplmp.server.factory.ACLFactory;
 
 import javax.annotation.security.DeclareRoles;
 import javax.annotation.security.RolesAllowed;
 import javax.ejb.Local;
 import javax.ejb.Stateless;
+import javax.enterprise.event.Event;
+import javax.enterprise.util.AnnotationLiteral;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -54,6 +59,12 @@ public class ProductBaselineManagerBean implements IProductBaselineManagerLocal
     @Inject
     private IProductManagerLocal productManager;
 
+    @Inject
+    private ProductStructureCache productStructureCache;
+
+    @Inject
+    private Event<ProductBaselineEvent> productBaselineEvent;
+
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
     @Override
     public ProductBaseline createBaseline(ConfigurationItemKey ciKey, String name, ProductBaselineType pType, String description, List<PartIterationKey> partIterationKeys, List<String> substituteLinks, List<String> optionalUsageLinks) throws UserNotFoundException, AccessRightException, WorkspaceNotFoundException, ConfigurationItemNotFoundException, PartRevisionNotReleasedException, PartIterationNotFoundException, UserNotActiveException, NotAllowedException, EntityConstraintException, PartMasterNotFoundException, CreationException, BaselineNotFoundException, PathToPathLinkAlreadyExistsException, WorkspaceNotEnabledException {
@@ -144,8 +155,12 @@ public class ProductBaselineManagerBean implements IProductBaselineManagerLocal
             }
         }
 
-        baseline.getSubstituteLinks().addAll(filter.getRetainedSubstituteLinks());
-        baseline.getOptionalUsageLinks().addAll(filter.getRetainedOptionalUsageLinks());
+        for (String substituteLink : filter.getRetainedSubstituteLinks()) {
+            baseline.addSubstituteLink(substituteLink);
+        }
+        for (String optionalUsageLink : filter.getRetainedOptionalUsageLinks()) {
+            baseline.addOptionalUsageLink(optionalUsageLink);
+        }
 
         new ProductBaselineDAO(locale, em).createBaseline(baseline);
 
@@ -196,7 +211,8 @@ public class ProductBaselineManagerBean implements IProductBaselineManagerLocal
         }
 
         productBaselineDAO.deleteBaseline(productBaseline);
-
+        productBaselineEvent.select(new AnnotationLiteral<Removed>() {
+        }).fire(new ProductBaselineEvent(productBaseline));
     }
 
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
@@ -246,6 +262,12 @@ public class ProductBaselineManagerBean implements IProductBaselineManagerLocal
 
         List<PathChoice> choices = new ArrayList<>();
 
+        if (ProductStructureCache.getFilterId(filter) != null) {
+            // Released structures are cached, the choices are found by walking the resolved structure
+            addPathChoices(productStructureCache.resolve(em, user, ciKey, filter, null, -1), filter, Collections.emptyList(), choices);
+            return choices;
+        }
+
         PSFilterVisitor psFilterVisitor = new PSFilterVisitor(em, user, filter) {
 
             @Override
@@ -255,7 +277,7 @@ public class ProductBaselineManagerBean implements IProductBaselineManagerLocal
 
             @Override
             public void onIndeterminatePath(List<PartLink> pCurrentPath, List<PartIteration> pCurrentPathPartIterations) {
-                addPartChoice(pCurrentPath, pCurrentPathPartIterations);
+                choices.add(createPathChoice(pCurrentPath, pCurrentPathPartIterations));
             }
 
             @Override
@@ -270,7 +292,7 @@ public class ProductBaselineManagerBean implements IProductBaselineManagerLocal
 
             @Override
             public void onOptionalPath(List<PartLink> pCurrentPath, List<PartIteration> pCurrentPathPartIterations) {
-                addPartChoice(pCurrentPath, pCurrentPathPartIterations);
+                choices.add(createPathChoice(pCurrentPath, pCurrentPathPartIterations));
             }
 
             @Override
@@ -284,14 +306,6 @@ public class ProductBaselineManagerBean implements IProductBaselineManagerLocal
                 // Unused here
             }
 
-            private void addPartChoice(List<PartLink> pCurrentPath, List<PartIteration> pCurrentPathPartIterations) {
-                List<ResolvedPartLink> resolvedPath = new ArrayList<>();
-                for (int i = 0; i < pCurrentPathPartIterations.size(); i++) {
-                    resolvedPath.add(new ResolvedPartLink(pCurrentPathPartIterations.get(i), pCurrentPath.get(i)));
-                }
-                choices.add(new PathChoice(resolvedPath, pCurrentPath.get(pCurrentPath.size() - 1)));
-            }
-
         };
 
         psFilterVisitor.visit(configurationItem.getDesignItem(), -1);
@@ -299,6 +313,47 @@ public class ProductBaselineManagerBean implements IProductBaselineManagerLocal
         return choices;
     }
 
+    /**
+     * Find the paths to choose in a resolved structure, in the order of the {@link PSFilterVisitor} callbacks:
+     * the paths with substitutes and the optional ones.
+     */
+    private void addPathChoices(Component component, ProductStructureFilter filter, List<PartIteration> pathIterations, List<PathChoice> choices) {
+        Map<String, Component> children = new HashMap<>();
+        for (Component child : component.getComponents()) {
+            children.put(child.getPartLink().getFullId(), child);
+        }
+
+        for (PartIteration partIteration : filter.filter(component.getPartMaster())) {
+            List<PartIteration> iterations = new ArrayList<>(pathIterations);
+            iterations.add(partIteration);
+
+            for (PartUsageLink usageLink : partIteration.getComponents()) {
+                List<PartLink> currentPath = new ArrayList<>(component.getPath());
+                currentPath.add(usageLink);
+
+                List<PartLink> eligiblePath = filter.filter(currentPath);
+                if (eligiblePath.size() > 1 || eligiblePath.size() == 1 && eligiblePath.get(0).isOptional()) {
+                    choices.add(createPathChoice(currentPath, iterations));
+                }
+
+                for (PartLink link : eligiblePath) {
+                    Component child = children.get(link.getFullId());
+                    if (child != null) {
+                        addPathChoices(child, filter, iterations, choices);
+                    }
+                }
+            }
+        }
+    }
+
+    private static PathChoice createPathChoice(List<PartLink> pCurrentPath, List<PartIteration> pCurrentPathPartIterations) {
+        List<ResolvedPartLink> resolvedPath = new ArrayList<>();
+        for (int i = 0; i < pCurrentPathPartIterations.size(); i++) {
+            resolvedPath.add(new ResolvedPartLink(pCurrentPathPartIterations.get(i), pCurrentPath.get(i)));
+        }
+        return new PathChoice(resolvedPath, pCurrentPath.get(pCurrentPath.size() - 1));
+    }
+
 
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
     @Override
@@ -311,49 +366,24 @@ public class ProductBaselineManagerBean implements IProductBaselineManagerLocal
 
         Set<PartIteration> parts = new HashSet<>();
 
+        // Parts with several released revisions, the structure resolved with this filter is cached
         ProductStructureFilter filter = new ReleasedPSFilter(user, true);
+        addIndeterminateVersions(productStructureCache.resolve(em, user, configurationItem.getKey(), filter, null, -1), filter, parts);
 
-        PSFilterVisitor psFilterVisitor = new PSFilterVisitor(em, user, filter) {
-            @Override
-            public void onIndeterminateVersion(PartMaster partMaster, List<PartIteration> partIterations) throws NotAllowedException {
-                parts.addAll(partIterations);
-            }
-
-            @Override
-            public void onIndeterminatePath(List<PartLink> pCurrentPath, List<PartIteration> pCurrentPathPartIterations) {
-                // Unused here
-            }
-
-            @Override
-            public void onUnresolvedPath(List<PartLink> pCurrentPath, List<PartIteration> partIterations) throws NotAllowedException {
-                // Unused here
-            }
-
-            @Override
-            public void onBranchDiscovered(List<PartLink> pCurrentPath, List<PartIteration> copyPartIteration) {
-                // Unused here
-            }
-
-            @Override
-            public void onOptionalPath(List<PartLink> path, List<PartIteration> partIterations) {
-                // Unused here
-            }
-
-            @Override
-            public boolean onPathWalk(List<PartLink> path, List<PartMaster> parts) {
-                // Unused here
-                return true;
-            }
+        return new ArrayList<>(parts);
+    }
 
-            @Override
-            public void onUnresolvedVersion(PartMaster partMaster) {
-                // Unused here
+    private void addIndeterminateVersions(Component component, ProductStructureFilter filter, Set<PartIteration> parts) {
+        // The retained iteration is only set when the filter gives a single one
+        if (component.getRetainedIteration() == null) {
+            List<PartIteration> partIterations = filter.filter(component.getPartMaster());
+            if (partIterations.size() > 1) {
+                parts.addAll(partIterations);
             }
-        };
-
-        psFilterVisitor.visit(configurationItem.getDesignItem(), -1);
-
-        return new ArrayList<>(parts);
+        }
+        for (Component child : component.getComponents()) {
+            addIndeterminateVersions(child, filter, parts);
+        }
     }
 
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
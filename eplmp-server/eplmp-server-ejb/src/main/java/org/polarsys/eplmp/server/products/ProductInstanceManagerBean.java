@@ -30,6 +30,9 @@ import org.polarsys.eplmp.server.LogDocument;
 import org.polarsys.eplmp.server.configuration.PSFilterVisitor;
 import org.polarsys.eplmp.server.configuration.spec.ProductBaselineConfigSpec;
 import org.polarsys.eplmp.server.dao.*;
+import org.polarsys.eplmp.server.events.ProductInstanceEvent;
+import org.polarsys.eplmp.server.events.Removed;
+import org.polarsys.eplmp.server.events.Write;
 import org.polarsys.eplmp.server.factory.ACLFactory;
 import org.polarsys.eplmp.server.validation.AttributesConsistencyUtils;
 
@@ -39,6 +42,8 @@ import javax.annotation.security.RolesAllowed;
 import javax.ejb.Local;
 import javax.ejb.SessionContext;
 import javax.ejb.Stateless;
+import javax.enterprise.event.Event;
+import javax.enterprise.util.AnnotationLiteral;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -63,6 +68,9 @@ public class ProductInstanceManagerBean implements IProductInstanceManagerLocal
     @Inject
     private IBinaryStorageManagerLocal storageManager;
 
+    @Inject
+    private Event<ProductInstanceEvent> productInstanceEvent;
+
     private static final Logger LOGGER = Logger.getLogger(ProductInstanceManagerBean.class.getName());
 
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
@@ -71,21 +79,8 @@ public class ProductInstanceManagerBean implements IProductInstanceManagerLocal
         User user = userManager.checkWorkspaceReadAccess(workspaceId);
         Locale locale = new Locale(user.getLanguage());
 
-        ProductInstanceMasterDAO productInstanceMasterDAO = new ProductInstanceMasterDAO(locale, em);
-        List<ProductInstanceMaster> productInstanceMasters = productInstanceMasterDAO.findProductInstanceMasters(workspaceId);
-
-        ListIterator<ProductInstanceMaster> ite = productInstanceMasters.listIterator();
-
-        while(ite.hasNext()){
-            ProductInstanceMaster next = ite.next();
-            try {
-                checkProductInstanceReadAccess(workspaceId, next, user);
-            } catch (AccessRightException e) {
-                ite.remove();
-            }
-        }
-
-        return productInstanceMasters;
+        // Read access is checked by the query
+        return new ProductInstanceMasterDAO(locale, em).findProductInstanceMasters(user, workspaceId);
     }
 
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
@@ -94,21 +89,8 @@ public class ProductInstanceManagerBean implements IProductInstanceManagerLocal
         User user = userManager.checkWorkspaceReadAccess(configurationItemKey.getWorkspace());
         Locale locale = new Locale(user.getLanguage());
 
-        ProductInstanceMasterDAO productInstanceMasterDAO = new ProductInstanceMasterDAO(locale, em);
-        List<ProductInstanceMaster> productInstanceMasters = productInstanceMasterDAO.findProductInstanceMasters(configurationItemKey.getId(), configurationItemKey.getWorkspace());
-
-        ListIterator<ProductInstanceMaster> ite = productInstanceMasters.listIterator();
-
-        while(ite.hasNext()){
-            ProductInstanceMaster next = ite.next();
-            try {
-                checkProductInstanceReadAccess(configurationItemKey.getWorkspace(), next, user);
-            } catch (AccessRightException e) {
-                ite.remove();
-            }
-        }
-
-        return productInstanceMasters;
+        // Read access is checked by the query
+        return new ProductInstanceMasterDAO(locale, em).findProductInstanceMasters(user, configurationItemKey.getId(), configurationItemKey.getWorkspace());
     }
 
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
@@ -270,6 +252,9 @@ public class ProductInstanceManagerBean implements IProductInstanceManagerLocal
 
             }
 
+            productInstanceEvent.select(new AnnotationLiteral<Write>() {
+            }).fire(new ProductInstanceEvent(productInstanceMaster));
+
             return productInstanceMaster;
 
         } else {
@@ -349,6 +334,9 @@ public class ProductInstanceManagerBean implements IProductInstanceManagerLocal
             copyPathToPathLinks(user, nextIteration);
             copyPathDataMasterList(workspaceId, user, lastIteration, nextIteration);
 
+            productInstanceEvent.select(new AnnotationLiteral<Write>() {
+            }).fire(new ProductInstanceEvent(productInstanceMaster));
+
         } else {
             throw new NotAllowedException(userLocale, "NotAllowedException53");
         }
@@ -569,6 +557,8 @@ public class ProductInstanceManagerBean implements IProductInstanceManagerLocal
         checkProductInstanceWriteAccess(workspaceId, prodInstM, user);
 
         productInstanceMasterDAO.deleteProductInstanceMaster(prodInstM);
+        productInstanceEvent.select(new AnnotationLiteral<Removed>() {
+        }).fire(new ProductInstanceEvent(prodInstM));
 
         for (ProductInstanceIteration pii : prodInstM.getProductInstanceIterations()) {
             for (BinaryResource file : pii.getAttachedFiles()) {
@@ -26,6 +26,13 @@ public interface StorageProvider {
     File getBinaryResourceFile(BinaryResource pBinaryResource) throws StorageException, FileNotFoundException;
     OutputStream getBinaryResourceOutputStream(BinaryResource pBinaryResource) throws StorageException;
     void copyData(BinaryResource pSourceBinaryResource, BinaryResource pTargetBinaryResource) throws StorageException, FileNotFoundException;
+
+    /**
+     * Give the target the content of the source without duplicating it, the source being the same file
+     * in a previous iteration. Providers may do nothing and let the content be read from the previous iteration.
+     */
+    void shareData(BinaryResource pSourceBinaryResource, BinaryResource pTargetBinaryResource) throws StorageException, FileNotFoundException;
+
     File copyFile(File file, BinaryResource pTargetBinaryResource) throws StorageException, FileNotFoundException;
     void delData(BinaryResource pBinaryResource) throws StorageException;
     String getExternalResourceURI(BinaryResource binaryResource);
@@ -36,4 +43,5 @@ public interface StorageProvider {
     Date getLastModified(BinaryResource binaryResource, String generatedFileName) throws FileNotFoundException;
     InputStream getGeneratedFileInputStream(BinaryResource pBinaryResource, String generatedFileName) throws StorageException, FileNotFoundException;
     OutputStream getGeneratedFileOutputStream(BinaryResource binaryResource, String generatedFileName) throws StorageException;
+    File getGeneratedFile(BinaryResource binaryResource, String generatedFileName) throws FileNotFoundException;
 }
@@ -0,0 +1,369 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.storage.filesystem;
+
+import org.polarsys.eplmp.core.common.BinaryResource;
+import org.polarsys.eplmp.core.exceptions.FileNotFoundException;
+import org.polarsys.eplmp.core.exceptions.StorageException;
+import org.polarsys.eplmp.core.util.Tools;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * File system storage keeping each content once, whatever the number of binary resources holding it.
+ *
+ * Contents are stored in the ".blobs" folder of the vault, named by their SHA-256 hash, and the path
+ * of each binary resource is a hard link to its blob. A binary resource is thus read directly from its
+ * own path, identical uploads share one blob across parts and workspaces, and the link count of a blob
+ * counts its references: a blob is removed with the last binary resource linked to it.
+ *
+ * As they may be shared, files are never written in place. New contents are written aside, then linked.
+ * The hash of a blob is recorded in its extended attributes, shared by its links, so that a file is not
+ * hashed again to find its blob. Hard links require the whole vault to be on a single POSIX file system,
+ * written by a single server.
+ */
+public class ContentAddressedStorageProvider extends FileStorageProvider {
+
+    public static final String BLOBS_FOLDER = ".blobs";
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final String TEMPORARY_FOLDER = "tmp";
+    private static final String HASH_ATTRIBUTE = "eplmp.sha256";
+
+    // Blobs are created, linked and removed while holding the lock of their hash
+    private static final Object[] HASH_LOCKS = new Object[64];
+
+    static {
+        for (int i = 0; i < HASH_LOCKS.length; i++) {
+            HASH_LOCKS[i] = new Object();
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(ContentAddressedStorageProvider.class.getName());
+
+    private final Path blobsFolder;
+    private final Path temporaryFolder;
+
+    public ContentAddressedStorageProvider(String vaultPath) {
+        super(vaultPath);
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("unix")) {
+            throw new IllegalStateException("The content addressed vault needs a POSIX file system");
+        }
+        blobsFolder = Paths.get(vaultPath, BLOBS_FOLDER);
+        temporaryFolder = blobsFolder.resolve(TEMPORARY_FOLDER);
+    }
+
+    @Override
+    public OutputStream getBinaryResourceOutputStream(BinaryResource pBinaryResource) throws StorageException {
+        Path target = getPath(pBinaryResource);
+        try {
+            Files.createDirectories(temporaryFolder);
+            Path temporaryFile = Files.createTempFile(temporaryFolder, "upload", null);
+            MessageDigest digest = createDigest();
+
+            return new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)), digest) {
+                private boolean closed;
+
+                @Override
+                public void close() throws IOException {
+                    if (closed) {
+                        return;
+                    }
+                    closed = true;
+                    super.close();
+                    try {
+                        link(temporaryFile, toHex(digest.digest()), target);
+                    } finally {
+                        Files.deleteIfExists(temporaryFile);
+                    }
+                }
+            };
+        } catch (IOException e) {
+            throw new StorageException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public OutputStream getGeneratedFileOutputStream(BinaryResource binaryResource, String generatedFileName) throws StorageException {
+        // The generated file may be shared with a previous iteration, the link is replaced instead of the content
+        File generatedFile = new File(getGeneratedFilesFolder(binaryResource), Tools.unAccent(generatedFileName));
+        try {
+            Files.deleteIfExists(generatedFile.toPath());
+        } catch (IOException e) {
+            throw new StorageException(e.getMessage(), e);
+        }
+        return super.getGeneratedFileOutputStream(binaryResource, generatedFileName);
+    }
+
+    @Override
+    public void copyData(BinaryResource pSourceBinaryResource, BinaryResource pTargetBinaryResource) throws StorageException, FileNotFoundException {
+        Path source = getPath(pSourceBinaryResource);
+        if (!Files.exists(source)) {
+            throw new FileNotFoundException("Can't find source file to copy " + pSourceBinaryResource.getFullName());
+        }
+        try {
+            link(source, getHash(source), getPath(pTargetBinaryResource));
+        } catch (IOException e) {
+            throw new StorageException("Error copying " + pSourceBinaryResource.getFullName() + " to " + pTargetBinaryResource.getFullName(), e);
+        }
+    }
+
+    /**
+     * Link the target and its generated files to the ones of the source, so that the target is read
+     * from its own path.
+     */
+    @Override
+    public void shareData(BinaryResource pSourceBinaryResource, BinaryResource pTargetBinaryResource) throws StorageException, FileNotFoundException {
+        copyData(pSourceBinaryResource, pTargetBinaryResource);
+
+        Path sourceGeneratedFolder = getGeneratedFilesFolder(pSourceBinaryResource).toPath();
+        if (!Files.isDirectory(sourceGeneratedFolder)) {
+            return;
+        }
+        Path targetGeneratedFolder = getGeneratedFilesFolder(pTargetBinaryResource).toPath();
+        try (Stream<Path> generatedFiles = Files.list(sourceGeneratedFolder)) {
+            Files.createDirectories(targetGeneratedFolder);
+            for (Path generatedFile : (Iterable<Path>) generatedFiles::iterator) {
+                Path targetGeneratedFile = targetGeneratedFolder.resolve(generatedFile.getFileName());
+                if (Files.isRegularFile(generatedFile) && !Files.exists(targetGeneratedFile)) {
+                    Files.createLink(targetGeneratedFile, generatedFile);
+                }
+            }
+        } catch (IOException e) {
+            throw new StorageException("Error sharing generated files of " + pSourceBinaryResource.getFullName() + " with " + pTargetBinaryResource.getFullName(), e);
+        }
+    }
+
+    @Override
+    public File copyFile(File source, BinaryResource pTargetBinaryResource) throws StorageException, FileNotFoundException {
+        if (!source.exists()) {
+            throw new FileNotFoundException("Can't find source file to copy " + source.getAbsolutePath());
+        }
+        Path target = getPath(pTargetBinaryResource);
+        try {
+            link(source.toPath(), getHash(source.toPath()), target);
+            return target.toFile();
+        } catch (IOException e) {
+            throw new StorageException("Error copying " + source.getAbsolutePath() + " to " + pTargetBinaryResource.getFullName(), e);
+        }
+    }
+
+    @Override
+    public void delData(BinaryResource pBinaryResource) {
+        Path file = getPath(pBinaryResource);
+        Path blob = null;
+        try {
+            blob = findBlob(file);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Can't find the blob of " + pBinaryResource.getFullName(), e);
+        }
+        super.delData(pBinaryResource);
+        deleteIfUnreferenced(blob);
+    }
+
+    @Override
+    public void deleteWorkspaceFolder(String workspaceId, List<BinaryResource> binaryResourcesInWorkspace) throws StorageException {
+        super.deleteWorkspaceFolder(workspaceId, binaryResourcesInWorkspace);
+        collectGarbage();
+    }
+
+    /**
+     * Move the content of a binary resource written by another provider to the blobs, in place.
+     * A content already stored under another path is shared, and its duplicate removed.
+     * Nothing is done if the binary resource is already stored.
+     *
+     * @throws FileNotFoundException if the binary resource has no file of its own
+     */
+    public void storeData(BinaryResource pBinaryResource) throws StorageException, FileNotFoundException {
+        Path file = getPath(pBinaryResource);
+        if (!Files.exists(file)) {
+            throw new FileNotFoundException(file.toAbsolutePath() + " not found");
+        }
+        try {
+            String hash = getHash(file);
+            Path blob = getBlobPath(hash);
+            if (!Files.exists(blob) || !Files.isSameFile(blob, file)) {
+                link(file, hash, file);
+            }
+        } catch (IOException e) {
+            throw new StorageException("Error storing " + pBinaryResource.getFullName(), e);
+        }
+    }
+
+    /**
+     * Remove the blobs no binary resource is linked to anymore.
+     */
+    public void collectGarbage() throws StorageException {
+        if (!Files.isDirectory(blobsFolder)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(blobsFolder)) {
+            files.filter(file -> !file.startsWith(temporaryFolder) && Files.isRegularFile(file))
+                    .forEach(this::deleteIfUnreferenced);
+        } catch (IOException | UncheckedIOException e) {
+            throw new StorageException("Error collecting unreferenced blobs", e);
+        }
+    }
+
+    /**
+     * Replace the target with a link to the blob of the given hash, atomically, then release the
+     * previous content. The file becomes the blob if the content is not stored yet.
+     */
+    private void link(Path file, String hash, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Files.createDirectories(temporaryFolder);
+
+        Path previousBlob = findBlob(target);
+        Path blob = getBlobPath(hash);
+        synchronized (getLock(hash)) {
+            Files.createDirectories(blob.getParent());
+            try {
+                Files.createLink(blob, file);
+                writeHash(blob, hash);
+            } catch (FileAlreadyExistsException e) {
+                LOGGER.log(Level.FINEST, "Content already stored in " + blob, e);
+            }
+            Path temporaryLink = temporaryFolder.resolve(UUID.randomUUID().toString());
+            Files.createLink(temporaryLink, blob);
+            Files.move(temporaryLink, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        if (previousBlob != null && !previousBlob.equals(blob)) {
+            deleteIfUnreferenced(previousBlob);
+        }
+    }
+
+    /**
+     * Get the blob a file of the vault is linked to.
+     *
+     * @return the blob, null if the file is not linked to a blob
+     */
+    private Path findBlob(Path file) throws IOException {
+        if (!Files.exists(file) || getLinkCount(file) == 1) {
+            return null;
+        }
+        Path blob = getBlobPath(getHash(file));
+        return Files.exists(blob) && Files.isSameFile(blob, file) ? blob : null;
+    }
+
+    /**
+     * Remove a blob if no file is linked to it anymore. The link count is checked and the blob removed
+     * while holding the lock of its hash, so that the blob can't be linked again in between.
+     */
+    private void deleteIfUnreferenced(Path blob) {
+        if (blob == null) {
+            return;
+        }
+        synchronized (getLock(blob.getFileName().toString())) {
+            try {
+                if (Files.exists(blob) && getLinkCount(blob) == 1) {
+                    Files.delete(blob);
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Can't remove unreferenced blob " + blob, e);
+            }
+        }
+    }
+
+    private Path getPath(BinaryResource pBinaryResource) {
+        return Paths.get(getVirtualPath(pBinaryResource));
+    }
+
+    private Path getBlobPath(String hash) {
+        return blobsFolder.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private static int getLinkCount(Path file) throws IOException {
+        return (Integer) Files.getAttribute(file, "unix:nlink");
+    }
+
+    private static Object getLock(String hash) {
+        return HASH_LOCKS[Math.floorMod(hash.hashCode(), HASH_LOCKS.length)];
+    }
+
+    /**
+     * Get the hash of a file, recorded in its attributes when stored. Links share their attributes,
+     * so the content is hashed only for the files written by another provider.
+     */
+    private static String getHash(Path file) throws IOException {
+        String hash = readHash(file);
+        if (hash == null) {
+            hash = hash(file);
+            writeHash(file, hash);
+        }
+        return hash;
+    }
+
+    private static String readHash(Path file) throws IOException {
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(file, UserDefinedFileAttributeView.class);
+        if (view == null || !view.list().contains(HASH_ATTRIBUTE)) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(view.size(HASH_ATTRIBUTE));
+        view.read(HASH_ATTRIBUTE, buffer);
+        buffer.flip();
+        return StandardCharsets.US_ASCII.decode(buffer).toString();
+    }
+
+    private static void writeHash(Path file, String hash) {
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(file, UserDefinedFileAttributeView.class);
+        if (view == null) {
+            return;
+        }
+        try {
+            view.write(HASH_ATTRIBUTE, StandardCharsets.US_ASCII.encode(hash));
+        } catch (IOException e) {
+            // Without extended attributes, the content is hashed again when needed
+            LOGGER.log(Level.FINE, "Can't record the hash of " + file, e);
+        }
+    }
+
+    private static String hash(Path file) throws IOException {
+        MessageDigest digest = createDigest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream inputStream = new DigestInputStream(Files.newInputStream(file), digest)) {
+            while (inputStream.read(buffer) != -1) {
+                // The digest is updated by the stream
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest createDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
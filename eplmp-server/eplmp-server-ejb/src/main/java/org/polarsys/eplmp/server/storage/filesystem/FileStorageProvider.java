@@ -20,6 +20,8 @@ import org.polarsys.eplmp.server.storage.StorageProvider;
 import org.apache.commons.io.FileUtils;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Date;
 import java.util.List;
 import java.util.logging.Logger;
@@ -27,7 +29,7 @@ import java.util.logging.Logger;
 
 public class FileStorageProvider implements StorageProvider {
 
-    private final String vaultPath;
+    protected final String vaultPath;
 
     private static final Logger LOGGER = Logger.getLogger(StorageProvider.class.getName());
 
@@ -118,6 +120,21 @@ public class FileStorageProvider implements StorageProvider {
         }
     }
 
+    @Override
+    public File getGeneratedFile(BinaryResource binaryResource, String generatedFileName) throws FileNotFoundException {
+        File generatedFile = new File(getGeneratedFilesFolder(binaryResource), Tools.unAccent(generatedFileName));
+        if (generatedFile.exists()) {
+            return generatedFile;
+        } else {
+            throw new FileNotFoundException(generatedFile.getAbsolutePath() + " not found");
+        }
+    }
+
+    @Override
+    public void shareData(BinaryResource pSourceBinaryResource, BinaryResource pTargetBinaryResource) throws StorageException, FileNotFoundException {
+        // Nothing to do, the content of the target is read from the iteration it comes from
+    }
+
     @Override
     public File copyFile(File source, BinaryResource pTargetBinaryResource) throws StorageException, FileNotFoundException {
         if (source.exists()) {
@@ -168,18 +185,23 @@ public class FileStorageProvider implements StorageProvider {
     @Override
     public void renameData(File src, String pNewName) throws StorageException {
         if(src.exists()){
-            src.renameTo(new File(src.getParentFile().getAbsolutePath() + "/" + Tools.unAccent(pNewName)));
+            try {
+                // Replaces the target at once, a reader finds either the previous file or the new one
+                Files.move(src.toPath(), src.toPath().resolveSibling(Tools.unAccent(pNewName)), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new StorageException("Error renaming file " + src.getAbsolutePath(), e);
+            }
         }else{
             throw new StorageException("Error renaming file " + src.getAbsolutePath());
         }
     }
 
-    private String getVirtualPath(BinaryResource pBinaryResource) {
+    protected String getVirtualPath(BinaryResource pBinaryResource) {
         String normalizedName = Tools.unAccent(pBinaryResource.getFullName());
         return this.vaultPath + "/" + normalizedName;
     }
 
-    private File getGeneratedFilesFolder(BinaryResource pBinaryResource) {
+    protected File getGeneratedFilesFolder(BinaryResource pBinaryResource) {
         File binaryResourceFile = new File(getVirtualPath(pBinaryResource));
         return new File(binaryResourceFile.getParentFile(), "_" + binaryResourceFile.getName());
     }
@@ -189,7 +211,7 @@ public class FileStorageProvider implements StorageProvider {
             cleanRemove(pFile.getParentFile());
     }
 
-    private InputStream getInputStream(File file) throws StorageException, FileNotFoundException {
+    protected InputStream getInputStream(File file) throws StorageException, FileNotFoundException {
         if (file.exists()) {
             try {
                 return new BufferedInputStream(new FileInputStream(file));
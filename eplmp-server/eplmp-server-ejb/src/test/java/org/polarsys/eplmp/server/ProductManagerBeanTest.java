@@ -14,6 +14,7 @@ package org.polarsys.eplmp.server;
 import org.polarsys.eplmp.core.common.Account;
 import org.polarsys.eplmp.core.common.User;
 import org.polarsys.eplmp.core.common.Workspace;
+import org.polarsys.eplmp.core.configuration.CascadeResult;
 import org.polarsys.eplmp.core.document.DocumentRevisionKey;
 import org.polarsys.eplmp.core.exceptions.*;
 import org.polarsys.eplmp.core.meta.*;
@@ -365,4 +366,24 @@ public class ProductManagerBeanTest {
         productManagerBean.updatePartIteration(partIteration.getKey(), null, null, null, null, null, null,null,null);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void checkOutPartsCountsEveryPartTest() throws Exception {
+        // partRevision is already checked out by the user, the other revision can't be found
+        PartRevisionKey checkedOutKey = partRevision.getKey();
+        PartRevisionKey missingKey = new PartRevisionKey(workspace.getId(), "missing", ProductUtil.VERSION);
+
+        TypedQuery<PartRevision> partRevisionsQuery = Mockito.mock(TypedQuery.class);
+        Mockito.when(partRevisionsQuery.setParameter(Matchers.anyString(), Matchers.any())).thenReturn(partRevisionsQuery);
+        Mockito.when(partRevisionsQuery.setHint(Matchers.anyString(), Matchers.any())).thenReturn(partRevisionsQuery);
+        Mockito.when(partRevisionsQuery.getResultList()).thenReturn(Collections.singletonList(partRevision));
+        Mockito.when(em.createQuery(Matchers.anyString(), Matchers.eq(PartRevision.class))).thenReturn(partRevisionsQuery);
+        Mockito.when(userManager.checkWorkspaceReadAccess(workspace.getId())).thenReturn(user);
+        Mockito.when(userManager.hasWorkspaceWriteAccess(user, workspace.getId())).thenReturn(true);
+
+        CascadeResult cascadeResult = productManagerBean.checkOutParts(workspace.getId(), Arrays.asList(checkedOutKey, missingKey));
+
+        Assert.assertEquals(1, cascadeResult.getSucceedAttempts());
+        Assert.assertEquals(1, cascadeResult.getFailedAttempts());
+    }
 }
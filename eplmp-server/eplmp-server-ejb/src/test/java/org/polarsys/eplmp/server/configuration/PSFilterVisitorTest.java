@@ -0,0 +1,211 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.configuration;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.polarsys.eplmp.core.common.Account;
+import org.polarsys.eplmp.core.common.User;
+import org.polarsys.eplmp.core.common.Workspace;
+import org.polarsys.eplmp.core.product.*;
+import org.polarsys.eplmp.core.util.Tools;
+import org.polarsys.eplmp.server.configuration.filter.WIPPSFilter;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.*;
+
+public class PSFilterVisitorTest {
+
+    private final Workspace workspace = new Workspace("workspace");
+    private final Map<String, PartMaster> partMasters = new HashMap<>();
+    private int linkId;
+
+    private User user;
+    private EntityManager em;
+    private PartMaster assembly;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        user = new User(workspace, new Account("user1", "user1", "user1@docdoku.com", "en", new Date(), null));
+
+        // ASSEMBLY
+        //    u1 A
+        //       u3 C
+        //    u2 B
+        //       u4 C
+        //       u5 D
+        assembly = partMaster("ASSEMBLY");
+        PartMaster a = partMaster("A");
+        PartMaster b = partMaster("B");
+        PartMaster c = partMaster("C");
+        PartMaster d = partMaster("D");
+        addLink(assembly, a);
+        addLink(assembly, b);
+        addLink(a, c);
+        addLink(b, c);
+        addLink(b, d);
+
+        em = Mockito.mock(EntityManager.class);
+        Mockito.when(em.find(Matchers.eq(PartMaster.class), Matchers.any(PartMasterKey.class)))
+                .thenAnswer(invocation -> partMasters.get(((PartMasterKey) invocation.getArguments()[1]).getNumber()));
+
+        TypedQuery<PartMaster> query = Mockito.mock(TypedQuery.class);
+        List<String> numbers = new ArrayList<>();
+        Mockito.when(em.createNamedQuery("PartMaster.findByNumbers", PartMaster.class)).thenReturn(query);
+        Mockito.when(query.setParameter(Matchers.anyString(), Matchers.any())).thenAnswer(invocation -> {
+            if ("numbers".equals(invocation.getArguments()[0])) {
+                numbers.clear();
+                numbers.addAll((Collection<String>) invocation.getArguments()[1]);
+            }
+            return query;
+        });
+        Mockito.when(query.setHint(Matchers.anyString(), Matchers.any())).thenReturn(query);
+        Mockito.when(query.getResultList()).thenAnswer(invocation -> {
+            List<PartMaster> result = new ArrayList<>();
+            numbers.forEach(number -> result.add(partMasters.get(number)));
+            return result;
+        });
+    }
+
+    @Test
+    public void breadthFirstWalkMatchesDepthFirstWalkTest() throws Exception {
+        RecordingVisitor depthFirst = new RecordingVisitor(false);
+        depthFirst.visit(assembly, -1);
+        RecordingVisitor breadthFirst = new RecordingVisitor(true);
+        breadthFirst.visit(assembly, -1);
+
+        Assert.assertEquals(render(depthFirst.getComponent()), render(breadthFirst.getComponent()));
+        Assert.assertEquals(Arrays.asList("-1", "-1-u1", "-1-u1-u3", "-1-u2", "-1-u2-u4", "-1-u2-u5"), depthFirst.walkedPaths);
+        Assert.assertEquals(new TreeSet<>(depthFirst.walkedPaths), new TreeSet<>(breadthFirst.walkedPaths));
+        Assert.assertEquals(new TreeSet<>(depthFirst.branches), new TreeSet<>(breadthFirst.branches));
+
+        // Only the invocation order differs
+        Assert.assertEquals(Arrays.asList("-1", "-1-u1", "-1-u2", "-1-u1-u3", "-1-u2-u4", "-1-u2-u5"), breadthFirst.walkedPaths);
+    }
+
+    @Test
+    public void breadthFirstWalkFromPathTest() throws Exception {
+        List<PartLink> startingPath = new ArrayList<>();
+        startingPath.add(PSFilterVisitor.createVirtualRootLink(assembly));
+        startingPath.add(assembly.getLastRevision().getLastIteration().getComponents().get(1));
+
+        RecordingVisitor depthFirst = new RecordingVisitor(false);
+        depthFirst.visit(startingPath, 1);
+        RecordingVisitor breadthFirst = new RecordingVisitor(true);
+        breadthFirst.visit(startingPath, 1);
+
+        Assert.assertEquals(render(depthFirst.getComponent()), render(breadthFirst.getComponent()));
+        Assert.assertEquals(depthFirst.branches, breadthFirst.branches);
+    }
+
+    @Test
+    public void stopTest() throws Exception {
+        for (boolean breadthFirst : new boolean[]{false, true}) {
+            RecordingVisitor visitor = new RecordingVisitor(breadthFirst);
+            visitor.stopAfter = 2;
+            visitor.visit(assembly, -1);
+
+            // No part is walked after the call
+            Assert.assertEquals(2, visitor.walkedPaths.size());
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void breadthFirstCallbacksReceiveReadOnlyListsTest() throws Exception {
+        RecordingVisitor visitor = new RecordingVisitor(true);
+        visitor.visit(assembly, -1);
+        visitor.lastParts.add(assembly);
+    }
+
+    private PartMaster partMaster(String number) {
+        PartMaster partMaster = new PartMaster(workspace, number);
+        PartRevision partRevision = new PartRevision(partMaster, "A", user);
+        List<PartIteration> partIterations = new ArrayList<>();
+        partIterations.add(new PartIteration(partRevision, user));
+        partRevision.setPartIterations(partIterations);
+        List<PartRevision> partRevisions = new ArrayList<>();
+        partRevisions.add(partRevision);
+        partMaster.setPartRevisions(partRevisions);
+        partMasters.put(number, partMaster);
+        return partMaster;
+    }
+
+    private void addLink(PartMaster parent, PartMaster component) {
+        PartUsageLink link = new PartUsageLink(component, 1, null, false);
+        link.setId(++linkId);
+        parent.getLastRevision().getLastIteration().getComponents().add(link);
+    }
+
+    private static String render(Component component) {
+        StringBuilder sb = new StringBuilder(Tools.getPathAsString(component.getPath()));
+        sb.append('[');
+        if (component.getComponents() != null) {
+            for (Component subComponent : component.getComponents()) {
+                sb.append(render(subComponent));
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    private class RecordingVisitor extends PSFilterVisitor {
+
+        private final List<String> walkedPaths = new ArrayList<>();
+        private final List<String> branches = new ArrayList<>();
+        private List<PartMaster> lastParts;
+        private int stopAfter = -1;
+
+        private RecordingVisitor(boolean breadthFirst) throws Exception {
+            super(em, user, new WIPPSFilter(user));
+            setBreadthFirst(breadthFirst);
+        }
+
+        @Override
+        public void onIndeterminateVersion(PartMaster partMaster, List<PartIteration> partIterations) {
+        }
+
+        @Override
+        public void onUnresolvedVersion(PartMaster partMaster) {
+        }
+
+        @Override
+        public void onIndeterminatePath(List<PartLink> pCurrentPath, List<PartIteration> pCurrentPathPartIterations) {
+        }
+
+        @Override
+        public void onUnresolvedPath(List<PartLink> pCurrentPath, List<PartIteration> partIterations) {
+        }
+
+        @Override
+        public void onBranchDiscovered(List<PartLink> pCurrentPath, List<PartIteration> copyPartIteration) {
+            branches.add(Tools.getPathAsString(pCurrentPath) + "/" + copyPartIteration.size());
+        }
+
+        @Override
+        public void onOptionalPath(List<PartLink> path, List<PartIteration> partIterations) {
+        }
+
+        @Override
+        public boolean onPathWalk(List<PartLink> path, List<PartMaster> parts) {
+            walkedPaths.add(Tools.getPathAsString(path));
+            lastParts = parts;
+            if (walkedPaths.size() == stopAfter) {
+                stop();
+            }
+            return true;
+        }
+    }
+}
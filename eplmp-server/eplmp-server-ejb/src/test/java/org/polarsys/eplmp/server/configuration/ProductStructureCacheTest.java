@@ -0,0 +1,62 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.configuration;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.polarsys.eplmp.core.common.Workspace;
+import org.polarsys.eplmp.core.product.Component;
+import org.polarsys.eplmp.core.product.ConfigurationItemKey;
+import org.polarsys.eplmp.core.product.PartMaster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Locale;
+
+public class ProductStructureCacheTest {
+
+    private final ConfigurationItemKey ciKey = new ConfigurationItemKey("workspace", "product");
+
+    private final ProductStructureCache cache = new ProductStructureCache();
+
+    @Test
+    public void structureResolvedDuringInvalidationIsNotCachedTest() {
+        long generation = cache.getGeneration("workspace");
+
+        // Another workspace is changed while the structure is resolved
+        cache.invalidate("other-workspace");
+        cache.put(ciKey, "released", null, -1, root(), generation);
+        Assert.assertEquals(1, cache.size());
+
+        generation = cache.getGeneration("workspace");
+        // A part of the workspace is checked in while the structure is resolved
+        cache.invalidate("workspace");
+        Assert.assertEquals(0, cache.size());
+        cache.put(ciKey, "released", null, -1, root(), generation);
+        Assert.assertEquals(0, cache.size());
+
+        cache.put(ciKey, "released", null, -1, root(), cache.getGeneration("workspace"));
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void missesAreCountedTest() {
+        Assert.assertNull(cache.get(null, Locale.getDefault(), ciKey, "released", null, -1));
+        Assert.assertEquals(0, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+    }
+
+    private Component root() {
+        PartMaster partMaster = new PartMaster(new Workspace("workspace"), "ASSEMBLY");
+        return new Component(null, partMaster, Collections.singletonList(PSFilterVisitor.createVirtualRootLink(partMaster)), new ArrayList<>());
+    }
+}
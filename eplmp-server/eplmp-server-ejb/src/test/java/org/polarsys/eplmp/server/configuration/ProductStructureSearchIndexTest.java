@@ -0,0 +1,115 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.configuration;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.polarsys.eplmp.core.common.Workspace;
+import org.polarsys.eplmp.core.product.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ProductStructureSearchIndexTest {
+
+    private final Workspace workspace = new Workspace("workspace");
+    private int linkId;
+
+    private ProductStructureSearchIndex.Index index;
+
+    @Before
+    public void setup() {
+        // -1 ASSEMBLY
+        //    u1 BOLT-10 (Hex bolt)
+        //    u2 SUB-1
+        //       u3 BOLT-12 (Hex bolt)
+        //       u4 NUT-10 (Nut)
+        Component root = component("ASSEMBLY", null, null);
+        component("BOLT-10", "Hex bolt", root);
+        Component sub = component("SUB-1", null, root);
+        component("BOLT-12", "Hex bolt", sub);
+        component("NUT-10", "Nut", sub);
+
+        index = new ProductStructureSearchIndex.Index(root);
+    }
+
+    @Test
+    public void exactSearchTest() {
+        Assert.assertEquals(Collections.singletonList("-1-u2-u4"), search("NUT-10"));
+        Assert.assertEquals(Arrays.asList("-1-u1", "-1-u2-u3"), search("Hex bolt"));
+        Assert.assertEquals(Collections.singletonList("-1-u2"), search("-1-u2"));
+        Assert.assertTrue(search("BOLT").isEmpty());
+    }
+
+    @Test
+    public void wildcardSearchTest() {
+        Assert.assertEquals(Arrays.asList("-1-u1", "-1-u2-u3"), search("BOLT-*"));
+        Assert.assertEquals(Arrays.asList("-1-u1", "-1-u2", "-1-u2-u3", "-1-u2-u4"), search("*-1*"));
+        Assert.assertEquals(Arrays.asList("-1-u1", "-1-u2-u4"), search("*-10"));
+        Assert.assertEquals(Collections.singletonList("-1-u2-u3"), search("B?LT-?2"));
+        Assert.assertEquals(5, search("*").size());
+    }
+
+    @Test
+    public void regexSearchTest() {
+        Assert.assertEquals(Arrays.asList("-1-u1", "-1-u2-u3"), regex(".*bolt.*"));
+        Assert.assertEquals(Arrays.asList("-1-u1", "-1-u2-u4"), regex("[A-Z]+-10"));
+        Assert.assertEquals(Collections.singletonList("-1-u2"), regex("-1-u2"));
+        Assert.assertTrue(regex("BOLT").isEmpty());
+        Assert.assertEquals(Arrays.asList("-1-u1", "-1-u2-u3"), regex("BOLT-1[0-9]"));
+        Assert.assertEquals(Collections.singletonList("-1-u1"), regex("BOLT-10?"));
+        Assert.assertEquals(Arrays.asList("-1-u2-u3", "-1-u2-u4"), regex("NUT-10|BOLT-12"));
+        Assert.assertTrue(ProductStructureSearchIndex.Search.regex(".*bolt.*").matches(component("BOLT-10", "Hex bolt", null)));
+    }
+
+    @Test
+    public void walkMatchesIndexTest() {
+        ProductStructureSearchIndex.Search search = ProductStructureSearchIndex.Search.wildcards("*bolt");
+        Component bolt = component("BOLT-10", "Hex bolt", null);
+        Component nut = component("NUT-10", "Nut", null);
+
+        Assert.assertTrue(search.matches(bolt));
+        Assert.assertFalse(search.matches(nut));
+    }
+
+    private List<String> search(String value) {
+        return index.search(ProductStructureSearchIndex.Search.wildcards(value));
+    }
+
+    private List<String> regex(String value) {
+        return index.search(ProductStructureSearchIndex.Search.regex(value));
+    }
+
+    private Component component(String number, String name, Component parent) {
+        PartMaster partMaster = new PartMaster(workspace, number);
+        partMaster.setName(name);
+
+        List<PartLink> path = new ArrayList<>();
+        if (parent == null) {
+            path.add(PSFilterVisitor.createVirtualRootLink(partMaster));
+        } else {
+            path.addAll(parent.getPath());
+            PartUsageLink link = new PartUsageLink(partMaster, 1, null, false);
+            link.setId(++linkId);
+            path.add(link);
+        }
+
+        Component component = new Component(null, partMaster, path, new ArrayList<>());
+        if (parent != null) {
+            parent.addComponent(component);
+        }
+        return component;
+    }
+}
@@ -0,0 +1,248 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.dao;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.polarsys.eplmp.core.common.Account;
+import org.polarsys.eplmp.core.common.User;
+import org.polarsys.eplmp.core.common.UserGroup;
+import org.polarsys.eplmp.core.common.Workspace;
+import org.polarsys.eplmp.core.security.ACL;
+import org.polarsys.eplmp.core.security.ACLPermission;
+import org.polarsys.eplmp.core.security.ACLUserEntry;
+import org.polarsys.eplmp.core.security.ACLUserGroupEntry;
+
+import javax.persistence.Query;
+import javax.persistence.criteria.*;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.function.Function;
+
+public class ACLPredicateBuilderTest {
+
+    private static final String ACL_UNDER_TEST = "acl";
+
+    @Test
+    public void administratorIsNotRestrictedTest() {
+        User admin = Mockito.mock(User.class);
+        Mockito.when(admin.isAdministrator()).thenReturn(true);
+        Query query = Mockito.mock(Query.class);
+
+        Assert.assertEquals("1 = 1", ACLPredicateBuilder.readAccess("pr.acl", admin));
+
+        ACLPredicateBuilder.setUser(query, admin);
+        Mockito.verify(query, Mockito.never()).setParameter(Matchers.anyString(), Matchers.any());
+    }
+
+    @Test
+    public void userIsRestrictedTest() {
+        User user = Mockito.mock(User.class);
+        Mockito.when(user.isAdministrator()).thenReturn(false);
+        Query query = Mockito.mock(Query.class);
+
+        String predicate = ACLPredicateBuilder.readAccess("pr.acl", user);
+
+        Assert.assertTrue(predicate.startsWith("(pr.acl IS NULL OR EXISTS (SELECT pr_acl_ue FROM ACLUserEntry pr_acl_ue"));
+        // The user entry overrides the group entries, as in ACL.hasReadAccess
+        Assert.assertTrue(predicate.contains("NOT EXISTS (SELECT pr_acl_uo FROM ACLUserEntry pr_acl_uo"));
+        Assert.assertTrue(predicate.contains(":aclUser MEMBER OF pr_acl_ge.principal.users"));
+
+        // Several items of a query get their own sub query aliases
+        Assert.assertFalse(ACLPredicateBuilder.readAccess("pim.acl", user).contains("pr_acl"));
+
+        ACLPredicateBuilder.setUser(query, user);
+        Mockito.verify(query).setParameter(ACLPredicateBuilder.USER_PARAMETER, user);
+    }
+
+    @Test
+    public void predicateMatchesReadAccessTest() {
+        Workspace workspace = new Workspace("workspace");
+        Account adminAccount = new Account("admin", "admin", "admin@docdoku.com", "en", new Date(), null);
+        workspace.setAdmin(adminAccount);
+        User admin = new User(workspace, adminAccount);
+        User user = new User(workspace, new Account("user", "user", "user@docdoku.com", "en", new Date(), null));
+        User other = new User(workspace, new Account("other", "other", "other@docdoku.com", "en", new Date(), null));
+
+        UserGroup group = new UserGroup(workspace, "group");
+        group.addUser(user);
+        UserGroup otherGroup = new UserGroup(workspace, "otherGroup");
+        otherGroup.addUser(other);
+
+        // Every combination of an entry for the user, for a group of the user, and for another group
+        List<ACL> acls = new ArrayList<>();
+        List<ACLPermission> permissions = new ArrayList<>(Arrays.asList(ACLPermission.values()));
+        permissions.add(null);
+        for (ACLPermission userPermission : permissions) {
+            for (ACLPermission groupPermission : permissions) {
+                for (ACLPermission otherGroupPermission : permissions) {
+                    ACL acl = new ACL();
+                    acl.setId(acls.size() + 1);
+                    if (userPermission != null) {
+                        acl.addEntry(user, userPermission);
+                    }
+                    if (groupPermission != null) {
+                        acl.addEntry(group, groupPermission);
+                    }
+                    if (otherGroupPermission != null) {
+                        acl.addEntry(otherGroup, otherGroupPermission);
+                    }
+                    acl.addEntry(other, ACLPermission.FULL_ACCESS);
+                    acls.add(acl);
+                }
+            }
+        }
+
+        InMemoryCriteria criteria = new InMemoryCriteria(acls);
+        for (User caller : Arrays.asList(user, other, admin)) {
+            Predicate predicate = criteria.readAccess(caller);
+            Assert.assertTrue(criteria.matches(predicate, null));
+            for (ACL acl : acls) {
+                boolean expected = caller.isAdministrator() || acl.hasReadAccess(caller);
+                Assert.assertEquals(caller.getLogin() + " on ACL " + acl.getId(), expected, criteria.matches(predicate, acl));
+            }
+        }
+    }
+
+    /**
+     * Evaluate the Criteria API predicate of {@link ACLPredicateBuilder} in memory, sub queries being run
+     * against the entries of the given ACLs.
+     */
+    private static class InMemoryCriteria {
+
+        private final Map<Class<?>, List<Object>> tables = new HashMap<>();
+        private final CriteriaBuilder cb = proxy(CriteriaBuilder.class, new Node(null));
+
+        private InMemoryCriteria(List<ACL> acls) {
+            List<Object> userEntries = new ArrayList<>();
+            List<Object> groupEntries = new ArrayList<>();
+            for (ACL acl : acls) {
+                userEntries.addAll(acl.getUserEntries().values());
+                groupEntries.addAll(acl.getGroupEntries().values());
+            }
+            tables.put(ACLUserEntry.class, userEntries);
+            tables.put(ACLUserGroupEntry.class, groupEntries);
+        }
+
+        @SuppressWarnings("unchecked")
+        private Predicate readAccess(User caller) {
+            AbstractQuery<?> query = proxy(AbstractQuery.class, new Node(null));
+            Path<ACL> acl = proxy(Path.class, new Node(row -> row.get(ACL_UNDER_TEST)));
+            return ACLPredicateBuilder.readAccess(cb, query, acl, caller);
+        }
+
+        private boolean matches(Predicate predicate, ACL acl) {
+            Map<Object, Object> row = new HashMap<>();
+            row.put(ACL_UNDER_TEST, acl);
+            return (Boolean) evaluate(predicate, row);
+        }
+
+        private static Object evaluate(Object expression, Map<Object, Object> row) {
+            if (expression != null && Proxy.isProxyClass(expression.getClass())) {
+                return ((Node) Proxy.getInvocationHandler(expression)).value.apply(row);
+            }
+            return expression;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<?> type, Node node) {
+            return (T) Proxy.newProxyInstance(InMemoryCriteria.class.getClassLoader(), new Class<?>[]{type}, node);
+        }
+
+        private class Node implements InvocationHandler {
+
+            private final Function<Map<Object, Object>, Object> value;
+            private final List<Object> restrictions = new ArrayList<>();
+            private Class<?> entityClass;
+            private Object root;
+
+            private Node(Function<Map<Object, Object>, Object> value) {
+                this.value = value;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                Class<?> type = method.getReturnType();
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return type.getSimpleName();
+                    case "subquery":
+                        Node subquery = new Node(null);
+                        subquery.entityClass = (Class<?>) args[0];
+                        return proxy(type, subquery);
+                    case "from":
+                        root = proxy(type, new Node(row -> row.get(root)));
+                        return root;
+                    case "select":
+                        return proxy;
+                    case "where":
+                        restrictions.addAll(operands(args));
+                        return proxy;
+                    case "get":
+                        String attribute = (String) args[0];
+                        return proxy(type, new Node(row -> property(evaluate(proxy, row), attribute)));
+                    case "equal":
+                        return proxy(type, new Node(row -> Objects.equals(evaluate(args[0], row), evaluate(args[1], row))));
+                    case "notEqual":
+                        return proxy(type, new Node(row -> !Objects.equals(evaluate(args[0], row), evaluate(args[1], row))));
+                    case "isNull":
+                        return proxy(type, new Node(row -> evaluate(args[0], row) == null));
+                    case "isMember":
+                        return proxy(type, new Node(row -> ((Collection<?>) evaluate(args[1], row)).contains(evaluate(args[0], row))));
+                    case "not":
+                        return proxy(type, new Node(row -> !(Boolean) evaluate(args[0], row)));
+                    case "and":
+                        return proxy(type, new Node(row -> operands(args).stream().allMatch(p -> (Boolean) evaluate(p, row))));
+                    case "or":
+                        return proxy(type, new Node(row -> operands(args).stream().anyMatch(p -> (Boolean) evaluate(p, row))));
+                    case "exists":
+                        Node query = (Node) Proxy.getInvocationHandler(args[0]);
+                        return proxy(type, new Node(row -> query.exists(row)));
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+
+            // Boolean operators take either two expressions or an array of predicates
+            private List<Object> operands(Object[] args) {
+                return args.length == 1 && args[0] instanceof Object[] ? Arrays.asList((Object[]) args[0]) : Arrays.asList(args);
+            }
+
+            private boolean exists(Map<Object, Object> row) {
+                for (Object entity : tables.get(entityClass)) {
+                    Map<Object, Object> subRow = new HashMap<>(row);
+                    subRow.put(root, entity);
+                    if (restrictions.stream().allMatch(p -> (Boolean) evaluate(p, subRow))) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            private Object property(Object entity, String attribute) {
+                try {
+                    return entity.getClass().getMethod("get" + Character.toUpperCase(attribute.charAt(0)) + attribute.substring(1)).invoke(entity);
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.dao;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.polarsys.eplmp.core.product.PartMaster;
+
+import javax.persistence.*;
+import java.util.*;
+
+public class EntityGraphHintsTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void batchPathsFollowGraphTest() {
+        // PartMaster.index: partRevisions { partIterations { attachedFiles, instanceAttributes }, tags }
+        AttributeNode<?> iterations = attributeNode("partIterations", attributeNode("attachedFiles"), attributeNode("instanceAttributes"));
+        AttributeNode<?> revisions = attributeNode("partRevisions", iterations, attributeNode("tags"));
+        EntityGraph<PartMaster> graph = Mockito.mock(EntityGraph.class);
+        Mockito.when(graph.getAttributeNodes()).thenReturn(Collections.singletonList(revisions));
+
+        EntityManager em = Mockito.mock(EntityManager.class);
+        Mockito.when(em.getEntityGraph("PartMaster.index")).thenReturn((EntityGraph) graph);
+        TypedQuery<PartMaster> query = Mockito.mock(TypedQuery.class);
+
+        Assert.assertSame(query, EntityGraphHints.apply(em, query, "PartMaster.index", "pm"));
+
+        InOrder inOrder = Mockito.inOrder(query);
+        inOrder.verify(query).setHint(EntityGraphHints.LOAD_GRAPH, graph);
+        inOrder.verify(query).setHint(EntityGraphHints.BATCH_TYPE, "IN");
+        inOrder.verify(query).setHint(EntityGraphHints.BATCH, "pm.partRevisions");
+        inOrder.verify(query).setHint(EntityGraphHints.BATCH, "pm.partRevisions.partIterations");
+        inOrder.verify(query).setHint(EntityGraphHints.BATCH, "pm.partRevisions.partIterations.attachedFiles");
+        inOrder.verify(query).setHint(EntityGraphHints.BATCH, "pm.partRevisions.partIterations.instanceAttributes");
+        inOrder.verify(query).setHint(EntityGraphHints.BATCH, "pm.partRevisions.tags");
+        Mockito.verifyNoMoreInteractions(query);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AttributeNode<?> attributeNode(String name, AttributeNode<?>... subgraphNodes) {
+        AttributeNode<Object> attributeNode = Mockito.mock(AttributeNode.class);
+        Mockito.when(attributeNode.getAttributeName()).thenReturn(name);
+        Map<Class, Subgraph> subgraphs = new HashMap<>();
+        if (subgraphNodes.length > 0) {
+            Subgraph<Object> subgraph = Mockito.mock(Subgraph.class);
+            Mockito.when(subgraph.getAttributeNodes()).thenReturn(Arrays.asList(subgraphNodes));
+            subgraphs.put(Object.class, subgraph);
+        }
+        Mockito.when(attributeNode.getSubgraphs()).thenReturn(subgraphs);
+        return attributeNode;
+    }
+}
@@ -0,0 +1,150 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+package org.polarsys.eplmp.server.indexer;
+
+import com.sun.net.httpserver.HttpServer;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestClientFactory;
+import io.searchbox.client.config.HttpClientConfig;
+import io.searchbox.core.Update;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Runs the bulk indexer against a local HTTP server standing in for Elasticsearch
+ */
+public class BulkIndexerTest {
+
+    private HttpServer server;
+    private JestClient client;
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private volatile String failedId;
+
+    @Before
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/_bulk", exchange -> {
+            String body = IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8);
+            requests.add(body);
+            byte[] response = bulkResponse(body).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+
+        JestClientFactory factory = new JestClientFactory();
+        factory.setHttpClientConfig(new HttpClientConfig.Builder("http://127.0.0.1:" + server.getAddress().getPort()).build());
+        client = factory.getObject();
+    }
+
+    @After
+    public void tearDown() {
+        client.shutdownClient();
+        server.stop(0);
+    }
+
+    @Test
+    public void flushesWhenActionCountIsReached() throws IOException {
+        BulkIndexer bulkIndexer = new BulkIndexer(client, 3, Long.MAX_VALUE);
+
+        for (int i = 0; i < 7; i++) {
+            bulkIndexer.add(update("doc-" + i, "{}"));
+        }
+
+        Assert.assertEquals(2, requests.size());
+        Assert.assertEquals(1, bulkIndexer.getPendingCount());
+
+        bulkIndexer.flush();
+
+        Assert.assertEquals(3, requests.size());
+        Assert.assertEquals(7, bulkIndexer.getIndexedCount());
+        Assert.assertEquals(0, bulkIndexer.getFailureCount());
+    }
+
+    @Test
+    public void flushesWhenPayloadSizeIsReached() throws IOException {
+        BulkIndexer bulkIndexer = new BulkIndexer(client, Integer.MAX_VALUE, 100);
+        String largePayload = "{\"content\":\"" + new String(new char[80]).replace('\0', 'x') + "\"}";
+
+        bulkIndexer.add(update("doc-0", largePayload));
+        Assert.assertEquals(0, requests.size());
+
+        bulkIndexer.add(update("doc-1", largePayload));
+        Assert.assertEquals(1, requests.size());
+        Assert.assertEquals(0, bulkIndexer.getPendingCount());
+    }
+
+    @Test
+    public void countsFailedItems() throws IOException {
+        failedId = "doc-1";
+        BulkIndexer bulkIndexer = new BulkIndexer(client, 10, Long.MAX_VALUE);
+
+        for (int i = 0; i < 3; i++) {
+            bulkIndexer.add(update("doc-" + i, "{}"));
+        }
+        bulkIndexer.flush();
+
+        Assert.assertEquals(2, bulkIndexer.getIndexedCount());
+        Assert.assertEquals(1, bulkIndexer.getFailureCount());
+        Assert.assertEquals(Collections.singleton(BulkIndexer.getActionKey(IndexerMapping.DOCUMENT_TYPE, "doc-1")),
+                bulkIndexer.getFailedActions());
+    }
+
+    @Test
+    public void doesNothingWithoutPendingActions() throws IOException {
+        BulkIndexer bulkIndexer = new BulkIndexer(client, 10, Long.MAX_VALUE);
+        bulkIndexer.flush();
+        Assert.assertEquals(0, requests.size());
+        Assert.assertEquals(0, bulkIndexer.getRequestCount());
+    }
+
+    private static Update update(String id, String payload) {
+        return new Update.Builder(payload).index("workspace").type(IndexerMapping.DOCUMENT_TYPE).id(id).build();
+    }
+
+    /**
+     * Answer each update action of the bulk body, failing the one with {@link #failedId}
+     */
+    private String bulkResponse(String body) {
+        StringBuilder items = new StringBuilder();
+        boolean errors = false;
+        for (String line : body.split("\n")) {
+            if (!line.startsWith("{\"update\"")) {
+                continue;
+            }
+            String id = line.replaceAll(".*\"_id\":\"([^\"]*)\".*", "$1");
+            boolean failed = id.equals(failedId);
+            errors |= failed;
+            if (items.length() > 0) {
+                items.append(',');
+            }
+            items.append("{\"update\":{\"_index\":\"workspace\",\"_type\":\"document\",\"_id\":\"").append(id).append('"')
+                    .append(failed ? ",\"status\":400,\"error\":{\"type\":\"mapper_parsing_exception\",\"reason\":\"failed\"}}}"
+                            : ",\"status\":200}}");
+        }
+        return "{\"took\":1,\"errors\":" + errors + ",\"items\":[" + items + "]}";
+    }
+}
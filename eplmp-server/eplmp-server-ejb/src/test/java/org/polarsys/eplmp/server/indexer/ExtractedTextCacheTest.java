@@ -0,0 +1,103 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+package org.polarsys.eplmp.server.indexer;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.polarsys.eplmp.core.common.BinaryResource;
+import org.polarsys.eplmp.core.services.IBinaryStorageManagerLocal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ExtractedTextCacheTest {
+
+    @Mock
+    private IBinaryStorageManagerLocal storageManager;
+
+    private final Map<String, ByteArrayOutputStream> generatedFiles = new HashMap<>();
+
+    private final BinaryResource textFile = new BinaryResource("wks/documents/DOC-1/A/1/notes.txt", 11, new Date());
+
+    @Before
+    public void setup() throws Exception {
+        when(storageManager.getBinaryResourceInputStream(any(BinaryResource.class)))
+                .thenAnswer(invocation -> new ByteArrayInputStream("hello world".getBytes(StandardCharsets.UTF_8)));
+        when(storageManager.exists(any(BinaryResource.class), anyString()))
+                .thenAnswer(invocation -> generatedFiles.containsKey((String) invocation.getArguments()[1]));
+        when(storageManager.getGeneratedFileOutputStream(any(BinaryResource.class), anyString()))
+                .thenAnswer(invocation -> {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    generatedFiles.put((String) invocation.getArguments()[1], out);
+                    return out;
+                });
+        when(storageManager.getGeneratedFileInputStream(any(BinaryResource.class), anyString()))
+                .thenAnswer(invocation -> new ByteArrayInputStream(generatedFiles.get((String) invocation.getArguments()[1]).toByteArray()));
+    }
+
+    @Test
+    public void extractsOncePerContent() throws Exception {
+        ExtractedTextCache textCache = new ExtractedTextCache(storageManager, 1000);
+
+        Assert.assertEquals("hello world", textCache.getText(textFile));
+        Assert.assertEquals("hello world", textCache.getText(textFile));
+
+        Assert.assertEquals(1, textCache.getMissCount());
+        Assert.assertEquals(1, textCache.getHitCount());
+        Assert.assertEquals(1, generatedFiles.size());
+        Assert.assertTrue(generatedFiles.keySet().iterator().next().startsWith("extracted-text-"));
+
+        // The file is only read to extract its text
+        verify(storageManager, times(1)).getBinaryResourceInputStream(textFile);
+    }
+
+    @Test
+    public void extractsAgainOnceModified() throws Exception {
+        ExtractedTextCache textCache = new ExtractedTextCache(storageManager, 1000);
+        BinaryResource modifiedFile = new BinaryResource(textFile.getFullName(), textFile.getContentLength(),
+                new Date(textFile.getLastModified().getTime() + 1000));
+
+        textCache.getText(textFile);
+        textCache.getText(modifiedFile);
+
+        Assert.assertEquals(2, textCache.getMissCount());
+        Assert.assertEquals(2, generatedFiles.size());
+    }
+
+    @Test
+    public void skipsFilesWithoutText() throws Exception {
+        ExtractedTextCache textCache = new ExtractedTextCache(storageManager, 1000);
+        BinaryResource model = new BinaryResource("wks/parts/P-1/A/1/nativecad/model.stp", 11, new Date());
+
+        Assert.assertEquals(IndexerUtils.NO_TEXT, textCache.getText(model));
+        verify(storageManager, never()).getBinaryResourceInputStream(model);
+    }
+
+    @Test
+    public void truncatesAtWhiteSpace() {
+        Assert.assertEquals("hello", ExtractedTextCache.truncate("hello world", 8));
+        Assert.assertEquals("hello world", ExtractedTextCache.truncate("hello world", 11));
+        Assert.assertEquals("abcd", ExtractedTextCache.truncate("abcdefgh", 4));
+    }
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.storage.filesystem;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.polarsys.eplmp.core.common.BinaryResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+public class ContentAddressedStorageProviderTest {
+
+    @Rule
+    public TemporaryFolder vault = new TemporaryFolder();
+
+    private ContentAddressedStorageProvider storageProvider;
+
+    @Before
+    public void setup() {
+        Assume.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("unix"));
+        storageProvider = new ContentAddressedStorageProvider(vault.getRoot().getAbsolutePath());
+    }
+
+    @Test
+    public void identicalContentsAreStoredOnceTest() throws Exception {
+        BinaryResource first = binaryResource("w1/parts/P1/A/1/nativecad/part.stp");
+        BinaryResource second = binaryResource("w2/parts/P2/A/1/nativecad/part.stp");
+
+        write(first, "solid");
+        write(second, "solid");
+
+        Assert.assertEquals(1, countBlobs());
+        Assert.assertEquals("solid", read(second));
+
+        storageProvider.delData(first);
+        Assert.assertEquals(1, countBlobs());
+
+        storageProvider.delData(second);
+        Assert.assertEquals(0, countBlobs());
+    }
+
+    @Test
+    public void sharedContentIsNotWrittenInPlaceTest() throws Exception {
+        BinaryResource source = binaryResource("w/documents/D/A/1/doc.txt");
+        BinaryResource target = binaryResource("w/documents/D/A/2/doc.txt");
+
+        write(source, "first");
+        storageProvider.shareData(source, target);
+        Assert.assertEquals("first", read(target));
+
+        write(target, "second");
+        Assert.assertEquals("first", read(source));
+        Assert.assertEquals("second", read(target));
+        Assert.assertEquals(2, countBlobs());
+    }
+
+    @Test
+    public void existingVaultIsConvertedInPlaceTest() throws Exception {
+        BinaryResource first = binaryResource("w/documents/D/A/1/doc.txt");
+        BinaryResource second = binaryResource("w/documents/E/A/1/doc.txt");
+        FileStorageProvider legacyProvider = new FileStorageProvider(vault.getRoot().getAbsolutePath());
+        try (OutputStream outputStream = legacyProvider.getBinaryResourceOutputStream(first)) {
+            outputStream.write("content".getBytes(StandardCharsets.UTF_8));
+        }
+        try (OutputStream outputStream = legacyProvider.getBinaryResourceOutputStream(second)) {
+            outputStream.write("content".getBytes(StandardCharsets.UTF_8));
+        }
+
+        storageProvider.storeData(first);
+        storageProvider.storeData(second);
+        // Already stored resources are skipped, the conversion can be resumed
+        storageProvider.storeData(first);
+
+        Assert.assertEquals(1, countBlobs());
+        Assert.assertEquals("content", read(first));
+        Assert.assertEquals("content", read(second));
+    }
+
+    @Test
+    public void concurrentWritesAndDeletionsTest() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                BinaryResource binaryResource = binaryResource("w" + i + "/documents/D/A/1/doc.txt");
+                futures.add(executorService.submit(() -> {
+                    for (int j = 0; j < 200; j++) {
+                        write(binaryResource, "shared");
+                        Assert.assertEquals("shared", read(binaryResource));
+                        storageProvider.delData(binaryResource);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        Assert.assertEquals(0, countBlobs());
+    }
+
+    private BinaryResource binaryResource(String fullName) {
+        return new BinaryResource(fullName, 0, new Date());
+    }
+
+    private void write(BinaryResource binaryResource, String content) throws Exception {
+        try (OutputStream outputStream = storageProvider.getBinaryResourceOutputStream(binaryResource)) {
+            outputStream.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private String read(BinaryResource binaryResource) throws Exception {
+        try (InputStream inputStream = storageProvider.getBinaryResourceInputStream(binaryResource)) {
+            byte[] bytes = new byte[64];
+            int length = inputStream.read(bytes);
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    private long countBlobs() throws IOException {
+        Path blobs = vault.getRoot().toPath().resolve(ContentAddressedStorageProvider.BLOBS_FOLDER);
+        try (Stream<Path> files = Files.walk(blobs)) {
+            return files.filter(file -> !file.startsWith(blobs.resolve("tmp")) && Files.isRegularFile(file)).count();
+        }
+    }
+}
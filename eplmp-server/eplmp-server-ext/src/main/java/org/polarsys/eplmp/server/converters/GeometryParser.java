@@ -11,76 +11,250 @@
 
 package org.polarsys.eplmp.server.converters;
 
-import jdk.nashorn.api.scripting.ScriptObjectMirror;
-
-import javax.script.Invocable;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-import javax.script.ScriptException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.util.Arrays;
-import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.nio.file.StandardOpenOption;
 
 /**
  * This GeometryParser class allows to compute geometric data for given file
- * It relies on Nashorn to compute the bounding box
+ * The OBJ file is scanned once, line by line, through a fixed buffer: only the vertex
+ * lines are parsed, and numbers are read from the bytes without creating strings.
  *
  * @author Morgan Guimard
  */
 public class GeometryParser {
 
-    private static final Logger LOGGER = Logger.getLogger(GeometryParser.class.getName());
-    private final Path convertedFile;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Largest mantissa converted exactly to a double, and powers of ten exactly represented as doubles
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final int MAX_MANTISSA_DIGITS = 18;
 
-    private final ScriptEngineManager factory = new ScriptEngineManager();
-    private final ScriptEngine engine = factory.getEngineByName("nashorn");
+    private final Path convertedFile;
 
-    private final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+    private final double[] min = new double[3];
+    private final double[] max = new double[3];
+    private final double[] vertex = new double[3];
+    private long vertexCount;
+    private long faceCount;
 
+    // Value of the last parsed number
+    private double number;
 
     public GeometryParser(Path convertedFile) {
-
         this.convertedFile = convertedFile;
+    }
 
-        List<String> scripts = Arrays.asList(
-                "org/polarsys/eplmp/server/converters/box-calculator.js",
-                "META-INF/resources/webjars/three.js/r70/three.js"
-        );
+    /**
+     * Computes the bounding box of given 3D OBJ file
+     *
+     * @return an array of double representing the bounding box min and max values, zeros if the file has no vertex
+     */
+    public double[] calculateBox() throws IOException {
+        scan();
+        if (vertexCount == 0) {
+            return new double[6];
+        }
+        return new double[]{min[0], min[1], min[2], max[0], max[1], max[2]};
+    }
 
-        scripts.stream().forEach((script) -> {
-            try {
-                loadFile(script);
-            } catch (ScriptException e) {
-                LOGGER.log(Level.SEVERE, "Cannot load script : " + script, e);
+    /**
+     * Get the number of vertices of the file, once the box is computed
+     */
+    public long getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Get the number of faces of the file, once the box is computed
+     */
+    public long getFaceCount() {
+        return faceCount;
+    }
+
+    private void scan() throws IOException {
+        vertexCount = 0;
+        faceCount = 0;
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        // Lines longer than the buffer are parsed from their beginning, the rest is skipped
+        boolean skipping = false;
+        int end = 0;
+
+        try (FileChannel channel = FileChannel.open(convertedFile, StandardOpenOption.READ)) {
+            int read;
+            while ((read = channel.read(ByteBuffer.wrap(buffer, end, buffer.length - end))) != -1) {
+                end += read;
+                int lineStart = 0;
+                int newLine;
+                while ((newLine = indexOfNewLine(buffer, lineStart, end)) != -1) {
+                    if (!skipping) {
+                        parseLine(buffer, lineStart, newLine);
+                    }
+                    skipping = false;
+                    lineStart = newLine + 1;
+                }
+
+                if (lineStart == 0 && end == buffer.length) {
+                    if (!skipping) {
+                        parseLine(buffer, 0, end);
+                    }
+                    skipping = true;
+                    end = 0;
+                } else {
+                    // Keep the beginning of the current line for the next read
+                    System.arraycopy(buffer, lineStart, buffer, 0, end - lineStart);
+                    end -= lineStart;
+                }
+            }
+            if (end > 0 && !skipping) {
+                parseLine(buffer, 0, end);
             }
-        });
+        }
+    }
+
+    private void parseLine(byte[] line, int start, int end) {
+        int i = skipBlanks(line, start, end);
+        if (i + 1 >= end || !isBlank(line[i + 1])) {
+            return;
+        }
 
+        if (line[i] == 'f') {
+            faceCount++;
+        } else if (line[i] == 'v') {
+            i++;
+            for (int axis = 0; axis < 3; axis++) {
+                i = parseNumber(line, skipBlanks(line, i, end), end);
+                if (i == -1) {
+                    return;
+                }
+                vertex[axis] = number;
+            }
+            addVertex();
+        }
     }
 
+    private void addVertex() {
+        for (int axis = 0; axis < 3; axis++) {
+            if (vertexCount == 0 || vertex[axis] < min[axis]) {
+                min[axis] = vertex[axis];
+            }
+            if (vertexCount == 0 || vertex[axis] > max[axis]) {
+                max[axis] = vertex[axis];
+            }
+        }
+        vertexCount++;
+    }
 
     /**
-     * Computes the bounding box of given 3D OBJ file
+     * Parse a decimal number, with an optional sign, fraction and exponent, into {@link #number}
      *
-     * @return an array of double representing the bounding box min and max values
+     * @return the index following the number, -1 if there is no number at the given index
      */
-    public double[] calculateBox() throws IOException, ScriptException, NoSuchMethodException {
-        final Invocable invocable = (Invocable) engine;
-        final InputStream inputStream = Files.newInputStream(convertedFile);
-        String data = ConverterUtils.inputStreamToString(inputStream);
-        ScriptObjectMirror scriptObjectMirror = (ScriptObjectMirror) invocable.invokeFunction("calculateBox", data);
-        return scriptObjectMirror.to(double[].class);
+    private int parseNumber(byte[] bytes, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean hasDigits = false;
+
+        for (; i < end && isDigit(bytes[i]); i++) {
+            hasDigits = true;
+            if (digits < MAX_MANTISSA_DIGITS) {
+                mantissa = mantissa * 10 + (bytes[i] - '0');
+                if (mantissa != 0) {
+                    digits++;
+                }
+            } else {
+                exponent++;
+            }
+        }
+        if (i < end && bytes[i] == '.') {
+            for (i++; i < end && isDigit(bytes[i]); i++) {
+                hasDigits = true;
+                if (digits < MAX_MANTISSA_DIGITS) {
+                    mantissa = mantissa * 10 + (bytes[i] - '0');
+                    exponent--;
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                }
+            }
+        }
+        if (!hasDigits) {
+            return -1;
+        }
+
+        if (i < end && (bytes[i] == 'e' || bytes[i] == 'E')) {
+            int j = i + 1;
+            boolean negativeExponent = false;
+            if (j < end && (bytes[j] == '-' || bytes[j] == '+')) {
+                negativeExponent = bytes[j] == '-';
+                j++;
+            }
+            if (j < end && isDigit(bytes[j])) {
+                int explicitExponent = 0;
+                for (; j < end && isDigit(bytes[j]); j++) {
+                    explicitExponent = Math.min(explicitExponent * 10 + (bytes[j] - '0'), 10000);
+                }
+                exponent += negativeExponent ? -explicitExponent : explicitExponent;
+                i = j;
+            }
+        }
+
+        if (i < end && !isBlank(bytes[i])) {
+            return -1;
+        }
+
+        double value;
+        if (mantissa == 0) {
+            value = 0;
+        } else if (mantissa < MAX_EXACT_MANTISSA && Math.abs(exponent) < POWERS_OF_TEN.length) {
+            // Both operands are exact, the division or product is correctly rounded
+            value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        } else {
+            // Rare, let the JDK round the many digits numbers
+            value = Math.abs(Double.parseDouble(new String(bytes, start, i - start, StandardCharsets.US_ASCII)));
+        }
+        number = negative ? -value : value;
+        return i;
     }
 
+    private static int indexOfNewLine(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipBlanks(byte[] bytes, int start, int end) {
+        int i = start;
+        while (i < end && (bytes[i] == ' ' || bytes[i] == '\t')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
 
-    private void loadFile(String script) throws ScriptException {
-        final InputStream inputStream = loader.getResourceAsStream(script);
-        final InputStreamReader inputStreamReader = new InputStreamReader(inputStream);
-        engine.eval(inputStreamReader);
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
     }
 }
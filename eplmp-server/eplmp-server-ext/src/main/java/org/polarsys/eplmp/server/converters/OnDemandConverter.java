@@ -16,6 +16,7 @@ import org.polarsys.eplmp.core.document.DocumentIteration;
 import org.polarsys.eplmp.core.exceptions.ConvertedResourceException;
 import org.polarsys.eplmp.core.product.PartIteration;
 
+import java.io.File;
 import java.io.InputStream;
 import java.util.Locale;
 
@@ -55,4 +56,32 @@ public interface OnDemandConverter {
      * @return the converted resource input stream
      */
     InputStream getConvertedResource(String outputFormat, BinaryResource binaryResource, PartIteration partIteration, Locale locale) throws ConvertedResourceException;
+
+    /**
+     * Get the converted resource in given output format for a document iteration, as a file of the storage
+     * which can be served with positional reads
+     *
+     * @param outputFormat      the output format
+     * @param binaryResource    the resource to convert
+     * @param documentIteration the document iteration concerned
+     * @param locale            the locale to use for conversion
+     * @return the converted resource file, null if the plugin does not store its conversions as files
+     */
+    default File getConvertedFile(String outputFormat, BinaryResource binaryResource, DocumentIteration documentIteration, Locale locale) throws ConvertedResourceException {
+        return null;
+    }
+
+    /**
+     * Get the converted resource in given output format for a part iteration, as a file of the storage
+     * which can be served with positional reads
+     *
+     * @param outputFormat   the output format
+     * @param binaryResource the resource to convert
+     * @param partIteration  the part iteration concerned
+     * @param locale         the locale to use for conversion
+     * @return the converted resource file, null if the plugin does not store its conversions as files
+     */
+    default File getConvertedFile(String outputFormat, BinaryResource binaryResource, PartIteration partIteration, Locale locale) throws ConvertedResourceException {
+        return null;
+    }
 }
@@ -0,0 +1,40 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * ContentCodec plugin interface
+ * Extension point for the precompressed variants of stored files
+ *
+ * Each codec is used to store an encoded copy of the files worth it (e.g. geometries),
+ * which is served as is to the clients accepting its content coding.
+ */
+public interface ContentCodec {
+
+    /**
+     * Get the http content coding produced by this codec
+     *
+     * @return the content coding token, as found in Accept-Encoding and Content-Encoding headers (e.g. "gzip", "br")
+     */
+    String getEncoding();
+
+    /**
+     * Wrap the given output stream with an encoding one
+     *
+     * @param outputStream the stream receiving the encoded bytes
+     * @return the stream to write the content to, closing it must finish the encoding and close the given stream
+     */
+    OutputStream encode(OutputStream outputStream) throws IOException;
+}
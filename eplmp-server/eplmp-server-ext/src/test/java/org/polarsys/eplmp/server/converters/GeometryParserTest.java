@@ -0,0 +1,89 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.converters;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+public class GeometryParserTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sampleMeshTest() throws Exception {
+        Path cube = Paths.get(GeometryParserTest.class.getResource("cube.obj").toURI());
+        GeometryParser parser = new GeometryParser(cube);
+
+        // Texture coordinates and normals are not part of the box
+        Assert.assertArrayEquals(new double[]{-1, -1, -1, 1, 2.5, 1}, parser.calculateBox(), 0);
+        Assert.assertEquals(8, parser.getVertexCount());
+        Assert.assertEquals(6, parser.getFaceCount());
+    }
+
+    @Test
+    public void emptyMeshTest() throws Exception {
+        File empty = folder.newFile("empty.obj");
+
+        Assert.assertArrayEquals(new double[6], new GeometryParser(empty.toPath()).calculateBox(), 0);
+    }
+
+    @Test
+    public void largeMeshTest() throws Exception {
+        File mesh = folder.newFile("mesh.obj");
+        Random random = new Random(42);
+        double[] expected = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        int vertices = 100000;
+
+        try (BufferedWriter writer = Files.newBufferedWriter(mesh.toPath(), StandardCharsets.US_ASCII)) {
+            // Longer than the read buffer, and ignored
+            char[] comment = new char[100000];
+            Arrays.fill(comment, '#');
+            writer.write(comment);
+            writer.write("\n");
+
+            for (int i = 0; i < vertices; i++) {
+                writer.write("v");
+                for (int axis = 0; axis < 3; axis++) {
+                    // Plain, scientific and many digits notations
+                    double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12) - 6);
+                    String text = i % 3 == 0 ? String.format(Locale.ROOT, "%.6f", value) : String.valueOf(value);
+                    writer.write(" " + text);
+                    double parsed = Double.parseDouble(text);
+                    expected[axis] = Math.min(expected[axis], parsed);
+                    expected[axis + 3] = Math.max(expected[axis + 3], parsed);
+                }
+                writer.write("\n");
+            }
+            for (int i = 0; i < vertices / 2; i++) {
+                writer.write("f " + (i + 1) + " " + (i + 2) + " " + (i + 3) + "\n");
+            }
+        }
+
+        GeometryParser parser = new GeometryParser(mesh.toPath());
+        Assert.assertArrayEquals(expected, parser.calculateBox(), 0);
+        Assert.assertEquals(vertices, parser.getVertexCount());
+        Assert.assertEquals(vertices / 2, parser.getFaceCount());
+    }
+}
@@ -12,8 +12,13 @@
 package org.polarsys.eplmp.server.extras;
 
 import org.polarsys.eplmp.core.meta.InstanceAttribute;
+import org.polarsys.eplmp.core.workflow.Activity;
+import org.polarsys.eplmp.core.workflow.Task;
 import org.polarsys.eplmp.core.workflow.Workflow;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
@@ -113,4 +118,48 @@ public abstract class TitleBlockData {
     public String getRevisionNote() {
         return revisionNote;
     }
+
+    /**
+     * Get a digest of what the title block shows and of the template rendering it: any change of the
+     * iteration, of its attributes or of its lifecycle gives another fingerprint.
+     */
+    public String getFingerprint() {
+        StringBuilder content = new StringBuilder().append(TitleBlockWriter.TEMPLATE_VERSION);
+        append(content, locale, title, subject, authorName, version, creationDate, iterationDate, keywords,
+                description, currentIteration, revisionNote, lifeCycleState);
+
+        if (instanceAttributes != null) {
+            for (InstanceAttribute attribute : instanceAttributes) {
+                append(content, attribute.getName(), attribute.getValue());
+            }
+        }
+
+        if (workflow != null) {
+            for (Activity activity : workflow.getActivities()) {
+                append(content, activity.getLifeCycleState());
+                for (Task task : activity.getTasks()) {
+                    append(content, task.getTitle(), task.getStatus(),
+                            task.getClosureDate() != null ? task.getClosureDate().getTime() : null,
+                            task.getWorker() != null ? task.getWorker().getName() : null, task.getClosureComment());
+                }
+            }
+        }
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder fingerprint = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                fingerprint.append(String.format("%02x", digest[i]));
+            }
+            return fingerprint.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void append(StringBuilder content, Object... values) {
+        for (Object value : values) {
+            content.append('\u0000').append(value);
+        }
+    }
 }
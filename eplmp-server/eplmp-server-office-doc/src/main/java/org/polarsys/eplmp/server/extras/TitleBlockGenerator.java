@@ -20,6 +20,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Locale;
 import java.util.logging.Logger;
 
@@ -34,6 +35,7 @@ import java.util.logging.Logger;
 public abstract class TitleBlockGenerator {
 
     private static final Logger LOGGER = Logger.getLogger(TitleBlockGenerator.class.getName());
+    private static final long MAX_MAIN_MEMORY_BYTES = 16 * 1024 * 1024;
 
     /**
      * Generate a block title pdf page and add it to the pdf given in the input stream
@@ -53,9 +55,38 @@ public abstract class TitleBlockGenerator {
         return merge(pdfDocument, new TitleBlockWriter(data).createTitleBlock());
     }
 
+    /**
+     * Get the content of the title block of a document iteration
+     */
+    public static TitleBlockData getTitleBlockData(DocumentIteration docI, Locale pLocale) {
+        return new DocumentTitleBlockData(docI, pLocale);
+    }
+
+    /**
+     * Get the content of the title block of a part iteration
+     */
+    public static TitleBlockData getTitleBlockData(PartIteration partIteration, Locale pLocale) {
+        return new PartTitleBlockData(partIteration, pLocale);
+    }
+
+    /**
+     * Generate a block title pdf page and write it, followed by the pdf given in the input stream, to the output stream.
+     * Large pdf are buffered in temporary files rather than in memory.
+     */
+    public static void addBlockTitleToPDF(InputStream pdfDocument, TitleBlockData data, OutputStream outputStream) throws IOException {
+        merge(pdfDocument, new TitleBlockWriter(data).createTitleBlock(), outputStream, MemoryUsageSetting.setupMixed(MAX_MAIN_MEMORY_BYTES));
+    }
+
     public static InputStream merge(InputStream originalPDF, byte[] titleBlock) throws IOException {
 
         ByteArrayOutputStream tempOutStream = new ByteArrayOutputStream();
+        merge(originalPDF, titleBlock, tempOutStream, MemoryUsageSetting.setupMainMemoryOnly());
+        return new ByteArrayInputStream(tempOutStream.toByteArray());
+
+    }
+
+    private static void merge(InputStream originalPDF, byte[] titleBlock, OutputStream outputStream, MemoryUsageSetting memoryUsageSetting) throws IOException {
+
         PDFMergerUtility mergedDoc = new PDFMergerUtility();
 
         InputStream titleBlockStream = new ByteArrayInputStream(titleBlock);
@@ -63,11 +94,8 @@ public abstract class TitleBlockGenerator {
         mergedDoc.addSource(titleBlockStream);
         mergedDoc.addSource(originalPDF);
 
-        mergedDoc.setDestinationStream(tempOutStream);
-        mergedDoc.mergeDocuments(MemoryUsageSetting.setupMainMemoryOnly());
-
-        return new ByteArrayInputStream(tempOutStream.toByteArray());
-
+        mergedDoc.setDestinationStream(outputStream);
+        mergedDoc.mergeDocuments(memoryUsageSetting);
 
     }
 }
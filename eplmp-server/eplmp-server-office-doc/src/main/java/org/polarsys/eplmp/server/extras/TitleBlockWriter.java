@@ -45,6 +45,11 @@ import java.util.logging.Logger;
  */
 public class TitleBlockWriter {
 
+    /**
+     * Version of the layout, to be increased on any rendering change so that the stamped PDFs are generated again
+     */
+    public static final int TEMPLATE_VERSION = 1;
+
     private static final Integer DOCUMENT_TITLE_SIZE = 18;
     private static final Integer TITLE_MAP_SIZE = 14;
     private static final Integer TEXT_SIZE = 10;
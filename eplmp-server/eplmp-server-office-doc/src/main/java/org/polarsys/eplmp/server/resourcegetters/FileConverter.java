@@ -14,50 +14,133 @@ package org.polarsys.eplmp.server.resourcegetters;
 import org.artofsolving.jodconverter.OfficeDocumentConverter;
 import org.artofsolving.jodconverter.office.DefaultOfficeManagerConfiguration;
 import org.artofsolving.jodconverter.office.OfficeManager;
+import org.polarsys.eplmp.core.util.FileIO;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.PriorityQueue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Convert office documents to PDF with a pool of office processes.
+ *
+ * Conversions run concurrently, one per office process, on threads of the container managed
+ * executor. The ones waiting for a free process are queued smaller files first, so that a short
+ * document is not converted after a long one, and are rejected once the queue is full. A conversion
+ * waiting longer than the maximum queue wait runs first whatever its size, so that a large document
+ * is not held back forever by a steady flow of smaller ones. The office
+ * processes which crash or exceed the task timeout are restarted by the pool.
+ *
+ * The load of the pool is published to {@link OfficeConversionMetrics}, which can be read
+ * without starting the pool.
+ */
 @Singleton
 public class FileConverter {
 
-    private final OfficeConfig officeConfig;
+    private OfficeConfig officeConfig;
+    private OfficeConversionMetrics metrics;
+
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    private ManagedExecutorService managedExecutorService;
 
     @Inject
-    public FileConverter(OfficeConfig officeConfig) {
+    public FileConverter(OfficeConfig officeConfig, OfficeConversionMetrics metrics) {
         this.officeConfig = officeConfig;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Conversions run by the given executor, without office processes
+     */
+    FileConverter(Executor executor, int workers, int queueCapacity, long requestTimeout, long maxQueueWait, OfficeConversionMetrics metrics) {
+        this.metrics = metrics;
+        start(executor, workers, queueCapacity, requestTimeout, maxQueueWait);
     }
 
     private OfficeManager officeManager;
+    private OfficeDocumentConverter converter;
+
+    private Executor executor;
+    private int workers;
+    private Semaphore queueSlots;
+    private long requestTimeout;
+    private long maxQueueWait;
+    private volatile boolean stopped;
+
+    // Smaller files first, guarded by itself along with the arrivals
+    private final PriorityQueue<ConversionTask> pending = new PriorityQueue<>();
+    // The same conversions in the order they were queued
+    private final Deque<ConversionTask> arrivals = new ArrayDeque<>();
+    // Number of threads taking conversions from the pending queue, at most one per office process
+    private final AtomicInteger runners = new AtomicInteger();
+    private final ConcurrentMap<String, ConversionTask> conversions = new ConcurrentHashMap<>();
+    private final AtomicLong submitted = new AtomicLong();
 
     @PostConstruct
     private void init() {
+        int[] ports = officeConfig.getOfficePorts();
         officeManager = new DefaultOfficeManagerConfiguration()
                 .setOfficeHome(new File(officeConfig.getOfficeHome()))
-                .setPortNumber(officeConfig.getOfficePort())
+                .setPortNumbers(ports)
+                .setTaskExecutionTimeout(officeConfig.getTaskTimeout())
                 .buildOfficeManager();
         officeManager.start();
+        converter = new OfficeDocumentConverter(officeManager);
+
+        start(managedExecutorService, ports.length, officeConfig.getQueueCapacity(), officeConfig.getRequestTimeout(), officeConfig.getMaxQueueWait());
+    }
+
+    private void start(Executor executor, int workers, int queueCapacity, long requestTimeout, long maxQueueWait) {
+        this.executor = executor;
+        this.workers = workers;
+        this.queueSlots = new Semaphore(workers + queueCapacity);
+        this.requestTimeout = requestTimeout;
+        this.maxQueueWait = maxQueueWait;
+        metrics.setWorkers(workers);
     }
 
     @PreDestroy
     private void close() {
-        officeManager.stop();
+        stopped = true;
+        rejectPending(new IOException("Office conversions are stopped"));
+        metrics.setWorkers(0);
+        if (officeManager != null) {
+            officeManager.stop();
+        }
+    }
+
+    private void rejectPending(IOException e) {
+        ConversionTask task;
+        while ((task = nextPending()) != null) {
+            metrics.dequeued();
+            task.reject(e);
+        }
     }
 
-    public synchronized InputStream convertToPDF(String sourceName, final InputStream streamToConvert) throws IOException {
+    public InputStream convertToPDF(String sourceName, final InputStream streamToConvert) throws IOException {
         File tmpDir = Files.createTempDirectory("docdoku-").toFile();
         File fileToConvert = new File(tmpDir, sourceName);
 
         Files.copy(streamToConvert, fileToConvert.toPath());
 
-        File pdfFile = convertToPDF(fileToConvert);
+        File pdfFile = new File(tmpDir, "converted.pdf");
+        ConversionTask task = new ConversionTask(null, fileToConvert.length(), () -> convert(fileToConvert, pdfFile));
+        submit(task);
+        await(task, sourceName);
 
         //clean-up
         tmpDir.deleteOnExit();
@@ -65,11 +148,215 @@ public class FileConverter {
         return new FileInputStream(pdfFile);
     }
 
-    private File convertToPDF(File fileToConvert) {
-        File pdfFile = new File(fileToConvert.getParentFile(), "converted.pdf");
-        OfficeDocumentConverter converter = new OfficeDocumentConverter(officeManager);
+    /**
+     * Convert a file to PDF once for all the concurrent callers: a caller asking for a key being
+     * converted waits for that conversion instead of queuing another one, and a caller coming
+     * after it finds the file converted.
+     *
+     * @param key          Identifies the file, the full name of its binary resource for instance
+     * @param sourceName   The name of the file, its extension gives its format
+     * @param sourceLength The size of the file, smaller files are converted first
+     * @param converted    Tells whether the PDF is already written, checked once no conversion of the key is running
+     * @param source       Opens the file to convert
+     * @param target       Opens the stream the PDF is written to
+     * @throws IOException if the conversion fails, is rejected or times out
+     */
+    public void convertToPDF(String key, String sourceName, long sourceLength, Callable<Boolean> converted, Callable<InputStream> source, Callable<OutputStream> target) throws IOException {
+        ConversionTask task = new ConversionTask(key, sourceLength, () -> {
+            File tmpDir = Files.createTempDirectory("docdoku-").toFile();
+            try {
+                File fileToConvert = new File(tmpDir, sourceName);
+                try (InputStream inputStream = source.call()) {
+                    Files.copy(inputStream, fileToConvert.toPath());
+                }
+                File pdfFile = new File(tmpDir, "converted.pdf");
+                convert(fileToConvert, pdfFile);
+                try (OutputStream outputStream = target.call()) {
+                    Files.copy(pdfFile.toPath(), outputStream);
+                }
+            } finally {
+                FileIO.rmDir(tmpDir);
+            }
+        });
+
+        ConversionTask running = conversions.putIfAbsent(key, task);
+        if (running != null) {
+            task = running;
+        } else if (isConverted(converted, sourceName)) {
+            // A conversion of the key completed between the caller's own check and this call
+            task.skip();
+        } else {
+            submit(task);
+        }
+        await(task, sourceName);
+    }
+
+    private boolean isConverted(Callable<Boolean> converted, String sourceName) throws IOException {
+        try {
+            return converted.call();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Conversion of " + sourceName + " to pdf failed", e);
+        }
+    }
+
+    void convert(File fileToConvert, File pdfFile) {
         converter.convert(fileToConvert, pdfFile);
-        return pdfFile;
     }
 
+    private void submit(ConversionTask task) {
+        if (stopped) {
+            task.reject(new IOException("Office conversions are stopped"));
+            return;
+        }
+        if (!queueSlots.tryAcquire()) {
+            task.reject(new IOException("Office conversion queue is full"));
+            return;
+        }
+        task.queued = true;
+        task.queuedAt = System.nanoTime();
+        synchronized (pending) {
+            pending.add(task);
+            arrivals.add(task);
+        }
+        metrics.queued();
+        startRunner();
+    }
+
+    private void startRunner() {
+        int current;
+        while ((current = runners.get()) < workers) {
+            if (runners.compareAndSet(current, current + 1)) {
+                try {
+                    executor.execute(this::runPending);
+                } catch (RejectedExecutionException e) {
+                    // Without any runner left, nothing would take the pending conversions
+                    if (runners.decrementAndGet() == 0) {
+                        rejectPending(new IOException("Office conversions are stopped", e));
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Run the pending conversions, the smallest files first, until none is left.
+     */
+    private void runPending() {
+        while (true) {
+            ConversionTask task = nextPending();
+            if (task == null) {
+                runners.decrementAndGet();
+                // A conversion queued after the poll may have seen all the runners busy
+                if (hasPending()) {
+                    startRunner();
+                }
+                return;
+            }
+            metrics.dequeued();
+            task.run();
+        }
+    }
+
+    /**
+     * Take the smallest pending file, or the first one queued once it has waited for the maximum queue wait.
+     *
+     * @return the conversion to run, null if none is pending
+     */
+    private ConversionTask nextPending() {
+        synchronized (pending) {
+            ConversionTask oldest = arrivals.peekFirst();
+            if (oldest == null) {
+                return null;
+            }
+            ConversionTask task = System.nanoTime() - oldest.queuedAt >= TimeUnit.MILLISECONDS.toNanos(maxQueueWait) ? oldest : pending.peek();
+            pending.remove(task);
+            arrivals.remove(task);
+            return task;
+        }
+    }
+
+    private boolean hasPending() {
+        synchronized (pending) {
+            return !pending.isEmpty();
+        }
+    }
+
+    private void await(ConversionTask task, String sourceName) throws IOException {
+        try {
+            // The conversion goes on for the other callers, the office pool aborts it after the task timeout
+            task.get(requestTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IOException("Conversion of " + sourceName + " to pdf timed out", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Conversion of " + sourceName + " to pdf interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Conversion of " + sourceName + " to pdf failed", e.getCause());
+        }
+    }
+
+    @FunctionalInterface
+    private interface Conversion {
+        void run() throws Exception;
+    }
+
+    private class ConversionTask extends FutureTask<Void> implements Comparable<ConversionTask> {
+
+        private final String key;
+        private final long sourceLength;
+        private final long order = submitted.incrementAndGet();
+        private volatile boolean queued;
+        private long queuedAt;
+
+        ConversionTask(String key, long sourceLength, Conversion conversion) {
+            super(() -> {
+                conversion.run();
+                return null;
+            });
+            this.key = key;
+            this.sourceLength = sourceLength;
+        }
+
+        @Override
+        public void run() {
+            metrics.conversionStarted();
+            long start = System.currentTimeMillis();
+            try {
+                super.run();
+            } finally {
+                metrics.conversionEnded(System.currentTimeMillis() - start);
+            }
+        }
+
+        void skip() {
+            set(null);
+        }
+
+        void reject(IOException e) {
+            setException(e);
+        }
+
+        @Override
+        protected void done() {
+            if (queued) {
+                queueSlots.release();
+            }
+            // Removed once the target is written, a later caller finds the file converted
+            if (key != null) {
+                conversions.remove(key, this);
+            }
+        }
+
+        @Override
+        public int compareTo(ConversionTask other) {
+            int compare = Long.compare(sourceLength, other.sourceLength);
+            return compare != 0 ? compare : Long.compare(order, other.order);
+        }
+    }
 }
@@ -0,0 +1,59 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.resourcegetters;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe count of durations by range, from under a second to over a minute.
+ */
+public class LatencyHistogram {
+
+    private static final long[] UPPER_BOUNDS = {1000, 5000, 15000, 60000};
+
+    private final AtomicLongArray counts = new AtomicLongArray(UPPER_BOUNDS.length + 1);
+
+    public void record(long millis) {
+        int bucket = 0;
+        while (bucket < UPPER_BOUNDS.length && millis >= UPPER_BOUNDS[bucket]) {
+            bucket++;
+        }
+        counts.incrementAndGet(bucket);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Get the counts by range, keyed by a label of the range such as "<5s" or ">=60s".
+     */
+    public Map<String, Long> getCounts() {
+        Map<String, Long> ranges = new LinkedHashMap<>();
+        for (int i = 0; i < UPPER_BOUNDS.length; i++) {
+            ranges.put("<" + UPPER_BOUNDS[i] / 1000 + "s", counts.get(i));
+        }
+        ranges.put(">=" + UPPER_BOUNDS[UPPER_BOUNDS.length - 1] / 1000 + "s", counts.get(UPPER_BOUNDS.length));
+        return ranges;
+    }
+
+    @Override
+    public String toString() {
+        return getCounts().toString();
+    }
+}
@@ -43,4 +43,49 @@ public class OfficeConfig {
     public Integer getOfficePort() {
         return Integer.parseInt(properties.getProperty("office_port"));
     }
+
+    /**
+     * Ports of the office processes, one process is started per port from the office port on.
+     */
+    public int[] getOfficePorts() {
+        int officePort = getOfficePort();
+        int[] ports = new int[Math.max(1, getIntProperty("office_workers", 1))];
+        for (int i = 0; i < ports.length; i++) {
+            ports[i] = officePort + i;
+        }
+        return ports;
+    }
+
+    /**
+     * Number of conversions waiting for a free office process beyond which new ones are rejected.
+     */
+    public int getQueueCapacity() {
+        return getIntProperty("office_queue_capacity", 50);
+    }
+
+    /**
+     * Time in milliseconds after which a conversion is aborted and its office process restarted.
+     */
+    public long getTaskTimeout() {
+        return getIntProperty("office_task_timeout", 120000);
+    }
+
+    /**
+     * Time in milliseconds a caller waits for its conversion, queued time included.
+     */
+    public long getRequestTimeout() {
+        return getIntProperty("office_request_timeout", 300000);
+    }
+
+    /**
+     * Time in milliseconds after which a waiting conversion runs before the smaller files queued after it.
+     */
+    public long getMaxQueueWait() {
+        return getIntProperty("office_max_queue_wait", 60000);
+    }
+
+    private int getIntProperty(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+    }
 }
@@ -0,0 +1,77 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.resourcegetters;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load of the office conversion pool, kept apart from the {@link FileConverter} so that it can be
+ * read without starting the office processes.
+ */
+@ApplicationScoped
+public class OfficeConversionMetrics {
+
+    private final AtomicInteger workers = new AtomicInteger();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger busyWorkers = new AtomicInteger();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    /**
+     * Get the number of office processes, 0 until the pool is started.
+     */
+    public int getWorkers() {
+        return workers.get();
+    }
+
+    /**
+     * Get the number of conversions waiting for a free office process.
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * Get the number of office processes converting a file.
+     */
+    public int getBusyWorkers() {
+        return busyWorkers.get();
+    }
+
+    /**
+     * Get the durations of the conversions, queued time excluded.
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    public void setWorkers(int count) {
+        workers.set(count);
+    }
+
+    public void queued() {
+        queueDepth.incrementAndGet();
+    }
+
+    public void dequeued() {
+        queueDepth.decrementAndGet();
+    }
+
+    public void conversionStarted() {
+        busyWorkers.incrementAndGet();
+    }
+
+    public void conversionEnded(long millis) {
+        busyWorkers.decrementAndGet();
+        latencies.record(millis);
+    }
+}
@@ -20,13 +20,18 @@ import org.polarsys.eplmp.core.util.FileIO;
 import org.polarsys.eplmp.core.util.Tools;
 import org.polarsys.eplmp.server.InternalService;
 import org.polarsys.eplmp.server.converters.OnDemandConverter;
+import org.polarsys.eplmp.server.extras.TitleBlockData;
 import org.polarsys.eplmp.server.extras.TitleBlockGenerator;
 
 import javax.inject.Inject;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Locale;
+import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -37,6 +42,15 @@ public class OfficeOnDemandConverter implements OnDemandConverter {
 
     private static final Logger LOGGER = Logger.getLogger(OnDemandConverter.class.getName());
 
+    // Stampings of a same file hold the same lock, one of them writes both the file and its fingerprint
+    private static final Object[] STAMP_LOCKS = new Object[64];
+
+    static {
+        for (int i = 0; i < STAMP_LOCKS.length; i++) {
+            STAMP_LOCKS[i] = new Object();
+        }
+    }
+
     @Inject
     private FileConverter fileConverter;
 
@@ -56,20 +70,15 @@ public class OfficeOnDemandConverter implements OnDemandConverter {
 
     @Override
     public InputStream getConvertedResource(String outputFormat, BinaryResource binaryResource, DocumentIteration docI, Locale locale) throws ConvertedResourceException {
+        if (!outputSupported(outputFormat)) {
+            return null;
+        }
         try {
-            // TODO check for resources to be closed
-            InputStream inputStream = null;
-
-            if ("pdf".equals(outputFormat)) {
-                inputStream = getPdfConvertedResource(binaryResource);
-            }
-
             if ("documents".equals(binaryResource.getHolderType()) && docI != null) {
-                LOGGER.log(Level.INFO, "Adding document information to first pages");
-                return TitleBlockGenerator.addBlockTitleToPDF(inputStream, docI, locale);
+                return storageManager.getGeneratedFileInputStream(binaryResource,
+                        getStampedPdf(binaryResource, TitleBlockGenerator.getTitleBlockData(docI, locale)));
             }
-
-            return inputStream;
+            return getPdfConvertedResource(binaryResource);
         } catch (StorageException | IOException e) {
             throw new ConvertedResourceException(locale, e);
         }
@@ -77,23 +86,116 @@ public class OfficeOnDemandConverter implements OnDemandConverter {
 
     @Override
     public InputStream getConvertedResource(String outputFormat, BinaryResource binaryResource, PartIteration partIteration, Locale locale) throws ConvertedResourceException {
+        if (!outputSupported(outputFormat)) {
+            return null;
+        }
         try {
-            InputStream inputStream = null;
+            if ("parts".equals(binaryResource.getHolderType()) && partIteration != null) {
+                return storageManager.getGeneratedFileInputStream(binaryResource,
+                        getStampedPdf(binaryResource, TitleBlockGenerator.getTitleBlockData(partIteration, locale)));
+            }
+            return getPdfConvertedResource(binaryResource);
+        } catch (StorageException | IOException e) {
+            throw new ConvertedResourceException(locale, e);
+        }
+    }
 
-            if ("pdf".equals(outputFormat)) {
-                inputStream = getPdfConvertedResource(binaryResource);
+    @Override
+    public File getConvertedFile(String outputFormat, BinaryResource binaryResource, DocumentIteration docI, Locale locale) throws ConvertedResourceException {
+        if (!outputSupported(outputFormat)) {
+            return null;
+        }
+        try {
+            if ("documents".equals(binaryResource.getHolderType()) && docI != null) {
+                return storageManager.getGeneratedFile(binaryResource,
+                        getStampedPdf(binaryResource, TitleBlockGenerator.getTitleBlockData(docI, locale)));
             }
+            return null;
+        } catch (StorageException | IOException e) {
+            throw new ConvertedResourceException(locale, e);
+        }
+    }
 
+    @Override
+    public File getConvertedFile(String outputFormat, BinaryResource binaryResource, PartIteration partIteration, Locale locale) throws ConvertedResourceException {
+        if (!outputSupported(outputFormat)) {
+            return null;
+        }
+        try {
             if ("parts".equals(binaryResource.getHolderType()) && partIteration != null) {
-                return TitleBlockGenerator.addBlockTitleToPDF(inputStream, partIteration, locale);
+                return storageManager.getGeneratedFile(binaryResource,
+                        getStampedPdf(binaryResource, TitleBlockGenerator.getTitleBlockData(partIteration, locale)));
             }
-
-            return inputStream;
+            return null;
         } catch (StorageException | IOException e) {
             throw new ConvertedResourceException(locale, e);
         }
     }
 
+    /**
+     * Get the generated file of the pdf with the given title block, stamping it on first use.
+     * A single stamped file is kept per locale, next to the fingerprint of its title block:
+     * a change of what the title block shows replaces the file. Concurrent stampings of the
+     * file run one after the other, the later ones finding the file stamped if their title block
+     * is the same.
+     *
+     * @return the name of the generated file
+     */
+    private String getStampedPdf(BinaryResource binaryResource, TitleBlockData titleBlockData) throws StorageException, IOException {
+        Locale locale = titleBlockData.getLocale();
+        String stampedFileName = FileIO.getFileNameWithoutExtension(binaryResource.getName()) + ".stamped-"
+                + (locale == null ? "default" : locale.toLanguageTag()) + ".pdf";
+        String fingerprintFileName = stampedFileName + ".fingerprint";
+        String fingerprint = titleBlockData.getFingerprint();
+
+        if (isStamped(binaryResource, stampedFileName, fingerprintFileName, fingerprint)) {
+            LOGGER.log(Level.FINE, "File is already stamped");
+            return stampedFileName;
+        }
+
+        String stampKey = binaryResource.getFullName() + "/" + stampedFileName;
+        // Converted before taking the lock, which is only held while stamping
+        try (InputStream inputStream = getPdfConvertedResource(binaryResource)) {
+            synchronized (STAMP_LOCKS[Math.floorMod(stampKey.hashCode(), STAMP_LOCKS.length)]) {
+                // Checked again, a concurrent stamping may have written the same title block
+                if (isStamped(binaryResource, stampedFileName, fingerprintFileName, fingerprint)) {
+                    LOGGER.log(Level.FINE, "File is already stamped");
+                    return stampedFileName;
+                }
+
+                LOGGER.log(Level.INFO, "Adding title block to " + binaryResource.getName());
+                // Written aside then renamed, a partially written file must never be served
+                String partialFileName = stampedFileName + "." + UUID.randomUUID() + ".part";
+                try (OutputStream outputStream = storageManager.getGeneratedFileOutputStream(binaryResource, partialFileName)) {
+                    TitleBlockGenerator.addBlockTitleToPDF(inputStream, titleBlockData, outputStream);
+                }
+                storageManager.renameGeneratedFile(binaryResource, partialFileName, stampedFileName);
+
+                // Written once the file is replaced, the fingerprint never designates an older file
+                String partialFingerprintFileName = fingerprintFileName + "." + UUID.randomUUID() + ".part";
+                try (OutputStream outputStream = storageManager.getGeneratedFileOutputStream(binaryResource, partialFingerprintFileName)) {
+                    outputStream.write(fingerprint.getBytes(StandardCharsets.UTF_8));
+                }
+                storageManager.renameGeneratedFile(binaryResource, partialFingerprintFileName, fingerprintFileName);
+
+                return stampedFileName;
+            }
+        }
+    }
+
+    private boolean isStamped(BinaryResource binaryResource, String stampedFileName, String fingerprintFileName, String fingerprint) throws StorageException, IOException {
+        if (!storageManager.exists(binaryResource, stampedFileName) || !storageManager.exists(binaryResource, fingerprintFileName)
+                || !storageManager.getLastModified(binaryResource, stampedFileName).after(binaryResource.getLastModified())) {
+            return false;
+        }
+        // The files of a previous iteration are found too, their fingerprint holds another iteration
+        ByteArrayOutputStream storedFingerprint = new ByteArrayOutputStream();
+        try (InputStream inputStream = storageManager.getGeneratedFileInputStream(binaryResource, fingerprintFileName)) {
+            FileIO.copy(inputStream, storedFingerprint);
+        }
+        return fingerprint.equals(new String(storedFingerprint.toByteArray(), StandardCharsets.UTF_8));
+    }
+
     private InputStream getPdfConvertedResource(BinaryResource binaryResource) throws StorageException, IOException {
 
         InputStream inputStream;
@@ -107,21 +209,18 @@ public class OfficeOnDemandConverter implements OnDemandConverter {
 
         String pdfFileName = FileIO.getFileNameWithoutExtension(binaryResource.getName()) + ".pdf";
 
-        if (storageManager.exists(binaryResource, pdfFileName) &&
-                storageManager.getLastModified(binaryResource, pdfFileName).after(binaryResource.getLastModified())) {
+        if (isConverted(binaryResource, pdfFileName)) {
             LOGGER.log(Level.INFO, "File is already converted to pdf");
             inputStream = storageManager.getGeneratedFileInputStream(binaryResource, pdfFileName);
         } else {
             LOGGER.log(Level.INFO, "Converting " + binaryResource.getName() + " to pdf");
             String normalizedName = Tools.unAccent(binaryResource.getName());
 
-            //copy the converted file for further reuse
-            // TODO check for resources to be closed
-            try (OutputStream outputStream = storageManager.getGeneratedFileOutputStream(binaryResource, pdfFileName);
-                 InputStream binaryResourceInputStream = storageManager.getBinaryResourceInputStream(binaryResource);
-                 InputStream inputStreamConverted = fileConverter.convertToPDF(normalizedName, binaryResourceInputStream)) {
-                FileIO.copy(inputStreamConverted, outputStream);
-            }
+            //copy the converted file for further reuse, concurrent requests wait for the same conversion
+            fileConverter.convertToPDF(binaryResource.getFullName(), normalizedName, binaryResource.getContentLength(),
+                    () -> isConverted(binaryResource, pdfFileName),
+                    () -> storageManager.getBinaryResourceInputStream(binaryResource),
+                    () -> storageManager.getGeneratedFileOutputStream(binaryResource, pdfFileName));
             inputStream = storageManager.getGeneratedFileInputStream(binaryResource, pdfFileName);
         }
 
@@ -129,4 +228,9 @@ public class OfficeOnDemandConverter implements OnDemandConverter {
         return inputStream;
     }
 
+    private boolean isConverted(BinaryResource binaryResource, String pdfFileName) throws StorageException {
+        return storageManager.exists(binaryResource, pdfFileName) &&
+                storageManager.getLastModified(binaryResource, pdfFileName).after(binaryResource.getLastModified());
+    }
+
 }
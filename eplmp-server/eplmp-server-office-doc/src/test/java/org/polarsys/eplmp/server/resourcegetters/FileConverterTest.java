@@ -0,0 +1,200 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.resourcegetters;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+public class FileConverterTest {
+
+    private ExecutorService executor;
+    private ExecutorService callers;
+    private OfficeConversionMetrics metrics;
+
+    private final List<String> converted = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch firstStarted = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Before
+    public void setup() {
+        executor = Executors.newCachedThreadPool();
+        callers = Executors.newCachedThreadPool();
+        metrics = new OfficeConversionMetrics();
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+        callers.shutdownNow();
+    }
+
+    @Test(timeout = 10000)
+    public void smallerFilesFirstTest() throws Exception {
+        FileConverter fileConverter = new BlockingFileConverter(1, 10);
+
+        Future<?> first = convert(fileConverter, "first", 1000);
+        firstStarted.await();
+        List<Future<?>> queued = Arrays.asList(
+                convert(fileConverter, "large", 300),
+                convert(fileConverter, "small", 100),
+                convert(fileConverter, "medium", 200));
+        awaitQueueDepth(3);
+
+        release.countDown();
+        first.get();
+        for (Future<?> future : queued) {
+            future.get();
+        }
+
+        Assert.assertEquals(Arrays.asList("first", "small", "medium", "large"), converted);
+        Assert.assertEquals(0, metrics.getQueueDepth());
+        Assert.assertEquals(0, metrics.getBusyWorkers());
+        Assert.assertEquals(4, metrics.getLatencies().getCount());
+    }
+
+    @Test(timeout = 10000)
+    public void longWaitingFilesFirstTest() throws Exception {
+        FileConverter fileConverter = new BlockingFileConverter(1, 10, 0);
+
+        Future<?> first = convert(fileConverter, "first", 1000);
+        firstStarted.await();
+        // Queued one after the other, each one has waited longer than the ones queued after it
+        Future<?> large = convert(fileConverter, "large", 300);
+        awaitQueueDepth(1);
+        Future<?> small = convert(fileConverter, "small", 100);
+        awaitQueueDepth(2);
+        Future<?> medium = convert(fileConverter, "medium", 200);
+        awaitQueueDepth(3);
+        List<Future<?>> queued = Arrays.asList(large, small, medium);
+
+        release.countDown();
+        first.get();
+        for (Future<?> future : queued) {
+            future.get();
+        }
+
+        Assert.assertEquals(Arrays.asList("first", "large", "small", "medium"), converted);
+    }
+
+    @Test(timeout = 10000)
+    public void fullQueueRejectsTest() throws Exception {
+        FileConverter fileConverter = new BlockingFileConverter(1, 1);
+
+        Future<?> first = convert(fileConverter, "first", 100);
+        firstStarted.await();
+        Future<?> second = convert(fileConverter, "second", 100);
+        awaitQueueDepth(1);
+
+        try {
+            convert(fileConverter, "third", 100).get();
+            Assert.fail("The queue is full");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+        }
+
+        release.countDown();
+        first.get();
+        second.get();
+        Assert.assertEquals(Arrays.asList("first", "second"), converted);
+
+        // Slots are released once the conversions are done
+        convert(fileConverter, "third", 100).get();
+        Assert.assertEquals(Arrays.asList("first", "second", "third"), converted);
+    }
+
+    @Test(timeout = 10000)
+    public void concurrentCallersConvertOnceTest() throws Exception {
+        FileConverter fileConverter = new BlockingFileConverter(2, 10);
+
+        Future<?> first = convert(fileConverter, "file", 100);
+        firstStarted.await();
+        // Waits for the running conversion, or finds the file converted if it arrives after it
+        Future<?> second = callers.submit(() -> {
+            fileConverter.convertToPDF("file", "file", 100, () -> !converted.isEmpty(),
+                    () -> new ByteArrayInputStream(new byte[0]), ByteArrayOutputStream::new);
+            return null;
+        });
+
+        release.countDown();
+        first.get();
+        second.get();
+        Assert.assertEquals(Collections.singletonList("file"), converted);
+    }
+
+    @Test(timeout = 10000)
+    public void convertedFileIsNotConvertedAgainTest() throws Exception {
+        FileConverter fileConverter = new BlockingFileConverter(1, 10);
+        release.countDown();
+
+        // The caller's check missed the conversion which completed since
+        fileConverter.convertToPDF("file", "file", 100, () -> !converted.isEmpty(),
+                () -> new ByteArrayInputStream(new byte[0]), ByteArrayOutputStream::new);
+        fileConverter.convertToPDF("file", "file", 100, () -> !converted.isEmpty(),
+                () -> new ByteArrayInputStream(new byte[0]), ByteArrayOutputStream::new);
+
+        Assert.assertEquals(Collections.singletonList("file"), converted);
+    }
+
+    private Future<?> convert(FileConverter fileConverter, String name, long length) {
+        return callers.submit(() -> {
+            fileConverter.convertToPDF(name, name, length, () -> false,
+                    () -> new ByteArrayInputStream(new byte[0]), ByteArrayOutputStream::new);
+            return null;
+        });
+    }
+
+    private void awaitQueueDepth(int depth) throws InterruptedException {
+        while (metrics.getQueueDepth() < depth) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Record the converted files, the first conversion waiting to be released
+     */
+    private class BlockingFileConverter extends FileConverter {
+
+        private BlockingFileConverter(int workers, int queueCapacity) {
+            this(workers, queueCapacity, 5000);
+        }
+
+        private BlockingFileConverter(int workers, int queueCapacity, long maxQueueWait) {
+            super(executor, workers, queueCapacity, 5000, maxQueueWait, metrics);
+        }
+
+        @Override
+        void convert(File fileToConvert, File pdfFile) {
+            firstStarted.countDown();
+            try {
+                release.await();
+                Files.write(pdfFile.toPath(), new byte[0]);
+            } catch (InterruptedException | IOException e) {
+                throw new IllegalStateException(e);
+            }
+            converted.add(fileToConvert.getName());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.resourcegetters;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Matchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.polarsys.eplmp.core.common.BinaryResource;
+import org.polarsys.eplmp.core.common.User;
+import org.polarsys.eplmp.core.product.PartIteration;
+import org.polarsys.eplmp.core.product.PartRevision;
+import org.polarsys.eplmp.core.services.IBinaryStorageManagerLocal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OfficeOnDemandConverterTest {
+
+    @Mock
+    private IBinaryStorageManagerLocal storageManager;
+
+    @Mock
+    private FileConverter fileConverter;
+
+    @InjectMocks
+    private OfficeOnDemandConverter converter;
+
+    private final Map<String, ByteArrayOutputStream> generatedFiles = new HashMap<>();
+    private final BinaryResource binaryResource = new BinaryResource("wks/parts/P-1/A/1/attachedfiles/sample.pdf", 100, new Date(0));
+
+    private PartIteration partIteration;
+    private byte[] samplePdf;
+
+    @Before
+    public void setup() throws Exception {
+        samplePdf = IOUtils.toByteArray(OfficeOnDemandConverterTest.class.getClassLoader()
+                .getResourceAsStream("org/polarsys/eplmp/server/extras/sample.pdf"));
+
+        Mockito.when(storageManager.getBinaryResourceInputStream(binaryResource))
+                .thenAnswer(invocation -> new ByteArrayInputStream(samplePdf));
+        Mockito.when(storageManager.exists(Matchers.eq(binaryResource), Matchers.anyString()))
+                .thenAnswer(invocation -> generatedFiles.containsKey((String) invocation.getArguments()[1]));
+        Mockito.when(storageManager.getLastModified(Matchers.eq(binaryResource), Matchers.anyString()))
+                .thenReturn(new Date());
+        Mockito.when(storageManager.getGeneratedFileOutputStream(Matchers.eq(binaryResource), Matchers.anyString()))
+                .thenAnswer(invocation -> {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    generatedFiles.put((String) invocation.getArguments()[1], out);
+                    return out;
+                });
+        Mockito.when(storageManager.getGeneratedFileInputStream(Matchers.eq(binaryResource), Matchers.anyString()))
+                .thenAnswer(invocation -> new ByteArrayInputStream(generatedFiles.get((String) invocation.getArguments()[1]).toByteArray()));
+        Mockito.doAnswer(invocation -> {
+            Object[] arguments = invocation.getArguments();
+            generatedFiles.put((String) arguments[2], generatedFiles.remove((String) arguments[1]));
+            return null;
+        }).when(storageManager).renameGeneratedFile(Matchers.eq(binaryResource), Matchers.anyString(), Matchers.anyString());
+
+        User user = Mockito.mock(User.class);
+        Mockito.when(user.getLogin()).thenReturn("user1");
+        Mockito.when(user.getName()).thenReturn("user1");
+
+        PartRevision partRevision = Mockito.spy(new PartRevision());
+        partRevision.setCreationDate(new Date());
+        partRevision.setAuthor(user);
+        Mockito.doReturn("Part").when(partRevision).getPartName();
+        partRevision.setTags(new HashSet<>());
+        partRevision.setDescription("Description");
+
+        partIteration = Mockito.spy(new PartIteration());
+        partIteration.setPartRevision(partRevision);
+        partIteration.setCreationDate(new Date());
+        Mockito.doReturn("P-1").when(partIteration).getNumber();
+        Mockito.doReturn("A").when(partIteration).getVersion();
+        Mockito.when(partIteration.getInstanceAttributes()).thenReturn(new ArrayList<>());
+        partIteration.setAuthor(user);
+        partIteration.setIteration(1);
+    }
+
+    @Test
+    public void stampsOnceTest() throws Exception {
+        read(converter.getConvertedResource("pdf", binaryResource, partIteration, Locale.ENGLISH));
+        read(converter.getConvertedResource("pdf", binaryResource, partIteration, Locale.ENGLISH));
+
+        Mockito.verify(storageManager, Mockito.times(1)).getBinaryResourceInputStream(binaryResource);
+        Assert.assertEquals(new HashSet<>(Arrays.asList("sample.stamped-en.pdf", "sample.stamped-en.pdf.fingerprint")),
+                generatedFiles.keySet());
+    }
+
+    @Test
+    public void changedTitleBlockReplacesStampedFileTest() throws Exception {
+        read(converter.getConvertedResource("pdf", binaryResource, partIteration, Locale.ENGLISH));
+        String fingerprint = generatedFiles.get("sample.stamped-en.pdf.fingerprint").toString("UTF-8");
+
+        partIteration.setIterationNote("Updated note");
+        read(converter.getConvertedResource("pdf", binaryResource, partIteration, Locale.ENGLISH));
+
+        Mockito.verify(storageManager, Mockito.times(2)).getBinaryResourceInputStream(binaryResource);
+        Assert.assertNotEquals(fingerprint, generatedFiles.get("sample.stamped-en.pdf.fingerprint").toString("UTF-8"));
+        // The previous stamped file is replaced, not kept aside
+        Assert.assertEquals(2, generatedFiles.size());
+    }
+
+    @Test
+    public void stampedFilePerLocaleTest() throws Exception {
+        read(converter.getConvertedResource("pdf", binaryResource, partIteration, Locale.ENGLISH));
+        read(converter.getConvertedResource("pdf", binaryResource, partIteration, Locale.FRENCH));
+        read(converter.getConvertedResource("pdf", binaryResource, partIteration, Locale.ENGLISH));
+
+        Mockito.verify(storageManager, Mockito.times(2)).getBinaryResourceInputStream(binaryResource);
+        Assert.assertTrue(generatedFiles.containsKey("sample.stamped-en.pdf"));
+        Assert.assertTrue(generatedFiles.containsKey("sample.stamped-fr.pdf"));
+    }
+
+    @Test
+    public void otherOutputFormatTest() throws Exception {
+        Assert.assertNull(converter.getConvertedResource("png", binaryResource, partIteration, Locale.ENGLISH));
+        Assert.assertNull(converter.getConvertedFile("png", binaryResource, partIteration, Locale.ENGLISH));
+        Mockito.verifyZeroInteractions(storageManager);
+    }
+
+    private static void read(InputStream inputStream) throws Exception {
+        try (InputStream in = inputStream) {
+            Assert.assertTrue(IOUtils.toByteArray(in).length > 0);
+        }
+    }
+}
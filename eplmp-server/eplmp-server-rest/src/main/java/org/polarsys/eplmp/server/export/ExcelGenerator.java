@@ -29,94 +29,55 @@ import org.polarsys.eplmp.server.helpers.LangHelper;
 import org.polarsys.eplmp.server.rest.collections.QueryResult;
 import org.polarsys.eplmp.server.rest.dto.InstanceAttributeDTO;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.dozer.DozerBeanMapperSingletonWrapper;
 import org.dozer.Mapper;
 
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 /**
  * @author Chadid Asmae
  */
 public class ExcelGenerator {
 
-    private static final Logger LOGGER = Logger.getLogger(ExcelGenerator.class.getName());
+    public static final String XLSX_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+    public static final String CSV_CONTENT_TYPE = "text/csv; charset=UTF-8";
 
-    private Mapper mapper = DozerBeanMapperSingletonWrapper.getInstance();
+    private static final int ROW_ACCESS_WINDOW_SIZE = 100;
+    private static final int COLUMN_WIDTH_SAMPLE_ROWS = 100;
+    private static final int MAX_COLUMN_WIDTH = 80;
 
-    public File generateXLSResponse(QueryResult queryResult, Locale locale, String baseURL) {
-        File excelFile = new File("export_parts.xls");
-        //Blank workbook
-        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+    static final String COMMENT_SHEET_NAME = "Parts Data Comments";
 
+    private Mapper mapper = DozerBeanMapperSingletonWrapper.getInstance();
 
+    /**
+     * Write the query result as a XLSX workbook to the given stream.
+     *
+     * Rows are streamed: only a window of rows is kept in memory, the others are flushed to temporary
+     * files of this export which are deleted once the workbook is written. Column widths are computed
+     * from the header and the first rows.
+     *
+     * Cell comments are not streamed, so only the header row has comments, holding the key and attribute
+     * type of each column. The comments of the other rows, the attribute ids and the paths of the serial
+     * numbers, are written to a hidden sheet, in the cell matching the commented one.
+     */
+    public void generateXLSResponse(QueryResult queryResult, Locale locale, String baseURL, OutputStream outputStream) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW_SIZE);
+        workbook.setCompressTempFiles(true);
+
+        try {
             //Create a blank sheet
-            XSSFSheet sheet = workbook.createSheet("Parts Data");
+            Sheet sheet = workbook.createSheet("Parts Data");
+            Sheet commentSheet = workbook.createSheet(COMMENT_SHEET_NAME);
+            workbook.setSheetHidden(workbook.getSheetIndex(commentSheet), true);
 
             String header = String.join(";", queryResult.getQuery().getSelects());
             String[] columns = header.split(";");
-
-            Map<Integer, String[]> data = new HashMap<>();
             String[] headerFormatted = createXLSHeaderRow(header, columns, locale);
-            data.put(1, headerFormatted);
-
-            Map<Integer, String[]> commentsData = new HashMap<>();
             String[] headerComments = createXLSHeaderRowComments(header, columns);
-            commentsData.put(1, headerComments);
-
-            List<String> selects = queryResult.getQuery().getSelects();
-            int i = 1;
-            for (QueryResultRow row : queryResult.getRows()) {
-                i++;
-                data.put(i, createXLSRow(selects, row, baseURL));
-                commentsData.put(i, createXLSRowComments(selects, row));
-            }
-
-            //Iterate over data and write to sheet
-            Set<Integer> keySet = data.keySet();
-            int rowNum = 0;
-
-            for (Integer key : keySet) {
-
-                Row row = sheet.createRow(rowNum++);
-                String[] objArr = data.get(key);
-                int cellNum = 0;
-                for (String obj : objArr) {
-                    Cell cell = row.createCell(cellNum++);
-                    cell.setCellValue(obj);
-                }
-
-                CreationHelper factory = workbook.getCreationHelper();
-                Drawing drawing = sheet.createDrawingPatriarch();
-                String[] commentsObjArr = commentsData.get(key);
-                cellNum = 0;
-                for (String commentsObj : commentsObjArr) {
-                    if (commentsObj.length() > 0) {
-                        Cell cell = row.getCell(cellNum) != null ? row.getCell(cellNum) : row.createCell(cellNum);
-
-                        // When the comment box is visible, have it show in a 1x3 space
-                        ClientAnchor anchor = factory.createClientAnchor();
-                        anchor.setCol1(cell.getColumnIndex());
-                        anchor.setCol2(cell.getColumnIndex() + 1);
-                        anchor.setRow1(row.getRowNum());
-                        anchor.setRow2(row.getRowNum() + 1);
-
-                        Comment comment = drawing.createCellComment(anchor);
-                        RichTextString str = factory.createRichTextString(commentsObj);
-                        comment.setString(str);
-
-                        // Assign the comment to the cell
-                        cell.setCellComment(comment);
-                    }
-                    cellNum++;
-                }
-            }
 
             // Define header style
             Font headerFont = workbook.createFont();
@@ -130,36 +91,126 @@ public class ExcelGenerator {
             headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
             headerStyle.setFillPattern(CellStyle.SOLID_FOREGROUND);
 
-            // Set header style
-            for (int j = 0; j < columns.length; j++) {
-                Cell cell = sheet.getRow(0).getCell(j);
-                cell.setCellStyle(headerStyle);
+            // Key columns are styled as the header, rows can't be styled once flushed so it is known up front
+            boolean[] keyColumns = new boolean[headerComments.length];
+            for (int j = 0; j < headerComments.length; j++) {
+                String comment = headerComments[j];
+                keyColumns[j] = QueryField.CTX_PRODUCT_ID.equals(comment) || QueryField.CTX_SERIAL_NUMBER.equals(comment) || QueryField.PART_MASTER_NUMBER.equals(comment);
+            }
 
-                if (cell.getCellComment() != null) {
-                    String comment = cell.getCellComment().getString().toString();
+            int[] columnWidths = new int[columns.length];
 
-                    if (comment.equals(QueryField.CTX_PRODUCT_ID) || comment.equals(QueryField.CTX_SERIAL_NUMBER) || comment.equals(QueryField.PART_MASTER_NUMBER)) {
-                        for (int k = 0; k < queryResult.getRows().size(); k++) {
-                            Cell grayCell = sheet.getRow(k + 1).getCell(j) != null ? sheet.getRow(k + 1).getCell(j) : sheet.getRow(k + 1).createCell(j);
-                            grayCell.setCellStyle(headerStyle);
-                        }
-                    }
-                }
+            Row headerRow = writeXLSRow(sheet, 0, headerFormatted, headerStyle, null, columnWidths);
+            writeXLSComments(sheet, workbook.getCreationHelper(), headerRow, headerComments);
+
+            List<String> selects = queryResult.getQuery().getSelects();
+            int rowNum = 1;
+            for (QueryResultRow row : queryResult.getRows()) {
+                writeXLSRow(sheet, rowNum, createXLSRow(selects, row, baseURL), headerStyle, keyColumns,
+                        rowNum <= COLUMN_WIDTH_SAMPLE_ROWS ? columnWidths : null);
+                writeXLSCommentRow(commentSheet, rowNum, createXLSRowComments(selects, row));
+                rowNum++;
             }
 
-            //Write the workbook in file system
-            try (FileOutputStream out = new FileOutputStream(excelFile)) {
-                workbook.write(out);
-            } catch (IOException e) {
-                LOGGER.log(Level.SEVERE, "Cannot write file to file system", e);
+            for (int j = 0; j < columnWidths.length; j++) {
+                sheet.setColumnWidth(j, Math.min(columnWidths[j] + 2, MAX_COLUMN_WIDTH) * 256);
             }
 
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "Cannot initialize workbook", e);
+            workbook.write(outputStream);
+        } finally {
+            workbook.dispose();
         }
+    }
+
+    /**
+     * Write the query result as CSV to the given stream, row by row.
+     */
+    public void generateCSVResponse(QueryResult queryResult, Locale locale, String baseURL, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
 
-        return excelFile;
+        String header = String.join(";", queryResult.getQuery().getSelects());
+        String[] columns = header.split(";");
+        writeCSVRow(writer, createXLSHeaderRow(header, columns, locale));
 
+        List<String> selects = queryResult.getQuery().getSelects();
+        for (QueryResultRow row : queryResult.getRows()) {
+            writeCSVRow(writer, createXLSRow(selects, row, baseURL));
+        }
+
+        writer.flush();
+    }
+
+    private Row writeXLSRow(Sheet sheet, int rowNum, String[] values, CellStyle headerStyle, boolean[] keyColumns, int[] columnWidths) {
+
+        Row row = sheet.createRow(rowNum);
+        int cellNum = 0;
+        for (String value : values) {
+            Cell cell = row.createCell(cellNum);
+            cell.setCellValue(value);
+            if (keyColumns == null || cellNum < keyColumns.length && keyColumns[cellNum]) {
+                cell.setCellStyle(headerStyle);
+            }
+            if (columnWidths != null && cellNum < columnWidths.length && value != null) {
+                columnWidths[cellNum] = Math.max(columnWidths[cellNum], value.length());
+            }
+            cellNum++;
+        }
+        return row;
+    }
+
+    private void writeXLSCommentRow(Sheet commentSheet, int rowNum, String[] comments) {
+        Row row = null;
+        for (int cellNum = 0; cellNum < comments.length; cellNum++) {
+            String comment = comments[cellNum];
+            if (comment != null && !comment.isEmpty()) {
+                if (row == null) {
+                    row = commentSheet.createRow(rowNum);
+                }
+                row.createCell(cellNum).setCellValue(comment);
+            }
+        }
+    }
+
+    private void writeXLSComments(Sheet sheet, CreationHelper factory, Row row, String[] comments) {
+        Drawing drawing = sheet.createDrawingPatriarch();
+        int cellNum = 0;
+        for (String commentsObj : comments) {
+            if (commentsObj != null && commentsObj.length() > 0) {
+                Cell cell = row.getCell(cellNum) != null ? row.getCell(cellNum) : row.createCell(cellNum);
+
+                // When the comment box is visible, have it show in a 1x3 space
+                ClientAnchor anchor = factory.createClientAnchor();
+                anchor.setCol1(cell.getColumnIndex());
+                anchor.setCol2(cell.getColumnIndex() + 1);
+                anchor.setRow1(row.getRowNum());
+                anchor.setRow2(row.getRowNum() + 1);
+
+                Comment comment = drawing.createCellComment(anchor);
+                RichTextString str = factory.createRichTextString(commentsObj);
+                comment.setString(str);
+
+                // Assign the comment to the cell
+                cell.setCellComment(comment);
+            }
+            cellNum++;
+        }
+    }
+
+    private void writeCSVRow(Writer writer, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values[i] != null ? values[i] : "";
+            if (value.indexOf(',') != -1 || value.indexOf('"') != -1 || value.indexOf('\n') != -1 || value.indexOf('\r') != -1) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
     }
 
     private String[] createXLSHeaderRow(String header, String[] columns, Locale locale) {
@@ -371,8 +422,7 @@ public class ExcelGenerator {
 
         }
 
-        String rowData = String.join(";", data);
-        return rowData.split(";");
+        return data.toArray(new String[data.size()]);
     }
 
     private String[] createXLSRowComments(List<String> selects, QueryResultRow row) {
@@ -384,9 +434,7 @@ public class ExcelGenerator {
 
             if (select.equals(QueryField.CTX_SERIAL_NUMBER)) {
                 String path = row.getPath();
-                if (path != null && !path.isEmpty()) {
-                    commentsData.add(path);
-                }
+                commentsData.add(path != null ? path : "");
 
             } else if (select.startsWith(QueryField.PART_REVISION_ATTRIBUTES_PREFIX)) {
                 String attributeSelectType = select.substring(0, select.indexOf(".")).substring(QueryField.PART_REVISION_ATTRIBUTES_PREFIX.length());
@@ -445,8 +493,7 @@ public class ExcelGenerator {
 
         }
 
-        String commentsRowData = String.join(";", commentsData);
-        return commentsRowData.split(";");
+        return commentsData.toArray(new String[commentsData.size()]);
     }
 
 }
@@ -25,6 +25,7 @@ import org.polarsys.eplmp.server.rest.dto.AccountDTO;
 import org.polarsys.eplmp.server.rest.dto.OAuthProviderDTO;
 import org.polarsys.eplmp.server.rest.dto.PlatformOptionsDTO;
 import org.polarsys.eplmp.server.rest.dto.WorkspaceDTO;
+import org.polarsys.eplmp.server.ws.WebSocketSessionsManager;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.security.DeclareRoles;
@@ -80,6 +81,15 @@ public class AdminResource implements Serializable {
     @Inject
     private IOAuthManagerLocal oAuthManager;
 
+    @Inject
+    private IBinaryStorageManagerLocal storageManager;
+
+    @Inject
+    private WebSocketSessionsManager webSocketSessionsManager;
+
+    @Inject
+    private IPlatformHealthManagerLocal platformHealthManager;
+
     private Mapper mapper;
 
     public AdminResource() {
@@ -222,6 +232,41 @@ public class AdminResource implements Serializable {
         return partsStats.build();
     }
 
+    @GET
+    @Path("websocket-stats")
+    @ApiOperation(value = "Get WebSocket stats",
+            response = String.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful retrieval of WebSocket statistics"),
+            @ApiResponse(code = 401, message = "Unauthorized"),
+            @ApiResponse(code = 500, message = "Internal server error")
+    })
+    @Produces(MediaType.APPLICATION_JSON)
+    public JsonObject getWebSocketStats() {
+        return Json.createObjectBuilder()
+                .add("connectedSessions", webSocketSessionsManager.getConnectedSessions())
+                .add("connectedUsers", webSocketSessionsManager.getConnectedUsers())
+                .add("queuedMessages", webSocketSessionsManager.getQueuedMessages())
+                .add("droppedMessages", webSocketSessionsManager.getDroppedMessages())
+                .build();
+    }
+
+    @GET
+    @Path("platform-stats")
+    @ApiOperation(value = "Get indexation queue, office conversion and product structure cache stats",
+            response = String.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful retrieval of platform statistics"),
+            @ApiResponse(code = 401, message = "Unauthorized"),
+            @ApiResponse(code = 500, message = "Internal server error")
+    })
+    @Produces(MediaType.APPLICATION_JSON)
+    public JsonObject getPlatformStats() {
+        JsonObjectBuilder platformStats = Json.createObjectBuilder();
+        platformHealthManager.getMetrics().forEach((name, value) -> platformStats.add(name, value));
+        return platformStats.build();
+    }
+
 
     @PUT
     @ApiOperation(value = "Synchronize index for workspace",
@@ -254,6 +299,20 @@ public class AdminResource implements Serializable {
         return Response.status(Response.Status.ACCEPTED).build();
     }
 
+    @PUT
+    @ApiOperation(value = "Convert the vault to the content addressed layout",
+            response = Response.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 202, message = "Accepted conversion (asynchronous method)"),
+            @ApiResponse(code = 401, message = "Unauthorized"),
+            @ApiResponse(code = 500, message = "Internal server error")
+    })
+    @Path("vault/content-addressed")
+    public Response convertToContentAddressedVault() {
+        storageManager.convertToContentAddressedVault();
+        return Response.status(Response.Status.ACCEPTED).build();
+    }
+
     @GET
     @Path("platform-options")
     @ApiOperation(value = "Get platform options",
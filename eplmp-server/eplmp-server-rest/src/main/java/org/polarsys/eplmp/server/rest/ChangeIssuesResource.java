@@ -23,6 +23,8 @@ import org.polarsys.eplmp.core.services.IChangeManagerLocal;
 import org.polarsys.eplmp.server.rest.dto.*;
 import org.polarsys.eplmp.server.rest.dto.change.ChangeIssueDTO;
 import org.polarsys.eplmp.server.rest.dto.change.ChangeItemDTO;
+import org.polarsys.eplmp.server.rest.exceptions.InvalidContinuationTokenException;
+import org.polarsys.eplmp.server.rest.util.ContinuationToken;
 import io.swagger.annotations.*;
 import org.dozer.DozerBeanMapperSingletonWrapper;
 import org.dozer.Mapper;
@@ -69,17 +71,31 @@ public class ChangeIssuesResource {
     })
     @Produces(MediaType.APPLICATION_JSON)
     public Response getIssues(
-            @ApiParam(required = true, value = "Workspace id") @PathParam("workspaceId") String workspaceId)
-            throws EntityNotFoundException, UserNotActiveException {
-        List<ChangeIssue> changeIssues = changeManager.getChangeIssues(workspaceId);
+            @ApiParam(required = true, value = "Workspace id") @PathParam("workspaceId") String workspaceId,
+            @ApiParam(required = false, value = "Max results, all the issues when not set") @QueryParam("length") int length,
+            @ApiParam(required = false, value = "Continuation token of the previous page") @QueryParam("after") String after)
+            throws EntityNotFoundException, UserNotActiveException, InvalidContinuationTokenException {
+        List<ChangeIssue> changeIssues;
+        if (length > 0 || after != null) {
+            int afterId = after != null ? ContinuationToken.decodeId(after) : 0;
+            length = length > 0 ? length : ContinuationToken.DEFAULT_PAGE_SIZE;
+            changeIssues = changeManager.getChangeIssuesAfter(workspaceId, afterId, length);
+        } else {
+            changeIssues = changeManager.getChangeIssues(workspaceId);
+        }
+        Set<Integer> writableIds = changeManager.getWritableChangeItemIds(workspaceId, changeIssues);
         List<ChangeIssueDTO> changeIssueDTOs = new ArrayList<>();
         for (ChangeIssue issue : changeIssues) {
             ChangeIssueDTO changeIssueDTO = mapper.map(issue, ChangeIssueDTO.class);
-            changeIssueDTO.setWritable(changeManager.isChangeItemWritable(issue));
+            changeIssueDTO.setWritable(writableIds.contains(issue.getId()));
             changeIssueDTOs.add(changeIssueDTO);
         }
-        return Response.ok(new GenericEntity<List<ChangeIssueDTO>>((List<ChangeIssueDTO>) changeIssueDTOs) {
-        }).build();
+        Response.ResponseBuilder response = Response.ok(new GenericEntity<List<ChangeIssueDTO>>((List<ChangeIssueDTO>) changeIssueDTOs) {
+        });
+        if (length > 0 && changeIssues.size() == length) {
+            response.header(ContinuationToken.HEADER, ContinuationToken.encode(changeIssues.get(changeIssues.size() - 1).getId()));
+        }
+        return response.build();
     }
 
     @POST
@@ -125,10 +141,11 @@ public class ChangeIssuesResource {
             throws EntityNotFoundException, UserNotActiveException {
         int maxResults = 8;
         List<ChangeIssue> issues = changeManager.getIssuesWithReference(workspaceId, q, maxResults);
+        Set<Integer> writableIds = changeManager.getWritableChangeItemIds(workspaceId, issues);
         List<ChangeIssueDTO> issueDTOs = new ArrayList<>();
         for (ChangeIssue issue : issues) {
             ChangeIssueDTO changeIssueDTO = mapper.map(issue, ChangeIssueDTO.class);
-            changeIssueDTO.setWritable(changeManager.isChangeItemWritable(issue));
+            changeIssueDTO.setWritable(writableIds.contains(issue.getId()));
             issueDTOs.add(changeIssueDTO);
         }
         return issueDTOs.toArray(new ChangeIssueDTO[issueDTOs.size()]);
@@ -24,6 +24,8 @@ import org.polarsys.eplmp.server.rest.dto.*;
 import org.polarsys.eplmp.server.rest.dto.change.ChangeOrderDTO;
 import org.polarsys.eplmp.server.rest.dto.change.ChangeRequestDTO;
 import org.polarsys.eplmp.server.rest.dto.change.ChangeRequestListDTO;
+import org.polarsys.eplmp.server.rest.exceptions.InvalidContinuationTokenException;
+import org.polarsys.eplmp.server.rest.util.ContinuationToken;
 import io.swagger.annotations.*;
 import org.dozer.DozerBeanMapperSingletonWrapper;
 import org.dozer.Mapper;
@@ -70,17 +72,31 @@ public class ChangeOrdersResource {
     })
     @Produces(MediaType.APPLICATION_JSON)
     public Response getOrders(
-            @ApiParam(required = true, value = "Workspace id") @PathParam("workspaceId") String workspaceId)
-            throws EntityNotFoundException, UserNotActiveException {
-        List<ChangeOrder> changeOrders = changeManager.getChangeOrders(workspaceId);
+            @ApiParam(required = true, value = "Workspace id") @PathParam("workspaceId") String workspaceId,
+            @ApiParam(required = false, value = "Max results, all the orders when not set") @QueryParam("length") int length,
+            @ApiParam(required = false, value = "Continuation token of the previous page") @QueryParam("after") String after)
+            throws EntityNotFoundException, UserNotActiveException, InvalidContinuationTokenException {
+        List<ChangeOrder> changeOrders;
+        if (length > 0 || after != null) {
+            int afterId = after != null ? ContinuationToken.decodeId(after) : 0;
+            length = length > 0 ? length : ContinuationToken.DEFAULT_PAGE_SIZE;
+            changeOrders = changeManager.getChangeOrdersAfter(workspaceId, afterId, length);
+        } else {
+            changeOrders = changeManager.getChangeOrders(workspaceId);
+        }
+        Set<Integer> writableIds = changeManager.getWritableChangeItemIds(workspaceId, changeOrders);
         List<ChangeOrderDTO> changeOrderDTOs = new ArrayList<>();
         for (ChangeOrder order : changeOrders) {
             ChangeOrderDTO changeOrderDTO = mapper.map(order, ChangeOrderDTO.class);
-            changeOrderDTO.setWritable(changeManager.isChangeItemWritable(order));
+            changeOrderDTO.setWritable(writableIds.contains(order.getId()));
             changeOrderDTOs.add(changeOrderDTO);
         }
-        return Response.ok(new GenericEntity<List<ChangeOrderDTO>>((List<ChangeOrderDTO>) changeOrderDTOs) {
-        }).build();
+        Response.ResponseBuilder response = Response.ok(new GenericEntity<List<ChangeOrderDTO>>((List<ChangeOrderDTO>) changeOrderDTOs) {
+        });
+        if (length > 0 && changeOrders.size() == length) {
+            response.header(ContinuationToken.HEADER, ContinuationToken.encode(changeOrders.get(changeOrders.size() - 1).getId()));
+        }
+        return response.build();
     }
 
     @POST
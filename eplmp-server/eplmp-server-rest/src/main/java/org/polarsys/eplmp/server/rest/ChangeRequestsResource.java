@@ -24,6 +24,8 @@ import org.polarsys.eplmp.server.rest.dto.*;
 import org.polarsys.eplmp.server.rest.dto.change.ChangeIssueDTO;
 import org.polarsys.eplmp.server.rest.dto.change.ChangeIssueListDTO;
 import org.polarsys.eplmp.server.rest.dto.change.ChangeRequestDTO;
+import org.polarsys.eplmp.server.rest.exceptions.InvalidContinuationTokenException;
+import org.polarsys.eplmp.server.rest.util.ContinuationToken;
 import io.swagger.annotations.*;
 import org.dozer.DozerBeanMapperSingletonWrapper;
 import org.dozer.Mapper;
@@ -70,17 +72,31 @@ public class ChangeRequestsResource {
     })
     @Produces(MediaType.APPLICATION_JSON)
     public Response getRequests(
-            @ApiParam(required = true, value = "Workspace id") @PathParam("workspaceId") String workspaceId)
-            throws EntityNotFoundException, UserNotActiveException {
-        List<ChangeRequest> changeRequests = changeManager.getChangeRequests(workspaceId);
+            @ApiParam(required = true, value = "Workspace id") @PathParam("workspaceId") String workspaceId,
+            @ApiParam(required = false, value = "Max results, all the requests when not set") @QueryParam("length") int length,
+            @ApiParam(required = false, value = "Continuation token of the previous page") @QueryParam("after") String after)
+            throws EntityNotFoundException, UserNotActiveException, InvalidContinuationTokenException {
+        List<ChangeRequest> changeRequests;
+        if (length > 0 || after != null) {
+            int afterId = after != null ? ContinuationToken.decodeId(after) : 0;
+            length = length > 0 ? length : ContinuationToken.DEFAULT_PAGE_SIZE;
+            changeRequests = changeManager.getChangeRequestsAfter(workspaceId, afterId, length);
+        } else {
+            changeRequests = changeManager.getChangeRequests(workspaceId);
+        }
+        Set<Integer> writableIds = changeManager.getWritableChangeItemIds(workspaceId, changeRequests);
         List<ChangeRequestDTO> changeRequestDTOs = new ArrayList<>();
         for (ChangeRequest request : changeRequests) {
             ChangeRequestDTO changeRequestDTO = mapper.map(request, ChangeRequestDTO.class);
-            changeRequestDTO.setWritable(changeManager.isChangeItemWritable(request));
+            changeRequestDTO.setWritable(writableIds.contains(request.getId()));
             changeRequestDTOs.add(changeRequestDTO);
         }
-        return Response.ok(new GenericEntity<List<ChangeRequestDTO>>((List<ChangeRequestDTO>) changeRequestDTOs) {
-        }).build();
+        Response.ResponseBuilder response = Response.ok(new GenericEntity<List<ChangeRequestDTO>>((List<ChangeRequestDTO>) changeRequestDTOs) {
+        });
+        if (length > 0 && changeRequests.size() == length) {
+            response.header(ContinuationToken.HEADER, ContinuationToken.encode(changeRequests.get(changeRequests.size() - 1).getId()));
+        }
+        return response.build();
     }
 
     @POST
@@ -126,10 +142,11 @@ public class ChangeRequestsResource {
             throws EntityNotFoundException, UserNotActiveException {
         int maxResults = 8;
         List<ChangeRequest> requests = changeManager.getRequestsWithReference(workspaceId, q, maxResults);
+        Set<Integer> writableIds = changeManager.getWritableChangeItemIds(workspaceId, requests);
         List<ChangeRequestDTO> requestDTOs = new ArrayList<>();
         for (ChangeRequest request : requests) {
             ChangeRequestDTO changeRequestDTO = mapper.map(request, ChangeRequestDTO.class);
-            changeRequestDTO.setWritable(changeManager.isChangeItemWritable(request));
+            changeRequestDTO.setWritable(writableIds.contains(request.getId()));
             requestDTOs.add(changeRequestDTO);
         }
         return requestDTOs.toArray(new ChangeRequestDTO[requestDTOs.size()]);
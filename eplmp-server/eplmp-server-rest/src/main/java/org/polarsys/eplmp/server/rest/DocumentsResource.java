@@ -12,6 +12,7 @@
 package org.polarsys.eplmp.server.rest;
 
 import org.polarsys.eplmp.core.document.DocumentRevision;
+import org.polarsys.eplmp.core.document.DocumentRevisionKey;
 import org.polarsys.eplmp.core.exceptions.*;
 import org.polarsys.eplmp.core.exceptions.NotAllowedException;
 import org.polarsys.eplmp.core.query.DocumentSearchQuery;
@@ -20,6 +21,8 @@ import org.polarsys.eplmp.core.services.IDocumentManagerLocal;
 import org.polarsys.eplmp.core.services.IDocumentWorkflowManagerLocal;
 import org.polarsys.eplmp.server.rest.dto.CountDTO;
 import org.polarsys.eplmp.server.rest.dto.DocumentRevisionDTO;
+import org.polarsys.eplmp.server.rest.exceptions.InvalidContinuationTokenException;
+import org.polarsys.eplmp.server.rest.util.ContinuationToken;
 import org.polarsys.eplmp.server.rest.util.SearchQueryParser;
 import io.swagger.annotations.*;
 import org.dozer.DozerBeanMapperSingletonWrapper;
@@ -34,6 +37,7 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import java.util.ArrayList;
 import java.util.List;
@@ -78,16 +82,31 @@ public class DocumentsResource {
             @ApiResponse(code = 500, message = "Internal server error")
     })
     @Produces(MediaType.APPLICATION_JSON)
-    public DocumentRevisionDTO[] getDocumentsInWorkspace(
+    public Response getDocumentsInWorkspace(
             @ApiParam(required = true, value = "Workspace id") @PathParam("workspaceId") String workspaceId,
             @ApiParam(required = false, value = "Start offset", defaultValue = "0") @QueryParam("start") int start,
-            @ApiParam(required = false, value = "Max results", defaultValue = "20") @QueryParam("max") int max)
+            @ApiParam(required = false, value = "Max results", defaultValue = "20") @QueryParam("max") int max,
+            @ApiParam(required = false, value = "Continuation token of the previous page, replaces the start offset") @QueryParam("after") String after)
             throws UserNotActiveException, WorkspaceNotFoundException, UserNotFoundException,
-            BaselineNotFoundException, DocumentRevisionNotFoundException, WorkspaceNotEnabledException {
+            BaselineNotFoundException, DocumentRevisionNotFoundException, WorkspaceNotEnabledException,
+            InvalidContinuationTokenException {
 
         int maxResult = max != 0 ? max : 20;
-        DocumentRevision[] docRs = documentService.getFilteredDocumentsInWorkspace(workspaceId, start, maxResult);
-        return mapToDTOs(docRs);
+        DocumentRevision[] docRs;
+        if (after != null) {
+            // Keyset pagination: the page starts after the last revision of the previous one
+            String[] lastKey = ContinuationToken.decode(after, 2);
+            docRs = documentService.getFilteredDocumentsInWorkspaceAfter(workspaceId, new DocumentRevisionKey(workspaceId, lastKey[0], lastKey[1]), maxResult);
+        } else {
+            docRs = documentService.getFilteredDocumentsInWorkspace(workspaceId, start, maxResult);
+        }
+
+        Response.ResponseBuilder response = Response.ok(mapToDTOs(docRs));
+        if (docRs.length > 0 && docRs.length == maxResult) {
+            DocumentRevision last = docRs[docRs.length - 1];
+            response.header(ContinuationToken.HEADER, ContinuationToken.encode(last.getDocumentMasterId(), last.getVersion()));
+        }
+        return response.build();
     }
 
     @GET
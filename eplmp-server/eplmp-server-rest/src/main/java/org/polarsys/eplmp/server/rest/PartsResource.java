@@ -28,7 +28,9 @@ import org.polarsys.eplmp.core.util.FileIO;
 import org.polarsys.eplmp.server.export.ExcelGenerator;
 import org.polarsys.eplmp.server.rest.collections.QueryResult;
 import org.polarsys.eplmp.server.rest.dto.*;
+import org.polarsys.eplmp.server.rest.exceptions.InvalidContinuationTokenException;
 import org.polarsys.eplmp.server.rest.file.util.BinaryResourceUpload;
+import org.polarsys.eplmp.server.rest.util.ContinuationToken;
 import org.polarsys.eplmp.server.rest.util.SearchQueryParser;
 import io.swagger.annotations.*;
 import org.dozer.DozerBeanMapperSingletonWrapper;
@@ -111,22 +113,30 @@ public class PartsResource {
     public Response getPartRevisions(
             @ApiParam(required = true, value = "Workspace id") @PathParam("workspaceId") String workspaceId,
             @ApiParam(required = false, value = "Start offset", defaultValue = "0") @QueryParam("start") int start,
-            @ApiParam(required = false, value = "Max results", defaultValue = "20") @QueryParam("length") int length)
-            throws EntityNotFoundException, AccessRightException, UserNotActiveException {
-
-        List<PartRevision> partRevisions = productService.getPartRevisions(Tools.stripTrailingSlash(workspaceId), start, length);
-        List<PartRevisionDTO> partRevisionDTOs = new ArrayList<>();
-
-        for (PartRevision partRevision : partRevisions) {
-            PartRevisionDTO partRevisionDTO = Tools.mapPartRevisionToPartDTO(partRevision);
-
-            List<ModificationNotificationDTO> notificationDTOs = getModificationNotificationDTOs(partRevision);
-            partRevisionDTO.setNotifications(notificationDTOs);
+            @ApiParam(required = false, value = "Max results", defaultValue = "20") @QueryParam("length") int length,
+            @ApiParam(required = false, value = "Continuation token of the previous page, replaces the start offset") @QueryParam("after") String after)
+            throws EntityNotFoundException, AccessRightException, UserNotActiveException, InvalidContinuationTokenException {
+
+        String workspace = Tools.stripTrailingSlash(workspaceId);
+        // Pages are always bounded, the whole workspace is never loaded at once
+        length = ContinuationToken.pageSize(length);
+        List<PartRevision> partRevisions;
+        if (after != null) {
+            // Keyset pagination: the page starts after the last revision of the previous one
+            String[] lastKey = ContinuationToken.decode(after, 2);
+            partRevisions = productService.getPartRevisionsAfter(workspace, new PartRevisionKey(workspace, lastKey[0], lastKey[1]), length);
+        } else {
+            partRevisions = productService.getPartRevisions(workspace, start, length);
+        }
 
-            partRevisionDTOs.add(partRevisionDTO);
+        List<PartRevisionDTO> partRevisionDTOs = mapPartRevisionsToPartDTOs(workspace, partRevisions);
+        Response.ResponseBuilder response = Response.ok(new GenericEntity<List<PartRevisionDTO>>((List<PartRevisionDTO>) partRevisionDTOs) {
+        });
+        if (partRevisions.size() == length) {
+            PartRevision last = partRevisions.get(partRevisions.size() - 1);
+            response.header(ContinuationToken.HEADER, ContinuationToken.encode(last.getPartNumber(), last.getVersion()));
         }
-        return Response.ok(new GenericEntity<List<PartRevisionDTO>>((List<PartRevisionDTO>) partRevisionDTOs) {
-        }).build();
+        return response.build();
     }
 
     @GET
@@ -163,16 +173,7 @@ public class PartsResource {
             throws EntityNotFoundException, AccessRightException, UserNotActiveException {
 
         PartRevision[] partRevisions = productService.findPartRevisionsByTag(Tools.stripTrailingSlash(workspaceId), tagId);
-        List<PartRevisionDTO> partRevisionDTOs = new ArrayList<>();
-
-        for (PartRevision partRevision : partRevisions) {
-            PartRevisionDTO partRevisionDTO = Tools.mapPartRevisionToPartDTO(partRevision);
-
-            List<ModificationNotificationDTO> notificationDTOs = getModificationNotificationDTOs(partRevision);
-            partRevisionDTO.setNotifications(notificationDTOs);
-
-            partRevisionDTOs.add(partRevisionDTO);
-        }
+        List<PartRevisionDTO> partRevisionDTOs = mapPartRevisionsToPartDTOs(Tools.stripTrailingSlash(workspaceId), Arrays.asList(partRevisions));
         return Response.ok(new GenericEntity<List<PartRevisionDTO>>((List<PartRevisionDTO>) partRevisionDTOs) {
         }).build();
     }
@@ -215,16 +216,7 @@ public class PartsResource {
         size = size == 0 ? 10 : size;
 
         List<PartRevision> partRevisions = productService.searchPartRevisions(partSearchQuery, from, size);
-        List<PartRevisionDTO> partRevisionDTOs = new ArrayList<>();
-
-        for (PartRevision partRevision : partRevisions) {
-            PartRevisionDTO partRevisionDTO = Tools.mapPartRevisionToPartDTO(partRevision);
-
-            List<ModificationNotificationDTO> notificationDTOs = getModificationNotificationDTOs(partRevision);
-            partRevisionDTO.setNotifications(notificationDTOs);
-
-            partRevisionDTOs.add(partRevisionDTO);
-        }
+        List<PartRevisionDTO> partRevisionDTOs = mapPartRevisionsToPartDTOs(Tools.stripTrailingSlash(workspaceId), partRevisions);
 
         return Response.ok(new GenericEntity<List<PartRevisionDTO>>((List<PartRevisionDTO>) partRevisionDTOs) {
         }).build();
@@ -271,12 +263,13 @@ public class PartsResource {
             @ApiParam(required = true, value = "Workspace id") @PathParam("workspaceId") String workspaceId,
             @ApiParam(required = false, value = "Save the query flag", defaultValue = "false") @QueryParam("save") boolean save,
             @ApiParam(required = false, value = "Choose export type", defaultValue = "json") @QueryParam("export") String exportType,
+            @ApiParam(required = false, value = "Max part revisions, no limit if 0", defaultValue = "0") @QueryParam("limit") int limit,
             @ApiParam(required = true, value = "Query to run") QueryDTO queryDTO)
             throws EntityNotFoundException, UserNotActiveException, AccessRightException, CreationException,
             QueryAlreadyExistsException, EntityConstraintException, NotAllowedException {
 
         Query query = mapper.map(queryDTO, Query.class);
-        QueryResult queryResult = getQueryResult(workspaceId, query, exportType);
+        QueryResult queryResult = getQueryResult(workspaceId, query, exportType, limit);
 
         if (save) {
             productService.createQuery(workspaceId, query);
@@ -353,7 +346,7 @@ public class PartsResource {
     })
     @Path("query-export")
     @Consumes(MediaType.APPLICATION_JSON)
-    @Produces("application/vnd.ms-excel")
+    @Produces({"application/vnd.ms-excel", ExcelGenerator.XLSX_CONTENT_TYPE, "text/csv"})
     public Response exportCustomQuery(
             @Context HttpServletRequest request,
             @ApiParam(required = true, value = "Workspace id") @PathParam("workspaceId") String workspaceId,
@@ -380,7 +373,7 @@ public class PartsResource {
     })
     @Path("queries/{queryId}/format/{export}")
     @Consumes(MediaType.APPLICATION_JSON)
-    @Produces("application/vnd.ms-excel")
+    @Produces({"application/vnd.ms-excel", ExcelGenerator.XLSX_CONTENT_TYPE, "text/csv"})
     public Response exportExistingQuery(
             @Context HttpServletRequest request,
             @ApiParam(required = true, value = "Workspace id") @PathParam("workspaceId") String workspaceId,
@@ -430,16 +423,7 @@ public class PartsResource {
             throws EntityNotFoundException, UserNotActiveException, AccessRightException {
 
         PartRevision[] checkedOutPartRevisions = productService.getCheckedOutPartRevisions(workspaceId);
-        List<PartRevisionDTO> partRevisionDTOs = new ArrayList<>();
-
-        for (PartRevision partRevision : checkedOutPartRevisions) {
-            PartRevisionDTO partRevisionDTO = Tools.mapPartRevisionToPartDTO(partRevision);
-
-            List<ModificationNotificationDTO> notificationDTOs = getModificationNotificationDTOs(partRevision);
-            partRevisionDTO.setNotifications(notificationDTOs);
-
-            partRevisionDTOs.add(partRevisionDTO);
-        }
+        List<PartRevisionDTO> partRevisionDTOs = mapPartRevisionsToPartDTOs(workspaceId, Arrays.asList(checkedOutPartRevisions));
 
         return Response.ok(new GenericEntity<List<PartRevisionDTO>>((List<PartRevisionDTO>) partRevisionDTOs) {
         }).build();
@@ -729,14 +713,14 @@ public class PartsResource {
 
     private Response export(String workspaceId, Query query, HttpServletRequest request, String exportType, Locale locale)
             throws BaselineNotFoundException, ProductInstanceMasterNotFoundException, EntityConstraintException, WorkspaceNotFoundException, UserNotFoundException, NotAllowedException, PartMasterNotFoundException, ConfigurationItemNotFoundException, UserNotActiveException, WorkspaceNotEnabledException {
-        QueryResult queryResult = getQueryResult(workspaceId, query, exportType);
+        QueryResult queryResult = getQueryResult(workspaceId, query, exportType, 0);
         String url = request.getRequestURL().toString();
         String baseURL = url.substring(0, url.length() - request.getRequestURI().length()) + request.getContextPath();
         return makeQueryResponse(queryResult, locale, baseURL);
     }
 
-    private QueryResult getQueryResult(String workspaceId, Query query, String pExportType) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, EntityConstraintException, BaselineNotFoundException, ProductInstanceMasterNotFoundException, NotAllowedException, ConfigurationItemNotFoundException, PartMasterNotFoundException, WorkspaceNotEnabledException {
-        List<PartRevision> partRevisions = productService.searchPartRevisions(workspaceId, query);
+    private QueryResult getQueryResult(String workspaceId, Query query, String pExportType, int maxResults) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, EntityConstraintException, BaselineNotFoundException, ProductInstanceMasterNotFoundException, NotAllowedException, ConfigurationItemNotFoundException, PartMasterNotFoundException, WorkspaceNotEnabledException {
+        List<PartRevision> partRevisions = productService.searchPartRevisions(workspaceId, query, maxResults);
         QueryResult queryResult = new QueryResult(partRevisions, query);
         if (query.hasContext()) {
             List<QueryResultRow> rows = productService.filterProductBreakdownStructure(workspaceId, query);
@@ -749,32 +733,53 @@ public class PartsResource {
 
     private Response makeQueryResponse(QueryResult queryResult, Locale locale, String baseURL) {
         ExcelGenerator excelGenerator = new ExcelGenerator();
-        String contentType = "application/vnd.ms-excel";
-        String contentDisposition = "attachment; filename=export_parts.xls";
-        Response.ResponseBuilder responseBuilder = Response.ok(excelGenerator.generateXLSResponse(queryResult, locale, baseURL));
-        responseBuilder
-                .header("Content-Type", contentType)
-                .header("Content-Disposition", contentDisposition);
-
-        return responseBuilder.build();
+        // The export is written to the response as it is generated
+        if (queryResult.getExportType() == QueryResult.ExportType.CSV) {
+            StreamingOutput csv = outputStream -> excelGenerator.generateCSVResponse(queryResult, locale, baseURL, outputStream);
+            return Response.ok(csv)
+                    .header("Content-Type", ExcelGenerator.CSV_CONTENT_TYPE)
+                    .header("Content-Disposition", "attachment; filename=export_parts.csv")
+                    .build();
+        }
+
+        StreamingOutput xlsx = outputStream -> excelGenerator.generateXLSResponse(queryResult, locale, baseURL, outputStream);
+        return Response.ok(xlsx)
+                .header("Content-Type", ExcelGenerator.XLSX_CONTENT_TYPE)
+                .header("Content-Disposition", "attachment; filename=export_parts.xlsx")
+                .build();
     }
 
 
     /**
-     * Return a list of ModificationNotificationDTO matching with a given PartRevision
+     * Return the PartRevisionDTOs of a list of PartRevision, with the ModificationNotificationDTOs
+     * of their last iteration fetched at once
      *
-     * @param partRevision The specified PartRevision
-     * @return A list of ModificationNotificationDTO
+     * @param workspaceId   The workspace of the part revisions
+     * @param partRevisions The part revisions to map
+     * @return A list of PartRevisionDTO
      * @throws EntityNotFoundException If an entity doesn't exist
-     * @throws AccessRightException    If the user can not get the modification notifications
      * @throws UserNotActiveException  If the user is disabled
      */
-    private List<ModificationNotificationDTO> getModificationNotificationDTOs(PartRevision partRevision)
-            throws EntityNotFoundException, AccessRightException, UserNotActiveException {
+    private List<PartRevisionDTO> mapPartRevisionsToPartDTOs(String workspaceId, Collection<PartRevision> partRevisions)
+            throws EntityNotFoundException, UserNotActiveException {
+
+        List<PartIterationKey> iterationKeys = new ArrayList<>();
+        for (PartRevision partRevision : partRevisions) {
+            iterationKeys.add(new PartIterationKey(partRevision.getKey(), partRevision.getLastIterationNumber()));
+        }
+        Map<PartIterationKey, List<ModificationNotification>> notifications = productService.getModificationNotifications(workspaceId, iterationKeys);
+
+        List<PartRevisionDTO> partRevisionDTOs = new ArrayList<>();
+        for (PartRevision partRevision : partRevisions) {
+            PartRevisionDTO partRevisionDTO = Tools.mapPartRevisionToPartDTO(partRevision);
 
-        PartIterationKey iterationKey = new PartIterationKey(partRevision.getKey(), partRevision.getLastIterationNumber());
-        List<ModificationNotification> notifications = productService.getModificationNotifications(iterationKey);
-        return Tools.mapModificationNotificationsToModificationNotificationDTO(notifications);
+            PartIterationKey iterationKey = new PartIterationKey(partRevision.getKey(), partRevision.getLastIterationNumber());
+            List<ModificationNotification> iterationNotifications = notifications.getOrDefault(iterationKey, Collections.emptyList());
+            partRevisionDTO.setNotifications(Tools.mapModificationNotificationsToModificationNotificationDTO(iterationNotifications));
+
+            partRevisionDTOs.add(partRevisionDTO);
+        }
+        return partRevisionDTOs;
     }
 
 }
@@ -29,7 +29,6 @@ import org.polarsys.eplmp.server.rest.collections.InstanceCollection;
 import org.polarsys.eplmp.server.rest.dto.*;
 import org.polarsys.eplmp.server.rest.dto.baseline.BaselinedPartDTO;
 import org.polarsys.eplmp.server.rest.dto.baseline.PathChoiceDTO;
-import org.polarsys.eplmp.server.rest.interceptors.Compress;
 import org.polarsys.eplmp.server.rest.util.FileDownloadTools;
 import org.polarsys.eplmp.server.rest.util.ProductFileExport;
 import io.swagger.annotations.*;
@@ -314,6 +313,9 @@ public class ProductResource {
 
     @GET
     @ApiOperation(value = "Search paths",
+            notes = "Served from an in memory index, except the work in progress of a user having checked out parts,"
+                    + " which walks the whole structure. A search starting with a wildcard or a special character"
+                    + " scans every part number and name of the index.",
             response = PathDTO.class,
             responseContainer = "List")
     @ApiResponses(value = {
@@ -328,12 +330,13 @@ public class ProductResource {
             @ApiParam(required = true, value = "Configuration item id") @PathParam("ciId") String ciId,
             @ApiParam(required = true, value = "Search value") @QueryParam("search") String search,
             @ApiParam(required = false, value = "Config spec") @QueryParam("configSpec") String configSpecType,
-            @ApiParam(required = false, value = "Discover substitute links") @QueryParam("diverge") boolean diverge)
+            @ApiParam(required = false, value = "Discover substitute links") @QueryParam("diverge") boolean diverge,
+            @ApiParam(required = false, value = "Match the search with \"*\" and \"?\" as wildcards instead of a regular expression") @QueryParam("wildcards") boolean wildcards)
             throws EntityNotFoundException, UserNotActiveException, EntityConstraintException, NotAllowedException {
 
         ConfigurationItemKey ciKey = new ConfigurationItemKey(workspaceId, ciId);
         ProductStructureFilter filter = psFilterService.getPSFilter(ciKey, configSpecType, diverge);
-        List<PartLink[]> usagePaths = productService.findPartUsages(ciKey, filter, search);
+        List<PartLink[]> usagePaths = productService.findPartUsages(ciKey, filter, search, wildcards);
 
         List<PathDTO> pathsDTO = new ArrayList<>();
 
@@ -567,7 +570,6 @@ public class ProductResource {
             @ApiResponse(code = 500, message = "Internal server error")
     })
     @Path("{ciId}/export-files")
-    @Compress
     public Response exportProductFiles(
             @ApiParam(required = true, value = "Workspace id") @PathParam("workspaceId") String workspaceId,
             @ApiParam(required = true, value = "Configuration item id") @PathParam("ciId") String ciId,
@@ -16,6 +16,7 @@ import org.polarsys.eplmp.core.product.ConfigurationItemKey;
 import org.polarsys.eplmp.core.product.PartLink;
 import org.polarsys.eplmp.core.util.Tools;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -33,6 +34,9 @@ public class InstanceCollection {
     // All instances under these paths
     private List<List<PartLink>> paths;
 
+    // String form of paths, computed once
+    private List<String> pathsAsString;
+
     public InstanceCollection(ConfigurationItemKey ciKey, ProductStructureFilter filter, List<List<PartLink>> paths) {
         this.ciKey = ciKey;
         this.filter = filter;
@@ -53,15 +57,21 @@ public class InstanceCollection {
     }
 
     public boolean isFiltered(List<PartLink> currentPath) {
-        for (List<PartLink> path : paths) {
-            if (filter(path, currentPath)) {
+        return isFiltered(Tools.getPathAsString(currentPath));
+    }
+
+    public boolean isFiltered(String currentPath) {
+        if (pathsAsString == null) {
+            pathsAsString = new ArrayList<>(paths.size());
+            for (List<PartLink> path : paths) {
+                pathsAsString.add(Tools.getPathAsString(path));
+            }
+        }
+        for (String path : pathsAsString) {
+            if (currentPath.startsWith(path)) {
                 return true;
             }
         }
         return false;
     }
-
-    private boolean filter(List<PartLink> path, List<PartLink> currentPath) {
-        return Tools.getPathAsString(currentPath).startsWith(Tools.getPathAsString(path));
-    }
 }
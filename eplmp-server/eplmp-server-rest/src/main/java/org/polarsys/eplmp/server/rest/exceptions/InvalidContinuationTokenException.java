@@ -0,0 +1,22 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.rest.exceptions;
+
+/**
+ * Thrown when the continuation token of a list request was not produced by the server.
+ */
+public class InvalidContinuationTokenException extends RestApiException {
+
+    public InvalidContinuationTokenException() {
+        super();
+    }
+}
@@ -214,15 +214,19 @@ public class DocumentBinaryResource {
         try {
 
             if (output != null && !output.isEmpty()) {
+                File convertedFile = getConvertedBinaryFile(binaryResource, output);
+                if (convertedFile != null) {
+                    binaryResourceDownloadMeta.setLength(convertedFile.length());
+                    return BinaryResourceDownloadResponseBuilder.prepareResponse(convertedFile, binaryResourceDownloadMeta, range);
+                }
                 binaryContentInputStream = getConvertedBinaryResource(binaryResource, output);
                 if (range == null || range.isEmpty()) {
                     binaryResourceDownloadMeta.setLength(0);
                 }
-            } else {
-                binaryContentInputStream = storageManager.getBinaryResourceInputStream(binaryResource);
+                return BinaryResourceDownloadResponseBuilder.prepareResponse(binaryContentInputStream, binaryResourceDownloadMeta, range);
             }
 
-            return BinaryResourceDownloadResponseBuilder.prepareResponse(binaryContentInputStream, binaryResourceDownloadMeta, range);
+            return BinaryResourceDownloadResponseBuilder.prepareResponse(storageManager, binaryResource, binaryResourceDownloadMeta, range);
 
         } catch (StorageException | FileConversionException e) {
             Streams.close(binaryContentInputStream);
@@ -259,6 +263,22 @@ public class DocumentBinaryResource {
         }
     }
 
+    /**
+     * Try to get the conversion of a binary resource to a specific format as a file of the storage
+     *
+     * @param binaryResource The binary resource
+     * @param outputFormat   The wanted output
+     * @return The file of the binary resource in the wanted output, null if the conversion is only available as a stream
+     * @throws org.polarsys.eplmp.server.rest.exceptions.FileConversionException
+     */
+    private File getConvertedBinaryFile(BinaryResource binaryResource, String outputFormat) throws FileConversionException {
+        try {
+            return onDemandConverterManager.getDocumentConvertedFile(outputFormat, binaryResource);
+        } catch (Exception e) {
+            throw new FileConversionException(e);
+        }
+    }
+
     private boolean canAccess(DocumentIterationKey docIKey) throws AccessRightException, NotAllowedException, WorkspaceNotFoundException, UserNotFoundException, DocumentRevisionNotFoundException, UserNotActiveException, WorkspaceNotEnabledException {
         DocumentRevision publicDocumentRevision = publicEntityManager.getPublicDocumentRevision(docIKey.getDocumentRevision());
         return publicDocumentRevision != null || contextManager.isCallerInRole(UserGroupMapping.REGULAR_USER_ROLE_ID) && documentService.canAccess(docIKey);
@@ -154,10 +154,9 @@ public class DocumentTemplateBinaryResource {
                 if(range == null || range.isEmpty()){
                     binaryResourceDownloadMeta.setLength(0);
                 }
-            } else {
-                binaryContentInputStream = storageManager.getBinaryResourceInputStream(binaryResource);
+                return BinaryResourceDownloadResponseBuilder.prepareResponse(binaryContentInputStream, binaryResourceDownloadMeta, range);
             }
-            return BinaryResourceDownloadResponseBuilder.prepareResponse(binaryContentInputStream, binaryResourceDownloadMeta, range);
+            return BinaryResourceDownloadResponseBuilder.prepareResponse(storageManager, binaryResource, binaryResourceDownloadMeta, range);
         } catch (StorageException | FileConversionException e) {
             Streams.close(binaryContentInputStream);
             return BinaryResourceDownloadResponseBuilder.downloadError(e, fullName);
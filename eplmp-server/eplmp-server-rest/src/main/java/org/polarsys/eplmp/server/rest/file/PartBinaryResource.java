@@ -200,13 +200,15 @@ public class PartBinaryResource {
             @ApiParam(required = false, value = "Type") @QueryParam("type") String type,
             @ApiParam(required = false, value = "Output") @QueryParam("output") String output,
             @ApiParam(required = false, value = "Range") @HeaderParam("Range") String range,
+            @ApiParam(required = false, value = "Accepted encodings") @HeaderParam("Accept-Encoding") String acceptEncoding,
+            @ApiParam(required = false, value = "Accepted encodings, when not set by the browser") @HeaderParam("x-accept-encoding") String xAcceptEncoding,
             @ApiParam(required = false, value = "Shared entity uuid") @QueryParam("uuid") final String uuid,
             @ApiParam(required = false, value = "Password for private resource") @HeaderParam("password") String password,
             @ApiParam(required = false, value = "Shared entity token") @QueryParam("token") String accessToken)
             throws EntityNotFoundException, UserNotActiveException, AccessRightException, NotAllowedException,
             PreconditionFailedException, NotModifiedException, RequestedRangeNotSatisfiableException,
             UnMatchingUuidException, SharedResourceAccessException {
-        return downloadPartFile(request, workspaceId, partNumber, version, iteration, null, fileName, type, output, range, uuid, password, accessToken);
+        return downloadPartFile(request, workspaceId, partNumber, version, iteration, null, fileName, type, output, range, acceptEncoding, xAcceptEncoding, uuid, password, accessToken);
     }
 
     @GET
@@ -230,6 +232,8 @@ public class PartBinaryResource {
             @ApiParam(required = false, value = "Type") @QueryParam("type") String type,
             @ApiParam(required = false, value = "Output") @QueryParam("output") String output,
             @ApiParam(required = false, value = "Range") @HeaderParam("Range") String range,
+            @ApiParam(required = false, value = "Accepted encodings") @HeaderParam("Accept-Encoding") String acceptEncoding,
+            @ApiParam(required = false, value = "Accepted encodings, when not set by the browser") @HeaderParam("x-accept-encoding") String xAcceptEncoding,
             @ApiParam(required = false, value = "Shared entity uuid") @QueryParam("uuid") final String uuid,
             @ApiParam(required = false, value = "Password for private resource") @HeaderParam("password") String password,
             @ApiParam(required = false, value = "Shared entity token") @QueryParam("token") String accessToken)
@@ -290,22 +294,39 @@ public class PartBinaryResource {
         }
 
         BinaryResourceDownloadMeta binaryResourceDownloadMeta = new BinaryResourceDownloadMeta(binaryResource, output, type);
+        boolean converted = ATTACHED_FILES_SUBTYPE.equals(subType) && output != null && !output.isEmpty();
 
-        // Check cache precondition
-        Response.ResponseBuilder rb = request.evaluatePreconditions(binaryResourceDownloadMeta.getLastModified(), binaryResourceDownloadMeta.getETag());
-        if (rb != null) {
-            return rb.build();
-        }
         try {
-            if (ATTACHED_FILES_SUBTYPE.equals(subType) && output != null && !output.isEmpty()) {
+            // Serve the precompressed variant if any, it changes the ETag so it has to be chosen first
+            File encodedFile = null;
+            if (!converted) {
+                encodedFile = BinaryResourceDownloadResponseBuilder.selectEncodedFile(storageManager, binaryResource, binaryResourceDownloadMeta,
+                        xAcceptEncoding != null ? xAcceptEncoding : acceptEncoding);
+            }
+
+            // Check cache precondition
+            Response.ResponseBuilder rb = request.evaluatePreconditions(binaryResourceDownloadMeta.getLastModified(), binaryResourceDownloadMeta.getETag());
+            if (rb != null) {
+                return rb.build();
+            }
+
+            if (encodedFile != null) {
+                return BinaryResourceDownloadResponseBuilder.prepareResponse(encodedFile, binaryResourceDownloadMeta, range);
+            }
+
+            if (converted) {
+                File convertedFile = getConvertedBinaryFile(binaryResource, output);
+                if (convertedFile != null) {
+                    binaryResourceDownloadMeta.setLength(convertedFile.length());
+                    return BinaryResourceDownloadResponseBuilder.prepareResponse(convertedFile, binaryResourceDownloadMeta, range);
+                }
                 binaryContentInputStream = getConvertedBinaryResource(binaryResource, output);
                 if (range == null || range.isEmpty()) {
                     binaryResourceDownloadMeta.setLength(0);
                 }
-            } else {
-                binaryContentInputStream = storageManager.getBinaryResourceInputStream(binaryResource);
+                return BinaryResourceDownloadResponseBuilder.prepareResponse(binaryContentInputStream, binaryResourceDownloadMeta, range);
             }
-            return BinaryResourceDownloadResponseBuilder.prepareResponse(binaryContentInputStream, binaryResourceDownloadMeta, range);
+            return BinaryResourceDownloadResponseBuilder.prepareResponse(storageManager, binaryResource, binaryResourceDownloadMeta, range);
         } catch (StorageException | FileConversionException e) {
             return BinaryResourceDownloadResponseBuilder.downloadError(e, fullName);
         }
@@ -327,6 +348,22 @@ public class PartBinaryResource {
         }
     }
 
+    /**
+     * Try to get the conversion of a binary resource to a specific format as a file of the storage
+     *
+     * @param binaryResource The binary resource
+     * @param outputFormat   The wanted output
+     * @return The file of the binary resource in the wanted output, null if the conversion is only available as a stream
+     * @throws org.polarsys.eplmp.server.rest.exceptions.FileConversionException
+     */
+    private File getConvertedBinaryFile(BinaryResource binaryResource, String outputFormat) throws FileConversionException {
+        try {
+            return onDemandConverterManager.getPartConvertedFile(outputFormat, binaryResource);
+        } catch (Exception e) {
+            throw new FileConversionException(e);
+        }
+    }
+
     private boolean canAccess(PartIterationKey partIKey) throws UserNotActiveException, EntityNotFoundException {
         return publicEntityManager.canAccess(partIKey) || contextManager.isCallerInRole(UserGroupMapping.REGULAR_USER_ROLE_ID) && productService.canAccess(partIKey);
     }
@@ -17,7 +17,6 @@ import org.polarsys.eplmp.core.product.PartMasterTemplateKey;
 import org.polarsys.eplmp.core.security.UserGroupMapping;
 import org.polarsys.eplmp.core.services.IBinaryStorageManagerLocal;
 import org.polarsys.eplmp.core.services.IProductManagerLocal;
-import org.polarsys.eplmp.server.helpers.Streams;
 import org.polarsys.eplmp.server.rest.exceptions.NotModifiedException;
 import org.polarsys.eplmp.server.rest.exceptions.PreconditionFailedException;
 import org.polarsys.eplmp.server.rest.exceptions.RequestedRangeNotSatisfiableException;
@@ -41,7 +40,6 @@ import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URLEncoder;
 import java.text.Normalizer;
@@ -137,13 +135,9 @@ public class PartTemplateBinaryResource {
         if (rb != null) {
             return rb.build();
         }
-
-        InputStream binaryContentInputStream = null;
         try {
-            binaryContentInputStream = storageManager.getBinaryResourceInputStream(binaryResource);
-            return BinaryResourceDownloadResponseBuilder.prepareResponse(binaryContentInputStream, binaryResourceDownloadMeta, range);
+            return BinaryResourceDownloadResponseBuilder.prepareResponse(storageManager, binaryResource, binaryResourceDownloadMeta, range);
         } catch (StorageException e) {
-            Streams.close(binaryContentInputStream);
             return BinaryResourceDownloadResponseBuilder.downloadError(e, fullName);
         }
 
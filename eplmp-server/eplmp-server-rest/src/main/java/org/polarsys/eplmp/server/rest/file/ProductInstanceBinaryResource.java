@@ -20,7 +20,6 @@ import org.polarsys.eplmp.core.services.IBinaryStorageManagerLocal;
 import org.polarsys.eplmp.core.services.IContextManagerLocal;
 import org.polarsys.eplmp.core.services.IProductInstanceManagerLocal;
 import org.polarsys.eplmp.core.services.IPublicEntityManagerLocal;
-import org.polarsys.eplmp.server.helpers.Streams;
 import org.polarsys.eplmp.server.rest.exceptions.*;
 import org.polarsys.eplmp.server.rest.file.util.BinaryResourceDownloadMeta;
 import org.polarsys.eplmp.server.rest.file.util.BinaryResourceDownloadResponseBuilder;
@@ -41,7 +40,6 @@ import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URLEncoder;
 import java.text.Normalizer;
@@ -148,12 +146,9 @@ public class ProductInstanceBinaryResource {
         if (rb != null) {
             return rb.build();
         }
-        InputStream binaryContentInputStream = null;
         try {
-            binaryContentInputStream = storageManager.getBinaryResourceInputStream(binaryResource);
-            return BinaryResourceDownloadResponseBuilder.prepareResponse(binaryContentInputStream, binaryResourceDownloadMeta, range);
+            return BinaryResourceDownloadResponseBuilder.prepareResponse(storageManager, binaryResource, binaryResourceDownloadMeta, range);
         } catch (StorageException e) {
-            Streams.close(binaryContentInputStream);
             return BinaryResourceDownloadResponseBuilder.downloadError(e, fullName);
         }
 
@@ -236,13 +231,9 @@ public class ProductInstanceBinaryResource {
         if (rb != null) {
             return rb.build();
         }
-
-        InputStream binaryContentInputStream = null;
         try {
-            binaryContentInputStream = storageManager.getBinaryResourceInputStream(binaryResource);
-            return BinaryResourceDownloadResponseBuilder.prepareResponse(binaryContentInputStream, binaryResourceDownloadMeta, range);
+            return BinaryResourceDownloadResponseBuilder.prepareResponse(storageManager, binaryResource, binaryResourceDownloadMeta, range);
         } catch (StorageException e) {
-            Streams.close(binaryContentInputStream);
             return BinaryResourceDownloadResponseBuilder.downloadError(e, fullName);
         }
     }
@@ -282,14 +273,9 @@ public class ProductInstanceBinaryResource {
         if (rb != null) {
             return rb.build();
         }
-
-        InputStream binaryContentInputStream = null;
-
         try {
-            binaryContentInputStream = storageManager.getBinaryResourceInputStream(binaryResource);
-            return BinaryResourceDownloadResponseBuilder.prepareResponse(binaryContentInputStream, binaryResourceDownloadMeta, range);
+            return BinaryResourceDownloadResponseBuilder.prepareResponse(storageManager, binaryResource, binaryResourceDownloadMeta, range);
         } catch (StorageException e) {
-            Streams.close(binaryContentInputStream);
             return BinaryResourceDownloadResponseBuilder.downloadError(e, fullName);
         }
     }
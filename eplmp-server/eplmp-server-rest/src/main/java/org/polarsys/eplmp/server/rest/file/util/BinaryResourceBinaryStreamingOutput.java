@@ -15,29 +15,77 @@ import org.apache.poi.util.IOUtils;
 import org.polarsys.eplmp.server.rest.exceptions.InterruptedStreamException;
 
 import javax.ws.rs.core.StreamingOutput;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * Write a binary content, or some ranges of it, to the response.
+ *
+ * File backed contents are read with positional {@link FileChannel#transferTo} calls: ranges are
+ * reached without reading what precedes them, and the copy is left to the JDK, which avoids the
+ * intermediate heap buffer whenever the target allows it. Several ranges are written as a
+ * multipart/byteranges body.
+ *
+ * Stream backed contents (converted files) are copied through a buffer, and only the first range
+ * is served.
+ */
 public class BinaryResourceBinaryStreamingOutput implements StreamingOutput {
     private static final Logger LOGGER = Logger.getLogger(BinaryResourceBinaryStreamingOutput.class.getName());
+    private static final String CRLF = "\r\n";
+
     private final InputStream binaryContentInputStream;
-    private final Range fullRange;
+    private final File binaryContentFile;
+    private final List<ByteRange> ranges;
+    private final long total;
+    private final String contentType;
+    private final String boundary;
 
     public BinaryResourceBinaryStreamingOutput(InputStream binaryContentInputStream, long start, long end, long length) {
         this.binaryContentInputStream = binaryContentInputStream;
-        this.fullRange = new Range(start, end, length);
+        this.binaryContentFile = null;
+        this.ranges = Collections.singletonList(new ByteRange(start, end));
+        this.total = length;
+        this.contentType = null;
+        this.boundary = null;
+    }
+
+    /**
+     * @param binaryContentFile The file holding the content
+     * @param ranges            The ranges to write, a multipart body is written if there are several
+     * @param length            The length of the whole content
+     * @param contentType       The content type of the file, repeated in each part of a multipart body
+     * @param boundary          The multipart boundary, null if there is a single range
+     */
+    public BinaryResourceBinaryStreamingOutput(File binaryContentFile, List<ByteRange> ranges, long length, String contentType, String boundary) {
+        this.binaryContentInputStream = null;
+        this.binaryContentFile = binaryContentFile;
+        this.ranges = ranges;
+        this.total = length;
+        this.contentType = contentType;
+        this.boundary = boundary;
     }
 
     @Override
     public void write(OutputStream outputStream) throws IOException {
         try {
-            if (binaryContentInputStream == null) {
+            if (binaryContentFile != null) {
+                transfer(binaryContentFile, outputStream);
+            } else if (binaryContentInputStream == null) {
                 LOGGER.log(Level.SEVERE, "The file input stream is null");
             } else {
-                copy(binaryContentInputStream, outputStream, fullRange.start, fullRange.length);
+                ByteRange range = ranges.get(0);
+                copy(binaryContentInputStream, outputStream, range.getStart(), range.getLength());
             }
         } catch (InterruptedStreamException e) {
             LOGGER.log(Level.WARNING, "Downloading file interrupted");
@@ -45,19 +93,75 @@ public class BinaryResourceBinaryStreamingOutput implements StreamingOutput {
         }
     }
 
+    /**
+     * @return The exact number of bytes written for a file backed content
+     */
+    public long getContentLength() {
+        if (boundary == null) {
+            return ranges.get(0).getLength();
+        }
+        long length = getClosingDelimiter().length();
+        for (ByteRange range : ranges) {
+            length += getPartHeader(range).getBytes(StandardCharsets.US_ASCII).length + range.getLength();
+        }
+        return length;
+    }
+
+    private void transfer(File file, OutputStream output) throws InterruptedStreamException {
+        try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // Not closed here, the container owns the response stream
+            WritableByteChannel target = Channels.newChannel(output);
+            if (boundary == null) {
+                transfer(fileChannel, target, ranges.get(0));
+            } else {
+                for (ByteRange range : ranges) {
+                    output.write(getPartHeader(range).getBytes(StandardCharsets.US_ASCII));
+                    transfer(fileChannel, target, range);
+                }
+                output.write(getClosingDelimiter().getBytes(StandardCharsets.US_ASCII));
+            }
+        } catch (IOException e) {
+            // may be caused by a client side cancel
+            LOGGER.log(Level.FINE, "A downloading stream was interrupted.", e);
+            throw new InterruptedStreamException();
+        }
+    }
+
+    private static void transfer(FileChannel fileChannel, WritableByteChannel target, ByteRange range) throws IOException {
+        long position = range.getStart();
+        long remaining = range.getLength();
+        while (remaining > 0) {
+            long transferred = fileChannel.transferTo(position, remaining, target);
+            if (transferred <= 0) {
+                // End of file reached, the file is shorter than expected
+                break;
+            }
+            position += transferred;
+            remaining -= transferred;
+        }
+    }
+
+    private String getPartHeader(ByteRange range) {
+        return CRLF + "--" + boundary + CRLF
+                + "Content-Type: " + contentType + CRLF
+                + "Content-Range: " + range.toContentRange(total) + CRLF
+                + CRLF;
+    }
+
+    private String getClosingDelimiter() {
+        return CRLF + "--" + boundary + "--" + CRLF;
+    }
+
     private void copy(final InputStream input, OutputStream output, long start, long length) throws InterruptedStreamException {
         // Slice the input stream considering offset and length
         try (InputStream in = input) {
             if (length > 0) {
-                long skip = in.skip(start);
-                if (skip != start) {
-                    LOGGER.log(Level.WARNING, "Could not skip requested bytes (skipped: " + skip + " on " + start + ")");
-                }
+                skip(in, start);
                 byte[] data = new byte[1024 * 8];
                 long remaining = length;
                 int nr;
                 while (remaining > 0) {
-                    nr = in.read(data);
+                    nr = in.read(data, 0, (int) Math.min(data.length, remaining));
                     if (nr < 0) {
                         break;
                     }
@@ -74,15 +178,19 @@ public class BinaryResourceBinaryStreamingOutput implements StreamingOutput {
         }
     }
 
-    private static class Range {
-        long start;
-        long length;
-        long total;
-
-        public Range(long start, long end, long total) {
-            this.start = start;
-            this.length = end - start + 1;
-            this.total = total;
+    private static void skip(InputStream in, long start) throws IOException {
+        // InputStream.skip may skip less than requested without reaching the end of the stream
+        long remaining = start;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    LOGGER.log(Level.WARNING, "Could not skip requested bytes (skipped: " + (start - remaining) + " on " + start + ")");
+                    return;
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
         }
     }
 }
@@ -32,6 +32,7 @@ public class BinaryResourceDownloadMeta {
     private String downloadType;
     private long length;
     private Date lastModified;
+    private String contentEncoding;
 
     public BinaryResourceDownloadMeta(BinaryResource binaryResource, String outputFormat, String downloadType) {
         this.fullName = binaryResource.getName();
@@ -131,7 +132,8 @@ public class BinaryResourceDownloadMeta {
     public EntityTag getETag() {
         //Todo add iteration and version
         //Todo remove special char from full Name
-        return new EntityTag(fullName + "_" + length + "_" + lastModified.getTime());
+        String encodingSuffix = contentEncoding != null ? "_" + contentEncoding : "";
+        return new EntityTag(fullName + "_" + length + "_" + lastModified.getTime() + encodingSuffix);
     }
 
 
@@ -168,7 +170,27 @@ public class BinaryResourceDownloadMeta {
         return FileDownloadTools.getContentDisposition(downloadType, fileName);
     }
 
-    public void setLength(int length) {
+    public void setLength(long length) {
+        this.length = length;
+    }
+
+    /**
+     * Get the content coding of the served bytes
+     *
+     * @return Http response 'Content-Encoding' header value, null if the content is served as is
+     */
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * Serve an encoded variant of the file, lengths and ranges then apply to the encoded bytes
+     *
+     * @param contentEncoding The content coding of the variant
+     * @param length          The length of the variant
+     */
+    public void setContentEncoding(String contentEncoding, long length) {
+        this.contentEncoding = contentEncoding;
         this.length = length;
     }
 }
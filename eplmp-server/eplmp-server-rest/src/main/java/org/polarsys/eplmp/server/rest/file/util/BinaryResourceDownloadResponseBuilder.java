@@ -10,15 +10,19 @@
   *******************************************************************************/
 package org.polarsys.eplmp.server.rest.file.util;
 
+import org.polarsys.eplmp.core.common.BinaryResource;
+import org.polarsys.eplmp.core.exceptions.StorageException;
+import org.polarsys.eplmp.core.services.IBinaryStorageManagerLocal;
+import org.polarsys.eplmp.server.helpers.Streams;
 import org.polarsys.eplmp.server.rest.exceptions.RequestedRangeNotSatisfiableException;
 
 import javax.ws.rs.core.CacheControl;
 import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.io.File;
 import java.io.InputStream;
-import java.util.Calendar;
-import java.util.Date;
+import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -71,33 +75,169 @@ public class BinaryResourceDownloadResponseBuilder {
         return responseBuilder.build();
     }
 
-    private static Response.ResponseBuilder prepareStreamingDownloadResponse(BinaryResourceDownloadMeta binaryResourceDownloadMeta, InputStream binaryContentInputStream, String range) throws RequestedRangeNotSatisfiableException {
-        long length = binaryResourceDownloadMeta.getLength();
+    /**
+     * Set the header of the downloading response for a stored binary resource, served from its file
+     * when the storage keeps it on the local file system.
+     *
+     * @param storageManager             The storage holding the binary content.
+     * @param binaryResource             The binary resource to download.
+     * @param binaryResourceDownloadMeta The header parameters for the binary content download.
+     * @param range                      The string of the queried range. Null if no range are specified
+     * @return A response builder with the header & the content.
+     * @throws StorageException                      If the content cannot be read from the storage.
+     * @throws RequestedRangeNotSatisfiableException If the range is not satisfiable.
+     */
+    public static Response prepareResponse(IBinaryStorageManagerLocal storageManager, BinaryResource binaryResource, BinaryResourceDownloadMeta binaryResourceDownloadMeta, String range)
+            throws StorageException, RequestedRangeNotSatisfiableException {
+
+        File binaryContentFile = storageManager.getBinaryResourceFile(binaryResource);
+        if (binaryContentFile != null) {
+            return prepareResponse(binaryContentFile, binaryResourceDownloadMeta, range);
+        }
 
-        // Range header should match format "bytes=n-n,n-n,n-n...". If not, then return 416.
-        if (!range.matches("^bytes=\\d*-\\d*(,\\d*-\\d*)*$")) {
-            throw new RequestedRangeNotSatisfiableException("", length);
+        InputStream binaryContentInputStream = storageManager.getBinaryResourceInputStream(binaryResource);
+        try {
+            return prepareResponse(binaryContentInputStream, binaryResourceDownloadMeta, range);
+        } catch (RequestedRangeNotSatisfiableException e) {
+            Streams.close(binaryContentInputStream);
+            throw e;
         }
+    }
 
-        String[] ranges = range.split("=")[1].split("-");
-        final long from = Integer.parseInt(ranges[0]);
-        long to;
-        if (ranges.length > 1) {
-            to = Integer.parseInt(ranges[1]);
-            to = (to > length - 1) ? length - 1 : to;
+    /**
+     * Select the precompressed variant of a binary resource to serve, according to the encodings
+     * accepted by the client. The download meta is updated to describe the variant.
+     *
+     * @param storageManager             The storage holding the binary content.
+     * @param binaryResource             The binary resource to download.
+     * @param binaryResourceDownloadMeta The header parameters for the binary content download.
+     * @param acceptEncoding             The value of the Accept-Encoding header, may be null
+     * @return The file of the variant, null if the content has to be served as is
+     * @throws StorageException If the content cannot be found in the storage.
+     */
+    public static File selectEncodedFile(IBinaryStorageManagerLocal storageManager, BinaryResource binaryResource,
+                                         BinaryResourceDownloadMeta binaryResourceDownloadMeta, String acceptEncoding) throws StorageException {
+
+        for (String encoding : getAcceptedEncodings(acceptEncoding)) {
+            File encodedFile = storageManager.getEncodedFile(binaryResource, encoding);
+            if (encodedFile != null) {
+                binaryResourceDownloadMeta.setContentEncoding(encoding, encodedFile.length());
+                return encodedFile;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Set the header of the downloading response, for a content held by a file of the storage.
+     *
+     * The file is read with positional channel transfers, and several ranges are served as a
+     * multipart/byteranges response.
+     *
+     * @param binaryContentFile          The file of the binary content to download.
+     * @param binaryResourceDownloadMeta The header parameters for the binary content download.
+     * @param range                      The string of the queried range. Null if no range are specified
+     * @return A response builder with the header & the content.
+     * @throws RequestedRangeNotSatisfiableException If the range is not satisfiable.
+     */
+    public static Response prepareResponse(File binaryContentFile, BinaryResourceDownloadMeta binaryResourceDownloadMeta, String range)
+            throws RequestedRangeNotSatisfiableException {
+
+        Response.ResponseBuilder responseBuilder;
+        long length = binaryResourceDownloadMeta.getLength();
+
+        if (range == null || range.isEmpty() || length == 0) {
+            BinaryResourceBinaryStreamingOutput output = new BinaryResourceBinaryStreamingOutput(binaryContentFile,
+                    Collections.singletonList(new ByteRange(0, length - 1)), length, binaryResourceDownloadMeta.getContentType(), null);
+            responseBuilder = Response.ok()
+                    .header("Content-Disposition", binaryResourceDownloadMeta.getContentDisposition())
+                    .header("Content-Type", binaryResourceDownloadMeta.getContentType())
+                    .header("Accept-Ranges", "bytes")
+                    .header("Content-Length", length)
+                    .entity(output);
         } else {
-            to = length - 1;
+            List<ByteRange> ranges = ByteRange.parse(range, length);
+            if (ranges.size() == 1) {
+                ByteRange byteRange = ranges.get(0);
+                responseBuilder = prepareRangeResponse(binaryResourceDownloadMeta, byteRange)
+                        .entity(new BinaryResourceBinaryStreamingOutput(binaryContentFile, ranges, length, binaryResourceDownloadMeta.getContentType(), null));
+            } else {
+                String boundary = UUID.randomUUID().toString();
+                BinaryResourceBinaryStreamingOutput output = new BinaryResourceBinaryStreamingOutput(binaryContentFile,
+                        ranges, length, binaryResourceDownloadMeta.getContentType(), boundary);
+                responseBuilder = Response.status(Response.Status.PARTIAL_CONTENT)
+                        .header("Content-Disposition", binaryResourceDownloadMeta.getContentDisposition())
+                        .header("Accept-Ranges", "bytes")
+                        .header("Content-Length", output.getContentLength())
+                        .header("Content-Type", "multipart/byteranges; boundary=" + boundary)
+                        .entity(output);
+            }
         }
 
-        final String responseRange = String.format("bytes %d-%d/%d", from, to, length);
+        // Stored files may be served precompressed, depending on the request
+        responseBuilder.header("Vary", "Accept-Encoding, x-accept-encoding");
+        if (binaryResourceDownloadMeta.getContentEncoding() != null) {
+            responseBuilder.header("Content-Encoding", binaryResourceDownloadMeta.getContentEncoding());
+        }
+
+        responseBuilder = applyCachePolicyToResponse(responseBuilder, binaryResourceDownloadMeta.getETag(), binaryResourceDownloadMeta.getLastModified());
+        return responseBuilder.build();
+    }
+
+    private static Response.ResponseBuilder prepareStreamingDownloadResponse(BinaryResourceDownloadMeta binaryResourceDownloadMeta, InputStream binaryContentInputStream, String range) throws RequestedRangeNotSatisfiableException {
+        long length = binaryResourceDownloadMeta.getLength();
+
+        // Streams can only be read forward: only the first range is served
+        ByteRange byteRange = ByteRange.parse(range, length).get(0);
+
+        return prepareRangeResponse(binaryResourceDownloadMeta, byteRange)
+                .entity(new BinaryResourceBinaryStreamingOutput(binaryContentInputStream, byteRange.getStart(), byteRange.getEnd(), length));
+    }
 
+    private static Response.ResponseBuilder prepareRangeResponse(BinaryResourceDownloadMeta binaryResourceDownloadMeta, ByteRange byteRange) {
         return Response.status(Response.Status.PARTIAL_CONTENT)
                 .header("Content-Disposition", binaryResourceDownloadMeta.getContentDisposition())
                 .header("Accept-Ranges", "bytes")
-                .header("Content-Length", length - from)
-                .header("Content-Range", responseRange)
-                .header("Content-Type", binaryResourceDownloadMeta.getContentType())
-                .entity(new BinaryResourceBinaryStreamingOutput(binaryContentInputStream, from, length - 1, length));
+                .header("Content-Length", byteRange.getLength())
+                .header("Content-Range", byteRange.toContentRange(binaryResourceDownloadMeta.getLength()))
+                .header("Content-Type", binaryResourceDownloadMeta.getContentType());
+    }
+
+    /**
+     * Parse the Accept-Encoding header, identity and refused (q=0) encodings are left out
+     *
+     * @return The accepted encodings, preferred first
+     */
+    private static List<String> getAcceptedEncodings(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<String, Double> qualities = new LinkedHashMap<>();
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.trim().split(";");
+            String encoding = parts[0].trim().toLowerCase(Locale.ENGLISH);
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (!encoding.isEmpty() && !"identity".equals(encoding) && !"*".equals(encoding) && quality > 0) {
+                qualities.put(encoding, quality);
+            }
+        }
+
+        List<String> encodings = new ArrayList<>(qualities.keySet());
+        // Stable sort, equal qualities keep the order of the header
+        encodings.sort((a, b) -> Double.compare(qualities.get(b), qualities.get(a)));
+        return encodings;
     }
 
     /**
@@ -0,0 +1,123 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+package org.polarsys.eplmp.server.rest.file.util;
+
+import org.polarsys.eplmp.server.rest.exceptions.RequestedRangeNotSatisfiableException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Byte range of a binary content, as requested with the http Range header.
+ *
+ * Offsets are inclusive and stored as longs, so files larger than 2 GB can be served.
+ */
+public final class ByteRange {
+
+    // Range header should match format "bytes=n-n,n-n,n-n...", suffix ranges ("bytes=-n") included
+    private static final Pattern RANGE_HEADER_PATTERN = Pattern.compile("^bytes=\\d*-\\d*(,\\s*\\d*-\\d*)*$");
+
+    // Upper bound on the ranges of a single request, way more than what viewers ask for
+    private static final int MAX_RANGES = 64;
+
+    private final long start;
+    private final long end;
+
+    public ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Parse the http Range header against a content of the given length.
+     * Unsatisfiable ranges are ignored, open and suffix ranges are bounded to the content.
+     *
+     * @param range  The value of the Range header
+     * @param length The length of the content
+     * @return The satisfiable ranges, in the requested order
+     * @throws RequestedRangeNotSatisfiableException If the header is malformed or no range is satisfiable.
+     */
+    public static List<ByteRange> parse(String range, long length) throws RequestedRangeNotSatisfiableException {
+
+        if (!RANGE_HEADER_PATTERN.matcher(range).matches()) {
+            throw new RequestedRangeNotSatisfiableException("", length);
+        }
+
+        String[] specs = range.substring("bytes=".length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            throw new RequestedRangeNotSatisfiableException("", length);
+        }
+
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+
+        for (String spec : specs) {
+            String trimmed = spec.trim();
+            int dash = trimmed.indexOf('-');
+            String first = trimmed.substring(0, dash);
+            String last = trimmed.substring(dash + 1);
+
+            long start;
+            long end;
+
+            try {
+                if (first.isEmpty()) {
+                    if (last.isEmpty()) {
+                        throw new RequestedRangeNotSatisfiableException("", length);
+                    }
+                    // Suffix range: the last n bytes
+                    start = Math.max(0, length - Long.parseLong(last));
+                    end = length - 1;
+                } else {
+                    start = Long.parseLong(first);
+                    end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+                }
+            } catch (NumberFormatException e) {
+                // Offsets beyond Long.MAX_VALUE
+                throw new RequestedRangeNotSatisfiableException("", length);
+            }
+
+            if (start <= end && start < length) {
+                ranges.add(new ByteRange(start, end));
+            }
+        }
+
+        if (ranges.isEmpty()) {
+            throw new RequestedRangeNotSatisfiableException("", length);
+        }
+
+        return ranges;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getLength() {
+        return end - start + 1;
+    }
+
+    /**
+     * @return The value of the Content-Range header for this range
+     */
+    public String toContentRange(long total) {
+        return "bytes " + start + "-" + end + "/" + total;
+    }
+
+    @Override
+    public String toString() {
+        return start + "-" + end;
+    }
+}
@@ -33,7 +33,19 @@ public class GZIPWriterInterceptor implements WriterInterceptor {
 
 
         MultivaluedMap<String, Object> responseHeaders = context.getHeaders();
-        Object rangeHeader = responseHeaders.getFirst("Content-Range");
+
+        if (responseHeaders.containsKey("Content-Encoding")) {
+            // Precompressed content, served as is with the length of the encoded bytes
+            context.proceed();
+            return;
+        }
+
+        if (isPartialContent(responseHeaders)) {
+            // Ranges are byte offsets of the identity content: 206 and multipart/byteranges
+            // responses are served as is, keeping their Content-Length
+            context.proceed();
+            return;
+        }
 
         // Use a custom header here
         // Some clients needs to know the content length in response headers in order to display a loading state
@@ -44,7 +56,7 @@ public class GZIPWriterInterceptor implements WriterInterceptor {
 
         if (acceptEncoding != null && acceptEncoding.equals("identity")) {
             responseHeaders.add("Content-Encoding", "identity");
-        } else if (rangeHeader == null) {
+        } else {
             responseHeaders.add("Content-Encoding", "gzip");
             responseHeaders.remove("Content-Length");
             gzipOutputStream = new GZIPOutputStream(context.getOutputStream(), DEFAULT_BUFFER_SIZE);
@@ -60,5 +72,17 @@ public class GZIPWriterInterceptor implements WriterInterceptor {
         }
     }
 
+    private boolean isPartialContent(MultivaluedMap<String, Object> responseHeaders) {
+        if (responseHeaders.containsKey("Content-Range")) {
+            return true;
+        }
+        Object contentType = responseHeaders.getFirst("Content-Type");
+        if (contentType != null && contentType.toString().toLowerCase().startsWith("multipart/byteranges")) {
+            return true;
+        }
+        // A satisfiable Range header always gives a 206 response
+        String range = requestHeaders.getHeaderString("Range");
+        return range != null && !range.isEmpty();
+    }
 
 }
@@ -0,0 +1,82 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.rest.util;
+
+import org.polarsys.eplmp.server.rest.exceptions.InvalidContinuationTokenException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque token given to clients to fetch the next page of a list, keyset style.
+ *
+ * The token holds the sort key of the last item of the page (part number and version for instance),
+ * clients must send it back as is.
+ */
+public class ContinuationToken {
+
+    public static final String HEADER = "next-page-token";
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final String SEPARATOR = "\u0000";
+
+    private ContinuationToken() {
+        super();
+    }
+
+    /**
+     * Get the size of a page from the requested length, the default size if none is requested.
+     */
+    public static int pageSize(int length) {
+        return length > 0 ? Math.min(length, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+    }
+
+    public static String encode(String... keyParts) {
+        String key = String.join(SEPARATOR, keyParts);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String encode(int id) {
+        return encode(String.valueOf(id));
+    }
+
+    /**
+     * Get the sort key parts of a token.
+     *
+     * @param expectedParts the number of parts of the sort key
+     * @throws InvalidContinuationTokenException if the token was not produced by {@link #encode(String...)}
+     */
+    public static String[] decode(String token, int expectedParts) throws InvalidContinuationTokenException {
+        String key;
+        try {
+            key = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidContinuationTokenException();
+        }
+        String[] keyParts = key.split(SEPARATOR, -1);
+        if (keyParts.length != expectedParts) {
+            throw new InvalidContinuationTokenException();
+        }
+        return keyParts;
+    }
+
+    public static int decodeId(String token) throws InvalidContinuationTokenException {
+        try {
+            return Integer.parseInt(decode(token, 1)[0]);
+        } catch (NumberFormatException e) {
+            throw new InvalidContinuationTokenException();
+        }
+    }
+}
@@ -11,34 +11,141 @@
 
 package org.polarsys.eplmp.server.rest.util;
 
+import org.polarsys.eplmp.core.common.BinaryResource;
 import org.polarsys.eplmp.core.exceptions.StorageException;
 import org.polarsys.eplmp.core.services.IBinaryStorageManagerLocal;
 
 import javax.inject.Inject;
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 /**
+ * Zip archives of exported files.
+ *
+ * Files of already compressed types are stored as is, deflating them again costs CPU for no gain.
+ * Archives and entries larger than 4 GB are written in the ZIP64 format, as handled by {@link ZipOutputStream}.
+ *
  * @author Elisabel Généreux
  */
 public class FileExportTools {
 
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    // Formats which are compressed by themselves: archives, office documents, pictures, videos and some CAD formats
+    private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "jar",
+            "docx", "docm", "xlsx", "xlsm", "pptx", "pptm", "odt", "ods", "odp", "pdf",
+            "jpg", "jpeg", "png", "gif", "webp",
+            "mp3", "mp4", "mov", "avi", "ogg",
+            "3dxml", "jt", "sldprt", "sldasm", "slddrw"
+    ));
+
     @Inject
     private IBinaryStorageManagerLocal storageManager;
 
-    public static void addToZipFile(InputStream binaryResourceInputStream, String binaryResourceName, String folderName, ZipOutputStream zos)
+    /**
+     * Create the zip stream of an export, buffered so that the response stream gets large writes.
+     */
+    public static ZipOutputStream createZipOutputStream(OutputStream outputStream) {
+        return new ZipOutputStream(new BufferedOutputStream(outputStream, BUFFER_SIZE));
+    }
+
+    /**
+     * Add a binary resource to the archive, read from its file when the storage keeps it on the local file system.
+     */
+    public static void addToZipFile(IBinaryStorageManagerLocal storageManager, BinaryResource binaryResource, String folderName, ZipOutputStream zos)
             throws IOException, StorageException {
 
+        File binaryResourceFile = storageManager.getBinaryResourceFile(binaryResource);
+
+        if (binaryResourceFile != null) {
+            addToZipFile(binaryResourceFile, binaryResource.getName(), folderName, zos);
+        } else {
+            try (InputStream binaryResourceInputStream = storageManager.getBinaryResourceInputStream(binaryResource)) {
+                addToZipFile(binaryResourceInputStream, binaryResource.getName(), folderName, zos);
+            }
+        }
+    }
+
+    /**
+     * Add a file to the archive. Compressed types are STORED, their CRC being computed beforehand.
+     */
+    public static void addToZipFile(File file, String binaryResourceName, String folderName, ZipOutputStream zos) throws IOException {
+
         ZipEntry zipEntry = new ZipEntry(folderName + "/" + binaryResourceName);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            if (isCompressed(binaryResourceName)) {
+                long size = channel.size();
+                zipEntry.setMethod(ZipEntry.STORED);
+                zipEntry.setSize(size);
+                zipEntry.setCompressedSize(size);
+                zipEntry.setCrc(computeCrc(channel));
+                channel.position(0);
+            } else {
+                zipEntry.setMethod(ZipEntry.DEFLATED);
+                zos.setLevel(Deflater.DEFAULT_COMPRESSION);
+            }
+
+            zos.putNextEntry(zipEntry);
+            copy(channel, zos);
+            zos.closeEntry();
+        }
+    }
+
+    /**
+     * Add the content of a stream to the archive. Compressed types are deflated without compression,
+     * as storing them would require to read the stream twice.
+     */
+    public static void addToZipFile(InputStream binaryResourceInputStream, String binaryResourceName, String folderName, ZipOutputStream zos)
+            throws IOException {
+
+        ZipEntry zipEntry = new ZipEntry(folderName + "/" + binaryResourceName);
+        zipEntry.setMethod(ZipEntry.DEFLATED);
+        zos.setLevel(isCompressed(binaryResourceName) ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
         zos.putNextEntry(zipEntry);
 
-        byte[] bytes = new byte[1024];
+        byte[] bytes = new byte[BUFFER_SIZE];
         int length;
         while ((length = binaryResourceInputStream.read(bytes)) >= 0) {
             zos.write(bytes, 0, length);
         }
         zos.closeEntry();
     }
+
+    public static boolean isCompressed(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 && COMPRESSED_EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase(Locale.ENGLISH));
+    }
+
+    private static long computeCrc(FileChannel channel) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            crc.update(buffer);
+            buffer.clear();
+        }
+        return crc.getValue();
+    }
+
+    private static void copy(FileChannel channel, OutputStream outputStream) throws IOException {
+        // ZipOutputStream only takes arrays
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        while (channel.read(buffer) >= 0) {
+            outputStream.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+    }
 }
@@ -28,7 +28,9 @@ import javax.vecmath.Matrix3d;
 import javax.vecmath.Matrix4d;
 import javax.vecmath.Vector3d;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -40,6 +42,17 @@ public class InstanceBodyWriterTools {
     private static final Logger LOGGER = Logger.getLogger(InstanceBodyWriterTools.class.getName());
     private static Mapper mapper = DozerBeanMapperSingletonWrapper.getInstance();
 
+    // Number of structure levels resolved by each service call
+    private static final int RESOLVED_DEPTH = 3;
+
+    /**
+     * Stream every instance found under the given path.
+     *
+     * The filtered structure is resolved a few levels at a time, each sub assembly found at the
+     * last resolved level being resolved when it is about to be written: the first instances are
+     * written before the whole structure is resolved. Access to each part revision is checked
+     * once per request whatever its number of instances.
+     */
     public static void generateInstanceStreamWithGlobalMatrix(IProductManagerLocal productService, List<PartLink> currentPath, Matrix4d matrix, InstanceCollection instanceCollection, List<Integer> instanceIds, JsonGenerator jg) {
 
         try {
@@ -51,55 +64,71 @@ public class InstanceBodyWriterTools {
             }
 
             Component component = productService.filterProductStructure(instanceCollection.getCiKey(),
-                    instanceCollection.getFilter(), currentPath, 1);
+                    instanceCollection.getFilter(), currentPath, RESOLVED_DEPTH);
 
-            PartLink partLink = component.getPartLink();
-            PartIteration partI = component.getRetainedIteration();
+            writeComponent(productService, new AccessCache(productService), component, 0, matrix, instanceCollection, new ArrayList<>(instanceIds), jg);
 
-            // Filter ACL on part
-            if (!productService.canAccess(partI.getPartRevision().getKey())) {
-                return;
-            }
+        } catch (PartMasterNotFoundException | PartRevisionNotFoundException | PartUsageLinkNotFoundException | UserNotFoundException | WorkspaceNotFoundException | WorkspaceNotEnabledException | ConfigurationItemNotFoundException e) {
+            LOGGER.log(Level.SEVERE, null, e);
+        } catch (AccessRightException | EntityConstraintException | NotAllowedException | UserNotActiveException e) {
+            LOGGER.log(Level.FINEST, null, e);
+        }
 
-            for (CADInstance instance : partLink.getCadInstances()) {
-
-                List<Integer> copyInstanceIds = new ArrayList<>(instanceIds);
-                copyInstanceIds.add(instance.getId());
-                Vector3d instanceTranslation = new Vector3d(instance.getTx(), instance.getTy(), instance.getTz());
-                Matrix4d combinedMatrix;
-                switch (instance.getRotationType()) {
-                    case ANGLE:
-                        Vector3d instanceRotation = new Vector3d(instance.getRx(), instance.getRy(), instance.getRz());
-                        combinedMatrix = combineTransformation(matrix, instanceTranslation, instanceRotation);
-                        break;
-                    case MATRIX:
-                        Matrix4d rotationMatrix = new Matrix4d(new Matrix3d(instance.getRotationMatrix().getValues()), instanceTranslation, 1);
-                        combinedMatrix = combineTransformation(matrix, rotationMatrix);
-                        break;
-                    default:
-                        LOGGER.log(Level.SEVERE, "Unknown rotation Type, matrix not calculated");
-                        combinedMatrix = matrix;
-                }
+    }
 
+    /**
+     * Write the instances of a resolved component, the depth being the one of the component from the root
+     * of its resolution
+     */
+    private static void writeComponent(IProductManagerLocal productService, AccessCache accessCache, Component component, int depth, Matrix4d matrix, InstanceCollection instanceCollection, List<Integer> instanceIds, JsonGenerator jg) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException, PartRevisionNotFoundException, ConfigurationItemNotFoundException, NotAllowedException, PartUsageLinkNotFoundException, AccessRightException, PartMasterNotFoundException, EntityConstraintException {
 
-                if (!partI.isAssembly() && !partI.getGeometries().isEmpty() && instanceCollection.isFiltered(currentPath)) {
-                    writeLeaf(currentPath, copyInstanceIds, partI, combinedMatrix, jg);
-                } else {
-                    for (Component subComponent : component.getComponents()) {
-                        generateInstanceStreamWithGlobalMatrix(productService, subComponent.getPath(), combinedMatrix, instanceCollection, copyInstanceIds, jg);
-                    }
+        PartLink partLink = component.getPartLink();
+        PartIteration partI = component.getRetainedIteration();
+
+        // Unresolved or indeterminate version, nothing to display
+        if (partI == null) {
+            return;
+        }
+
+        // Filter ACL on part
+        if (!accessCache.canAccess(partI.getPartRevision().getKey())) {
+            return;
+        }
+
+        List<PartLink> currentPath = component.getPath();
+        boolean isLeaf = !partI.isAssembly() && !partI.getGeometries().isEmpty() && instanceCollection.isFiltered(currentPath);
+
+        // Last resolved level, resolve the sub assembly once, whatever its number of instances
+        if (!isLeaf && depth == RESOLVED_DEPTH && partI.isAssembly()) {
+            component = productService.filterProductStructure(instanceCollection.getCiKey(),
+                    instanceCollection.getFilter(), currentPath, RESOLVED_DEPTH);
+            depth = 0;
+        }
+
+        for (CADInstance instance : partLink.getCadInstances()) {
+
+            Matrix4d combinedMatrix = combineTransformation(matrix, instance);
+
+            // Instance ids are used as a stack, restored once the instance is written
+            instanceIds.add(instance.getId());
+
+            if (isLeaf) {
+                writeLeaf(currentPath, instanceIds, partI, combinedMatrix, jg);
+            } else {
+                for (Component subComponent : component.getComponents()) {
+                    writeComponent(productService, accessCache, subComponent, depth + 1, combinedMatrix, instanceCollection, instanceIds, jg);
                 }
             }
 
-        } catch (PartMasterNotFoundException | PartRevisionNotFoundException | PartUsageLinkNotFoundException | UserNotFoundException | WorkspaceNotFoundException | WorkspaceNotEnabledException | ConfigurationItemNotFoundException e) {
-            LOGGER.log(Level.SEVERE, null, e);
-        } catch (AccessRightException | EntityConstraintException | NotAllowedException | UserNotActiveException e) {
-            LOGGER.log(Level.FINEST, null, e);
+            instanceIds.remove(instanceIds.size() - 1);
         }
-
     }
 
     public static void generateInstanceStreamWithGlobalMatrix(IProductManagerLocal productService, List<PartLink> currentPath, Matrix4d matrix, VirtualInstanceCollection virtualInstanceCollection, List<Integer> instanceIds, JsonGenerator jg) {
+        generateInstanceStreamWithGlobalMatrix(new AccessCache(productService), currentPath, matrix, virtualInstanceCollection, instanceIds, jg);
+    }
+
+    private static void generateInstanceStreamWithGlobalMatrix(AccessCache accessCache, List<PartLink> currentPath, Matrix4d matrix, VirtualInstanceCollection virtualInstanceCollection, List<Integer> instanceIds, JsonGenerator jg) {
         try {
 
             PartLink partLink = currentPath.get(currentPath.size() - 1);
@@ -111,7 +140,7 @@ public class InstanceBodyWriterTools {
                 PartIteration partI = filteredPartIterations.iterator().next();
 
                 // Filter ACL on part
-                if (!productService.canAccess(partI.getPartRevision().getKey())) {
+                if (!accessCache.canAccess(partI.getPartRevision().getKey())) {
                     return;
                 }
 
@@ -119,26 +148,7 @@ public class InstanceBodyWriterTools {
 
                     List<Integer> copyInstanceIds = new ArrayList<>(instanceIds);
                     copyInstanceIds.add(instance.getId());
-                    Vector3d instanceTranslation = new Vector3d(instance.getTx(), instance.getTy(), instance.getTz());
-
-                    Matrix4d combinedMatrix;
-
-                    switch (instance.getRotationType()) {
-                        case ANGLE: {
-                            Vector3d instanceRotation = new Vector3d(instance.getRx(), instance.getRy(), instance.getRz());
-                            combinedMatrix = combineTransformation(matrix, instanceTranslation, instanceRotation);
-                            break;
-                        }
-                        case MATRIX: {
-                            Matrix4d rotationMatrix = new Matrix4d(new Matrix3d(instance.getRotationMatrix().getValues()), instanceTranslation, 1);
-                            combinedMatrix = combineTransformation(matrix, rotationMatrix);
-                            break;
-                        }
-                        default: {
-                            LOGGER.log(Level.SEVERE, "Unknown rotation Type, matrix not calculated");
-                            combinedMatrix = matrix;
-                        }
-                    }
+                    Matrix4d combinedMatrix = combineTransformation(matrix, instance);
 
                     if (!partI.isAssembly() && !partI.getGeometries().isEmpty()) {
                         writeLeaf(currentPath, copyInstanceIds, partI, combinedMatrix, jg);
@@ -146,7 +156,7 @@ public class InstanceBodyWriterTools {
                         for (PartLink subLink : partI.getComponents()) {
                             List<PartLink> subPath = new ArrayList<>(currentPath);
                             subPath.add(subLink);
-                            generateInstanceStreamWithGlobalMatrix(productService, subPath, combinedMatrix, virtualInstanceCollection, copyInstanceIds, jg);
+                            generateInstanceStreamWithGlobalMatrix(accessCache, subPath, combinedMatrix, virtualInstanceCollection, copyInstanceIds, jg);
                         }
                     }
                 }
@@ -158,6 +168,21 @@ public class InstanceBodyWriterTools {
 
     }
 
+    static Matrix4d combineTransformation(Matrix4d matrix, CADInstance instance) {
+        Vector3d instanceTranslation = new Vector3d(instance.getTx(), instance.getTy(), instance.getTz());
+        switch (instance.getRotationType()) {
+            case ANGLE:
+                Vector3d instanceRotation = new Vector3d(instance.getRx(), instance.getRy(), instance.getRz());
+                return combineTransformation(matrix, instanceTranslation, instanceRotation);
+            case MATRIX:
+                Matrix4d rotationMatrix = new Matrix4d(new Matrix3d(instance.getRotationMatrix().getValues()), instanceTranslation, 1);
+                return combineTransformation(matrix, rotationMatrix);
+            default:
+                LOGGER.log(Level.SEVERE, "Unknown rotation Type, matrix not calculated");
+                return matrix;
+        }
+    }
+
     static Matrix4d combineTransformation(Matrix4d matrix, Vector3d translation, Vector3d rotation) {
         Matrix4d gM = new Matrix4d(matrix);
         Matrix4d m = new Matrix4d();
@@ -208,6 +233,28 @@ public class InstanceBodyWriterTools {
         jg.flush();
     }
 
+    /**
+     * Memoize part revision access decisions for the duration of a request
+     */
+    private static class AccessCache {
+
+        private final IProductManagerLocal productService;
+        private final Map<PartRevisionKey, Boolean> decisions = new HashMap<>();
+
+        AccessCache(IProductManagerLocal productService) {
+            this.productService = productService;
+        }
+
+        boolean canAccess(PartRevisionKey partRevisionKey) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException, PartRevisionNotFoundException {
+            Boolean decision = decisions.get(partRevisionKey);
+            if (decision == null) {
+                decision = productService.canAccess(partRevisionKey);
+                decisions.put(partRevisionKey, decision);
+            }
+            return decision;
+        }
+    }
+
     private static void writeMatrix(Matrix4d matrix, JsonGenerator jg) {
         jg.writeStartArray("matrix");
         for (int i = 0; i < 4; i++) {
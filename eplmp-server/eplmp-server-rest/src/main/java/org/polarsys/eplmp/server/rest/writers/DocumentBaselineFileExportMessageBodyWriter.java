@@ -26,7 +26,6 @@ import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.MessageBodyWriter;
 import javax.ws.rs.ext.Provider;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
@@ -58,7 +57,7 @@ public class DocumentBaselineFileExportMessageBodyWriter implements MessageBodyW
     public void writeTo(DocumentBaselineFileExport documentBaselineFileExport, Class<?> aClass, Type type, Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> multivaluedMap, OutputStream outputStream)
             throws IOException, WebApplicationException {
 
-        ZipOutputStream zs = new ZipOutputStream(outputStream);
+        ZipOutputStream zs = FileExportTools.createZipOutputStream(outputStream);
 
         try {
             List<BaselinedDocumentBinaryResourceCollection> binaryResourceCollections = documentBaselineService.getBinaryResourcesFromBaseline(documentBaselineFileExport.getWorkspaceId(), documentBaselineFileExport.getBaselineId());
@@ -86,8 +85,6 @@ public class DocumentBaselineFileExportMessageBodyWriter implements MessageBodyW
     public void addToZipFile(BinaryResource binaryResource, String folderName, ZipOutputStream zos)
             throws IOException, StorageException {
 
-        try (InputStream binaryResourceInputStream = storageManager.getBinaryResourceInputStream(binaryResource)) {
-            FileExportTools.addToZipFile(binaryResourceInputStream, binaryResource.getName(), folderName, zos);
-        }
+        FileExportTools.addToZipFile(storageManager, binaryResource, folderName, zos);
     }
 }
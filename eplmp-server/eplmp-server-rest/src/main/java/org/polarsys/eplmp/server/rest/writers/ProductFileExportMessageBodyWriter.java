@@ -30,7 +30,6 @@ import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.MessageBodyWriter;
 import javax.ws.rs.ext.Provider;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
@@ -66,7 +65,7 @@ public class ProductFileExportMessageBodyWriter implements MessageBodyWriter<Pro
     @Override
     public void writeTo(ProductFileExport productFileExport, Class<?> aClass, Type type, Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> multivaluedMap, OutputStream outputStream) throws IOException, WebApplicationException {
 
-        ZipOutputStream zs = new ZipOutputStream(outputStream);
+        ZipOutputStream zs = FileExportTools.createZipOutputStream(outputStream);
 
         try {
 
@@ -139,9 +138,7 @@ public class ProductFileExportMessageBodyWriter implements MessageBodyWriter<Pro
 
     public void addToZipFile(BinaryResource binaryResource, String folderName, ZipOutputStream zos) throws IOException, StorageException {
 
-        try (InputStream binaryResourceInputStream = storageManager.getBinaryResourceInputStream(binaryResource)) {
-            FileExportTools.addToZipFile(binaryResourceInputStream, binaryResource.getName(), folderName, zos);
-        }
+        FileExportTools.addToZipFile(storageManager, binaryResource, folderName, zos);
     }
 
 }
@@ -91,9 +91,13 @@ public class QueryResultMessageBodyWriter implements MessageBodyWriter<QueryResu
             httpHeaders.putSingle("Content-Disposition", "inline");
             generateJSONResponse(outputStream, queryResult);
         } else if (queryResult.getExportType().equals(QueryResult.ExportType.XLS)) {
-            httpHeaders.putSingle("Content-Type", "application/octet-stream");
-            httpHeaders.putSingle("Content-Disposition", "attachment; filename=\"TSR.csv\"");
-            excelGenerator.generateXLSResponse(queryResult, new Locale(queryResult.getQuery().getAuthor().getLanguage()), "");
+            httpHeaders.putSingle("Content-Type", ExcelGenerator.XLSX_CONTENT_TYPE);
+            httpHeaders.putSingle("Content-Disposition", "attachment; filename=\"export_parts.xlsx\"");
+            excelGenerator.generateXLSResponse(queryResult, new Locale(queryResult.getQuery().getAuthor().getLanguage()), "", outputStream);
+        } else if (queryResult.getExportType().equals(QueryResult.ExportType.CSV)) {
+            httpHeaders.putSingle("Content-Type", ExcelGenerator.CSV_CONTENT_TYPE);
+            httpHeaders.putSingle("Content-Disposition", "attachment; filename=\"export_parts.csv\"");
+            excelGenerator.generateCSVResponse(queryResult, new Locale(queryResult.getQuery().getAuthor().getLanguage()), "", outputStream);
         } else {
             throw new IllegalArgumentException();
         }
@@ -24,8 +24,8 @@ import javax.inject.Inject;
 import javax.websocket.*;
 import javax.websocket.server.ServerEndpoint;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -64,7 +64,8 @@ public class WebSocketApplication {
     @Inject
     private AuthConfig authConfig;
 
-    private List<Session> unAuthenticatedSessions = new ArrayList<>();
+    // Shared by the endpoint instances, a session may be handled by any of them
+    private static final Set<Session> UN_AUTHENTICATED_SESSIONS = ConcurrentHashMap.newKeySet();
 
     public WebSocketApplication() {
     }
@@ -86,12 +87,12 @@ public class WebSocketApplication {
 
     @OnOpen
     public void open(Session session) {
-        unAuthenticatedSessions.add(session);
+        UN_AUTHENTICATED_SESSIONS.add(session);
     }
 
     @OnMessage
     public void message(Session session, WebSocketMessage message) {
-        if (unAuthenticatedSessions.contains(session)) {
+        if (UN_AUTHENTICATED_SESSIONS.contains(session)) {
             authenticateOrClose(session, message);
             return;
         }
@@ -124,7 +125,7 @@ public class WebSocketApplication {
                 UserGroupMapping userGroupMapping = jwTokenUserGroupMapping.getUserGroupMapping();
                 String login = userGroupMapping.getLogin();
                 if (login != null) {
-                    unAuthenticatedSessions.remove(session);
+                    UN_AUTHENTICATED_SESSIONS.remove(session);
                     webSocketSessionsManager.addSession(login, session);
                     return;
                 }
@@ -155,11 +156,8 @@ public class WebSocketApplication {
     }
 
     private void unTrackSession(Session session) {
-        if (unAuthenticatedSessions.contains(session)) {
-            unAuthenticatedSessions.remove(session);
-        } else {
-            webSocketSessionsManager.removeSession(session);
-        }
+        UN_AUTHENTICATED_SESSIONS.remove(session);
+        webSocketSessionsManager.removeSession(session);
     }
 
 
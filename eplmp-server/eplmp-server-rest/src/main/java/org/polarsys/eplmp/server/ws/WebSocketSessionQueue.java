@@ -0,0 +1,151 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.ws;
+
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Outbound messages of an authenticated session.
+ *
+ * Messages are sent one at a time, the next one once the previous is written, so that a slow
+ * client doesn't pile up pending sends in the container. The queue is bounded: a user status
+ * message replaces the queued one about the same user, and when the queue is full the oldest
+ * status message is discarded, or the new message when there is none.
+ */
+public class WebSocketSessionQueue implements SendHandler {
+
+    private static final Logger LOGGER = Logger.getLogger(WebSocketSessionQueue.class.getName());
+
+    // Type of the status messages, see StatusWebSocketModuleImpl
+    private static final String USER_STATUS = "USER_STATUS";
+
+    private final String login;
+    private final Session session;
+    private final int capacity;
+    private final AtomicLong droppedMessages;
+
+    private final Deque<WebSocketMessage> messages = new ArrayDeque<>();
+    private boolean sending;
+
+    public WebSocketSessionQueue(String login, Session session, int capacity, AtomicLong droppedMessages) {
+        this.login = login;
+        this.session = session;
+        this.capacity = capacity;
+        this.droppedMessages = droppedMessages;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public synchronized int size() {
+        return messages.size();
+    }
+
+    /**
+     * Queue a message, sending it right away if no message is being sent.
+     */
+    public void offer(WebSocketMessage message) {
+        synchronized (this) {
+            if (!enqueue(message) || sending) {
+                return;
+            }
+            sending = true;
+        }
+        sendNext();
+    }
+
+    /**
+     * Discard the queued messages, once the session is closed.
+     */
+    public synchronized void clear() {
+        messages.clear();
+    }
+
+    @Override
+    public void onResult(SendResult result) {
+        if (!result.isOK()) {
+            LOGGER.log(Level.FINE, "Cannot send WebSocket message to " + login, result.getException());
+        }
+        sendNext();
+    }
+
+    private boolean enqueue(WebSocketMessage message) {
+        String statusKey = getStatusKey(message);
+        if (statusKey != null) {
+            // Only the last status of a user is worth sending
+            messages.removeIf(queued -> statusKey.equals(getStatusKey(queued)));
+        }
+
+        if (messages.size() >= capacity && !removeOldestStatus()) {
+            droppedMessages.incrementAndGet();
+            return false;
+        }
+
+        messages.add(message);
+        return true;
+    }
+
+    private boolean removeOldestStatus() {
+        Iterator<WebSocketMessage> iterator = messages.iterator();
+        while (iterator.hasNext()) {
+            if (getStatusKey(iterator.next()) != null) {
+                iterator.remove();
+                droppedMessages.incrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void sendNext() {
+        WebSocketMessage next;
+        synchronized (this) {
+            next = messages.poll();
+            if (next == null) {
+                sending = false;
+                return;
+            }
+        }
+
+        try {
+            session.getAsyncRemote().sendObject(next, this);
+        } catch (RuntimeException e) {
+            // The session is closed, it is removed by the close or error callback
+            LOGGER.log(Level.FINE, "Cannot send WebSocket message to " + login, e);
+            synchronized (this) {
+                droppedMessages.addAndGet(messages.size() + 1);
+                messages.clear();
+                sending = false;
+            }
+        }
+    }
+
+    private static String getStatusKey(WebSocketMessage message) {
+        if (USER_STATUS.equals(message.getType())) {
+            return message.getString("remoteUser");
+        }
+        return null;
+    }
+}
@@ -16,68 +16,75 @@ import org.polarsys.eplmp.core.services.IUserManagerLocal;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.websocket.Session;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.Collection;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The aim of this class is to maintain active sockets
  *
+ * Sessions are indexed by user and the user of a session is indexed by session, both are safe
+ * for concurrent opening and closing. Messages are sent through a bounded queue per session.
+ *
  * @author Morgan Guimard
  * */
 @ApplicationScoped
 public class WebSocketSessionsManager {
 
+    private static final int QUEUE_CAPACITY = 128;
+
     @Inject
     private IUserManagerLocal userManager;
 
     /**
-     * Users WebSockets map, store a list af sessions for each user
+     * Users WebSockets map, store a set of sessions for each user
      */
-    private static final ConcurrentMap<String, List<Session>> CHANNELS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Set<Session>> CHANNELS = new ConcurrentHashMap<>();
+
+    /**
+     * Sessions map, store the user and outbound queue of each session
+     */
+    private static final ConcurrentMap<Session, WebSocketSessionQueue> QUEUES = new ConcurrentHashMap<>();
+
+    private static final AtomicLong DROPPED_MESSAGES = new AtomicLong();
 
     public boolean hasSessions(String login) {
-        List<Session> sessions = getSessions(login);
+        Set<Session> sessions = CHANNELS.get(login);
         return sessions != null && !sessions.isEmpty();
     }
 
-    public List<Session> getSessions(String userLogin) {
+    public Collection<Session> getSessions(String userLogin) {
         return CHANNELS.get(userLogin);
     }
 
     public String getHolder(Session session){
-        return CHANNELS.entrySet().stream().
-                filter(stringListEntry -> stringListEntry.getValue().contains(session))
-                .map(Map.Entry::getKey)
-                .findFirst()
-                .orElse(null);
+        WebSocketSessionQueue queue = QUEUES.get(session);
+        return null != queue ? queue.getLogin() : null;
     }
 
     public void removeSession(Session session) {
 
-        String login = getHolder(session);
+        WebSocketSessionQueue queue = QUEUES.remove(session);
 
-        if(null != login){
-            List<Session> sessions = getSessions(login);
-            if(null != sessions){
+        if(null != queue){
+            CHANNELS.computeIfPresent(queue.getLogin(), (login, sessions) -> {
                 sessions.remove(session);
-                if(sessions.isEmpty()){
-                    CHANNELS.remove(login);
-                }
-            }
+                return sessions.isEmpty() ? null : sessions;
+            });
+            queue.clear();
         }
 
     }
 
     public void addSession(String login, Session session) {
-        List<Session> sessions = getSessions(login);
-        if(null == sessions){
-            sessions = new ArrayList<>();
-            CHANNELS.put(login,sessions);
-        }
-        sessions.add(session);
+        QUEUES.put(session, new WebSocketSessionQueue(login, session, QUEUE_CAPACITY, DROPPED_MESSAGES));
+        CHANNELS.compute(login, (key, sessions) -> {
+            Set<Session> userSessions = null != sessions ? sessions : ConcurrentHashMap.newKeySet();
+            userSessions.add(session);
+            return userSessions;
+        });
     }
 
     public boolean isAllowedToReachUser(String sender, String remoteUser){
@@ -85,11 +92,13 @@ public class WebSocketSessionsManager {
     }
 
     public void broadcast(String userLogin, WebSocketMessage webSocketMessage){
-        List<Session> sessions = getSessions(userLogin);
-        send(sessions,webSocketMessage);
+        Collection<Session> sessions = getSessions(userLogin);
+        if(null != sessions){
+            send(sessions,webSocketMessage);
+        }
     }
 
-    public void send(List<Session> sessions, WebSocketMessage webSocketMessage){
+    public void send(Collection<Session> sessions, WebSocketMessage webSocketMessage){
         for(Session session : sessions){
             send(session,webSocketMessage);
         }
@@ -97,7 +106,40 @@ public class WebSocketSessionsManager {
 
     public void send(Session session, WebSocketMessage webSocketMessage){
         if (session != null) {
-            session.getAsyncRemote().sendObject(webSocketMessage);
+            WebSocketSessionQueue queue = QUEUES.get(session);
+            if (null != queue) {
+                queue.offer(webSocketMessage);
+            } else {
+                session.getAsyncRemote().sendObject(webSocketMessage);
+            }
         }
     }
+
+    /**
+     * Get the number of authenticated sessions.
+     */
+    public int getConnectedSessions() {
+        return QUEUES.size();
+    }
+
+    /**
+     * Get the number of users having at least one authenticated session.
+     */
+    public int getConnectedUsers() {
+        return CHANNELS.size();
+    }
+
+    /**
+     * Get the number of messages waiting to be sent.
+     */
+    public long getQueuedMessages() {
+        return QUEUES.values().stream().mapToLong(WebSocketSessionQueue::size).sum();
+    }
+
+    /**
+     * Get the number of messages discarded since startup because a client did not read them fast enough.
+     */
+    public long getDroppedMessages() {
+        return DROPPED_MESSAGES.get();
+    }
 }
@@ -0,0 +1,138 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.export;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.polarsys.eplmp.core.product.PartRevision;
+import org.polarsys.eplmp.core.query.Query;
+import org.polarsys.eplmp.core.query.QueryField;
+import org.polarsys.eplmp.core.query.QueryResultRow;
+import org.polarsys.eplmp.server.rest.collections.QueryResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+public class ExcelGeneratorTest {
+
+    private static final List<String> SELECTS = Arrays.asList(QueryField.PART_MASTER_NUMBER, QueryField.PART_MASTER_NAME, QueryField.PART_REVISION_VERSION);
+
+    private ExcelGenerator excelGenerator = new ExcelGenerator();
+
+    @Test
+    public void csvValuesAreQuotedTest() throws Exception {
+        QueryResult queryResult = queryResult(
+                partRevision("P1", "plain", "A"),
+                partRevision("P2", "bolt, nut", "A"),
+                partRevision("P3", "6\" screw", "B"),
+                partRevision("P4", "first line\nsecond line", "C"));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        excelGenerator.generateCSVResponse(queryResult, Locale.ENGLISH, "http://localhost", outputStream);
+
+        Assert.assertEquals("Part number,Part name,Version\r\n"
+                        + "P1,plain,A\r\n"
+                        + "P2,\"bolt, nut\",A\r\n"
+                        + "P3,\"6\"\" screw\",B\r\n"
+                        + "P4,\"first line\nsecond line\",C\r\n",
+                new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void xlsxRowsAreStreamedTest() throws Exception {
+        // More rows than the access window, the first ones are flushed before the workbook is written
+        PartRevision[] partRevisions = new PartRevision[1000];
+        for (int i = 0; i < partRevisions.length; i++) {
+            partRevisions[i] = partRevision("P" + i, "Part " + i, "A");
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        excelGenerator.generateXLSResponse(queryResult(partRevisions), Locale.ENGLISH, "http://localhost", outputStream);
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            Sheet sheet = workbook.getSheet("Parts Data");
+            Assert.assertEquals(partRevisions.length, sheet.getLastRowNum());
+
+            Row header = sheet.getRow(0);
+            Assert.assertEquals("Part number", header.getCell(0).getStringCellValue());
+            Assert.assertEquals(QueryField.PART_MASTER_NUMBER, header.getCell(0).getCellComment().getString().getString());
+            Assert.assertNull(header.getCell(1).getCellComment());
+
+            for (int i = 0; i < partRevisions.length; i++) {
+                Row row = sheet.getRow(i + 1);
+                Assert.assertEquals("P" + i, row.getCell(0).getStringCellValue());
+                Assert.assertEquals("Part " + i, row.getCell(1).getStringCellValue());
+                Assert.assertEquals("A", row.getCell(2).getStringCellValue());
+                Assert.assertNull(row.getCell(0).getCellComment());
+            }
+        }
+    }
+
+    @Test
+    public void xlsxRowCommentsAreKeptTest() throws Exception {
+        Query query = new Query();
+        query.setSelects(Arrays.asList(QueryField.PART_MASTER_NUMBER, QueryField.CTX_SERIAL_NUMBER));
+        List<QueryResultRow> rows = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            QueryResultRow row = new QueryResultRow(partRevision("P" + i, "Part " + i, "A"));
+            // Rows without a path have nothing to comment
+            row.setPath(i % 2 == 0 ? "-1-u" + i : null);
+            rows.add(row);
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        excelGenerator.generateXLSResponse(new QueryResult(query, rows), Locale.ENGLISH, "http://localhost", outputStream);
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            int commentSheetIndex = workbook.getSheetIndex(ExcelGenerator.COMMENT_SHEET_NAME);
+            Assert.assertTrue(workbook.isSheetHidden(commentSheetIndex));
+
+            Sheet commentSheet = workbook.getSheetAt(commentSheetIndex);
+            for (int i = 0; i < rows.size(); i++) {
+                Row row = commentSheet.getRow(i + 1);
+                if (i % 2 == 0) {
+                    Assert.assertNull(row.getCell(0));
+                    Assert.assertEquals("-1-u" + i, row.getCell(1).getStringCellValue());
+                } else {
+                    Assert.assertNull(row);
+                }
+            }
+        }
+    }
+
+    private QueryResult queryResult(PartRevision... partRevisions) {
+        Query query = new Query();
+        query.setSelects(SELECTS);
+        List<QueryResultRow> rows = new ArrayList<>();
+        for (PartRevision partRevision : partRevisions) {
+            rows.add(new QueryResultRow(partRevision));
+        }
+        return new QueryResult(query, rows);
+    }
+
+    private PartRevision partRevision(String number, String name, String version) {
+        PartRevision partRevision = Mockito.mock(PartRevision.class);
+        Mockito.when(partRevision.getPartNumber()).thenReturn(number);
+        Mockito.when(partRevision.getPartName()).thenReturn(name);
+        Mockito.when(partRevision.getVersion()).thenReturn(version);
+        return partRevision;
+    }
+}
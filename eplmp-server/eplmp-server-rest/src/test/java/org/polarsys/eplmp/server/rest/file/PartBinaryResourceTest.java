@@ -234,7 +234,7 @@ public class PartBinaryResourceTest {
         Mockito.when(publicEntityManager.getPublicBinaryResourceForPart(Matchers.anyString())).thenReturn(binaryResource);
         Response response = partBinaryResource.downloadPartFile(request, ResourceUtil.WORKSPACE_ID,
                 ResourceUtil.PART_NUMBER, ResourceUtil.VERSION, ResourceUtil.ITERATION, "attached-files",
-                ResourceUtil.TEST_PART_FILENAME1, ResourceUtil.FILE_TYPE, null, ResourceUtil.RANGE, null, null, null);
+                ResourceUtil.TEST_PART_FILENAME1, ResourceUtil.FILE_TYPE, null, ResourceUtil.RANGE, null, null, null, null, null);
         //Then
         assertNotNull(response);
         assertEquals(response.getStatus(), 206);
@@ -278,7 +278,7 @@ public class PartBinaryResourceTest {
         //When
         Response response = partBinaryResource.downloadPartFile(request, ResourceUtil.WORKSPACE_ID,
                 ResourceUtil.PART_NUMBER, ResourceUtil.VERSION, ResourceUtil.ITERATION, "attached-files",
-                ResourceUtil.TEST_PART_FILENAME1, ResourceUtil.FILE_TYPE, null, ResourceUtil.RANGE, ResourceUtil.SHARED_PART_ENTITY_UUID, "password", null);
+                ResourceUtil.TEST_PART_FILENAME1, ResourceUtil.FILE_TYPE, null, ResourceUtil.RANGE, null, null, ResourceUtil.SHARED_PART_ENTITY_UUID, "password", null);
         //Then
         assertNotNull(response);
         assertEquals(response.getStatus(), 206);
@@ -309,7 +309,7 @@ public class PartBinaryResourceTest {
         //When
         Response response = partBinaryResource.downloadPartFile(request, ResourceUtil.WORKSPACE_ID,
                 ResourceUtil.PART_NUMBER, ResourceUtil.VERSION, ResourceUtil.ITERATION, "attached-files",
-                ResourceUtil.TEST_PART_FILENAME1, ResourceUtil.FILE_TYPE, null, ResourceUtil.RANGE, null, null, null);
+                ResourceUtil.TEST_PART_FILENAME1, ResourceUtil.FILE_TYPE, null, ResourceUtil.RANGE, null, null, null, null, null);
         //Then
         assertNotNull(response);
         assertEquals(response.getStatus(), 206);
@@ -341,7 +341,7 @@ public class PartBinaryResourceTest {
         try {
             partBinaryResource.downloadPartFile(request, ResourceUtil.WORKSPACE_ID,
                     ResourceUtil.PART_NUMBER, ResourceUtil.VERSION, ResourceUtil.ITERATION, "attached-files",
-                    ResourceUtil.TEST_PART_FILENAME1, ResourceUtil.FILE_TYPE, null, ResourceUtil.RANGE, null, null, null);
+                    ResourceUtil.TEST_PART_FILENAME1, ResourceUtil.FILE_TYPE, null, ResourceUtil.RANGE, null, null, null, null, null);
             assertTrue(false);
         } catch (SharedResourceAccessException e) {
             assertTrue(true);
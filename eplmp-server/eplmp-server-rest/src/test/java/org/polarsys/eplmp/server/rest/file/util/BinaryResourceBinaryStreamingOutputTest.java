@@ -0,0 +1,169 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.rest.file.util;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.polarsys.eplmp.server.rest.exceptions.RequestedRangeNotSatisfiableException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class BinaryResourceBinaryStreamingOutputTest {
+
+    private static final int FILE_SIZE = 1024 * 1024;
+
+    private File file;
+    private byte[] content;
+
+    @Before
+    public void setup() throws IOException {
+        content = new byte[FILE_SIZE];
+        new Random(42).nextBytes(content);
+        file = File.createTempFile("eplmp-download", ".bin");
+        Files.write(file.toPath(), content);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void parseRangesTest() throws Exception {
+        List<ByteRange> ranges = ByteRange.parse("bytes=0-99,5000000000-, -100,200-", FILE_SIZE);
+        // The range beyond the end of the content is ignored
+        Assert.assertEquals(3, ranges.size());
+        Assert.assertEquals("0-99", ranges.get(0).toString());
+        Assert.assertEquals((FILE_SIZE - 100) + "-" + (FILE_SIZE - 1), ranges.get(1).toString());
+        Assert.assertEquals("200-" + (FILE_SIZE - 1), ranges.get(2).toString());
+
+        // Offsets above 2 GB
+        ByteRange large = ByteRange.parse("bytes=3000000000-3000000099", 5000000000L).get(0);
+        Assert.assertEquals(3000000000L, large.getStart());
+        Assert.assertEquals(100, large.getLength());
+        Assert.assertEquals("bytes 3000000000-3000000099/5000000000", large.toContentRange(5000000000L));
+    }
+
+    @Test(expected = RequestedRangeNotSatisfiableException.class)
+    public void parseUnsatisfiableRangeTest() throws Exception {
+        ByteRange.parse("bytes=" + FILE_SIZE + "-", FILE_SIZE);
+    }
+
+    @Test(expected = RequestedRangeNotSatisfiableException.class)
+    public void parseMalformedRangeTest() throws Exception {
+        ByteRange.parse("bytes=a-b", FILE_SIZE);
+    }
+
+    @Test
+    public void writeSingleRangeFromFileTest() throws Exception {
+        List<ByteRange> ranges = Collections.singletonList(new ByteRange(1000, 5999));
+        BinaryResourceBinaryStreamingOutput output = new BinaryResourceBinaryStreamingOutput(file, ranges, FILE_SIZE, "application/octet-stream", null);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        output.write(outputStream);
+
+        Assert.assertEquals(5000, output.getContentLength());
+        Assert.assertArrayEquals(Arrays.copyOfRange(content, 1000, 6000), outputStream.toByteArray());
+    }
+
+    @Test
+    public void writeMultipleRangesFromFileTest() throws Exception {
+        List<ByteRange> ranges = Arrays.asList(new ByteRange(10, 19), new ByteRange(FILE_SIZE - 5, FILE_SIZE - 1));
+        BinaryResourceBinaryStreamingOutput output = new BinaryResourceBinaryStreamingOutput(file, ranges, FILE_SIZE, "application/octet-stream", "BOUNDARY");
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        output.write(outputStream);
+        byte[] body = outputStream.toByteArray();
+
+        Assert.assertEquals(output.getContentLength(), body.length);
+
+        String firstHeader = "\r\n--BOUNDARY\r\nContent-Type: application/octet-stream\r\nContent-Range: bytes 10-19/" + FILE_SIZE + "\r\n\r\n";
+        Assert.assertEquals(firstHeader, new String(body, 0, firstHeader.length(), StandardCharsets.US_ASCII));
+        Assert.assertArrayEquals(Arrays.copyOfRange(content, 10, 20), Arrays.copyOfRange(body, firstHeader.length(), firstHeader.length() + 10));
+        Assert.assertTrue(new String(body, StandardCharsets.US_ASCII).endsWith("\r\n--BOUNDARY--\r\n"));
+    }
+
+    @Test
+    public void writeRangeFromStreamTest() throws Exception {
+        BinaryResourceBinaryStreamingOutput output = new BinaryResourceBinaryStreamingOutput(new FileInputStream(file), 1000, 5999, FILE_SIZE);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        output.write(outputStream);
+
+        Assert.assertArrayEquals(Arrays.copyOfRange(content, 1000, 6000), outputStream.toByteArray());
+    }
+
+    /**
+     * Compare ranged reads served from a buffered stream, which has to skip the beginning of the
+     * file, with positional channel transfers. Only run with -Dbenchmark=true.
+     */
+    @Test
+    public void benchmarkRangedDownloads() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+
+        long size = 512L * 1024 * 1024;
+        File largeFile = File.createTempFile("eplmp-download-benchmark", ".bin");
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(largeFile, "rw")) {
+            randomAccessFile.setLength(size);
+        }
+
+        // The 3D viewer asks for small chunks spread over large geometry files
+        int requests = 200;
+        long chunk = 256 * 1024;
+        Random random = new Random(42);
+        long[] starts = new long[requests];
+        for (int i = 0; i < requests; i++) {
+            starts[i] = (long) (random.nextDouble() * (size - chunk));
+        }
+
+        try {
+            long streamNanos = 0;
+            long channelNanos = 0;
+            for (long start : starts) {
+                long t = System.nanoTime();
+                new BinaryResourceBinaryStreamingOutput(new BufferedInputStream(new FileInputStream(largeFile)), start, start + chunk - 1, size)
+                        .write(new NullOutputStream());
+                streamNanos += System.nanoTime() - t;
+
+                t = System.nanoTime();
+                new BinaryResourceBinaryStreamingOutput(largeFile, Collections.singletonList(new ByteRange(start, start + chunk - 1)), size, "application/octet-stream", null)
+                        .write(new NullOutputStream());
+                channelNanos += System.nanoTime() - t;
+            }
+
+            double megaBytes = requests * chunk / (1024.0 * 1024.0);
+            System.out.printf("Ranged downloads, %d x %d KB: stream %.1f MB/s, channel %.1f MB/s%n",
+                    requests, chunk / 1024, megaBytes / (streamNanos / 1e9), megaBytes / (channelNanos / 1e9));
+        } finally {
+            largeFile.delete();
+        }
+    }
+
+    private static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
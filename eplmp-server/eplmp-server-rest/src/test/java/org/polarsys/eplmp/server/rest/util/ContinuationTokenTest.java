@@ -0,0 +1,45 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.rest.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.polarsys.eplmp.server.rest.exceptions.InvalidContinuationTokenException;
+
+public class ContinuationTokenTest {
+
+    @Test
+    public void keyRoundTripTest() throws InvalidContinuationTokenException {
+        String token = ContinuationToken.encode("PART-001/é ?&", "B");
+
+        Assert.assertTrue(token.matches("[A-Za-z0-9_-]+"));
+        Assert.assertArrayEquals(new String[]{"PART-001/é ?&", "B"}, ContinuationToken.decode(token, 2));
+        Assert.assertEquals(42, ContinuationToken.decodeId(ContinuationToken.encode(42)));
+    }
+
+    @Test
+    public void pageSizeTest() {
+        Assert.assertEquals(ContinuationToken.DEFAULT_PAGE_SIZE, ContinuationToken.pageSize(0));
+        Assert.assertEquals(50, ContinuationToken.pageSize(50));
+        Assert.assertEquals(ContinuationToken.MAX_PAGE_SIZE, ContinuationToken.pageSize(Integer.MAX_VALUE));
+    }
+
+    @Test(expected = InvalidContinuationTokenException.class)
+    public void malformedTokenTest() throws InvalidContinuationTokenException {
+        ContinuationToken.decode("not a token!", 2);
+    }
+
+    @Test(expected = InvalidContinuationTokenException.class)
+    public void wrongKeyTest() throws InvalidContinuationTokenException {
+        ContinuationToken.decode(ContinuationToken.encode("PART-001"), 2);
+    }
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.rest.util;
+
+import org.junit.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.zip.*;
+
+public class FileExportToolsTest {
+
+    private File folder;
+    private final Map<String, byte[]> contents = new LinkedHashMap<>();
+
+    @Before
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("eplmp-export").toFile();
+        Random random = new Random(42);
+
+        StringBuilder geometry = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            geometry.append("v ").append(random.nextInt(1000)).append(' ').append(random.nextInt(1000)).append(" 0\n");
+        }
+        contents.put("part.obj", geometry.toString().getBytes(StandardCharsets.US_ASCII));
+
+        byte[] picture = new byte[300 * 1024];
+        random.nextBytes(picture);
+        contents.put("picture.JPG", picture);
+
+        for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+            Files.write(new File(folder, entry.getKey()).toPath(), entry.getValue());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : folder.listFiles()) {
+            file.delete();
+        }
+        folder.delete();
+    }
+
+    @Test
+    public void compressedTypesAreStoredTest() throws Exception {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = FileExportTools.createZipOutputStream(archive)) {
+            for (String name : contents.keySet()) {
+                FileExportTools.addToZipFile(new File(folder, name), name, "P-001", zos);
+            }
+            try (InputStream inputStream = new ByteArrayInputStream(contents.get("part.obj"))) {
+                FileExportTools.addToZipFile(inputStream, "streamed.obj", "P-002", zos);
+            }
+        }
+
+        Map<String, Integer> methods = new HashMap<>();
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(archive.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                methods.put(entry.getName(), entry.getMethod());
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int length;
+                while ((length = zis.read(buffer)) >= 0) {
+                    content.write(buffer, 0, length);
+                }
+                String name = entry.getName().substring(entry.getName().indexOf('/') + 1);
+                byte[] expected = contents.get("streamed.obj".equals(name) ? "part.obj" : name);
+                Assert.assertArrayEquals(expected, content.toByteArray());
+            }
+        }
+
+        Assert.assertEquals(Integer.valueOf(ZipEntry.DEFLATED), methods.get("P-001/part.obj"));
+        Assert.assertEquals(Integer.valueOf(ZipEntry.STORED), methods.get("P-001/picture.JPG"));
+        Assert.assertEquals(Integer.valueOf(ZipEntry.DEFLATED), methods.get("P-002/streamed.obj"));
+    }
+
+    /**
+     * Compare the former export, deflating everything with a 1 KB buffer and gzipping the archive,
+     * with the current one. Only run with -Dbenchmark=true.
+     */
+    @Test
+    public void benchmarkExport() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+
+        // Sample tree: 50 parts with a geometry, a native CAD file and a picture
+        List<File> files = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50; i++) {
+            for (String name : Arrays.asList("part" + i + ".obj", "part" + i + ".3dxml", "part" + i + ".png")) {
+                byte[] content = new byte[2 * 1024 * 1024];
+                if (name.endsWith(".obj")) {
+                    Arrays.fill(content, (byte) 'v');
+                } else {
+                    random.nextBytes(content);
+                }
+                File file = new File(folder, name);
+                Files.write(file.toPath(), content);
+                files.add(file);
+            }
+        }
+
+        CountingOutputStream former = new CountingOutputStream();
+        long start = System.nanoTime();
+        try (ZipOutputStream zos = new ZipOutputStream(new GZIPOutputStream(former, 4096))) {
+            for (File file : files) {
+                zos.putNextEntry(new ZipEntry("P/" + file.getName()));
+                try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
+                    byte[] bytes = new byte[1024];
+                    int length;
+                    while ((length = inputStream.read(bytes)) >= 0) {
+                        zos.write(bytes, 0, length);
+                    }
+                }
+                zos.closeEntry();
+            }
+        }
+        long formerNanos = System.nanoTime() - start;
+
+        CountingOutputStream current = new CountingOutputStream();
+        start = System.nanoTime();
+        try (ZipOutputStream zos = FileExportTools.createZipOutputStream(current)) {
+            for (File file : files) {
+                FileExportTools.addToZipFile(file, file.getName(), "P", zos);
+            }
+        }
+        long currentNanos = System.nanoTime() - start;
+
+        System.out.printf("Export of %d files: former %d ms (%d bytes), current %d ms (%d bytes)%n",
+                files.size(), formerNanos / 1000000, former.count, currentNanos / 1000000, current.count);
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
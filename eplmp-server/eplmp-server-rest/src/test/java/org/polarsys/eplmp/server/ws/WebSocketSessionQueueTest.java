@@ -0,0 +1,121 @@
+/*******************************************************************************
+  * Copyright (c) 2017 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.ws;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import javax.json.Json;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class WebSocketSessionQueueTest {
+
+    private Session session;
+    private RemoteEndpoint.Async remote;
+    private AtomicLong dropped;
+
+    @Before
+    public void setup() {
+        session = Mockito.mock(Session.class);
+        remote = Mockito.mock(RemoteEndpoint.Async.class);
+        Mockito.when(session.getAsyncRemote()).thenReturn(remote);
+        dropped = new AtomicLong();
+    }
+
+    @Test
+    public void sendOneMessageAtATimeTest() {
+        WebSocketSessionQueue queue = new WebSocketSessionQueue("user1", session, 10, dropped);
+        WebSocketMessage first = chatMessage();
+        WebSocketMessage second = chatMessage();
+
+        queue.offer(first);
+        queue.offer(second);
+
+        ArgumentCaptor<SendHandler> handler = ArgumentCaptor.forClass(SendHandler.class);
+        Mockito.verify(remote).sendObject(Matchers.eq(first), handler.capture());
+        Mockito.verify(remote, Mockito.never()).sendObject(Matchers.eq(second), Matchers.any(SendHandler.class));
+        Assert.assertEquals(1, queue.size());
+
+        handler.getValue().onResult(new SendResult());
+        Mockito.verify(remote).sendObject(Matchers.eq(second), Matchers.any(SendHandler.class));
+        Assert.assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void statusMessagesAreCoalescedTest() {
+        WebSocketSessionQueue queue = new WebSocketSessionQueue("user1", session, 10, dropped);
+
+        queue.offer(chatMessage());
+        queue.offer(statusMessage("user2"));
+        queue.offer(statusMessage("user3"));
+        queue.offer(statusMessage("user2"));
+
+        Assert.assertEquals(2, queue.size());
+        Assert.assertEquals(0, dropped.get());
+    }
+
+    @Test
+    public void fullQueueShedsStatusMessagesFirstTest() {
+        WebSocketSessionQueue queue = new WebSocketSessionQueue("user1", session, 2, dropped);
+
+        queue.offer(chatMessage());
+        queue.offer(statusMessage("user2"));
+        queue.offer(chatMessage());
+        Assert.assertEquals(2, queue.size());
+
+        // The status message makes room for the new message
+        queue.offer(chatMessage());
+        Assert.assertEquals(2, queue.size());
+        Assert.assertEquals(1, dropped.get());
+
+        // No status message left, the new message is dropped
+        queue.offer(chatMessage());
+        Assert.assertEquals(2, queue.size());
+        Assert.assertEquals(2, dropped.get());
+    }
+
+    @Test
+    public void sessionRegistryTest() {
+        WebSocketSessionsManager manager = new WebSocketSessionsManager();
+        Session otherSession = Mockito.mock(Session.class);
+
+        manager.addSession("user1", session);
+        manager.addSession("user1", otherSession);
+
+        Assert.assertEquals("user1", manager.getHolder(otherSession));
+        Assert.assertEquals(2, manager.getSessions("user1").size());
+
+        manager.removeSession(session);
+        Assert.assertTrue(manager.hasSessions("user1"));
+        Assert.assertNull(manager.getHolder(session));
+
+        manager.removeSession(otherSession);
+        Assert.assertFalse(manager.hasSessions("user1"));
+        Assert.assertNull(manager.getSessions("user1"));
+    }
+
+    private WebSocketMessage chatMessage() {
+        return new WebSocketMessage(Json.createObjectBuilder().add("type", "CHAT_MESSAGE").build());
+    }
+
+    private WebSocketMessage statusMessage(String remoteUser) {
+        return new WebSocketMessage(Json.createObjectBuilder().add("type", "USER_STATUS").add("remoteUser", remoteUser).build());
+    }
+}